@@ -0,0 +1,207 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+/**
+ * Shared parts of the lock-free ring buffer queues. Subclasses provide the
+ * non-blocking offer and poll operations and call signalElementAdded after every
+ * successful offer. A blocking put spins briefly, then yields, then parks for short
+ * periods; a blocking take parks until a producer signals it, using no CPU while idle.
+ */
+public abstract class AbstractRingQueue<E> implements ConcurrentQueue<E> {
+
+    private static final int SPIN_TRIES = 100;      /* busy spins before yielding the processor */
+    private static final int YIELD_TRIES = 200;     /* yields before parking the thread */
+    private static final long MAX_PARK_NANOS = 1000000L;   /* longest single park while waiting */
+
+    protected final Object[] ringBuffer;    /* array used for the queue, sized to a power of two */
+    protected final int ringMask;           /* capacity - 1, used instead of the modulo operator */
+    private final int queueID;              /* queueID to identify multiple queues */
+    private final ConcurrentLinkedQueue<IdleSignal> idleConsumers = new ConcurrentLinkedQueue<IdleSignal>(); /* signals of consumers waiting for an element */
+    private final ConcurrentLinkedQueue<IdleSignal> idleThieves = new ConcurrentLinkedQueue<IdleSignal>(); /* signals of other queues' consumers waiting for a backlog */
+    private volatile int backlogSize = Integer.MAX_VALUE;   /* the queue size that wakes a waiting thief */
+    private volatile boolean closed;        /* set once no more elements will be added */
+
+    /**
+     * Constructs the ring buffer of the queue.
+     * @param maxCapacity the minimum number of elements the queue can hold, rounded up to a power of two
+     * @param queueID the ID identifying this queue
+     */
+    protected AbstractRingQueue(int maxCapacity, int queueID) {
+        if (maxCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive.");
+        }
+        int capacity = roundToPowerOfTwo(maxCapacity);
+        this.ringBuffer = new Object[capacity];
+        this.ringMask = capacity - 1;
+        this.queueID = queueID;
+    }
+
+    /**
+     * Rounds a capacity up to the next power of two.
+     * @param capacity the requested capacity
+     * @return the smallest power of two greater than or equal to the capacity
+     */
+    static int roundToPowerOfTwo(int capacity) {
+        if (capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Queue capacity is too large: " + capacity);
+        }
+        return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    @Override
+    public void put(E newElement) throws InterruptedException {
+        int attempt = 0;
+        while (!offer(newElement)) {
+            backOff(attempt);
+            attempt += 1;
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E element = poll();
+        IdleSignal signal = null;
+        while (element == null) {
+            if (closed) {
+                return poll();
+            }
+            if (signal == null) {
+                Thread consumer = Thread.currentThread();
+                signal = new IdleSignal(() -> LockSupport.unpark(consumer));
+            }
+            signal.arm();
+            awaitElement(signal);
+            while (signal.isArmed()) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            element = poll();
+        }
+        return element;
+    }
+
+    @Override
+    public void awaitElement(IdleSignal signal) {
+        idleConsumers.offer(signal);
+        if (closed || !isEmpty()) {
+            fireSignals(idleConsumers, !closed);
+        }
+    }
+
+    @Override
+    public void awaitBacklog(IdleSignal signal, int minimumSize) {
+        backlogSize = minimumSize;
+        idleThieves.offer(signal);
+        if (closed || size() >= minimumSize) {
+            fireSignals(idleThieves, !closed);
+        }
+    }
+
+    /**
+     * Wakes one waiting consumer after an element has been added, or a waiting
+     * consumer of another queue if none of this queue's own is waiting and the
+     * queue has reached its backlog size. Subclasses call this after every successful offer.
+     */
+    protected void signalElementAdded() {
+        VarHandle.fullFence();
+        if (!idleConsumers.isEmpty() && fireSignals(idleConsumers, true)) {
+            return;
+        }
+        if (!idleThieves.isEmpty() && size() >= backlogSize) {
+            fireSignals(idleThieves, true);
+        }
+    }
+
+    /**
+     * Fires registered signals, skipping the ones that are no longer armed.
+     * @param signals the registered signals
+     * @param onlyOne true to stop after the first consumer woken, false to wake every one
+     * @return true if a consumer was woken
+     */
+    private static boolean fireSignals(ConcurrentLinkedQueue<IdleSignal> signals, boolean onlyOne) {
+        boolean woken = false;
+        IdleSignal signal;
+        while ((signal = signals.poll()) != null) {
+            if (signal.fire()) {
+                woken = true;
+                if (onlyOne) {
+                    return true;
+                }
+            }
+        }
+        return woken;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        fireSignals(idleConsumers, false);
+        fireSignals(idleThieves, false);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> sink, int maxElements) {
+        int drained = 0;
+        while (drained < maxElements) {
+            E element = poll();
+            if (element == null) {
+                break;
+            }
+            sink.add(element);
+            drained += 1;
+        }
+        return drained;
+    }
+
+    /**
+     * Waits a little before the next attempt of a blocking operation.
+     * @param attempt the number of failed attempts so far
+     * @throws InterruptedException if the thread has been interrupted
+     */
+    private static void backOff(int attempt) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            long parkNanos = Math.min(MAX_PARK_NANOS, 1000L << Math.min(attempt - SPIN_TRIES - YIELD_TRIES, 10));
+            LockSupport.parkNanos(parkNanos);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean isFull() {
+        return size() >= capacity();
+    }
+
+    @Override
+    public int capacity() {
+        return ringBuffer.length;
+    }
+
+    @Override
+    public int getQueueID() {
+        return queueID;
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+/**
+ * Runs simulation actors on a small, fixed pool of carrier threads. Each step of
+ * an actor is scheduled for the end of its delay; carriers park until a step is
+ * due instead of sleeping on behalf of every actor, so the number of actors is
+ * bounded by memory rather than by the number of threads the system can create.
+ * An actor waiting for its idle signal is not scheduled at all until the signal fires.
+ * The first exception an actor throws stops the run and is rethrown to its caller.
+ */
+public class ActorScheduler {
+
+    private final int carrierThreads;   /* the number of threads running actor steps */
+
+    /**
+     * Constructs a scheduler.
+     * @param carrierThreads the number of threads running actor steps, at least 1
+     */
+    public ActorScheduler(int carrierThreads) {
+        if (carrierThreads < 1) {
+            throw new IllegalArgumentException("An actor scheduler needs at least one carrier thread.");
+        }
+        this.carrierThreads = carrierThreads;
+    }
+
+    /**
+     * Runs actors until every one of them has finished, or until one of them fails.
+     * The steps of the other actors are then cancelled and the failure is rethrown.
+     * @param actors the actors to run
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws RuntimeException the first exception thrown by a step of an actor
+     * @throws Error the first error thrown by a step of an actor
+     */
+    public void runAll(List<? extends SimulationActor> actors) throws InterruptedException {
+        ScheduledThreadPoolExecutor carriers = new ScheduledThreadPoolExecutor(carrierThreads, runnable -> {
+            Thread carrier = new Thread(runnable, "actor-carrier");
+            carrier.setDaemon(true);
+            return carrier;
+        });
+        carriers.setRemoveOnCancelPolicy(true);
+        CountDownLatch finished = new CountDownLatch(actors.size());
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        try {
+            for (SimulationActor actor : actors) {
+                new ActorStep(actor, carriers, finished, failure).schedule();
+            }
+            finished.await();
+        } finally {
+            carriers.shutdownNow();
+        }
+        Throwable cause = failure.get();
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause != null) {
+            throw (RuntimeException) cause;
+        }
+    }
+
+    /**
+     * The next step of one actor, rescheduled after every step until the actor is done.
+     * A signal can fire while the actor is still deciding to wait for it, so the step
+     * tracks whether the actor is running, parked or was woken while running.
+     */
+    private static class ActorStep implements Runnable {
+
+        private static final int RUNNING = 0;   /* scheduled or taking a step */
+        private static final int PARKED = 1;    /* waiting for its idle signal */
+        private static final int WOKEN = 2;     /* its idle signal fired while it was running */
+
+        private final SimulationActor actor;    /* the actor taking steps */
+        private final ScheduledThreadPoolExecutor carriers; /* the threads running the steps */
+        private final CountDownLatch finished;  /* counts down once per finished actor */
+        private final AtomicReference<Throwable> failure; /* the first exception of any actor of the run */
+        private final AtomicInteger state = new AtomicInteger(RUNNING); /* whether the actor is parked */
+
+        ActorStep(SimulationActor actor, ScheduledThreadPoolExecutor carriers, CountDownLatch finished, AtomicReference<Throwable> failure) {
+            this.actor = actor;
+            this.carriers = carriers;
+            this.finished = finished;
+            this.failure = failure;
+            if (actor.getIdleSignal() != null) {
+                actor.getIdleSignal().setWakeAction(this::wake);
+            }
+        }
+
+        /**
+         * Schedules the actor's next step after its delay, or parks it until its signal fires.
+         */
+        void schedule() {
+            long delay = actor.nextDelayNanos();
+            if (delay != SimulationActor.AWAIT_SIGNAL) {
+                carriers.schedule(this, delay, TimeUnit.NANOSECONDS);
+            } else if (!state.compareAndSet(RUNNING, PARKED)) {
+                state.set(RUNNING);
+                carriers.execute(this);
+            }
+        }
+
+        /**
+         * Runs the actor's next step now if it is parked, or makes it run again once it stops.
+         */
+        void wake() {
+            while (true) {
+                int current = state.get();
+                if (current == PARKED && state.compareAndSet(PARKED, RUNNING)) {
+                    carriers.execute(this);
+                    return;
+                }
+                if (current == WOKEN || (current == RUNNING && state.compareAndSet(RUNNING, WOKEN))) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            state.set(RUNNING);
+            boolean moreSteps;
+            try {
+                moreSteps = actor.step();
+                if (moreSteps) {
+                    schedule();
+                }
+            } catch (RuntimeException | Error e) {
+                fail(e);
+                return;
+            }
+            if (!moreSteps) {
+                finished.countDown();
+            }
+        }
+
+        /**
+         * Keeps the first failure of the run and releases runAll at once, without
+         * waiting for the other actors, which may never finish without this one.
+         * @param e what the actor threw
+         */
+        private void fail(Throwable e) {
+            failure.compareAndSet(null, e);
+            while (finished.getCount() > 0) {
+                finished.countDown();
+            }
+        }
+    }
+}
@@ -3,37 +3,44 @@
  * Single VS Multi-Line Queues by Pao Yu
  */
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 /**
  * Represents a bank which can operate with a reception, tellers, and customers in a queue.
  * @author Pao Yu
  */
 public class BankSimulation<E> extends Thread {
 
-    private Teller teller1;
-    private Teller teller2;
-    private Teller teller3;
+    private static final int INITIAL_QUEUE_CAPACITY = 16;  /* customers a growable queue holds before it first grows */
+
+    private ArrayList<Teller> tellers;      /* the bank's tellers */
     private Reception reception;
-    private Queue<Customer> queue1;
-    private Queue<Customer> queue2;
-    private Queue<Customer> queue3;
+    private ArrayList<ConcurrentQueue<Customer>> queues;    /* the bank's queues */
+    private SimulationConfig config;        /* the layout of the bank */
+    private SimulationContext context;      /* state shared by this bank's reception, tellers and customers */
+    private EventDrivenSimulation eventDrivenSimulation;    /* virtual clock engine, null when running threads */
+    private int actorCarriers;              /* carrier threads running the reception and tellers, 0 for a thread each */
+    private LatencyHistogram sharedWaitTimes;       /* wait times of all tellers when running on carriers */
+    private LatencyHistogram sharedServiceTimes;    /* service times of all tellers when running on carriers */
+    private TraceWriter traceWriter = TraceWriter.disabled(); /* where the customers served or balked are recorded */
+    private volatile long runStartNanos;    /* when the threaded model started running, 0 before */
 
     /**
      * Constructs a simulated bank with three tellers and one queue.
+     * The tellers share a lock-free multi-consumer queue.
      * @param maxCustomers the total number of customers the bank will serve
      * @param timeAccelerationFactor the speed of time the bank's thread objects will run
      * @param randomEnqueueTime a random dataset of integers for controlled dequeue times
      * @param randomDequeueTime a random dataset of integers for controlled dequeue times
      */
     public BankSimulation(int maxCustomers, int timeAccelerationFactor, int[] randomEnqueueTime, int[] randomDequeueTime) {
-        queue1 = new Queue<Customer>(maxCustomers);
-        teller1 = new Teller(queue1, maxCustomers, timeAccelerationFactor, randomDequeueTime);
-        teller2 = new Teller(queue1, maxCustomers, timeAccelerationFactor, randomDequeueTime);
-        teller3 = new Teller(queue1, maxCustomers, timeAccelerationFactor, randomDequeueTime);
-        reception = new Reception(queue1, maxCustomers, timeAccelerationFactor, randomEnqueueTime);
+        this(maxCustomers, timeAccelerationFactor, randomEnqueueTime, randomDequeueTime, false);
     }
 
     /**
      * Constructs a simulated bank with three tellers and three queues.
+     * Each queue has one producer and one consumer, so single-producer single-consumer queues are used.
      * @param maxCustomers the total number of customers the bank will serve
      * @param timeAccelerationFactor the speed of time the bank's thread objects will run
      * @param randomEnqueueTime a random dataset of integers for controlled dequeue times
@@ -41,34 +48,384 @@ public class BankSimulation<E> extends Thread {
      * @param enableMultiQueue enables the functionality of the multiple queue reception operations
      */
     public BankSimulation(int maxCustomers, int timeAccelerationFactor, int[] randomEnqueueTime, int[] randomDequeueTime, boolean enableMultiQueue) {
-        queue1 = new Queue<Customer>(maxCustomers);
-        queue2 = new Queue<Customer>(maxCustomers);
-        queue3 = new Queue<Customer>(maxCustomers);
-        teller1 = new Teller(queue1, maxCustomers, timeAccelerationFactor, randomDequeueTime);
-        teller2 = new Teller(queue2, maxCustomers, timeAccelerationFactor, randomDequeueTime);
-        teller3 = new Teller(queue3, maxCustomers, timeAccelerationFactor, randomDequeueTime);
-        reception = new Reception(queue1, queue2, queue3, maxCustomers, timeAccelerationFactor, randomEnqueueTime, enableMultiQueue);
+        this(SimulationConfig.builder()
+                .customers(maxCustomers)
+                .tellers(3)
+                .queues(enableMultiQueue ? 3 : 1)
+                .timeAcceleration(timeAccelerationFactor)
+                .randomTimes(randomEnqueueTime, randomDequeueTime)
+                .build());
+    }
+
+    /**
+     * Constructs a simulated bank with any number of tellers and queues.
+     * Unless their capacity is limited, queues grow with the number of customers
+     * waiting in them. Limited queues with a single teller are single-producer
+     * single-consumer queues, limited queues shared by several tellers are multi-consumer
+     * queues. With work stealing any teller may take customers from any queue, so every
+     * limited queue is multi-consumer. When tellers choose between customer classes,
+     * every queue keeps a line per class instead.
+     * @param config the layout of the bank and its random data sets
+     */
+    public BankSimulation(SimulationConfig config) {
+        this.config = config;
+        int maxCustomers = config.getMaxCustomers();
+        context = new SimulationContext(maxCustomers, config.getTimeAccelerationFactor(), config.getTotalQueues(), config.getCustomerClasses());
+        /* register the totals before the tellers register theirs, so they lead every sample */
+        context.getMetrics().counter("customers.arrived");
+        context.getMetrics().counter("customers.served");
+        context.getMetrics().counter("customers.balked");
+        context.getMetrics().counter("tellers.busy.nanos");
+        queues = new ArrayList<ConcurrentQueue<Customer>>(config.getTotalQueues());
+        for (int q = 0; q < config.getTotalQueues(); q++) {
+            if (config.isClassScheduled()) {
+                queues.add(new PriorityRingQueue(config.getQueueCapacity(), context.nextQueueID(), config.newClassScheduler(), config.getTotalClasses()));
+            } else if (config.getQueueCapacity() == 0) {
+                queues.add(new GrowableRingQueue<Customer>(INITIAL_QUEUE_CAPACITY, context.nextQueueID()));
+            } else if (config.getTellersOfQueue(q).length == 1 && !config.isWorkStealing()) {
+                queues.add(new SpscRingQueue<Customer>(config.getQueueCapacity(), context.nextQueueID()));
+            } else {
+                queues.add(new MpmcRingQueue<Customer>(config.getQueueCapacity(), context.nextQueueID()));
+            }
+        }
+        tellers = new ArrayList<Teller>(config.getTotalTellers());
+        SplitMixRandom stealRandom = config.newStealRandom(config.getSeed());
+        for (int t = 0; t < config.getTotalTellers(); t++) {
+            ArrayList<ConcurrentQueue<Customer>> tellerQueues = new ArrayList<ConcurrentQueue<Customer>>();
+            for (int q : config.getQueuesOfTeller(t)) {
+                tellerQueues.add(queues.get(q));
+            }
+            Teller teller = new Teller(context, tellerQueues);
+            if (config.isWorkStealing()) {
+                ArrayList<ConcurrentQueue<Customer>> victimQueues = new ArrayList<ConcurrentQueue<Customer>>(queues);
+                victimQueues.removeAll(tellerQueues);
+                teller.enableStealing(victimQueues, config.getStealFrom(), config.getJockeyThreshold(), stealRandom.split());
+            }
+            tellers.add(teller);
+        }
+        reception = new Reception(context, queues, config.newArrivalStream(config.getSeed()), config.newServiceStream(config.getSeed()), config.createRoutingPolicy());
+        if (config.getQueueCapacity() > 0) {
+            reception.limitQueues(config.getQueueCapacity(), config.getOverflow());
+        }
+        if (config.getTotalClasses() > 1) {
+            reception.classifyCustomers(config, config.newClassRandom(config.getSeed()));
+        }
+        registerMetrics();
+    }
+
+    /**
+     * Registers the threaded model's queue depths, teller utilization and time histograms,
+     * and the wait times and missed targets of each customer class if there are several.
+     * Banks with more than MetricsRegistry.DETAIL_LIMIT queues or tellers only register totals.
+     */
+    private void registerMetrics() {
+        MetricsRegistry metrics = context.getMetrics();
+        metrics.gauge("queues.depth", () -> queues.stream().mapToInt(ConcurrentQueue::size).sum());
+        if (queues.size() <= MetricsRegistry.DETAIL_LIMIT) {
+            for (ConcurrentQueue<Customer> queue : queues) {
+                metrics.gauge("queue." + queue.getQueueID() + ".depth", queue::size);
+            }
+        }
+        LongAdder busyNanos = metrics.counter("tellers.busy.nanos");
+        metrics.gauge("tellers.utilization", () -> (double) busyNanos.sum() / tellers.size() / getRunningNanos());
+        if (tellers.size() <= MetricsRegistry.DETAIL_LIMIT) {
+            for (int t = 0; t < tellers.size(); t++) {
+                Teller teller = tellers.get(t);
+                metrics.counter("teller." + (t + 1) + ".served", teller::getCustomersServed);
+                metrics.gauge("teller." + (t + 1) + ".utilization", () -> (double) teller.getBusyNanos() / getRunningNanos());
+            }
+        }
+        metrics.histogram("wait", this::getWaitTimes, EventDrivenSimulation.TICKS_PER_SECOND);
+        metrics.histogram("service", this::getServiceTimes, EventDrivenSimulation.TICKS_PER_SECOND);
+        if (config.getTotalClasses() > 1) {
+            for (int c = 0; c < config.getTotalClasses(); c++) {
+                int customerClass = c;
+                String name = "class." + config.getCustomerClasses().get(c).getName();
+                metrics.histogram(name + ".wait", () -> context.getClassWaitTimes(customerClass), EventDrivenSimulation.TICKS_PER_SECOND);
+                metrics.counter(name + ".missed", () -> context.getClassTargetMisses(customerClass));
+            }
+        }
+    }
+
+    /**
+     * Retrieves how long the threaded model has been running, for utilization gauges.
+     * @return the running time in nanoseconds, at least 1
+     */
+    private long getRunningNanos() {
+        long start = runStartNanos;
+        return start == 0 ? 1 : Math.max(System.nanoTime() - start, 1);
+    }
+
+    /**
+     * Switches the bank between the threaded model and the discrete-event model.
+     * The discrete-event model runs the same data sets on a virtual clock, so it
+     * finishes as fast as the events can be processed and its wait times are exact.
+     * @param enableEventDriven true to run on a virtual clock instead of sleeping threads
+     */
+    public void setEventDriven(boolean enableEventDriven) {
+        if (enableEventDriven) {
+            eventDrivenSimulation = new EventDrivenSimulation(config);
+            eventDrivenSimulation.setTraceWriter(traceWriter);
+        } else {
+            eventDrivenSimulation = null;
+        }
+    }
+
+    /**
+     * Switches the threaded model between a thread for the reception and each teller,
+     * and a small pool of carrier threads shared by all of them. On carriers, a waiting
+     * teller holds no thread, so a bank can have hundreds of thousands of tellers.
+     * The tellers then record their times into shared histograms to save memory.
+     * @param carrierThreads the number of carrier threads, or 0 for a thread per reception and teller
+     */
+    public void setActorCarriers(int carrierThreads) {
+        if (carrierThreads < 0) {
+            throw new IllegalArgumentException("The number of carrier threads cannot be negative.");
+        }
+        actorCarriers = carrierThreads;
+    }
+
+    /**
+     * Sets where the reception and tellers of the threaded model log what happens to customers.
+     * The log is written by a background thread, so the bank does not wait on console output.
+     * @param eventLog the log, or EventLog.disabled() for none
+     */
+    public void setEventLog(EventLog eventLog) {
+        context.setEventLog(eventLog);
+    }
+
+    /**
+     * Sets where the customers served or balked are recorded, one record per customer, in either model.
+     * Recording writes into a memory-mapped file and does not hold up the tellers.
+     * @param traceWriter the trace, with room for every customer, or TraceWriter.disabled() for none
+     */
+    public void setTraceWriter(TraceWriter traceWriter) {
+        this.traceWriter = traceWriter;
+        context.setTraceWriter(traceWriter);
+        if (eventDrivenSimulation != null) {
+            eventDrivenSimulation.setTraceWriter(traceWriter);
+        }
     }
 
     /**
      * Starts the operations of the reception and the tellers.
      * Waits for all of these objects to complete their tasks before 
      * "closing" the bank, which is dictated by teller operations.
+     * If the reception or a teller fails, the others are stopped and the
+     * first failure is rethrown instead of reporting partial results.
+     * @throws RuntimeException the first exception of the reception or a teller
      */
     public void run() {
-        reception.start();
-        teller1.start();
-        teller2.start();
-        teller3.start();
+        if (eventDrivenSimulation != null) {
+            eventDrivenSimulation.run();
+            System.out.printf("%sSimulation complete!%s", "\033[1;32m", "\033[0m");
+            return;
+        }
         try {
-            reception.join();
-            teller1.join();
-            teller2.join();
-            teller3.join();
+            runStartNanos = System.nanoTime();
+            if (actorCarriers > 0) {
+                runOnCarriers();
+            } else {
+                runOnThreads();
+            }
+            context.closeBank();
         } catch (InterruptedException e) {
             System.out.println(e);
         } finally {
-            System.out.printf("%sSimulation complete!%s", "\033[1;32m", "\033[0m");
+            context.getEventLog().flush();
         }
+        context.rethrowActorFailure();
+        System.out.printf("%sSimulation complete!%s", "\033[1;32m", "\033[0m");
+    }
+
+    /**
+     * Runs the reception and every teller on a thread of their own. The first of
+     * them to fail is recorded in the context and the other threads are interrupted.
+     * @throws InterruptedException if the bank's thread is interrupted while waiting
+     */
+    private void runOnThreads() throws InterruptedException {
+        List<Thread> threads = new ArrayList<Thread>(tellers.size() + 1);
+        threads.add(new Thread(() -> runActor(reception, threads)));
+        for (Teller teller : tellers) {
+            threads.add(new Thread(() -> runActor(teller, threads)));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Runs the reception or a teller on the calling thread, recording its failure
+     * and interrupting every other thread of the bank so they stop too.
+     * @param actor the reception or teller
+     * @param threads the threads of the bank
+     */
+    private void runActor(SimulationActor actor, List<Thread> threads) {
+        try {
+            actor.run();
+        } catch (RuntimeException | Error e) {
+            context.actorFailed(e);
+            for (Thread thread : threads) {
+                if (thread != Thread.currentThread()) {
+                    thread.interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the reception and every teller on the shared carrier threads.
+     * @throws InterruptedException if the bank's thread is interrupted while waiting
+     */
+    private void runOnCarriers() throws InterruptedException {
+        sharedWaitTimes = new LatencyHistogram();
+        sharedServiceTimes = new LatencyHistogram();
+        List<SimulationActor> actors = new ArrayList<SimulationActor>(tellers.size() + 1);
+        actors.add(reception);
+        for (Teller teller : tellers) {
+            teller.shareHistograms(sharedWaitTimes, sharedServiceTimes);
+            actors.add(teller);
+        }
+        try {
+            new ActorScheduler(actorCarriers).runAll(actors);
+        } catch (RuntimeException | Error e) {
+            context.actorFailed(e);
+        }
+    }
+
+    /**
+     * Retrieves the total time customers waited in queues during the last run.
+     * @return the total time customers waited to get off the queue
+     */
+    public double getCustomerWaitTimeTotal() {
+        if (eventDrivenSimulation != null) {
+            return eventDrivenSimulation.getCustomerWaitTimeTotal();
+        }
+        return context.getCustomerWaitTimeTotal();
+    }
+
+    /**
+     * Retrieves the average time customers waited in queues during the last run.
+     * @return the average wait time for each customer tellers served
+     */
+    public double getCustomerWaitTimeAverage() {
+        if (eventDrivenSimulation != null) {
+            return eventDrivenSimulation.getCustomerWaitTimeAverage();
+        }
+        return context.getCustomerWaitTimeAverage();
+    }
+
+    /**
+     * Retrieves the number of customers served during the last run.
+     * @return the number of customers tellers served
+     */
+    public int getTotalCustomersServed() {
+        if (eventDrivenSimulation != null) {
+            return eventDrivenSimulation.getTotalCustomersServed();
+        }
+        return context.getTotalCustomersServed();
+    }
+
+    /**
+     * Retrieves the number of customers who left during the last run because their queue was full.
+     * @return the number of customers who balked
+     */
+    public int getTotalCustomersBalked() {
+        if (eventDrivenSimulation != null) {
+            return eventDrivenSimulation.getTotalCustomersBalked();
+        }
+        return context.getTotalCustomersBalked();
+    }
+
+    /**
+     * Merges the wait times recorded by every teller during the last run.
+     * Times are in nanoseconds, simulated in the discrete-event model and real otherwise.
+     * @return a new histogram of all customers' wait times
+     */
+    public LatencyHistogram getWaitTimes() {
+        if (eventDrivenSimulation != null) {
+            return eventDrivenSimulation.getWaitTimes();
+        }
+        LatencyHistogram merged = new LatencyHistogram();
+        if (sharedWaitTimes != null) {
+            merged.merge(sharedWaitTimes);
+            return merged;
+        }
+        for (Teller teller : tellers) {
+            if (teller.getWaitTimes() != null) {
+                merged.merge(teller.getWaitTimes());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Merges the service times recorded by every teller during the last run.
+     * Times are in nanoseconds, simulated in the discrete-event model and real otherwise.
+     * @return a new histogram of all customers' service times
+     */
+    public LatencyHistogram getServiceTimes() {
+        if (eventDrivenSimulation != null) {
+            return eventDrivenSimulation.getServiceTimes();
+        }
+        LatencyHistogram merged = new LatencyHistogram();
+        if (sharedServiceTimes != null) {
+            merged.merge(sharedServiceTimes);
+            return merged;
+        }
+        for (Teller teller : tellers) {
+            if (teller.getServiceTimes() != null) {
+                merged.merge(teller.getServiceTimes());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Retrieves the wait times of the customers of a class during the last run.
+     * Times are in nanoseconds, simulated in the discrete-event model and real otherwise.
+     * @param customerClass the class index in the bank's SimulationConfig
+     * @return the class's wait time histogram
+     */
+    public LatencyHistogram getClassWaitTimes(int customerClass) {
+        if (eventDrivenSimulation != null) {
+            return eventDrivenSimulation.getClassWaitTimes(customerClass);
+        }
+        return context.getClassWaitTimes(customerClass);
+    }
+
+    /**
+     * Retrieves the number of customers of a class who waited longer than its target during the last run.
+     * @param customerClass the class index in the bank's SimulationConfig
+     * @return the missed target count, 0 for a class without a target
+     */
+    public long getClassTargetMisses(int customerClass) {
+        if (eventDrivenSimulation != null) {
+            return eventDrivenSimulation.getClassTargetMisses(customerClass);
+        }
+        return context.getClassTargetMisses(customerClass);
+    }
+
+    /**
+     * Retrieves the live metrics of the bank, of the discrete-event model if it is selected.
+     * Sample them with a MetricsSampler while the bank runs.
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetrics() {
+        if (eventDrivenSimulation != null) {
+            return eventDrivenSimulation.getMetrics();
+        }
+        return context.getMetrics();
+    }
+
+    /**
+     * Retrieves the state shared by this bank's reception, tellers and customers.
+     * @return the simulation context of the threaded model
+     */
+    public SimulationContext getContext() {
+        return context;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,756 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+/**
+ * A non-interactive entry point for scripts and batch jobs. Every setting of a run is
+ * given as a flag (--tellers 4 or --tellers=4), in a properties file named by --config,
+ * or both, the flags winning. A run simulates its bank with the discrete-event model for
+ * a number of replications spread over a ForkJoinPool, and writes one line of results
+ * per run as CSV, as JSON Lines (one JSON object per line), or both, "-" standing for
+ * standard output. Results depend only on the settings and the seed; a run without a
+ * seed draws one and reports it.
+ *
+ * Starting a JVM costs far more than a small run, so --runs names a file ("-" for
+ * standard input) holding one run per line, each line's settings overriding the common
+ * ones. The runs are simulated in one process, several at a time, and their results
+ * are written in the order of the lines as soon as they are known. Runs that share a
+ * seed see the same customers, which makes their differences less noisy.
+ *
+ * Run with: java BatchRunner [--config file] [--setting value ...]
+ */
+public class BatchRunner {
+
+    /* the settings of one run, with their defaults */
+    private static final String[][] RUN_SETTINGS = {
+        { "customers", "100" },                 /* customers served per replication */
+        { "tellers", "3" },                     /* tellers in the bank */
+        { "queues", "1" },                      /* queues in the bank */
+        { "arrivals", "uniform:1:5" },          /* delays between arrivals, a Distribution.parse specification */
+        { "services", "uniform:1:5" },          /* service times, a Distribution.parse specification */
+        { "routing", RoutingPolicy.JOIN_SHORTEST_QUEUE }, /* how arriving customers choose a queue */
+        { "steal-from", "off" },                /* SimulationConfig.STEAL_FROM_ policy, or off */
+        { "jockey-threshold", "1" },            /* how much longer a queue must be to steal from it */
+        { "queue-capacity", "0" },              /* the most customers a queue holds, 0 for no limit */
+        { "overflow", SimulationConfig.OVERFLOW_BLOCK }, /* what happens at a full queue with a capacity */
+        { "classes", "" },                      /* customer classes as name:share[:weight[:target]], separated by ';' */
+        { "scheduling", SimulationConfig.SCHEDULE_FIFO }, /* how tellers choose between customer classes */
+        { "replications", "1" },                /* independent replications of the run */
+        { "seed", "" },                         /* the seed of the run, drawn once per process if empty */
+    };
+
+    /* the settings of the whole batch */
+    private static final String[] BATCH_SETTINGS = { "config", "runs", "csv", "json", "threads" };
+
+    /* the result columns written as JSON numbers rather than strings among the settings */
+    private static final List<String> NUMERIC_SETTINGS = List.of("customers", "tellers", "queues", "queue_capacity", "replications", "seed");
+
+    private static final String CSV_HEADER = "run,customers,tellers,queues,arrivals,services,routing,steal_from,"
+            + "queue_capacity,overflow,classes,scheduling,replications,seed,wait_mean,wait_ci95,wait_min,wait_max,"
+            + "wait_p50,wait_p90,wait_p99,wait_p999,wait_longest,served,balked,stolen,utilization,analytic_wait,"
+            + "analytic_utilization,compute_seconds";
+
+    private final ForkJoinPool pool;        /* runs the replications of every run */
+    private final int parallelism;          /* the number of worker threads */
+
+    /**
+     * Constructs a batch runner.
+     * @param parallelism the number of worker threads, or 0 for one per processor
+     */
+    public BatchRunner(int parallelism) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(this.parallelism);
+    }
+
+    public static void main(String[] args) {
+        Properties settings = new Properties();
+        int threads = 0;
+        try {
+            parseFlags(Arrays.asList(args), settings);
+            if (settings.containsKey("help")) {
+                printUsage();
+                return;
+            }
+            if (settings.containsKey("config")) {
+                Properties flags = settings;
+                settings = loadConfig(Paths.get(flags.getProperty("config")));
+                settings.putAll(flags);
+            }
+            checkSettings(settings);
+            threads = Integer.parseInt(settings.getProperty("threads", "0"));
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Run with --help for the settings.");
+            System.exit(2);
+        }
+        if (settings.getProperty("seed", "").isEmpty()) {
+            settings.setProperty("seed", Long.toString(ThreadLocalRandom.current().nextLong()));
+        }
+        BatchRunner runner = new BatchRunner(threads);
+        int failures;
+        try (ResultWriter writer = new ResultWriter(settings.getProperty("csv"), settings.getProperty("json"))) {
+            String runs = settings.getProperty("runs");
+            if (runs == null) {
+                failures = runner.runAll(List.of(settings), writer);
+            } else if (runs.equals("-")) {
+                failures = runner.runLines(new InputStreamReader(System.in, StandardCharsets.UTF_8), settings, writer);
+            } else {
+                try (Reader reader = Files.newBufferedReader(Paths.get(runs), StandardCharsets.UTF_8)) {
+                    failures = runner.runLines(reader, settings, writer);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println(e);
+            failures = 1;
+        } finally {
+            runner.shutdown();
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Prints the settings and their defaults.
+     */
+    private static void printUsage() {
+        System.out.println("Usage: java BatchRunner [--config file] [--setting value ...]");
+        System.out.println("Run settings (default):");
+        for (String[] setting : RUN_SETTINGS) {
+            System.out.printf("  --%-18s %s\n", setting[0], setting[1].isEmpty() ? "-" : setting[1]);
+        }
+        System.out.println("Batch settings:");
+        System.out.println("  --config file        properties file of settings, overridden by flags");
+        System.out.println("  --runs file          one run per line of settings, \"-\" for standard input");
+        System.out.println("  --csv path           CSV results, \"-\" for standard output (the default)");
+        System.out.println("  --json path          JSON Lines results, \"-\" for standard output");
+        System.out.println("  --threads n          worker threads, 0 for one per processor (default 0)");
+    }
+
+    /**
+     * Reads settings given as --name value, --name=value or name=value into a set of settings.
+     * @param tokens the flags
+     * @param settings where the settings go
+     * @throws IllegalArgumentException if a flag has no value
+     */
+    static void parseFlags(List<String> tokens, Properties settings) {
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            String name = token.startsWith("--") ? token.substring(2) : token;
+            int equals = name.indexOf('=');
+            if (equals >= 0) {
+                settings.setProperty(name.substring(0, equals), name.substring(equals + 1));
+            } else if (name.equals("help")) {
+                settings.setProperty(name, "");
+            } else if (token.startsWith("--") && i + 1 < tokens.size()) {
+                settings.setProperty(name, tokens.get(++i));
+            } else {
+                throw new IllegalArgumentException("Expected --name value or name=value but got: " + token);
+            }
+        }
+    }
+
+    /**
+     * Reads settings from a properties file.
+     * @param file the file
+     * @return the settings
+     * @throws IOException if the file cannot be read
+     */
+    static Properties loadConfig(Path file) throws IOException {
+        Properties settings = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            settings.load(reader);
+        }
+        return settings;
+    }
+
+    /**
+     * Checks that every setting has a known name.
+     * @param settings the settings
+     * @throws IllegalArgumentException if a setting is unknown
+     */
+    static void checkSettings(Properties settings) {
+        for (String name : settings.stringPropertyNames()) {
+            if (!isRunSetting(name) && !Arrays.asList(BATCH_SETTINGS).contains(name)) {
+                throw new IllegalArgumentException("Unknown setting: " + name);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a setting belongs to a run rather than to the batch.
+     * @param name the setting's name
+     * @return true if a line of a runs file may set it
+     */
+    private static boolean isRunSetting(String name) {
+        for (String[] setting : RUN_SETTINGS) {
+            if (setting[0].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the value of a run setting.
+     * @param settings the settings
+     * @param name the setting's name
+     * @return the value, or its default
+     */
+    private static String get(Properties settings, String name) {
+        for (String[] setting : RUN_SETTINGS) {
+            if (setting[0].equals(name)) {
+                return settings.getProperty(name, setting[1]).trim();
+            }
+        }
+        throw new IllegalArgumentException("Unknown setting: " + name);
+    }
+
+    /**
+     * Reads a whole-number run setting.
+     * @param settings the settings
+     * @param name the setting's name
+     * @return the value, or its default
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    private static int getInt(Properties settings, String name) {
+        String value = get(settings, name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Builds the configuration of a run's bank from its settings.
+     * @param settings the run's settings
+     * @return the configuration
+     * @throws IllegalArgumentException if a setting is not valid
+     */
+    static SimulationConfig toConfig(Properties settings) {
+        SimulationConfig.Builder builder = SimulationConfig.builder()
+                .customers(getInt(settings, "customers"))
+                .tellers(getInt(settings, "tellers"))
+                .queues(getInt(settings, "queues"))
+                .arrivals(Distribution.parse(get(settings, "arrivals")))
+                .services(Distribution.parse(get(settings, "services")))
+                .routing(get(settings, "routing"))
+                .scheduling(get(settings, "scheduling"));
+        String seed = get(settings, "seed");
+        try {
+            builder.seed(Long.parseLong(seed));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for seed: " + seed);
+        }
+        String stealFrom = get(settings, "steal-from");
+        if (!stealFrom.equals("off")) {
+            builder.workStealing(stealFrom, getInt(settings, "jockey-threshold"));
+        }
+        int queueCapacity = getInt(settings, "queue-capacity");
+        if (queueCapacity > 0) {
+            builder.queueCapacity(queueCapacity, get(settings, "overflow"));
+        }
+        String classes = get(settings, "classes");
+        if (!classes.isEmpty()) {
+            String[] specifications = classes.split(";");
+            CustomerClass[] customerClasses = new CustomerClass[specifications.length];
+            for (int c = 0; c < specifications.length; c++) {
+                customerClasses[c] = CustomerClass.parse(specifications[c]);
+            }
+            builder.customerClasses(customerClasses);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Runs the runs described by the lines of a text, several at a time, and writes their
+     * results in the order of the lines. Blank lines and lines starting with '#' are skipped.
+     * A run whose settings are not valid or whose simulation fails is reported on standard
+     * error by its line number, in the order of the lines, and the others go on.
+     * @param lines one run per line, as flags or name=value pairs
+     * @param common the settings every run starts from
+     * @param writer where the results go
+     * @return the number of runs that failed
+     * @throws IOException if the lines cannot be read
+     */
+    public int runLines(Reader lines, Properties common, ResultWriter writer) throws IOException {
+        BufferedReader reader = new BufferedReader(lines);
+        List<String> windowRuns = new ArrayList<String>();
+        List<ForkJoinTask<RunResult>> window = new ArrayList<ForkJoinTask<RunResult>>();
+        int failures = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber += 1;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Properties overrides = new Properties();
+            ForkJoinTask<RunResult> task;
+            try {
+                parseFlags(Arrays.asList(line.split("\\s+")), overrides);
+                for (String name : overrides.stringPropertyNames()) {
+                    if (!isRunSetting(name)) {
+                        throw new IllegalArgumentException("Unknown run setting: " + name);
+                    }
+                }
+                Properties settings = new Properties();
+                settings.putAll(common);
+                settings.putAll(overrides);
+                task = pool.submit(() -> run(settings));
+            } catch (IllegalArgumentException e) {
+                /* fails when its turn comes, so it is reported in the order of the lines */
+                task = pool.submit(ForkJoinTask.adapt(() -> {
+                    throw e;
+                }));
+            }
+            windowRuns.add(Integer.toString(lineNumber));
+            window.add(task);
+            if (window.size() == parallelism * 4) {
+                failures += writeAll(windowRuns, window, writer);
+                windowRuns.clear();
+                window.clear();
+            }
+        }
+        return failures + writeAll(windowRuns, window, writer);
+    }
+
+    /**
+     * Runs several runs at once and writes their results in order.
+     * @param runs the settings of every run; a "run" entry numbers it, 1 by default
+     * @param writer where the results go
+     * @return the number of runs that failed
+     */
+    public int runAll(List<Properties> runs, ResultWriter writer) {
+        List<String> runNumbers = new ArrayList<String>(runs.size());
+        List<ForkJoinTask<RunResult>> tasks = new ArrayList<ForkJoinTask<RunResult>>(runs.size());
+        for (Properties settings : runs) {
+            runNumbers.add(settings.getProperty("run", "1"));
+            tasks.add(pool.submit(() -> run(settings)));
+        }
+        return writeAll(runNumbers, tasks, writer);
+    }
+
+    /**
+     * Waits for runs in order, writing the result of each or reporting why it failed
+     * on standard error.
+     * @param runs the number of every run
+     * @param tasks the task of every run
+     * @param writer where the results go
+     * @return the number of runs that failed
+     */
+    private int writeAll(List<String> runs, List<ForkJoinTask<RunResult>> tasks, ResultWriter writer) {
+        int failures = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            String run = runs.get(i);
+            try {
+                writer.write(run, tasks.get(i).get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                while (cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                System.err.println("Run " + run + ": " + (cause.getMessage() != null ? cause.getMessage() : cause.toString()));
+                failures += 1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return failures + tasks.size() - i;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Simulates every replication of a run. Replication r runs with the r-th seed split
+     * from the run's seed, as in SweepRunner, whatever the number of threads.
+     * @param settings the run's settings
+     * @return the run's result
+     * @throws IllegalArgumentException if a setting is not valid
+     */
+    public RunResult run(Properties settings) {
+        long startTime = System.nanoTime();
+        SimulationConfig config = toConfig(settings);
+        int replications = getInt(settings, "replications");
+        if (replications < 1) {
+            throw new IllegalArgumentException("A run needs at least one replication.");
+        }
+        long[] seeds = new long[replications];
+        SplittableRandom root = new SplittableRandom(config.getSeed());
+        for (int r = 0; r < replications; r++) {
+            seeds[r] = root.split().nextLong();
+        }
+        RunResult result = new RunResult(config, replications);
+        int leafSize = Math.max(1, replications / (parallelism * 8));
+        ReplicationTask task = new ReplicationTask(config, seeds, result, 0, replications, leafSize);
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+        result.finish(System.nanoTime() - startTime);
+        return result;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Runs the replications in a range, splitting the range in half while it is large.
+     * Each leaf reuses one simulation for its replications.
+     */
+    private static class ReplicationTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;    /* tasks are never serialized */
+        private final SimulationConfig config;  /* the bank simulated */
+        private final long[] seeds;             /* the seed of every replication */
+        private final RunResult result;         /* where the replications' results go */
+        private final int from;                 /* first replication of the range */
+        private final int to;                   /* one past the last replication of the range */
+        private final int leafSize;             /* ranges this small run on one thread */
+
+        ReplicationTask(SimulationConfig config, long[] seeds, RunResult result, int from, int to, int leafSize) {
+            this.config = config;
+            this.seeds = seeds;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                EventDrivenSimulation simulation = new EventDrivenSimulation(config);
+                for (int r = from; r < to; r++) {
+                    simulation.run(seeds[r]);
+                    result.record(r, simulation);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ReplicationTask(config, seeds, result, from, middle, leafSize),
+                    new ReplicationTask(config, seeds, result, middle, to, leafSize));
+        }
+    }
+
+    /**
+     * The result of one run: the spread of its replications' average waits, the wait
+     * percentiles of all its customers, its average counts and utilization, and the
+     * QueueingModel estimate of its bank.
+     */
+    public static class RunResult {
+
+        private final SimulationConfig config;      /* the bank simulated */
+        private final double[] averageWaits;        /* the average wait of every replication, in seconds */
+        private final double[] utilizations;        /* the teller utilization of every replication */
+        private final LatencyHistogram waitTimes = new LatencyHistogram(); /* every customer's wait, in ticks */
+        private final LatencyHistogram[] classWaitTimes;    /* every customer's wait by class, in ticks */
+        private final long[] classTargetMisses;     /* customers of each class who waited past its target */
+        private long served;                        /* customers served over all replications */
+        private long balked;                        /* customers who balked over all replications */
+        private long stolen;                        /* customers stolen over all replications */
+        private final SummaryStatistics waits = new SummaryStatistics(); /* the replications' average waits */
+        private double analyticWait;                /* the long-run wait of QueueingModel, in seconds */
+        private double analyticUtilization;         /* the teller utilization of QueueingModel */
+        private double computeSeconds;              /* how long the run took */
+
+        RunResult(SimulationConfig config, int replications) {
+            this.config = config;
+            this.averageWaits = new double[replications];
+            this.utilizations = new double[replications];
+            this.classWaitTimes = new LatencyHistogram[config.getTotalClasses()];
+            for (int c = 0; c < classWaitTimes.length; c++) {
+                classWaitTimes[c] = new LatencyHistogram();
+            }
+            this.classTargetMisses = new long[classWaitTimes.length];
+        }
+
+        /**
+         * Records the outcome of a replication.
+         * @param replication the replication's index
+         * @param simulation the simulation that has just run it
+         */
+        synchronized void record(int replication, EventDrivenSimulation simulation) {
+            averageWaits[replication] = simulation.getCustomerWaitTimeAverage();
+            utilizations[replication] = simulation.getTellerUtilization();
+            waitTimes.merge(simulation.getWaitTimes());
+            for (int c = 0; c < classWaitTimes.length; c++) {
+                classWaitTimes[c].merge(simulation.getClassWaitTimes(c));
+                classTargetMisses[c] += simulation.getClassTargetMisses(c);
+            }
+            served += simulation.getTotalCustomersServed();
+            balked += simulation.getTotalCustomersBalked();
+            stolen += simulation.getTotalCustomersStolen();
+        }
+
+        /**
+         * Summarises the replications, in their order so the sums do not depend on the threads.
+         * @param elapsedNanos how long the run took
+         */
+        void finish(long elapsedNanos) {
+            for (double averageWait : averageWaits) {
+                waits.add(averageWait);
+            }
+            QueueingModel model = QueueingModel.estimate(config);
+            analyticWait = model.getWaitMicros() / QueueingModel.MICROS_PER_SECOND;
+            analyticUtilization = model.getUtilization();
+            computeSeconds = elapsedNanos / 1e9;
+        }
+
+        /**
+         * Retrieves the configuration of the run's bank.
+         * @return the configuration
+         */
+        public SimulationConfig getConfig() {
+            return config;
+        }
+
+        /**
+         * Retrieves the number of replications.
+         * @return the replication count
+         */
+        public int getReplications() {
+            return averageWaits.length;
+        }
+
+        /**
+         * Retrieves the spread of the replications' average waits.
+         * @return the statistics of the average waits in seconds
+         */
+        public SummaryStatistics getWaits() {
+            return waits;
+        }
+
+        /**
+         * Retrieves the waits of every customer of every replication.
+         * @return the wait time histogram in ticks
+         */
+        public LatencyHistogram getWaitTimes() {
+            return waitTimes;
+        }
+
+        /**
+         * Retrieves the mean teller utilization of the replications.
+         * @return the fraction of the simulated time the tellers were busy
+         */
+        public double getUtilization() {
+            double total = 0;
+            for (double utilization : utilizations) {
+                total += utilization;
+            }
+            return total / utilizations.length;
+        }
+
+        /**
+         * Writes the result as one CSV line matching CSV_HEADER.
+         * @param run the run's number
+         * @return the line
+         */
+        String toCsv(String run) {
+            StringBuilder line = new StringBuilder(run);
+            for (String value : settings()) {
+                line.append(',').append(value);
+            }
+            for (double value : values()) {
+                line.append(',').append(format(value));
+            }
+            return line.toString();
+        }
+
+        /**
+         * Writes the result as one JSON object, with the waits of every customer class.
+         * Values that are not finite, such as the analytic wait of an overloaded bank, are null.
+         * @param run the run's number
+         * @return the object on one line
+         */
+        String toJson(String run) {
+            String[] names = CSV_HEADER.split(",");
+            StringBuilder json = new StringBuilder("{\"run\":").append(run);
+            String[] settings = settings();
+            for (int i = 0; i < settings.length; i++) {
+                json.append(",\"").append(names[i + 1]).append("\":");
+                json.append(NUMERIC_SETTINGS.contains(names[i + 1]) ? settings[i] : "\"" + settings[i] + "\"");
+            }
+            double[] values = values();
+            for (int i = 0; i < values.length; i++) {
+                json.append(",\"").append(names[i + 1 + settings.length]).append("\":").append(format(values[i]));
+            }
+            json.append(",\"class_results\":[");
+            for (int c = 0; c < classWaitTimes.length; c++) {
+                LatencyHistogram classWaits = classWaitTimes[c];
+                double ticks = EventDrivenSimulation.TICKS_PER_SECOND;
+                json.append(c == 0 ? "{" : ",{").append("\"name\":\"").append(config.getCustomerClasses().get(c).getName())
+                        .append("\",\"served\":").append(classWaits.getTotalCount())
+                        .append(",\"wait_mean\":").append(format(classWaits.getMean() / ticks))
+                        .append(",\"wait_p99\":").append(format(classWaits.getValueAtPercentile(99) / ticks))
+                        .append(",\"missed\":").append(classTargetMisses[c]).append('}');
+            }
+            return json.append("]}").toString();
+        }
+
+        /**
+         * Lists the settings of the run in the order of CSV_HEADER.
+         * @return the settings as text
+         */
+        private String[] settings() {
+            StringBuilder classes = new StringBuilder();
+            for (CustomerClass customerClass : config.getCustomerClasses()) {
+                classes.append(classes.length() == 0 ? "" : ";").append(customerClass);
+            }
+            return new String[] {
+                Integer.toString(config.getMaxCustomers()), Integer.toString(config.getTotalTellers()),
+                Integer.toString(config.getTotalQueues()), config.getArrivals().toString(), config.getServices().toString(),
+                config.getRouting(), config.isWorkStealing() ? config.getStealFrom() : "off",
+                Integer.toString(config.getQueueCapacity()), config.getOverflow(), classes.toString(),
+                config.getScheduling(), Integer.toString(getReplications()), Long.toString(config.getSeed())
+            };
+        }
+
+        /**
+         * Lists the results of the run in the order of CSV_HEADER.
+         * @return the results, times in seconds
+         */
+        private double[] values() {
+            double ticks = EventDrivenSimulation.TICKS_PER_SECOND;
+            return new double[] {
+                waits.getMean(), waits.getConfidenceHalfWidth(), waits.getMinimum(), waits.getMaximum(),
+                waitTimes.getValueAtPercentile(50) / ticks, waitTimes.getValueAtPercentile(90) / ticks,
+                waitTimes.getValueAtPercentile(99) / ticks, waitTimes.getValueAtPercentile(99.9) / ticks,
+                waitTimes.getMaxValue() / ticks, (double) served / getReplications(), (double) balked / getReplications(),
+                (double) stolen / getReplications(), getUtilization(), analyticWait, analyticUtilization, computeSeconds
+            };
+        }
+
+        /**
+         * Formats a value for CSV and JSON: nine significant digits, null if not finite.
+         * @param value the value
+         * @return the value as text
+         */
+        private static String format(double value) {
+            return Double.isFinite(value) ? String.format(Locale.ROOT, "%.9g", value) : "null";
+        }
+    }
+
+    /**
+     * Writes run results as CSV lines, JSON lines or both, flushing after every run so
+     * a batch that is stopped keeps the results it has.
+     */
+    public static class ResultWriter implements AutoCloseable {
+
+        private final PrintWriter csv;      /* where CSV lines go, or null */
+        private final PrintWriter json;     /* where JSON lines go, or null */
+        private final boolean csvToFile;    /* whether the CSV lines go to a file, closed with the writer */
+        private final boolean jsonToFile;   /* whether the JSON lines go to a file, closed with the writer */
+
+        /**
+         * Opens the outputs. Without either, CSV goes to standard output.
+         * @param csvPath the CSV file, "-" for standard output, or null
+         * @param jsonPath the JSON Lines file, "-" for standard output, or null
+         * @throws IOException if a file cannot be created
+         */
+        public ResultWriter(String csvPath, String jsonPath) throws IOException {
+            this.csv = csvPath == null && jsonPath == null ? open("-") : open(csvPath);
+            this.json = open(jsonPath);
+            this.csvToFile = csvPath != null && !csvPath.equals("-");
+            this.jsonToFile = jsonPath != null && !jsonPath.equals("-");
+            if (csv != null) {
+                csv.println(CSV_HEADER);
+                csv.flush();
+            }
+        }
+
+        /**
+         * Opens one output.
+         * @param path the file, "-" for standard output, or null
+         * @return the writer, or null for no output
+         * @throws IOException if the file cannot be created
+         */
+        private static PrintWriter open(String path) throws IOException {
+            if (path == null) {
+                return null;
+            }
+            if (path.equals("-")) {
+                return new PrintWriter(System.out);
+            }
+            return new PrintWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Writes the result of a run.
+         * @param run the run's number
+         * @param result the result
+         * @throws UncheckedIOException if an output fails
+         */
+        public void write(String run, RunResult result) {
+            if (csv != null) {
+                csv.println(result.toCsv(run));
+                flush(csv);
+            }
+            if (json != null) {
+                json.println(result.toJson(run));
+                flush(json);
+            }
+        }
+
+        /**
+         * Flushes an output and reports a failure to write it.
+         * @param writer the output
+         */
+        private static void flush(PrintWriter writer) {
+            if (writer.checkError()) {
+                throw new UncheckedIOException(new IOException("Cannot write the results."));
+            }
+        }
+
+        /**
+         * Flushes the outputs and closes the files among them; standard output stays open.
+         */
+        @Override
+        public void close() {
+            close(csv, csvToFile);
+            close(json, jsonToFile);
+        }
+
+        /**
+         * Flushes an output and closes it if it is a file.
+         * @param writer the output, or null
+         * @param file whether it is a file
+         */
+        private static void close(PrintWriter writer, boolean file) {
+            if (writer == null) {
+                return;
+            }
+            if (file) {
+                writer.close();
+            } else {
+                writer.flush();
+            }
+        }
+    }
+}
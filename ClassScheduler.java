@@ -0,0 +1,146 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+/**
+ * Decides which customer class a teller serves next from a queue that keeps one
+ * waiting line per class. The queue tells it which classes have customers waiting
+ * as a bit set, bit c standing for class c, so strict priority is a single
+ * count of trailing zeros and the other policies only look at the waiting classes.
+ * Customers of one class are served in arrival order under every policy. A scheduler
+ * keeps the credit of weighted fair scheduling, so every queue needs its own; it is
+ * not thread-safe.
+ */
+public class ClassScheduler {
+
+    public static final int MAX_CLASSES = 64;   /* classes fit in the bits of a long */
+
+    private final String scheduling;    /* the scheduling policy, one of SimulationConfig's SCHEDULE_ constants */
+    private final int[] weights;        /* each class's share of the tellers under weighted fair scheduling */
+    private final long[] targetTicks;   /* each class's target wait, which sets its deadlines */
+    private final long[] credits;       /* each class's credit under weighted fair scheduling */
+
+    /**
+     * Constructs a scheduler.
+     * @param scheduling SimulationConfig.SCHEDULE_FIFO, SCHEDULE_PRIORITY, SCHEDULE_WEIGHTED_FAIR or SCHEDULE_EDF
+     * @param classes the customer classes, highest priority first
+     * @throws IllegalArgumentException if there are more than MAX_CLASSES classes
+     */
+    public ClassScheduler(String scheduling, List<CustomerClass> classes) {
+        if (classes.isEmpty() || classes.size() > MAX_CLASSES) {
+            throw new IllegalArgumentException("A bank has between 1 and " + MAX_CLASSES + " customer classes.");
+        }
+        this.scheduling = scheduling;
+        this.weights = new int[classes.size()];
+        this.targetTicks = new long[classes.size()];
+        for (int c = 0; c < classes.size(); c++) {
+            weights[c] = classes.get(c).getWeight();
+            targetTicks[c] = classes.get(c).getTargetWaitTicks();
+        }
+        this.credits = new long[classes.size()];
+    }
+
+    /**
+     * Chooses the class whose first waiting customer is served next.
+     * FIFO serves the customer who arrived first, strict priority the first waiting
+     * class, weighted fair scheduling spreads the services over the waiting classes in
+     * proportion to their weights (smooth weighted round robin), and earliest deadline
+     * first serves the customer whose arrival time plus target wait is the soonest.
+     * Ties go to the higher priority class.
+     * @param waitingClasses the classes with customers waiting, bit c for class c, not 0
+     * @param arrivalTimes gives the arrival time in ticks of the first waiting customer of a class
+     * @return the class to serve
+     */
+    public int select(long waitingClasses, IntToLongFunction arrivalTimes) {
+        int first = Long.numberOfTrailingZeros(waitingClasses);
+        if ((waitingClasses & (waitingClasses - 1)) == 0 || SimulationConfig.SCHEDULE_PRIORITY.equals(scheduling)) {
+            return first;
+        }
+        if (SimulationConfig.SCHEDULE_WEIGHTED_FAIR.equals(scheduling)) {
+            return selectWeighted(waitingClasses);
+        }
+        boolean deadlines = SimulationConfig.SCHEDULE_EDF.equals(scheduling);
+        int best = first;
+        long bestTime = Long.MAX_VALUE;
+        for (long remaining = waitingClasses; remaining != 0; remaining &= remaining - 1) {
+            int c = Long.numberOfTrailingZeros(remaining);
+            long time = arrivalTimes.applyAsLong(c) + (deadlines ? targetTicks[c] : 0);
+            if (time < bestTime) {
+                best = c;
+                bestTime = time;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Smooth weighted round robin: every waiting class earns its weight, the richest
+     * class is served and pays the weights of all waiting classes.
+     * @param waitingClasses the classes with customers waiting
+     * @return the class to serve
+     */
+    private int selectWeighted(long waitingClasses) {
+        int best = -1;
+        long totalWeight = 0;
+        for (long remaining = waitingClasses; remaining != 0; remaining &= remaining - 1) {
+            int c = Long.numberOfTrailingZeros(remaining);
+            credits[c] += weights[c];
+            totalWeight += weights[c];
+            if (best < 0 || credits[c] > credits[best]) {
+                best = c;
+            }
+        }
+        credits[best] -= totalWeight;
+        return best;
+    }
+
+    /**
+     * Tells the scheduler the last waiting customer of a class was served, so an idle
+     * class neither saves up credit nor carries a debt into its next busy period.
+     * @param customerClass the class whose waiting line is now empty
+     */
+    public void classEmptied(int customerClass) {
+        credits[customerClass] = 0;
+    }
+
+    /**
+     * Writes the credits of weighted fair scheduling.
+     * @param out where the credits go
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(credits.length);
+        for (long credit : credits) {
+            out.writeLong(credit);
+        }
+    }
+
+    /**
+     * Restores credits written by writeTo of a scheduler of as many classes.
+     * @param in where the credits are read from
+     * @throws IOException if reading fails or the number of classes differs
+     */
+    public void readFrom(DataInput in) throws IOException {
+        int totalClasses = in.readInt();
+        if (totalClasses != credits.length) {
+            throw new IOException("Expected " + credits.length + " customer classes but got " + totalClasses);
+        }
+        for (int c = 0; c < credits.length; c++) {
+            credits[c] = in.readLong();
+        }
+    }
+
+    /**
+     * Forgets the credits, so the scheduler can be used for another run.
+     */
+    public void clear() {
+        Arrays.fill(credits, 0);
+    }
+}
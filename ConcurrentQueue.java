@@ -0,0 +1,112 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.Collection;
+/**
+ * A thread-safe queue that receptionists and tellers can share without
+ * locking it from the outside. Offers non-blocking and blocking access
+ * to both ends of the queue, and batch removal for consumers. A producer
+ * closes the queue once it will add no more elements; consumers waiting
+ * on an empty queue are woken by a signal rather than by polling.
+ */
+public interface ConcurrentQueue<E> {
+
+    /**
+     * Adds an element to the back of the queue if there is room.
+     * @param newElement the element to be added to the queue
+     * @return true if the element was added, false if the queue is full
+     */
+    boolean offer(E newElement);
+
+    /**
+     * Removes and returns the element at the front of the queue if there is one.
+     * @return the dequeued element, or null if the queue is empty
+     */
+    E poll();
+
+    /**
+     * Adds an element to the back of the queue, waiting for room if it is full.
+     * @param newElement the element to be added to the queue
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void put(E newElement) throws InterruptedException;
+
+    /**
+     * Removes and returns the element at the front of the queue, waiting for one if it is empty.
+     * The waiting thread is parked until an element is added or the queue is closed.
+     * @return the dequeued element, or null if the queue is closed and empty
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    E take() throws InterruptedException;
+
+    /**
+     * Registers an armed signal to be fired when an element is added or the queue
+     * is closed. If the queue already has an element or is closed, the signal fires
+     * at once, so a consumer that found the queue empty cannot miss an element.
+     * Each added element fires at most one waiting signal.
+     * @param signal the consumer's armed signal
+     */
+    void awaitElement(IdleSignal signal);
+
+    /**
+     * Registers an armed signal of a consumer that does not normally serve this queue,
+     * to be fired once at least a number of elements are waiting or the queue is closed.
+     * Added elements wake the queue's own consumers first.
+     * @param signal the consumer's armed signal
+     * @param minimumSize the number of waiting elements that fires the signal
+     */
+    void awaitBacklog(IdleSignal signal, int minimumSize);
+
+    /**
+     * Marks the end of the queue: no more elements will be added. Consumers can
+     * still remove the remaining ones, and every waiting signal is fired.
+     */
+    void close();
+
+    /**
+     * Checks whether the queue has been closed.
+     * @return true once close has been called
+     */
+    boolean isClosed();
+
+    /**
+     * Removes up to a number of elements from the front of the queue into a collection.
+     * @param sink the collection receiving the elements in queue order
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     */
+    int drainTo(Collection<? super E> sink, int maxElements);
+
+    /**
+     * Returns the current number of elements in the queue.
+     * The value is a snapshot and may be stale under concurrent access.
+     * @return the current number of elements inside the queue
+     */
+    int size();
+
+    /**
+     * Checks if the queue is empty or not
+     * @return true if the queue is empty
+     */
+    boolean isEmpty();
+
+    /**
+     * Checks if the queue is full or not
+     * @return true if the queue has reached its capacity
+     */
+    boolean isFull();
+
+    /**
+     * Returns the total number of elements the queue can hold.
+     * @return the queue's capacity
+     */
+    int capacity();
+
+    /**
+     * Get's the queue's ID
+     * @return the queue's ID
+     */
+    int getQueueID();
+}
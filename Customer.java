@@ -4,23 +4,49 @@
  */
 
 /**
- * Represents a single anonymous customer identified by an ID.
+ * Represents a single customer identified by an ID and the index of their customer class.
  * The customer tracks it's own waiting time in a queue.
  */
 public class Customer {
 
-    private static int totalID = 0; /* class-level starting ID */
     private int customerID;         /* instance-level object ID */
     private long queueStartTime;    /* the time customers enter a queue */
     private long queueEndTime;      /* the time customers leave a queue */
+    private long arrivalTime;       /* the simulated time the customer arrived, in ticks */
+    private long serviceTime;       /* the simulated service time the customer needs, in ticks */
+    private int customerClass;      /* the index of the customer's class in the bank's SimulationConfig */
 
     /**
      * Constructs a customer, tracking its instantiation time and its current ID
+     * @param customerID the customer's ID, handed out by the simulation the customer belongs to
      */
-    public Customer() {
+    public Customer(int customerID) {
+        this(customerID, 0, 0);
+    }
+
+    /**
+     * Constructs a customer who arrived at a simulated time and needs a known service time.
+     * @param customerID the customer's ID, handed out by the simulation the customer belongs to
+     * @param arrivalTime the simulated arrival time in ticks of EventDrivenSimulation
+     * @param serviceTime the simulated service time in ticks of EventDrivenSimulation
+     */
+    public Customer(int customerID, long arrivalTime, long serviceTime) {
+        this(customerID, arrivalTime, serviceTime, 0);
+    }
+
+    /**
+     * Constructs a customer of a customer class who arrived at a simulated time and needs a known service time.
+     * @param customerID the customer's ID, handed out by the simulation the customer belongs to
+     * @param arrivalTime the simulated arrival time in ticks of EventDrivenSimulation
+     * @param serviceTime the simulated service time in ticks of EventDrivenSimulation
+     * @param customerClass the index of the customer's class, 0 in a bank without classes
+     */
+    public Customer(int customerID, long arrivalTime, long serviceTime, int customerClass) {
         queueStartTime = System.nanoTime();
-        this.customerID = totalID;
-        totalID += 1;
+        this.customerID = customerID;
+        this.arrivalTime = arrivalTime;
+        this.serviceTime = serviceTime;
+        this.customerClass = customerClass;
     }
 
     /**
@@ -35,17 +61,34 @@ public class Customer {
     }
 
     /**
-     * Retrieves the customer's ID
-     * @return the customer's ID
+     * Retrieves the simulated time the customer arrived.
+     * @return the arrival time in ticks of EventDrivenSimulation
      */
-    public int getCustomerID() {
-        return this.customerID;
+    public long getArrivalTime() {
+        return arrivalTime;
     }
 
     /**
-     * Resets the class for re-use in another simulation
+     * Retrieves the simulated service time the customer needs.
+     * @return the service time in ticks of EventDrivenSimulation
      */
-    public static void resetClass() {
-        totalID = 0;
+    public long getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * Retrieves the index of the customer's class.
+     * @return the class index, 0 in a bank without classes
+     */
+    public int getCustomerClass() {
+        return customerClass;
+    }
+
+    /**
+     * Retrieves the customer's ID
+     * @return the customer's ID
+     */
+    public int getCustomerID() {
+        return this.customerID;
     }
 }
@@ -0,0 +1,129 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+/**
+ * A class of customers, such as VIP, business or walk-in customers. Each arriving
+ * customer belongs to one class, drawn at random in proportion to the classes'
+ * shares. The order of the classes in a SimulationConfig is their priority, the
+ * first class being served first under strict priority scheduling; the weight sets
+ * a class's share of the tellers under weighted fair scheduling, and the target wait
+ * is the class's service level agreement, which also sets its customers' deadlines
+ * under earliest deadline first scheduling.
+ */
+public class CustomerClass {
+
+    public static final CustomerClass DEFAULT = new CustomerClass("all", 1, 1, 0); /* the only class of a bank without classes */
+
+    private final String name;              /* the class's name in metrics and results */
+    private final double share;             /* the class's relative share of the arrivals */
+    private final int weight;               /* the class's relative share of the tellers under weighted fair scheduling */
+    private final double targetWaitSeconds; /* the longest wait the class should see, 0 for none */
+
+    /**
+     * Constructs a customer class.
+     * @param name the class's name, letters, digits, '-' and '_' only
+     * @param share the class's relative share of the arrivals, positive
+     * @param weight the class's relative share of the tellers under weighted fair scheduling, at least 1
+     * @param targetWaitSeconds the longest wait in simulated seconds the class should see, 0 for none
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public CustomerClass(String name, double share, int weight, double targetWaitSeconds) {
+        if (name == null || !name.matches("[A-Za-z0-9_-]+")) {
+            throw new IllegalArgumentException("Invalid customer class name: " + name);
+        }
+        if (!(share > 0) || Double.isInfinite(share)) {
+            throw new IllegalArgumentException("The arrival share of class " + name + " must be positive.");
+        }
+        if (weight < 1) {
+            throw new IllegalArgumentException("The weight of class " + name + " must be at least 1.");
+        }
+        if (!(targetWaitSeconds >= 0) || Double.isInfinite(targetWaitSeconds)) {
+            throw new IllegalArgumentException("The target wait of class " + name + " cannot be negative.");
+        }
+        this.name = name;
+        this.share = share;
+        this.weight = weight;
+        this.targetWaitSeconds = targetWaitSeconds;
+    }
+
+    /**
+     * Parses a class written as name:share:weight:targetSeconds, such as vip:0.1:4:30.
+     * The weight and target may be left out, and default to 1 and no target.
+     * @param spec the class specification
+     * @return the class
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    public static CustomerClass parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        if (parts.length < 2 || parts.length > 4) {
+            throw new IllegalArgumentException("Expected name:share[:weight[:targetSeconds]] but got: " + spec);
+        }
+        try {
+            return new CustomerClass(parts[0],
+                    Double.parseDouble(parts[1]),
+                    parts.length > 2 ? Integer.parseInt(parts[2]) : 1,
+                    parts.length > 3 ? Double.parseDouble(parts[3]) : 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in customer class: " + spec);
+        }
+    }
+
+    /**
+     * Retrieves the class's name.
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieves the class's relative share of the arrivals.
+     * @return the share
+     */
+    public double getShare() {
+        return share;
+    }
+
+    /**
+     * Retrieves the class's relative share of the tellers under weighted fair scheduling.
+     * @return the weight
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Retrieves the longest wait the class should see.
+     * @return the target wait in simulated seconds, 0 for none
+     */
+    public double getTargetWaitSeconds() {
+        return targetWaitSeconds;
+    }
+
+    /**
+     * Retrieves the longest wait the class should see in clock ticks.
+     * @return the target wait in ticks of EventDrivenSimulation, 0 for none
+     */
+    public long getTargetWaitTicks() {
+        return Math.round(targetWaitSeconds * EventDrivenSimulation.TICKS_PER_SECOND);
+    }
+
+    /**
+     * Checks whether the class has a target wait.
+     * @return true if the class has a service level agreement
+     */
+    public boolean hasTargetWait() {
+        return targetWaitSeconds > 0;
+    }
+
+    /**
+     * Writes the class in the form parse reads.
+     * @return name:share:weight:targetSeconds
+     */
+    @Override
+    public String toString() {
+        return name + ":" + share + ":" + weight + ":" + targetWaitSeconds;
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+/**
+ * Stores customers as columns of primitive arrays instead of as Customer objects.
+ * A customer is referred to by its slot in the store; slots of customers that have
+ * left the bank are recycled, so the store only grows to the largest number of
+ * customers inside the bank at once and admitting a customer allocates nothing.
+ * Times are whole ticks of the simulation clock.
+ */
+public class CustomerStore {
+
+    private int[] customerIDs;          /* ID of the customer in each slot */
+    private long[] queueStartTimes;     /* the time each customer entered a queue */
+    private long[] queueEndTimes;       /* the time each customer left the queue */
+    private long[] serviceTimes;        /* the service time each customer needs */
+    private int[] customerClasses;      /* the class index of each customer */
+    private IntQueue freeSlots;         /* slots not currently holding a customer */
+    private int customersInside;        /* the number of slots in use */
+
+    /**
+     * Constructs an empty customer store.
+     * @param initialCapacity the number of customers the store can hold before growing
+     */
+    public CustomerStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 2);
+        customerIDs = new int[capacity];
+        queueStartTimes = new long[capacity];
+        queueEndTimes = new long[capacity];
+        serviceTimes = new long[capacity];
+        customerClasses = new int[capacity];
+        freeSlots = new IntQueue(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            freeSlots.enqueue(slot);
+        }
+    }
+
+    /**
+     * Admits a customer entering a queue.
+     * @param customerID the customer's ID
+     * @param queueStartTime the time the customer entered a queue
+     * @param serviceTime the service time the customer needs
+     * @return the slot holding the customer
+     */
+    public int admit(int customerID, long queueStartTime, long serviceTime) {
+        return admit(customerID, queueStartTime, serviceTime, 0);
+    }
+
+    /**
+     * Admits a customer of a customer class entering a queue.
+     * @param customerID the customer's ID
+     * @param queueStartTime the time the customer entered a queue
+     * @param serviceTime the service time the customer needs
+     * @param customerClass the index of the customer's class
+     * @return the slot holding the customer
+     */
+    public int admit(int customerID, long queueStartTime, long serviceTime, int customerClass) {
+        if (freeSlots.isEmpty()) {
+            grow();
+        }
+        int slot = freeSlots.dequeue();
+        customerIDs[slot] = customerID;
+        queueStartTimes[slot] = queueStartTime;
+        queueEndTimes[slot] = queueStartTime;
+        serviceTimes[slot] = serviceTime;
+        customerClasses[slot] = customerClass;
+        customersInside += 1;
+        return slot;
+    }
+
+    /**
+     * Records the time a customer left their queue.
+     * @param slot the customer's slot
+     * @param queueEndTime the time the customer reached a teller
+     */
+    public void leaveQueue(int slot, long queueEndTime) {
+        queueEndTimes[slot] = queueEndTime;
+    }
+
+    /**
+     * Frees the slot of a customer who has left the bank.
+     * @param slot the customer's slot
+     */
+    public void release(int slot) {
+        freeSlots.enqueue(slot);
+        customersInside -= 1;
+    }
+
+    /**
+     * Retrieves the ID of a customer.
+     * @param slot the customer's slot
+     * @return the customer's ID
+     */
+    public int getCustomerID(int slot) {
+        return customerIDs[slot];
+    }
+
+    /**
+     * Retrieves the time a customer entered their queue.
+     * @param slot the customer's slot
+     * @return the queue start time in ticks
+     */
+    public long getQueueStartTime(int slot) {
+        return queueStartTimes[slot];
+    }
+
+    /**
+     * Retrieves how long a customer waited in their queue.
+     * @param slot the customer's slot
+     * @return the wait time in ticks
+     */
+    public long getWaitTime(int slot) {
+        return queueEndTimes[slot] - queueStartTimes[slot];
+    }
+
+    /**
+     * Retrieves the service time a customer needs.
+     * @param slot the customer's slot
+     * @return the service time in ticks
+     */
+    public long getServiceTime(int slot) {
+        return serviceTimes[slot];
+    }
+
+    /**
+     * Retrieves the class of a customer.
+     * @param slot the customer's slot
+     * @return the customer's class index
+     */
+    public int getCustomerClass(int slot) {
+        return customerClasses[slot];
+    }
+
+    /**
+     * Returns the number of customers currently held.
+     * @return the number of slots in use
+     */
+    public int size() {
+        return customersInside;
+    }
+
+    /**
+     * Frees every slot.
+     */
+    public void clear() {
+        freeSlots.clear();
+        for (int slot = 0; slot < customerIDs.length; slot++) {
+            freeSlots.enqueue(slot);
+        }
+        customersInside = 0;
+    }
+
+    /**
+     * Writes every slot and the order in which free slots are handed out,
+     * so a restored store admits customers into the same slots.
+     * @param out where the store goes
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(customerIDs.length);
+        out.writeInt(customersInside);
+        for (int slot = 0; slot < customerIDs.length; slot++) {
+            out.writeInt(customerIDs[slot]);
+            out.writeLong(queueStartTimes[slot]);
+            out.writeLong(queueEndTimes[slot]);
+            out.writeLong(serviceTimes[slot]);
+            out.writeInt(customerClasses[slot]);
+        }
+        freeSlots.writeTo(out);
+    }
+
+    /**
+     * Replaces the store's slots with the ones written by writeTo.
+     * @param in where the store is read from
+     * @throws IOException if reading fails or the store is inconsistent
+     */
+    public void readFrom(DataInput in) throws IOException {
+        int capacity = in.readInt();
+        int inside = in.readInt();
+        if (capacity < 2 || inside < 0 || inside > capacity) {
+            throw new IOException("Invalid customer store size: " + inside + " of " + capacity);
+        }
+        customerIDs = new int[capacity];
+        queueStartTimes = new long[capacity];
+        queueEndTimes = new long[capacity];
+        serviceTimes = new long[capacity];
+        customerClasses = new int[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            customerIDs[slot] = in.readInt();
+            queueStartTimes[slot] = in.readLong();
+            queueEndTimes[slot] = in.readLong();
+            serviceTimes[slot] = in.readLong();
+            customerClasses[slot] = in.readInt();
+        }
+        freeSlots = new IntQueue(capacity);
+        freeSlots.readFrom(in);
+        if (freeSlots.size() != capacity - inside) {
+            throw new IOException("The free slots of the customer store do not add up.");
+        }
+        customersInside = inside;
+    }
+
+    /**
+     * Doubles the number of slots.
+     */
+    private void grow() {
+        int oldCapacity = customerIDs.length;
+        int capacity = oldCapacity << 1;
+        customerIDs = Arrays.copyOf(customerIDs, capacity);
+        queueStartTimes = Arrays.copyOf(queueStartTimes, capacity);
+        queueEndTimes = Arrays.copyOf(queueEndTimes, capacity);
+        serviceTimes = Arrays.copyOf(serviceTimes, capacity);
+        customerClasses = Arrays.copyOf(customerClasses, capacity);
+        for (int slot = oldCapacity; slot < capacity; slot++) {
+            freeSlots.enqueue(slot);
+        }
+    }
+}
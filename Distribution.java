@@ -0,0 +1,362 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+import java.util.stream.Collectors;
+/**
+ * A probability distribution of times in seconds, such as the delays between
+ * customer arrivals or the service times customers need. A distribution holds no
+ * random state: values are drawn from the random stream passed in, so the same
+ * seed always gives the same sequence and a distribution can be shared by any
+ * number of simulations. Values are generated one at a time as the simulation
+ * needs them, so a run of any length uses constant memory. The toString of every
+ * distribution except empirical ones is a specification that parse reads back; an
+ * empirical one is described by its number of values and a hash of them.
+ */
+public interface Distribution {
+
+    /**
+     * Draws a value.
+     * @param random the random stream to draw from
+     * @param time the simulated time in seconds at which the value is drawn, used by time-varying distributions
+     * @return the value in seconds, never negative
+     */
+    double sample(RandomGenerator random, double time);
+
+    /**
+     * Retrieves the long-run average of the values drawn.
+     * @return the mean in seconds
+     */
+    double getMean();
+
+    /**
+     * Retrieves the variance of the values drawn, which analytic models such as
+     * QueueingModel need besides the mean. Distributions that do not know it report
+     * the variance of an exponential distribution with the same mean.
+     * @return the variance in seconds squared
+     */
+    default double getVariance() {
+        return getMean() * getMean();
+    }
+
+    /**
+     * Creates a distribution from a specification of its name and parameters separated
+     * by colons, as written by toString: "constant:SECONDS", "uniform:MIN:MAX",
+     * "exponential:MEAN", "erlang:K:MEAN", "lognormal:MEAN:SD" or
+     * "poisson:PERIOD:RATE:RATE...", the last being a time-varying Poisson process.
+     * @param specification the specification
+     * @return the distribution
+     * @throws IllegalArgumentException if the specification is not valid
+     */
+    static Distribution parse(String specification) {
+        String[] parts = specification.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "constant":
+                    if (parts.length == 2) {
+                        return constant(Double.parseDouble(parts[1]));
+                    }
+                    break;
+                case "uniform":
+                    if (parts.length == 3) {
+                        return uniformInt(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                    }
+                    break;
+                case "exponential":
+                    if (parts.length == 2) {
+                        return exponential(Double.parseDouble(parts[1]));
+                    }
+                    break;
+                case "erlang":
+                    if (parts.length == 3) {
+                        return erlang(Integer.parseInt(parts[1]), Double.parseDouble(parts[2]));
+                    }
+                    break;
+                case "lognormal":
+                    if (parts.length == 3) {
+                        return lognormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                    }
+                    break;
+                case "poisson":
+                    if (parts.length >= 3) {
+                        double[] rates = new double[parts.length - 2];
+                        for (int i = 0; i < rates.length; i++) {
+                            rates[i] = Double.parseDouble(parts[i + 2]);
+                        }
+                        return timeVaryingPoisson(Double.parseDouble(parts[1]), rates);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown distribution: " + specification);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in distribution: " + specification);
+        }
+        throw new IllegalArgumentException("Wrong number of parameters in distribution: " + specification);
+    }
+
+    /**
+     * Creates a distribution that always gives the same value.
+     * @param seconds the value
+     * @return the distribution
+     */
+    static Distribution constant(double seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("A constant time cannot be negative.");
+        }
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random, double time) {
+                return seconds;
+            }
+
+            @Override
+            public double getMean() {
+                return seconds;
+            }
+
+            @Override
+            public double getVariance() {
+                return 0;
+            }
+
+            @Override
+            public String toString() {
+                return "constant:" + seconds;
+            }
+        };
+    }
+
+    /**
+     * Creates a distribution of whole seconds, each equally likely, like the original test data.
+     * @param min the smallest value
+     * @param max the largest value
+     * @return the distribution
+     */
+    static Distribution uniformInt(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid uniform range: " + min + " to " + max);
+        }
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random, double time) {
+                return random.nextInt(min, max + 1);
+            }
+
+            @Override
+            public double getMean() {
+                return (min + max) / 2.0;
+            }
+
+            @Override
+            public double getVariance() {
+                double values = max - min + 1.0;
+                return (values * values - 1.0) / 12.0;
+            }
+
+            @Override
+            public String toString() {
+                return "uniform:" + min + ":" + max;
+            }
+        };
+    }
+
+    /**
+     * Creates an exponential distribution. Exponential delays between arrivals make a Poisson arrival process.
+     * @param mean the average value in seconds
+     * @return the distribution
+     */
+    static Distribution exponential(double mean) {
+        return erlang(1, mean);
+    }
+
+    /**
+     * Creates an Erlang distribution: the sum of k exponential phases. Larger k gives
+     * less variable times; the squared coefficient of variation is 1/k.
+     * @param k the number of phases, at least 1
+     * @param mean the average value in seconds
+     * @return the distribution
+     */
+    static Distribution erlang(int k, double mean) {
+        if (k < 1 || mean <= 0) {
+            throw new IllegalArgumentException("An Erlang distribution needs k >= 1 and a positive mean.");
+        }
+        double phaseMean = mean / k;
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random, double time) {
+                double total = 0;
+                for (int phase = 0; phase < k; phase++) {
+                    total -= phaseMean * Math.log(1.0 - random.nextDouble());
+                }
+                return total;
+            }
+
+            @Override
+            public double getMean() {
+                return mean;
+            }
+
+            @Override
+            public double getVariance() {
+                return mean * mean / k;
+            }
+
+            @Override
+            public String toString() {
+                return k == 1 ? "exponential:" + mean : "erlang:" + k + ":" + mean;
+            }
+        };
+    }
+
+    /**
+     * Creates a lognormal distribution, a common fit for service times with a long right tail.
+     * @param mean the average value in seconds
+     * @param standardDeviation the standard deviation in seconds
+     * @return the distribution
+     */
+    static Distribution lognormal(double mean, double standardDeviation) {
+        if (mean <= 0 || standardDeviation < 0) {
+            throw new IllegalArgumentException("A lognormal distribution needs a positive mean and a non-negative standard deviation.");
+        }
+        double sigmaSquared = Math.log(1.0 + (standardDeviation * standardDeviation) / (mean * mean));
+        double mu = Math.log(mean) - sigmaSquared / 2.0;
+        double sigma = Math.sqrt(sigmaSquared);
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random, double time) {
+                return Math.exp(mu + sigma * random.nextGaussian());
+            }
+
+            @Override
+            public double getMean() {
+                return mean;
+            }
+
+            @Override
+            public double getVariance() {
+                return standardDeviation * standardDeviation;
+            }
+
+            @Override
+            public String toString() {
+                return "lognormal:" + mean + ":" + standardDeviation;
+            }
+        };
+    }
+
+    /**
+     * Creates the empirical distribution of recorded times: every value is one of
+     * the recorded ones, each equally likely.
+     * @param seconds the recorded times in seconds
+     * @return the distribution
+     */
+    static Distribution empirical(double[] seconds) {
+        if (seconds.length == 0) {
+            throw new IllegalArgumentException("An empirical distribution needs at least one value.");
+        }
+        double[] values = seconds.clone();
+        if (Arrays.stream(values).anyMatch(value -> value < 0 || Double.isNaN(value))) {
+            throw new IllegalArgumentException("Recorded times cannot be negative.");
+        }
+        double mean = Arrays.stream(values).average().getAsDouble();
+        double variance = Arrays.stream(values).map(value -> (value - mean) * (value - mean)).average().getAsDouble();
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random, double time) {
+                return values[random.nextInt(values.length)];
+            }
+
+            @Override
+            public double getMean() {
+                return mean;
+            }
+
+            @Override
+            public double getVariance() {
+                return variance;
+            }
+
+            @Override
+            public String toString() {
+                return "empirical:" + values.length + ":" + Integer.toHexString(Arrays.hashCode(values));
+            }
+        };
+    }
+
+    /**
+     * Creates the empirical distribution of the times recorded in a CSV trace. The first
+     * column of every line is read as a time in seconds; lines where it is not a number,
+     * such as a header, are skipped.
+     * @param csvFile the trace file
+     * @return the distribution
+     * @throws IOException if the file cannot be read
+     */
+    static Distribution empirical(Path csvFile) throws IOException {
+        List<String> lines = Files.readAllLines(csvFile);
+        double[] values = new double[lines.size()];
+        int count = 0;
+        for (String line : lines) {
+            String firstColumn = line.split(",", 2)[0].trim();
+            try {
+                values[count] = Double.parseDouble(firstColumn);
+                count += 1;
+            } catch (NumberFormatException e) {
+                continue;
+            }
+        }
+        return empirical(Arrays.copyOf(values, count));
+    }
+
+    /**
+     * Creates the delays between arrivals of a Poisson process whose rate changes during
+     * the day, for example with rush hours. The period is split into equal slots with one
+     * rate each, and repeats. Delays are drawn by thinning a process at the highest rate.
+     * Its mean and variance are those of a Poisson process at the average rate.
+     * @param periodSeconds the length of the repeating period, such as 86400 for a day
+     * @param ratesPerSecond the arrival rate of each slot in customers per second
+     * @return the distribution
+     */
+    static Distribution timeVaryingPoisson(double periodSeconds, double... ratesPerSecond) {
+        if (periodSeconds <= 0 || ratesPerSecond.length == 0) {
+            throw new IllegalArgumentException("A time-varying rate needs a positive period and at least one rate.");
+        }
+        double[] rates = ratesPerSecond.clone();
+        double maxRate = Arrays.stream(rates).max().getAsDouble();
+        double averageRate = Arrays.stream(rates).average().getAsDouble();
+        if (Arrays.stream(rates).anyMatch(rate -> rate < 0) || maxRate <= 0) {
+            throw new IllegalArgumentException("Arrival rates cannot be negative and one must be positive.");
+        }
+        double slotSeconds = periodSeconds / rates.length;
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random, double time) {
+                double candidate = time;
+                while (true) {
+                    candidate -= Math.log(1.0 - random.nextDouble()) / maxRate;
+                    int slot = (int) ((candidate % periodSeconds) / slotSeconds);
+                    if (random.nextDouble() * maxRate < rates[Math.min(slot, rates.length - 1)]) {
+                        return candidate - time;
+                    }
+                }
+            }
+
+            @Override
+            public double getMean() {
+                return 1.0 / averageRate;
+            }
+
+            @Override
+            public String toString() {
+                return "poisson:" + periodSeconds + ":" + Arrays.stream(rates).mapToObj(Double::toString).collect(Collectors.joining(":"));
+            }
+        };
+    }
+}
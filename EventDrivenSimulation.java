@@ -0,0 +1,871 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+/**
+ * A discrete-event version of the bank simulation. Instead of sleeping threads,
+ * customer arrivals, service starts and service ends are scheduled on a virtual
+ * clock and processed in time order from an EventQueue. Wait times are therefore
+ * exact and identical between runs of the same data set.
+ * Every random choice comes from SplitMixRandom streams derived from the seed of the
+ * run, so the whole state of a run in progress - the clock, the scheduled events,
+ * the customers in the bank and in each queue, the tellers, the positions of the
+ * random streams and the metrics - can be saved to a checkpoint file between two
+ * events and restored into a simulation of the same configuration, which then
+ * finishes the run exactly as the original would have.
+ */
+public class EventDrivenSimulation {
+
+    public static final long TICKS_PER_SECOND = 1000000000L; /* virtual clock resolution (nanoseconds) */
+    public static final int CHECKPOINT_MAGIC = 0x42514350;  /* "BQCP", the start of every checkpoint file */
+    public static final int CHECKPOINT_VERSION = 2;         /* the checkpoint format written */
+
+    private static final int CHECKPOINT_CHECK_EVENTS = 4096;    /* events between looks at the checkpoint timer, a power of two */
+    private static final int FINGERPRINT_BYTES = 32;            /* the size of a SHA-256 configuration fingerprint */
+
+    private SimulationConfig config;    /* the layout of the bank */
+    private int totalCustomers;         /* the total number of customers the bank will serve */
+    private int totalQueues;            /* the number of queues customers can wait in */
+    private TimeStream arrivals;        /* the delays between arrivals of the current run */
+    private TimeStream services;        /* the service times of the current run, drawn as customers arrive */
+
+    private EventQueue eventQueue;      /* pending events ordered by virtual time */
+    private CustomerStore customers;    /* customers inside the bank, referred to by slot */
+    private PriorityIntQueue[] waitingLines; /* slots of the customers waiting in each queue, one line per class */
+    private QueueLengthIndex queueLengths; /* customers waiting in or served from each queue, ordered by count */
+    private long[] queuedWork;          /* service ticks needed by the customers waiting in each queue */
+    private RoutingPolicy routingPolicy;    /* decides which queue each customer joins */
+    private QueueState queueState = new BankQueueState(); /* the queues as seen by the routing policy */
+    private boolean[] tellerBusy;       /* whether each teller is serving a customer */
+    private int[] tellerServingQueue;   /* the queue the customer of each busy teller came from */
+    private boolean[][] tellerServesQueue;  /* whether each teller serves each queue, null without work stealing */
+    private SplitMixRandom stealRandom;     /* chooses random queues to steal from */
+    private SplitMixRandom classRandom;     /* draws the class of each arriving customer */
+    private LatencyHistogram[] tellerWaitTimes;     /* wait ticks of the customers each teller served */
+    private LatencyHistogram[] tellerServiceTimes;  /* service ticks of the customers each teller served */
+    private LatencyHistogram[] queueWaitTimes;      /* wait ticks of the customers served from each queue */
+    private LatencyHistogram[] classWaitTimes;      /* wait ticks of the customers served of each class */
+    private long[] classTargetTicks;        /* the target wait of each class, 0 for none */
+    private long[] classTargetMisses;       /* customers of each class who waited longer than its target */
+    private TraceWriter traceWriter = TraceWriter.disabled(); /* where served and balked customers are recorded */
+    private long[] tellerBusyTicks;         /* the time each teller has spent serving */
+    private final MetricsRegistry metrics = new MetricsRegistry(); /* live metrics, read from plain fields */
+
+    private long customerWaitTicksTotal;    /* aggregated customer wait time in ticks */
+    private int totalCustomersArrived;      /* customers that have arrived */
+    private int totalCustomersProcessed;    /* customers that have left the bank */
+    private int totalCustomersStolen;       /* customers served by a teller of another queue */
+    private int totalCustomersBalked;       /* customers who left because their queue was full */
+    private int blockedSlot = -1;           /* the slot of the customer held at the door, or -1 */
+    private int blockedQueue;               /* the full queue the held customer waits to join */
+    private long clock;                     /* the current virtual time */
+    private long runSeed;                   /* the seed of the current run */
+    private Path checkpointFile;            /* where checkpoints are saved while running, or null */
+    private long checkpointIntervalNanos;   /* the real time between two checkpoints */
+    private long lastCheckpointNanos;       /* when the last checkpoint was saved or the run started */
+
+    /**
+     * Constructs an event-driven bank simulation with one shared queue or one queue per teller.
+     * @param maxCustomers the total number of customers the bank will serve
+     * @param tellers the number of tellers serving customers
+     * @param randomEnqueueTime a random dataset of integers for controlled enqueue times
+     * @param randomDequeueTime a random dataset of integers for controlled dequeue times
+     * @param enableMultiQueue gives every teller its own queue and sends customers to the shortest one
+     */
+    public EventDrivenSimulation(int maxCustomers, int tellers, int[] randomEnqueueTime, int[] randomDequeueTime, boolean enableMultiQueue) {
+        this(SimulationConfig.builder()
+                .customers(maxCustomers)
+                .tellers(tellers)
+                .queues(enableMultiQueue ? tellers : 1)
+                .randomTimes(randomEnqueueTime, randomDequeueTime)
+                .build());
+    }
+
+    /**
+     * Constructs an event-driven bank simulation of any layout.
+     * Customers choose between several queues with the configured routing policy,
+     * and tellers choose between customer classes with the configured scheduling.
+     * @param config the layout of the bank and its random data sets
+     */
+    public EventDrivenSimulation(SimulationConfig config) {
+        int tellers = config.getTotalTellers();
+        this.config = config;
+        this.totalCustomers = config.getMaxCustomers();
+        this.totalQueues = config.getTotalQueues();
+        this.eventQueue = new EventQueue(tellers * 2 + 2);
+        this.customers = new CustomerStore(tellers * 4);
+        this.waitingLines = new PriorityIntQueue[totalQueues];
+        for (int q = 0; q < totalQueues; q++) {
+            waitingLines[q] = new PriorityIntQueue(customers, config.newClassScheduler(), config.getTotalClasses());
+        }
+        this.queueLengths = new QueueLengthIndex(totalQueues);
+        this.queuedWork = new long[totalQueues];
+        this.tellerBusy = new boolean[tellers];
+        this.tellerServingQueue = new int[tellers];
+        if (config.isWorkStealing()) {
+            this.tellerServesQueue = new boolean[tellers][totalQueues];
+            for (int t = 0; t < tellers; t++) {
+                for (int q : config.getQueuesOfTeller(t)) {
+                    tellerServesQueue[t][q] = true;
+                }
+            }
+        }
+        this.tellerWaitTimes = new LatencyHistogram[tellers];
+        this.tellerServiceTimes = new LatencyHistogram[tellers];
+        for (int t = 0; t < tellers; t++) {
+            tellerWaitTimes[t] = new LatencyHistogram();
+            tellerServiceTimes[t] = new LatencyHistogram();
+        }
+        this.queueWaitTimes = new LatencyHistogram[totalQueues];
+        for (int q = 0; q < totalQueues; q++) {
+            queueWaitTimes[q] = new LatencyHistogram();
+        }
+        int totalClasses = config.getTotalClasses();
+        this.classWaitTimes = new LatencyHistogram[totalClasses];
+        this.classTargetTicks = new long[totalClasses];
+        for (int c = 0; c < totalClasses; c++) {
+            classWaitTimes[c] = new LatencyHistogram();
+            classTargetTicks[c] = config.getCustomerClasses().get(c).getTargetWaitTicks();
+        }
+        this.classTargetMisses = new long[totalClasses];
+        this.tellerBusyTicks = new long[tellers];
+        registerMetrics();
+    }
+
+    /**
+     * Registers the simulation's counts, queue depths, teller utilization and time histograms.
+     * They are read from the simulation's own fields, so the event loop does no extra work;
+     * utilization is in simulated time. Banks with more than MetricsRegistry.DETAIL_LIMIT
+     * queues or tellers only register totals. Banks with several customer classes also
+     * register each class's wait times and missed targets.
+     */
+    private void registerMetrics() {
+        metrics.counter("customers.arrived", () -> totalCustomersArrived);
+        metrics.counter("customers.served", () -> totalCustomersProcessed);
+        metrics.counter("customers.balked", () -> totalCustomersBalked);
+        metrics.gauge("clock.seconds", () -> (double) clock / TICKS_PER_SECOND);
+        metrics.gauge("queues.depth", () -> Arrays.stream(waitingLines).mapToInt(PriorityIntQueue::size).sum());
+        if (totalQueues <= MetricsRegistry.DETAIL_LIMIT) {
+            for (int q = 0; q < totalQueues; q++) {
+                PriorityIntQueue waitingLine = waitingLines[q];
+                metrics.gauge("queue." + (q + 1) + ".depth", waitingLine::size);
+            }
+        }
+        metrics.gauge("tellers.utilization", () -> (double) Arrays.stream(tellerBusyTicks).sum() / tellerBusyTicks.length / Math.max(clock, 1));
+        if (tellerBusyTicks.length <= MetricsRegistry.DETAIL_LIMIT) {
+            for (int t = 0; t < tellerBusyTicks.length; t++) {
+                int teller = t;
+                metrics.gauge("teller." + (t + 1) + ".utilization", () -> (double) tellerBusyTicks[teller] / Math.max(clock, 1));
+            }
+        }
+        metrics.histogram("wait", this::getWaitTimes, TICKS_PER_SECOND);
+        metrics.histogram("service", this::getServiceTimes, TICKS_PER_SECOND);
+        if (classWaitTimes.length > 1) {
+            for (int c = 0; c < classWaitTimes.length; c++) {
+                int customerClass = c;
+                String name = "class." + config.getCustomerClasses().get(c).getName();
+                metrics.histogram(name + ".wait", () -> classWaitTimes[customerClass], TICKS_PER_SECOND);
+                metrics.counter(name + ".missed", () -> classTargetMisses[customerClass]);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the live metrics of the simulation. Sample them with a MetricsSampler
+     * from another thread while the simulation runs.
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets where the customers served or balked are recorded. The trace is only complete
+     * once the run has finished, and the next run overwrites it.
+     * @param traceWriter the trace, or TraceWriter.disabled() for none
+     */
+    public void setTraceWriter(TraceWriter traceWriter) {
+        this.traceWriter = traceWriter;
+    }
+
+    /**
+     * Runs the simulation until every customer has been served.
+     */
+    public void run() {
+        run(config.getSeed());
+    }
+
+    /**
+     * Runs the simulation with another seed for the random times and routing choices,
+     * so one simulation can run many independent replications without being rebuilt.
+     * @param seed the seed of the run
+     */
+    public void run(long seed) {
+        start(seed);
+        advance(Long.MAX_VALUE);
+    }
+
+    /**
+     * Clears the state and schedules the first arrival of a run with a seed, without
+     * processing any event. The run then proceeds with advance.
+     * @param seed the seed of the run
+     */
+    public void start(long seed) {
+        reset(seed);
+        if (totalCustomers > 0) {
+            eventQueue.schedule(arrivals.nextTicks(0), EventQueue.ARRIVAL, 0, -1);
+        }
+    }
+
+    /**
+     * Processes the events of the current run up to a virtual time, saving a checkpoint
+     * each time the checkpoint interval has passed. A run started with start or restored
+     * from a checkpoint finishes with advance(Long.MAX_VALUE).
+     * @param untilTicks the virtual time of the last events processed
+     * @return true if events after that time remain
+     * @throws UncheckedIOException if a checkpoint cannot be saved
+     */
+    public boolean advance(long untilTicks) {
+        long events = 0;
+        lastCheckpointNanos = System.nanoTime();
+        while (eventQueue.getNextTime() <= untilTicks && eventQueue.poll()) {
+            clock = eventQueue.getCurrentTime();
+            int customer = eventQueue.getCurrentCustomer();
+            int teller = eventQueue.getCurrentTeller();
+            switch (eventQueue.getCurrentType()) {
+                case EventQueue.ARRIVAL:
+                    customerArrives(customer);
+                    break;
+                case EventQueue.SERVICE_START:
+                    serviceStarts(customer, teller);
+                    break;
+                default:
+                    serviceEnds(customer, teller);
+                    break;
+            }
+            events += 1;
+            if (checkpointFile != null && (events & (CHECKPOINT_CHECK_EVENTS - 1)) == 0
+                    && System.nanoTime() - lastCheckpointNanos >= checkpointIntervalNanos) {
+                try {
+                    saveCheckpoint(checkpointFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                lastCheckpointNanos = System.nanoTime();
+            }
+        }
+        return !eventQueue.isEmpty();
+    }
+
+    /**
+     * Saves a checkpoint to a file at a regular interval of real time while the simulation
+     * runs, each one replacing the last, so a long run interrupted for any reason can be
+     * restored from its last checkpoint instead of being run again from the start.
+     * @param file the checkpoint file, or null to stop saving checkpoints
+     * @param intervalMillis the real time between two checkpoints in milliseconds
+     */
+    public void setCheckpointing(Path file, long intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("The checkpoint interval cannot be negative.");
+        }
+        this.checkpointFile = file;
+        this.checkpointIntervalNanos = intervalMillis * 1000000L;
+    }
+
+    /**
+     * Saves the state of the current run. The checkpoint is written to a temporary file
+     * first and then moved over the file, so a crash while saving leaves the previous
+     * checkpoint intact. The trace of served customers is not part of the checkpoint.
+     * @param file the checkpoint file
+     * @throws IOException if the file cannot be written
+     */
+    public void saveCheckpoint(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "checkpoint", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            writeState(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores the state of a run saved by saveCheckpoint, so that advance continues it.
+     * The simulation must have been built from the same configuration as the one saved.
+     * @param file the checkpoint file
+     * @throws IOException if the file cannot be read or is not a checkpoint of this configuration
+     */
+    public void restoreCheckpoint(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readState(in);
+        }
+    }
+
+    /**
+     * Writes the whole state of the current run.
+     * @param out where the state goes
+     * @throws IOException if writing fails
+     */
+    private void writeState(DataOutputStream out) throws IOException {
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeInt(CHECKPOINT_VERSION);
+        out.write(fingerprint(config));
+        out.writeLong(runSeed);
+        out.writeLong(clock);
+        out.writeLong(customerWaitTicksTotal);
+        out.writeInt(totalCustomersArrived);
+        out.writeInt(totalCustomersProcessed);
+        out.writeInt(totalCustomersStolen);
+        out.writeInt(totalCustomersBalked);
+        out.writeInt(blockedSlot);
+        out.writeInt(blockedQueue);
+        arrivals.writeTo(out);
+        services.writeTo(out);
+        routingPolicy.writeTo(out);
+        stealRandom.writeTo(out);
+        classRandom.writeTo(out);
+        eventQueue.writeTo(out);
+        customers.writeTo(out);
+        for (int q = 0; q < totalQueues; q++) {
+            waitingLines[q].writeTo(out);
+            out.writeLong(queuedWork[q]);
+            queueWaitTimes[q].writeTo(out);
+        }
+        queueLengths.writeTo(out);
+        for (int t = 0; t < tellerBusy.length; t++) {
+            out.writeBoolean(tellerBusy[t]);
+            out.writeInt(tellerServingQueue[t]);
+            out.writeLong(tellerBusyTicks[t]);
+            tellerWaitTimes[t].writeTo(out);
+            tellerServiceTimes[t].writeTo(out);
+        }
+        for (int c = 0; c < classWaitTimes.length; c++) {
+            classWaitTimes[c].writeTo(out);
+            out.writeLong(classTargetMisses[c]);
+        }
+    }
+
+    /**
+     * Computes the fingerprint a checkpoint records of its configuration: the SHA-256
+     * hash of its description, which stays the same size however large the bank is.
+     * @param config the configuration
+     * @return the FINGERPRINT_BYTES byte fingerprint
+     */
+    private static byte[] fingerprint(SimulationConfig config) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(config.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the whole state of a run written by writeState.
+     * @param in where the state is read from
+     * @throws IOException if reading fails or the state belongs to another configuration
+     */
+    private void readState(DataInputStream in) throws IOException {
+        if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+            throw new IOException("Not a checkpoint of this version of the simulation.");
+        }
+        byte[] configuration = new byte[FINGERPRINT_BYTES];
+        in.readFully(configuration);
+        if (!MessageDigest.isEqual(configuration, fingerprint(config))) {
+            throw new IOException("The checkpoint was saved with another configuration.");
+        }
+        reset(in.readLong());
+        clock = in.readLong();
+        customerWaitTicksTotal = in.readLong();
+        totalCustomersArrived = in.readInt();
+        totalCustomersProcessed = in.readInt();
+        totalCustomersStolen = in.readInt();
+        totalCustomersBalked = in.readInt();
+        blockedSlot = in.readInt();
+        blockedQueue = in.readInt();
+        arrivals.readFrom(in);
+        services.readFrom(in);
+        routingPolicy.readFrom(in);
+        stealRandom.readFrom(in);
+        classRandom.readFrom(in);
+        eventQueue.readFrom(in);
+        customers.readFrom(in);
+        for (int q = 0; q < totalQueues; q++) {
+            waitingLines[q].readFrom(in);
+            queuedWork[q] = in.readLong();
+            readHistogram(in, queueWaitTimes[q]);
+        }
+        queueLengths.readFrom(in);
+        for (int t = 0; t < tellerBusy.length; t++) {
+            tellerBusy[t] = in.readBoolean();
+            tellerServingQueue[t] = in.readInt();
+            tellerBusyTicks[t] = in.readLong();
+            readHistogram(in, tellerWaitTimes[t]);
+            readHistogram(in, tellerServiceTimes[t]);
+        }
+        for (int c = 0; c < classWaitTimes.length; c++) {
+            readHistogram(in, classWaitTimes[c]);
+            classTargetMisses[c] = in.readLong();
+        }
+    }
+
+    /**
+     * Replaces the counts of a histogram with ones written by LatencyHistogram.writeTo.
+     * @param in where the histogram is read from
+     * @param histogram the histogram to restore
+     * @throws IOException if reading fails
+     */
+    private static void readHistogram(DataInputStream in, LatencyHistogram histogram) throws IOException {
+        LatencyHistogram restored = LatencyHistogram.readFrom(in);
+        histogram.reset();
+        histogram.merge(restored);
+    }
+
+    /**
+     * Retrieves the seed of the current or last run.
+     * @return the seed passed to run or start, or saved in the restored checkpoint
+     */
+    public long getRunSeed() {
+        return runSeed;
+    }
+
+    /**
+     * Places an arriving customer in a queue, or directly with an idle teller,
+     * and schedules the next customer's arrival. If the queue is full, the
+     * customer is rejected, balks, or is held at the door and no one else
+     * arrives until the queue has room for them.
+     * @param customer the ID of the arriving customer
+     * @throws IllegalStateException if the queue is full and the policy is to reject
+     */
+    private void customerArrives(int customer) {
+        int slot = customers.admit(customer, clock, services.nextTicks(clock), config.drawCustomerClass(classRandom));
+        totalCustomersArrived += 1;
+        int queue = totalQueues > 1 ? routingPolicy.selectQueue(queueState) : 0;
+        if (config.getQueueCapacity() > 0 && waitingLines[queue].size() >= config.getQueueCapacity()) {
+            if (SimulationConfig.OVERFLOW_BLOCK.equals(config.getOverflow())) {
+                blockedSlot = slot;
+                blockedQueue = queue;
+                return;
+            }
+            if (SimulationConfig.OVERFLOW_REJECT.equals(config.getOverflow())) {
+                throw new IllegalStateException("Queue " + (queue + 1) + " is full: customer " + customer + " was rejected.");
+            }
+            if (traceWriter.isEnabled()) {
+                traceWriter.customerBalked(customer, clock, customers.getServiceTime(slot), queue);
+            }
+            customers.release(slot);
+            totalCustomersBalked += 1;
+            scheduleNextArrival(customer);
+            return;
+        }
+        joinQueue(slot, queue);
+        scheduleNextArrival(customer);
+    }
+
+    /**
+     * Places a customer in a queue, or directly with an idle teller.
+     * @param slot the customer's slot
+     * @param queue the queue the customer joins
+     */
+    private void joinQueue(int slot, int queue) {
+        queueLengths.increment(queue);
+        int idleTeller = idleTellerOf(queue);
+        if (idleTeller >= 0 && waitingLines[queue].isEmpty()) {
+            startServing(idleTeller, queue);
+            eventQueue.schedule(clock, EventQueue.SERVICE_START, slot, idleTeller);
+        } else {
+            waitingLines[queue].enqueue(slot);
+            queuedWork[queue] += customers.getServiceTime(slot);
+            if (tellerServesQueue != null && waitingLines[queue].size() >= config.getJockeyThreshold()) {
+                wakeIdleThief();
+            }
+        }
+    }
+
+    /**
+     * Schedules the arrival of the customer after another, if there is one.
+     * @param customer the ID of the customer who just arrived
+     */
+    private void scheduleNextArrival(int customer) {
+        int nextCustomer = customer + 1;
+        if (nextCustomer < totalCustomers) {
+            eventQueue.schedule(clock + arrivals.nextTicks(clock), EventQueue.ARRIVAL, nextCustomer, -1);
+        }
+    }
+
+    /**
+     * Lets the customer held at the door join their queue after a customer has
+     * left it, and lets the next customer arrive.
+     * @param queue the queue a customer has just left
+     */
+    private void admitBlockedCustomer(int queue) {
+        if (blockedSlot < 0 || blockedQueue != queue) {
+            return;
+        }
+        int slot = blockedSlot;
+        blockedSlot = -1;
+        joinQueue(slot, queue);
+        scheduleNextArrival(customers.getCustomerID(slot));
+    }
+
+    /**
+     * Records a customer's wait time and schedules the end of their service.
+     * @param slot the slot of the customer leaving the queue
+     * @param teller the teller serving the customer
+     */
+    private void serviceStarts(int slot, int teller) {
+        customers.leaveQueue(slot, clock);
+        long waitTicks = customers.getWaitTime(slot);
+        long serviceTicks = customers.getServiceTime(slot);
+        customerWaitTicksTotal += waitTicks;
+        tellerWaitTimes[teller].record(waitTicks);
+        tellerServiceTimes[teller].record(serviceTicks);
+        queueWaitTimes[tellerServingQueue[teller]].record(waitTicks);
+        int customerClass = customers.getCustomerClass(slot);
+        classWaitTimes[customerClass].record(waitTicks);
+        if (classTargetTicks[customerClass] > 0 && waitTicks > classTargetTicks[customerClass]) {
+            classTargetMisses[customerClass] += 1;
+        }
+        if (traceWriter.isEnabled()) {
+            traceWriter.customerServed(customers.getCustomerID(slot), customers.getQueueStartTime(slot), serviceTicks, waitTicks, tellerServingQueue[teller], teller);
+        }
+        eventQueue.schedule(clock + serviceTicks, EventQueue.SERVICE_END, slot, teller);
+    }
+
+    /**
+     * Frees a teller and hands them the next waiting customer of the first of
+     * their queues that has one.
+     * @param slot the slot of the customer leaving the bank
+     * @param teller the teller who finished serving a customer
+     */
+    private void serviceEnds(int slot, int teller) {
+        tellerBusyTicks[teller] += customers.getServiceTime(slot);
+        customers.release(slot);
+        totalCustomersProcessed += 1;
+        queueLengths.decrement(tellerServingQueue[teller]);
+        tellerBusy[teller] = false;
+        for (int queue : config.getQueuesOfTeller(teller)) {
+            if (!waitingLines[queue].isEmpty()) {
+                int nextSlot = waitingLines[queue].dequeue();
+                queuedWork[queue] -= customers.getServiceTime(nextSlot);
+                startServing(teller, queue);
+                eventQueue.schedule(clock, EventQueue.SERVICE_START, nextSlot, teller);
+                admitBlockedCustomer(queue);
+                return;
+            }
+        }
+        if (tellerServesQueue != null) {
+            int victim = chooseVictim(teller);
+            if (victim >= 0) {
+                stealFrom(teller, victim);
+            }
+        }
+    }
+
+    /**
+     * Chooses the queue an idle teller steals from.
+     * @param teller the idle teller
+     * @return a queue the teller does not serve with at least the jockeying threshold
+     *         of customers waiting, or -1 if there is none
+     */
+    private int chooseVictim(int teller) {
+        int victim = -1;
+        if (SimulationConfig.STEAL_FROM_RANDOM.equals(config.getStealFrom())) {
+            int queue = stealRandom.nextInt(totalQueues);
+            if (!tellerServesQueue[teller][queue]) {
+                victim = queue;
+            }
+        } else {
+            for (int queue = 0; queue < totalQueues; queue++) {
+                if (!tellerServesQueue[teller][queue] && (victim < 0 || waitingLines[queue].size() > waitingLines[victim].size())) {
+                    victim = queue;
+                }
+            }
+        }
+        if (victim >= 0 && waitingLines[victim].size() < config.getJockeyThreshold()) {
+            return -1;
+        }
+        return victim;
+    }
+
+    /**
+     * Hands an idle teller the customer at the front of a queue they do not serve.
+     * @param teller the idle teller
+     * @param victim the queue to steal from
+     */
+    private void stealFrom(int teller, int victim) {
+        int stolenSlot = waitingLines[victim].dequeue();
+        queuedWork[victim] -= customers.getServiceTime(stolenSlot);
+        totalCustomersStolen += 1;
+        startServing(teller, victim);
+        eventQueue.schedule(clock, EventQueue.SERVICE_START, stolenSlot, teller);
+        admitBlockedCustomer(victim);
+    }
+
+    /**
+     * Lets the first idle teller steal a customer after a queue has grown past the jockeying threshold.
+     */
+    private void wakeIdleThief() {
+        for (int teller = 0; teller < tellerBusy.length; teller++) {
+            if (!tellerBusy[teller]) {
+                int victim = chooseVictim(teller);
+                if (victim >= 0) {
+                    stealFrom(teller, victim);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks a teller busy with a customer from a queue.
+     * @param teller the teller index
+     * @param queue the queue the customer came from
+     */
+    private void startServing(int teller, int queue) {
+        tellerBusy[teller] = true;
+        tellerServingQueue[teller] = queue;
+    }
+
+    /**
+     * Finds an idle teller serving a queue.
+     * @param queue the queue index
+     * @return the index of an idle teller, or -1 if all of the queue's tellers are busy
+     */
+    private int idleTellerOf(int queue) {
+        for (int teller : config.getTellersOfQueue(queue)) {
+            if (!tellerBusy[teller]) {
+                return teller;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Clears all state so the simulation can be run again.
+     * @param seed the seed of the next run
+     */
+    private void reset(long seed) {
+        runSeed = seed;
+        arrivals = config.newArrivalStream(seed);
+        services = config.newServiceStream(seed);
+        eventQueue.clear();
+        customers.clear();
+        for (int q = 0; q < totalQueues; q++) {
+            waitingLines[q].clear();
+        }
+        queueLengths.clear();
+        Arrays.fill(queuedWork, 0);
+        routingPolicy = config.createRoutingPolicy(seed);
+        stealRandom = config.newStealRandom(seed);
+        classRandom = config.newClassRandom(seed);
+        Arrays.fill(tellerBusy, false);
+        for (int t = 0; t < tellerWaitTimes.length; t++) {
+            tellerWaitTimes[t].reset();
+            tellerServiceTimes[t].reset();
+        }
+        for (int q = 0; q < totalQueues; q++) {
+            queueWaitTimes[q].reset();
+        }
+        for (int c = 0; c < classWaitTimes.length; c++) {
+            classWaitTimes[c].reset();
+        }
+        Arrays.fill(classTargetMisses, 0);
+        customerWaitTicksTotal = 0;
+        totalCustomersProcessed = 0;
+        totalCustomersStolen = 0;
+        totalCustomersBalked = 0;
+        totalCustomersArrived = 0;
+        Arrays.fill(tellerBusyTicks, 0);
+        blockedSlot = -1;
+        clock = 0;
+    }
+
+    /**
+     * The bank's queues as seen by its routing policy.
+     */
+    private class BankQueueState implements QueueState {
+
+        @Override
+        public int getTotalQueues() {
+            return totalQueues;
+        }
+
+        @Override
+        public int getQueueLength(int queue) {
+            return queueLengths.length(queue);
+        }
+
+        @Override
+        public double getQueuedWork(int queue) {
+            return (double) queuedWork[queue] / TICKS_PER_SECOND;
+        }
+
+        @Override
+        public int getShortestQueue() {
+            return queueLengths.shortest();
+        }
+    }
+
+    /**
+     * Converts a whole number of simulated seconds to virtual clock ticks.
+     * @param seconds the simulated time in seconds
+     * @return the simulated time in ticks
+     */
+    public static long secondsToTicks(int seconds) {
+        return seconds * TICKS_PER_SECOND;
+    }
+
+    /**
+     * Retrieves the total time customers waited in queues.
+     * @return the total wait time in simulated seconds
+     */
+    public double getCustomerWaitTimeTotal() {
+        return (double) customerWaitTicksTotal / TICKS_PER_SECOND;
+    }
+
+    /**
+     * Retrieves the average time customers waited in queues.
+     * @return the average wait time in simulated seconds
+     */
+    public double getCustomerWaitTimeAverage() {
+        if (totalCustomersProcessed == 0) {
+            return 0;
+        }
+        return getCustomerWaitTimeTotal() / totalCustomersProcessed;
+    }
+
+    /**
+     * Retrieves the number of customers served.
+     * @return the number of customers that have left the bank
+     */
+    public int getTotalCustomersServed() {
+        return totalCustomersProcessed;
+    }
+
+    /**
+     * Retrieves the number of customers served by a teller of another queue.
+     * @return the stolen customer count, 0 without work stealing
+     */
+    public int getTotalCustomersStolen() {
+        return totalCustomersStolen;
+    }
+
+    /**
+     * Retrieves the number of customers who left because their queue was full.
+     * @return the balked customer count
+     */
+    public int getTotalCustomersBalked() {
+        return totalCustomersBalked;
+    }
+
+    /**
+     * Retrieves the share of the simulated time the tellers spent serving customers.
+     * @return the mean utilization of the tellers, from 0 to 1
+     */
+    public double getTellerUtilization() {
+        long busyTicks = 0;
+        for (long ticks : tellerBusyTicks) {
+            busyTicks += ticks;
+        }
+        return (double) busyTicks / tellerBusyTicks.length / Math.max(clock, 1);
+    }
+
+    /**
+     * Retrieves the virtual time at which the last customer left the bank.
+     * @return the simulated duration in seconds
+     */
+    public double getSimulatedTime() {
+        return (double) clock / TICKS_PER_SECOND;
+    }
+
+    /**
+     * Retrieves the wait times of the customers a teller served.
+     * @param teller the teller index
+     * @return the wait time histogram in ticks
+     */
+    public LatencyHistogram getTellerWaitTimes(int teller) {
+        return tellerWaitTimes[teller];
+    }
+
+    /**
+     * Retrieves the service times of the customers a teller served.
+     * @param teller the teller index
+     * @return the service time histogram in ticks
+     */
+    public LatencyHistogram getTellerServiceTimes(int teller) {
+        return tellerServiceTimes[teller];
+    }
+
+    /**
+     * Retrieves the wait times of the customers served from a queue.
+     * @param queue the queue index
+     * @return the wait time histogram in ticks
+     */
+    public LatencyHistogram getQueueWaitTimes(int queue) {
+        return queueWaitTimes[queue];
+    }
+
+    /**
+     * Retrieves the wait times of the customers served of a class.
+     * @param customerClass the class index
+     * @return the wait time histogram in ticks
+     */
+    public LatencyHistogram getClassWaitTimes(int customerClass) {
+        return classWaitTimes[customerClass];
+    }
+
+    /**
+     * Retrieves the number of customers of a class who waited longer than its target.
+     * @param customerClass the class index
+     * @return the missed target count, 0 for a class without a target
+     */
+    public long getClassTargetMisses(int customerClass) {
+        return classTargetMisses[customerClass];
+    }
+
+    /**
+     * Merges the wait times recorded by every teller.
+     * @return a new histogram of all customers' wait times in ticks
+     */
+    public LatencyHistogram getWaitTimes() {
+        return mergeAll(tellerWaitTimes);
+    }
+
+    /**
+     * Merges the service times recorded by every teller.
+     * @return a new histogram of all customers' service times in ticks
+     */
+    public LatencyHistogram getServiceTimes() {
+        return mergeAll(tellerServiceTimes);
+    }
+
+    /**
+     * Merges histograms into a new one.
+     * @param histograms the histograms to merge
+     * @return the merged histogram
+     */
+    private static LatencyHistogram mergeAll(LatencyHistogram[] histograms) {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) {
+            merged.merge(histogram);
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+/**
+ * An asynchronous log of what happens to customers in the threaded bank.
+ * Receptions and tellers write fixed-size records into a lock-free ring of
+ * preallocated slots; a background writer thread formats them in batches and
+ * writes them to standard output or a file. Logging a record never blocks and
+ * never allocates: if the writer falls behind and the ring is full, the record
+ * is dropped and counted instead. A disabled log ignores every record.
+ */
+public class EventLog implements AutoCloseable {
+
+    public static final int CUSTOMER_QUEUED = 0;    /* the reception placed a customer in a queue */
+    public static final int CUSTOMER_SERVED = 1;    /* a teller took a customer off a queue */
+
+    public static final int DEFAULT_CAPACITY = 1 << 16; /* records the ring holds before dropping */
+    private static final int BATCH_SIZE = 256;          /* records formatted between writes */
+    private static final long IDLE_PARK_NANOS = 1000000L; /* how long the writer sleeps when the ring is empty */
+
+    private static final EventLog DISABLED = new EventLog();
+
+    private final boolean enabled;          /* false for the log that ignores every record */
+    private final int ringMask;             /* capacity - 1, used instead of the modulo operator */
+    private final AtomicLongArray slotSequences;    /* the position each slot is ready for */
+    private final PaddedSequence logBackPosition = new PaddedSequence(0); /* next position to claim for writing, sign bit set once sealed */
+    private long logFrontPosition;          /* next position to read, used by the writer thread only */
+    private volatile long flushedPosition;  /* records before this position have reached the output */
+    private final int[] recordTypes;        /* the type of each record */
+    private final int[] recordCustomers;    /* the customer ID of each record */
+    private final int[] recordQueues;       /* the queue ID of each record */
+    private final int[] recordTellers;      /* the teller ID of each record, 0 if none */
+    private final long[] recordWaitTimes;   /* the customer's wait in nanoseconds of each served record */
+    private final int[] recordCounts;       /* the customers served so far of each served record */
+    private final LongAdder droppedRecords = new LongAdder(); /* records lost because the ring was full */
+
+    private final Writer output;            /* where formatted records are written */
+    private final boolean closeOutput;      /* whether closing the log closes the output */
+    private final Thread writerThread;      /* drains the ring in the background */
+    private volatile boolean closed;        /* set once no more records will be logged */
+    private IOException writeFailure;       /* the first error the writer thread hit */
+
+    /**
+     * Constructs the disabled log.
+     */
+    private EventLog() {
+        enabled = false;
+        ringMask = 0;
+        slotSequences = null;
+        recordTypes = null;
+        recordCustomers = null;
+        recordQueues = null;
+        recordTellers = null;
+        recordWaitTimes = null;
+        recordCounts = null;
+        output = null;
+        closeOutput = false;
+        writerThread = null;
+        closed = true;
+    }
+
+    /**
+     * Constructs a log and starts its writer thread.
+     * @param stream where the records are written as lines of text
+     * @param closeStream whether closing the log closes the stream
+     * @param capacity the minimum number of records the ring holds, rounded up to a power of two
+     */
+    public EventLog(OutputStream stream, boolean closeStream, int capacity) {
+        int ringCapacity = AbstractRingQueue.roundToPowerOfTwo(capacity);
+        enabled = true;
+        ringMask = ringCapacity - 1;
+        slotSequences = new AtomicLongArray(ringCapacity);
+        for (int i = 0; i < ringCapacity; i++) {
+            slotSequences.set(i, i);
+        }
+        recordTypes = new int[ringCapacity];
+        recordCustomers = new int[ringCapacity];
+        recordQueues = new int[ringCapacity];
+        recordTellers = new int[ringCapacity];
+        recordWaitTimes = new long[ringCapacity];
+        recordCounts = new int[ringCapacity];
+        output = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+        closeOutput = closeStream;
+        writerThread = new Thread(this::drainLoop, "event-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Retrieves the log that ignores every record.
+     * @return the shared disabled log
+     */
+    public static EventLog disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Opens a log by name.
+     * @param destination "off" for no log, "stdout" for standard output, or the path of a file to create
+     * @return the log
+     * @throws IOException if the file cannot be created
+     */
+    public static EventLog open(String destination) throws IOException {
+        if (destination.equals("off")) {
+            return DISABLED;
+        }
+        if (destination.equals("stdout")) {
+            return new EventLog(System.out, false, DEFAULT_CAPACITY);
+        }
+        return new EventLog(new FileOutputStream(destination), true, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Checks whether records are kept.
+     * @return false if this is the disabled log
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Logs that the reception placed a customer in a queue.
+     * @param customerID the customer's ID
+     * @param queueID the queue's ID
+     */
+    public void customerQueued(int customerID, int queueID) {
+        if (enabled) {
+            append(CUSTOMER_QUEUED, customerID, queueID, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Logs that a teller took a customer off a queue.
+     * @param tellerID the teller's ID
+     * @param customerID the customer's ID
+     * @param queueID the queue's ID
+     * @param waitNanos how long the customer waited in nanoseconds
+     * @param servedCount the number of customers served so far, including this one
+     */
+    public void customerServed(int tellerID, int customerID, int queueID, long waitNanos, int servedCount) {
+        if (enabled) {
+            append(CUSTOMER_SERVED, customerID, queueID, tellerID, waitNanos, servedCount);
+        }
+    }
+
+    /**
+     * Claims a slot of the ring and writes a record into it, or drops the record if the ring is full.
+     */
+    private void append(int type, int customerID, int queueID, int tellerID, long waitNanos, int count) {
+        if (closed) {
+            droppedRecords.increment();
+            return;
+        }
+        long back = logBackPosition.get();
+        int index;
+        while (true) {
+            if (back < 0) {
+                droppedRecords.increment();
+                return;
+            }
+            index = (int) back & ringMask;
+            long difference = slotSequences.get(index) - back;
+            if (difference == 0) {
+                if (logBackPosition.compareAndSet(back, back + 1)) {
+                    break;
+                }
+                back = logBackPosition.get();
+            } else if (difference < 0) {
+                droppedRecords.increment();
+                return;
+            } else {
+                back = logBackPosition.get();
+            }
+        }
+        recordTypes[index] = type;
+        recordCustomers[index] = customerID;
+        recordQueues[index] = queueID;
+        recordTellers[index] = tellerID;
+        recordWaitTimes[index] = waitNanos;
+        recordCounts[index] = count;
+        slotSequences.lazySet(index, back + 1);
+    }
+
+    /**
+     * The writer thread's task: formats and writes batches of records until the log is
+     * closed and empty. A producer may have passed the closed check just before close
+     * and still be claiming a slot, so once closed the writer seals the ring and drains
+     * up to the sealed position, waiting for claimed slots that are not yet published.
+     */
+    private void drainLoop() {
+        StringBuilder batch = new StringBuilder(BATCH_SIZE * 80);
+        try {
+            while (true) {
+                boolean wasClosed = closed;
+                int drained = drainBatch(batch);
+                if (drained > 0) {
+                    output.write(batch.toString());
+                    batch.setLength(0);
+                } else if (wasClosed && logFrontPosition == seal()) {
+                    break;
+                } else if (wasClosed) {
+                    Thread.onSpinWait();
+                } else {
+                    output.flush();
+                    flushedPosition = logFrontPosition;
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+            output.flush();
+            flushedPosition = logFrontPosition;
+        } catch (IOException e) {
+            writeFailure = e;
+        }
+    }
+
+    /**
+     * Stops producers from claiming more slots by setting the sign bit of the back
+     * position; a producer that reads a negative position drops its record instead.
+     * @return the position after the last slot claimed before the ring was sealed
+     */
+    private long seal() {
+        while (true) {
+            long back = logBackPosition.get();
+            if (back < 0 || logBackPosition.compareAndSet(back, back | Long.MIN_VALUE)) {
+                return back & Long.MAX_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Formats up to a batch of ready records.
+     * @param batch where the lines are appended
+     * @return the number of records formatted
+     */
+    private int drainBatch(StringBuilder batch) {
+        int drained = 0;
+        while (drained < BATCH_SIZE) {
+            long front = logFrontPosition;
+            int index = (int) front & ringMask;
+            if (slotSequences.get(index) != front + 1) {
+                break;
+            }
+            format(batch, index);
+            slotSequences.lazySet(index, front + ringMask + 1);
+            logFrontPosition = front + 1;
+            drained += 1;
+        }
+        return drained;
+    }
+
+    /**
+     * Formats one record as a line of text.
+     * @param batch where the line is appended
+     * @param index the slot of the record
+     */
+    private void format(StringBuilder batch, int index) {
+        if (recordTypes[index] == CUSTOMER_QUEUED) {
+            batch.append("Customer ").append(recordCustomers[index] + 1)
+                    .append(" added to Queue ").append(recordQueues[index]).append(".\n");
+        } else {
+            batch.append(String.format("Teller %d processed Customer %d from Queue %d, waited %.3f seconds. (%d served)\n",
+                    recordTellers[index], recordCustomers[index] + 1, recordQueues[index],
+                    recordWaitTimes[index] / 1e9, recordCounts[index]));
+        }
+    }
+
+    /**
+     * Retrieves the number of records dropped because the ring was full or the log was closed.
+     * @return the dropped record count
+     */
+    public long getDroppedRecords() {
+        return droppedRecords.sum();
+    }
+
+    /**
+     * Waits until every record logged before the call has been written and flushed,
+     * so that other output does not interleave with it.
+     */
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        long target = logBackPosition.get() & Long.MAX_VALUE;
+        LockSupport.unpark(writerThread);
+        while (flushedPosition < target && writerThread.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+    }
+
+    /**
+     * Stops accepting records, waits for the writer to write the remaining ones and flushes the output.
+     * @throws IOException if writing the log failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (!enabled || closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (closeOutput) {
+            output.close();
+        }
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+/**
+ * A priority queue of simulation events ordered by their virtual time.
+ * Implemented as a binary min-heap over parallel primitive arrays so that
+ * scheduling and polling events never allocates objects. Events scheduled
+ * for the same time are polled in the order they were scheduled, which keeps
+ * every run deterministic.
+ */
+public class EventQueue {
+
+    public static final int ARRIVAL = 0;        /* a customer arrives at the bank */
+    public static final int SERVICE_START = 1;  /* a teller starts serving a customer */
+    public static final int SERVICE_END = 2;    /* a teller finishes serving a customer */
+
+    private long[] eventTimes;      /* virtual time of each event in heap order */
+    private long[] eventSequences;  /* scheduling order of each event, used to break ties */
+    private int[] eventTypes;       /* the type of each event */
+    private int[] eventCustomers;   /* the customer index each event refers to */
+    private int[] eventTellers;     /* the teller index each event refers to */
+    private int eventCount;         /* current number of events in the heap */
+    private long nextSequence;      /* sequence number of the next scheduled event */
+
+    private long currentTime;       /* virtual time of the last polled event */
+    private int currentType;        /* type of the last polled event */
+    private int currentCustomer;    /* customer index of the last polled event */
+    private int currentTeller;      /* teller index of the last polled event */
+
+    /**
+     * Constructs an empty event queue.
+     * @param initialCapacity the number of events the queue can hold before growing
+     */
+    public EventQueue(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 4);
+        eventTimes = new long[capacity];
+        eventSequences = new long[capacity];
+        eventTypes = new int[capacity];
+        eventCustomers = new int[capacity];
+        eventTellers = new int[capacity];
+    }
+
+    /**
+     * Schedules an event.
+     * @param time the virtual time at which the event occurs
+     * @param type the type of the event
+     * @param customer the customer index the event refers to
+     * @param teller the teller index the event refers to, or -1 if none
+     */
+    public void schedule(long time, int type, int customer, int teller) {
+        if (eventCount == eventTimes.length) {
+            grow();
+        }
+        int position = eventCount;
+        eventCount += 1;
+        long sequence = nextSequence;
+        nextSequence += 1;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isBefore(time, sequence, eventTimes[parent], eventSequences[parent])) {
+                break;
+            }
+            copy(parent, position);
+            position = parent;
+        }
+        set(position, time, sequence, type, customer, teller);
+    }
+
+    /**
+     * Removes the earliest event and makes it available through the current event getters.
+     * @return true if an event was polled, false if the queue is empty
+     */
+    public boolean poll() {
+        if (eventCount == 0) {
+            return false;
+        }
+        currentTime = eventTimes[0];
+        currentType = eventTypes[0];
+        currentCustomer = eventCustomers[0];
+        currentTeller = eventTellers[0];
+        eventCount -= 1;
+        if (eventCount > 0) {
+            siftDown(eventCount);
+        }
+        return true;
+    }
+
+    /**
+     * Moves the last event of the heap into its place starting from the root.
+     * @param last the position of the event to re-insert
+     */
+    private void siftDown(int last) {
+        long time = eventTimes[last];
+        long sequence = eventSequences[last];
+        int type = eventTypes[last];
+        int customer = eventCustomers[last];
+        int teller = eventTellers[last];
+        int position = 0;
+        int half = eventCount >>> 1;
+        while (position < half) {
+            int child = (position << 1) + 1;
+            int right = child + 1;
+            if (right < eventCount && isBefore(eventTimes[right], eventSequences[right], eventTimes[child], eventSequences[child])) {
+                child = right;
+            }
+            if (!isBefore(eventTimes[child], eventSequences[child], time, sequence)) {
+                break;
+            }
+            copy(child, position);
+            position = child;
+        }
+        set(position, time, sequence, type, customer, teller);
+    }
+
+    /**
+     * Checks whether one event must be polled before another.
+     */
+    private static boolean isBefore(long time, long sequence, long otherTime, long otherSequence) {
+        return time < otherTime || (time == otherTime && sequence < otherSequence);
+    }
+
+    /**
+     * Copies the event at one heap position to another.
+     */
+    private void copy(int from, int to) {
+        eventTimes[to] = eventTimes[from];
+        eventSequences[to] = eventSequences[from];
+        eventTypes[to] = eventTypes[from];
+        eventCustomers[to] = eventCustomers[from];
+        eventTellers[to] = eventTellers[from];
+    }
+
+    /**
+     * Writes an event at a heap position.
+     */
+    private void set(int position, long time, long sequence, int type, int customer, int teller) {
+        eventTimes[position] = time;
+        eventSequences[position] = sequence;
+        eventTypes[position] = type;
+        eventCustomers[position] = customer;
+        eventTellers[position] = teller;
+    }
+
+    /**
+     * Doubles the capacity of the heap arrays.
+     */
+    private void grow() {
+        int capacity = eventTimes.length << 1;
+        eventTimes = Arrays.copyOf(eventTimes, capacity);
+        eventSequences = Arrays.copyOf(eventSequences, capacity);
+        eventTypes = Arrays.copyOf(eventTypes, capacity);
+        eventCustomers = Arrays.copyOf(eventCustomers, capacity);
+        eventTellers = Arrays.copyOf(eventTellers, capacity);
+    }
+
+    /**
+     * Retrieves the virtual time of the earliest scheduled event without polling it.
+     * @return the next event's time, or Long.MAX_VALUE if no events are scheduled
+     */
+    public long getNextTime() {
+        return eventCount == 0 ? Long.MAX_VALUE : eventTimes[0];
+    }
+
+    /**
+     * Writes the scheduled events in heap order and the scheduling order reached,
+     * so a restored queue polls them, and breaks ties, exactly as this one would.
+     * @param out where the events go
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(eventCount);
+        out.writeLong(nextSequence);
+        for (int i = 0; i < eventCount; i++) {
+            out.writeLong(eventTimes[i]);
+            out.writeLong(eventSequences[i]);
+            out.writeByte(eventTypes[i]);
+            out.writeInt(eventCustomers[i]);
+            out.writeInt(eventTellers[i]);
+        }
+    }
+
+    /**
+     * Replaces the scheduled events with the ones written by writeTo.
+     * @param in where the events are read from
+     * @throws IOException if reading fails or the count is invalid
+     */
+    public void readFrom(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid event count: " + count);
+        }
+        clear();
+        while (eventTimes.length < count) {
+            grow();
+        }
+        nextSequence = in.readLong();
+        for (int i = 0; i < count; i++) {
+            set(i, in.readLong(), in.readLong(), in.readByte(), in.readInt(), in.readInt());
+        }
+        eventCount = count;
+    }
+
+    /**
+     * Returns the current number of scheduled events.
+     * @return the number of events waiting to be polled
+     */
+    public int size() {
+        return eventCount;
+    }
+
+    /**
+     * Checks if the event queue is empty or not
+     * @return true if no events are scheduled
+     */
+    public boolean isEmpty() {
+        return eventCount == 0;
+    }
+
+    /**
+     * Retrieves the virtual time of the last polled event.
+     * @return the current virtual time
+     */
+    public long getCurrentTime() {
+        return currentTime;
+    }
+
+    /**
+     * Retrieves the type of the last polled event.
+     * @return the current event type
+     */
+    public int getCurrentType() {
+        return currentType;
+    }
+
+    /**
+     * Retrieves the customer index of the last polled event.
+     * @return the current event's customer
+     */
+    public int getCurrentCustomer() {
+        return currentCustomer;
+    }
+
+    /**
+     * Retrieves the teller index of the last polled event.
+     * @return the current event's teller
+     */
+    public int getCurrentTeller() {
+        return currentTeller;
+    }
+
+    /**
+     * Removes all events and resets the scheduling order.
+     */
+    public void clear() {
+        eventCount = 0;
+        nextSequence = 0;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@SuppressWarnings("unchecked")  /* suppress safe type cast checks */
+/**
+ * A lock-free ring buffer queue for one producer thread and any number of consumer
+ * threads that grows instead of filling up, such as a receptionist feeding a queue
+ * shared by several tellers. Rings are powers of two indexed with a bit mask and
+ * carry a sequence per slot like MpmcRingQueue. When the producer finds the next slot
+ * still taken, it links a ring twice as large and continues there from the same
+ * position; consumers finish the old ring and follow the link. The queue's memory
+ * therefore follows the longest the queue has been, not the number of elements
+ * ever queued.
+ */
+public class GrowableRingQueue<E> extends AbstractRingQueue<E> {
+
+    public static final int MAX_CAPACITY = 1 << 30;     /* the largest ring the queue grows to */
+
+    private static final VarHandle CONSUMER_RING;
+
+    static {
+        try {
+            CONSUMER_RING = MethodHandles.lookup().findVarHandle(GrowableRingQueue.class, "consumerRing", Ring.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final PaddedSequence queueBackPosition = new PaddedSequence(0);     /* next position to write, owned by the producer */
+    private final PaddedSequence queueFrontPosition = new PaddedSequence(0);    /* next position to claim for reading */
+    private Ring producerRing;              /* the ring the producer writes to, owned by the producer */
+    private volatile Ring consumerRing;     /* the ring consumers read from, never ahead of the producer's */
+
+    /**
+     * Constructs a growable queue.
+     * @param initialCapacity the number of elements the queue holds before it first grows
+     * @param queueID the ID identifying this queue
+     */
+    public GrowableRingQueue(int initialCapacity, int queueID) {
+        super(Math.max(initialCapacity, 2), queueID);
+        producerRing = new Ring(ringBuffer, 0);
+        consumerRing = producerRing;
+    }
+
+    @Override
+    public boolean offer(E newElement) {
+        if (newElement == null) {
+            throw new NullPointerException("Queues cannot hold null elements.");
+        }
+        long back = queueBackPosition.getPlain();
+        Ring ring = producerRing;
+        int index = (int) back & ring.mask;
+        if (ring.sequences.get(index) != back) {
+            if (ring.slots.length >= MAX_CAPACITY) {
+                return false;
+            }
+            Ring grownRing = new Ring(new Object[ring.slots.length << 1], back);
+            ring.jumpPosition = back;
+            ring.next = grownRing;
+            producerRing = grownRing;
+            ring = grownRing;
+            index = (int) back & ring.mask;
+        }
+        ring.slots[index] = newElement;
+        ring.sequences.lazySet(index, back + 1);
+        queueBackPosition.setRelease(back + 1);
+        signalElementAdded();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        while (true) {
+            Ring ring = consumerRing;
+            long front = queueFrontPosition.get();
+            Ring next = ring.next;
+            if (next != null && front >= ring.jumpPosition) {
+                CONSUMER_RING.compareAndSet(this, ring, next);
+                continue;
+            }
+            int index = (int) front & ring.mask;
+            long difference = ring.sequences.get(index) - (front + 1);
+            if (difference == 0) {
+                if (queueFrontPosition.compareAndSet(front, front + 1)) {
+                    E dequeuedElement = (E) ring.slots[index];
+                    ring.slots[index] = null;
+                    ring.sequences.lazySet(index, front + ring.slots.length);
+                    return dequeuedElement;
+                }
+            } else if (difference < 0 && ring.next == null) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        long front = queueFrontPosition.get();
+        long back = queueBackPosition.get();
+        return (int) Math.max(0, Math.min(back - front, MAX_CAPACITY));
+    }
+
+    @Override
+    public int capacity() {
+        return MAX_CAPACITY;
+    }
+
+    /**
+     * One ring of the queue. Positions keep counting across rings; the producer moved
+     * on to the next ring at jumpPosition, so positions from there on are read from it.
+     */
+    private static final class Ring {
+
+        final Object[] slots;               /* the elements, indexed by position & mask */
+        final int mask;                     /* slots.length - 1 */
+        final AtomicLongArray sequences;    /* the position each slot is ready for */
+        long jumpPosition;                  /* the first position written to the next ring, published by next */
+        volatile Ring next;                 /* the larger ring the producer moved on to, or null */
+
+        /**
+         * Constructs a ring whose slots are ready for the positions from a first position on.
+         * @param slots the empty slots, a power of two of them
+         * @param firstPosition the first position written to the ring
+         */
+        Ring(Object[] slots, long firstPosition) {
+            this.slots = slots;
+            this.mask = slots.length - 1;
+            this.sequences = new AtomicLongArray(slots.length);
+            for (int i = 0; i < slots.length; i++) {
+                sequences.set(i, firstPosition + ((i - firstPosition) & mask));
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.concurrent.atomic.AtomicBoolean;
+/**
+ * Wakes a consumer that is waiting for a queue to receive an element. The consumer
+ * arms the signal and registers it with every queue it waits on; the first queue
+ * to receive an element or be closed fires it, which disarms it and runs the wake
+ * action once, such as unparking the consumer's thread. Firing a signal that is
+ * not armed does nothing, so a registration left behind in another queue is harmless.
+ */
+public class IdleSignal {
+
+    private final AtomicBoolean armed = new AtomicBoolean();   /* whether the consumer is waiting */
+    private volatile Runnable wakeAction;   /* what firing the signal does */
+
+    /**
+     * Constructs an unarmed signal without a wake action.
+     */
+    public IdleSignal() {
+    }
+
+    /**
+     * Constructs an unarmed signal.
+     * @param wakeAction what firing the signal does
+     */
+    public IdleSignal(Runnable wakeAction) {
+        this.wakeAction = wakeAction;
+    }
+
+    /**
+     * Sets what firing the signal does.
+     * @param wakeAction the action, run on the thread that fires the signal
+     */
+    public void setWakeAction(Runnable wakeAction) {
+        this.wakeAction = wakeAction;
+    }
+
+    /**
+     * Marks the consumer as waiting, so the next fire wakes it.
+     */
+    public void arm() {
+        armed.set(true);
+    }
+
+    /**
+     * Checks whether the consumer is still waiting.
+     * @return true until the signal fires
+     */
+    public boolean isArmed() {
+        return armed.get();
+    }
+
+    /**
+     * Wakes the consumer if it is waiting.
+     * @return true if the consumer was woken, false if it was not waiting
+     */
+    public boolean fire() {
+        if (!armed.compareAndSet(true, false)) {
+            return false;
+        }
+        wakeAction.run();
+        return true;
+    }
+}
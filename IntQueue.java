@@ -0,0 +1,141 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+/**
+ * A Queue of primitive ints implemented using a circular array whose length is
+ * a power of two, so positions wrap with a bit mask instead of the modulo operator.
+ * The array doubles when the queue is full, so its memory follows the longest the
+ * queue has been rather than the total number of elements ever queued. Nothing is
+ * allocated once the queue has reached its working size.
+ */
+public class IntQueue {
+
+    private int[] queueCircularArray;   /* array used for the queue */
+    private int queueMask;              /* array length - 1 */
+    private int queueFrontPosition;     /* the tracked front element position */
+    private int queueBackPosition;      /* the tracked back element position */
+    private int queueCurrentSize;       /* current number of elements in the queue */
+
+    /**
+     * Constructs an empty queue.
+     * @param initialCapacity the number of elements the queue can hold before growing
+     */
+    public IntQueue(int initialCapacity) {
+        int capacity = AbstractRingQueue.roundToPowerOfTwo(Math.max(initialCapacity, 2));
+        this.queueCircularArray = new int[capacity];
+        this.queueMask = capacity - 1;
+    }
+
+    /**
+     * Adds an element to the back of the queue, growing the queue if it is full.
+     * @param newElement the newElement to be added to the queue.
+     */
+    public void enqueue(int newElement) {
+        if (queueCurrentSize == queueCircularArray.length) {
+            grow();
+        }
+        queueCircularArray[queueBackPosition] = newElement;
+        queueBackPosition = (queueBackPosition + 1) & queueMask;
+        queueCurrentSize += 1;
+    }
+
+    /**
+     * Removes and returns an element from the front of the queue.
+     * @return the dequeuedElement
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int dequeue() {
+        if (queueCurrentSize == 0) {
+            throw new IllegalStateException("Cannot dequeue from an empty queue.");
+        }
+        int dequeuedElement = queueCircularArray[queueFrontPosition];
+        queueFrontPosition = (queueFrontPosition + 1) & queueMask;
+        queueCurrentSize -= 1;
+        return dequeuedElement;
+    }
+
+    /**
+     * Returns the front element of the queue without removing it
+     * @return the queue's current front element
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int front() {
+        if (queueCurrentSize == 0) {
+            throw new IllegalStateException("The queue is empty.");
+        }
+        return queueCircularArray[queueFrontPosition];
+    }
+
+    /**
+     * Returns the current size (number of elements) in the queue.
+     * @return the current number of elements inside the queue
+     */
+    public int size() {
+        return queueCurrentSize;
+    }
+
+    /**
+     * Checks if the queue is empty or not
+     * @return true if the queue is empty, false if it has more than 0 elements
+     */
+    public boolean isEmpty() {
+        return queueCurrentSize == 0;
+    }
+
+    /**
+     * Removes every element from the queue, keeping its current capacity.
+     */
+    public void clear() {
+        queueFrontPosition = 0;
+        queueBackPosition = 0;
+        queueCurrentSize = 0;
+    }
+
+    /**
+     * Writes the queue's elements in queue order.
+     * @param out where the elements go
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(queueCurrentSize);
+        for (int i = 0; i < queueCurrentSize; i++) {
+            out.writeInt(queueCircularArray[(queueFrontPosition + i) & queueMask]);
+        }
+    }
+
+    /**
+     * Replaces the queue's elements with the ones written by writeTo.
+     * @param in where the elements are read from
+     * @throws IOException if reading fails or the size is invalid
+     */
+    public void readFrom(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid queue size: " + size);
+        }
+        clear();
+        for (int i = 0; i < size; i++) {
+            enqueue(in.readInt());
+        }
+    }
+
+    /**
+     * Doubles the length of the circular array, moving the elements to its start.
+     */
+    private void grow() {
+        int oldCapacity = queueCircularArray.length;
+        int[] grownArray = new int[oldCapacity << 1];
+        int leadingElements = oldCapacity - queueFrontPosition;
+        System.arraycopy(queueCircularArray, queueFrontPosition, grownArray, 0, leadingElements);
+        System.arraycopy(queueCircularArray, 0, grownArray, leadingElements, queueFrontPosition);
+        queueCircularArray = grownArray;
+        queueMask = grownArray.length - 1;
+        queueFrontPosition = 0;
+        queueBackPosition = oldCapacity;
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+/**
+ * Sends every customer to the queue with the fewest customers.
+ */
+public class JoinShortestQueuePolicy implements RoutingPolicy {
+
+    @Override
+    public int selectQueue(QueueState state) {
+        return state.getShortestQueue();
+    }
+}
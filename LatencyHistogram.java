@@ -0,0 +1,283 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+/**
+ * A fixed-size histogram of non-negative long values such as wait and service times
+ * in nanoseconds. Values are counted in log-linear buckets: every power of two is
+ * split into 2^precisionBits equal sub-buckets, so any recorded value is reported
+ * within a relative error of 2^-precisionBits. Recording is a few shifts and one
+ * array increment, takes constant time and never allocates.
+ *
+ * record is for histograms written by one thread. recordConcurrent may be called by
+ * several threads at once and uses atomic increments instead of a lock. Histograms
+ * with the same layout can be merged, for example per-teller histograms at the end
+ * of a run. Reading a histogram while it is being written gives an approximate snapshot.
+ */
+public class LatencyHistogram {
+
+    public static final int DEFAULT_PRECISION_BITS = 6; /* 64 sub-buckets, under 1.6% error */
+    public static final int DEFAULT_MAX_VALUE_BITS = 50; /* values up to 2^50 ns, about 13 days */
+
+    private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle TOTAL_COUNT;
+    private static final VarHandle MAX_VALUE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TOTAL_COUNT = lookup.findVarHandle(LatencyHistogram.class, "totalCount", long.class);
+            MAX_VALUE = lookup.findVarHandle(LatencyHistogram.class, "maxValue", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int precisionBits;    /* log2 of the number of sub-buckets per power of two */
+    private final int maxValueBits;     /* values at or above 2^maxValueBits go in the top bucket */
+    private final long[] counts;        /* number of values recorded in each bucket */
+    private long totalCount;            /* number of values recorded */
+    private long maxValue;              /* the largest value recorded, exact */
+
+    /**
+     * Constructs an empty histogram with the default precision and range.
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_PRECISION_BITS, DEFAULT_MAX_VALUE_BITS);
+    }
+
+    /**
+     * Constructs an empty histogram.
+     * @param precisionBits log2 of the number of sub-buckets per power of two, 1 to 16
+     * @param maxValueBits values up to 2^maxValueBits - 1 are bucketed precisely, up to 63
+     */
+    public LatencyHistogram(int precisionBits, int maxValueBits) {
+        if (precisionBits < 1 || precisionBits > 16 || maxValueBits <= precisionBits || maxValueBits > 63) {
+            throw new IllegalArgumentException("Invalid histogram layout: " + precisionBits + " precision bits, " + maxValueBits + " value bits");
+        }
+        this.precisionBits = precisionBits;
+        this.maxValueBits = maxValueBits;
+        this.counts = new long[(maxValueBits - precisionBits + 1) << precisionBits];
+    }
+
+    /**
+     * Records a value. Only one thread may call this at a time.
+     * @param value the value, negative values count as 0
+     */
+    public void record(long value) {
+        counts[bucketIndex(value)] += 1;
+        totalCount += 1;
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    /**
+     * Records a value from any thread without locking.
+     * @param value the value, negative values count as 0
+     */
+    public void recordConcurrent(long value) {
+        COUNTS.getAndAdd(counts, bucketIndex(value), 1L);
+        TOTAL_COUNT.getAndAdd(this, 1L);
+        long currentMax = (long) MAX_VALUE.getVolatile(this);
+        while (value > currentMax && !MAX_VALUE.compareAndSet(this, currentMax, value)) {
+            currentMax = (long) MAX_VALUE.getVolatile(this);
+        }
+    }
+
+    /**
+     * Finds the bucket of a value.
+     * @param value the value
+     * @return the index into the counts array
+     */
+    private int bucketIndex(long value) {
+        if (value < (1L << precisionBits)) {
+            return value < 0 ? 0 : (int) value;
+        }
+        if (value >= (1L << maxValueBits)) {
+            return counts.length - 1;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - precisionBits;
+        int subBucket = (int) (value >>> shift) - (1 << precisionBits);
+        return ((shift + 1) << precisionBits) + subBucket;
+    }
+
+    /**
+     * Finds the smallest value counted in a bucket.
+     * @param index the bucket index
+     * @return the bucket's lowest value
+     */
+    private long bucketLowestValue(int index) {
+        int bucket = index >>> precisionBits;
+        if (bucket == 0) {
+            return index;
+        }
+        long subBucket = index & ((1 << precisionBits) - 1);
+        return ((1L << precisionBits) + subBucket) << (bucket - 1);
+    }
+
+    /**
+     * Finds the largest value counted in a bucket.
+     * @param index the bucket index
+     * @return the bucket's highest value
+     */
+    private long bucketHighestValue(int index) {
+        int bucket = index >>> precisionBits;
+        if (bucket == 0) {
+            return index;
+        }
+        return bucketLowestValue(index) + (1L << (bucket - 1)) - 1;
+    }
+
+    /**
+     * Adds the counts of another histogram with the same layout to this one.
+     * @param other the histogram to merge in
+     */
+    public void merge(LatencyHistogram other) {
+        if (other.precisionBits != precisionBits || other.maxValueBits != maxValueBits) {
+            throw new IllegalArgumentException("Cannot merge histograms with different layouts.");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    /**
+     * Writes the histogram compactly: its layout, count and maximum, then the index and
+     * count of every non-empty bucket, so a histogram can be sent to another process.
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int usedBuckets = 0;
+        for (long count : counts) {
+            if (count != 0) {
+                usedBuckets += 1;
+            }
+        }
+        out.writeByte(precisionBits);
+        out.writeByte(maxValueBits);
+        out.writeLong(totalCount);
+        out.writeLong(maxValue);
+        out.writeInt(usedBuckets);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                out.writeInt(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a histogram written by writeTo.
+     * @param in where to read from
+     * @return the histogram
+     * @throws IOException if reading fails or the data is not a histogram
+     */
+    public static LatencyHistogram readFrom(DataInput in) throws IOException {
+        LatencyHistogram histogram;
+        try {
+            histogram = new LatencyHistogram(in.readByte(), in.readByte());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        histogram.totalCount = in.readLong();
+        histogram.maxValue = in.readLong();
+        int usedBuckets = in.readInt();
+        for (int b = 0; b < usedBuckets; b++) {
+            int index = in.readInt();
+            if (index < 0 || index >= histogram.counts.length) {
+                throw new IOException("Histogram bucket out of range: " + index);
+            }
+            histogram.counts[index] = in.readLong();
+        }
+        return histogram;
+    }
+
+    /**
+     * Removes every recorded value.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        maxValue = 0;
+    }
+
+    /**
+     * Retrieves the number of values recorded.
+     * @return the value count
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Retrieves the largest value recorded.
+     * @return the exact maximum, or 0 if nothing was recorded
+     */
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Retrieves the value below or at which a percentage of the recorded values fall.
+     * The result is the highest value of the bucket holding that rank, capped at the maximum.
+     * @param percentile the percentage, from 0 to 100
+     * @return the value at the percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketHighestValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * Retrieves the approximate mean of the recorded values, using each bucket's midpoint.
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                total += counts[i] * ((bucketLowestValue(i) + bucketHighestValue(i)) / 2.0);
+            }
+        }
+        return total / totalCount;
+    }
+
+    /**
+     * Formats the usual percentiles of the histogram on one line.
+     * @param unitsPerSecond the number of recorded units in a second, used to print seconds
+     * @return the p50, p90, p99, p99.9 and maximum values in seconds
+     */
+    public String toPercentileString(double unitsPerSecond) {
+        return String.format("p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  max %.3f",
+                getValueAtPercentile(50) / unitsPerSecond,
+                getValueAtPercentile(90) / unitsPerSecond,
+                getValueAtPercentile(99) / unitsPerSecond,
+                getValueAtPercentile(99.9) / unitsPerSecond,
+                maxValue / unitsPerSecond);
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+/**
+ * Sends each customer to the queue whose waiting customers need the least service
+ * time in total, which accounts for a short queue holding a few long transactions.
+ * Ties go to the shorter queue, then to the lowest index.
+ */
+public class LeastWorkPolicy implements RoutingPolicy {
+
+    @Override
+    public int selectQueue(QueueState state) {
+        int best = 0;
+        double bestWork = state.getQueuedWork(0);
+        int bestLength = state.getQueueLength(0);
+        for (int q = 1; q < state.getTotalQueues(); q++) {
+            double work = state.getQueuedWork(q);
+            if (work < bestWork || (work == bestWork && state.getQueueLength(q) < bestLength)) {
+                best = q;
+                bestWork = work;
+                bestLength = state.getQueueLength(q);
+            }
+        }
+        return best;
+    }
+}
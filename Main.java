@@ -3,14 +3,31 @@
  * Single VS Multi-Line Queues by Pao Yu
  */
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.Scanner;
+import javax.management.JMException;
 /**
  * Testing ground for the bank simulation.
+ * The optional first argument says where customer events are logged: "stdout" (default), "off" or a file path.
+ * The optional second argument is "off" (default) or a path prefix: the runs are then recorded as binary traces
+ * in prefix-single.trace and prefix-multi.trace, which TraceReader can replay.
+ * The optional third argument samples live metrics every second while each bank runs: "off"
+ * (default), "stdout" or a path prefix for prefix-single.csv and prefix-multi.csv. The metrics
+ * are also published over JMX while a bank runs.
+ * The optional fourth argument is the seed every random number of the run is derived from; without
+ * it a seed is drawn and printed, so any run can be repeated. Discrete-event results are identical
+ * for the same seed, while threaded waits also depend on how the threads are scheduled.
+ * Arguments starting with "--" run BatchRunner instead, which asks nothing and writes CSV or JSON results.
  */
 public class Main {
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].startsWith("--")) {
+            BatchRunner.main(args);
+            return;
+        }
 
         /* variables to control the simulation customers wait times, and operation speed */
         final int TOTAL_CUSTOMERS = 100;
@@ -18,54 +35,82 @@ public class Main {
         final int MAX_WAIT_TIME = 5;
         int timeAccelerationFactor = 1;
         Scanner in = new Scanner(System.in);
-        System.out.printf("%sENTER TIME ACCELERATION FACTOR: %s", "\033[1;35m", "\033[0m");
+        System.out.printf("%sENTER TIME ACCELERATION FACTOR (0 FOR DISCRETE-EVENT MODE): %s", "\033[1;35m", "\033[0m");
         if (in.hasNextInt()) {
             timeAccelerationFactor = in.nextInt();
         }
         in.close();
+        boolean eventDriven = timeAccelerationFactor == 0;
+        EventLog eventLog = EventLog.disabled();
+        try {
+            eventLog = EventLog.open(args.length > 0 ? args[0] : "stdout");
+        } catch (IOException e) {
+            System.out.println(e);
+        }
 
-        /* generate test data and prepare containers for result storage */
-        int[] randomEnqueueTime = new int[TOTAL_CUSTOMERS];
-        int[] randomDequeueTime = new int[TOTAL_CUSTOMERS];
+        final long seed = args.length > 3 ? Long.parseLong(args[3]) : ThreadLocalRandom.current().nextLong();
+        System.out.printf("Seed: %d\n", seed);
+
+        /* describe the test data and prepare containers for result storage */
+        Distribution randomTimes = Distribution.uniformInt(MIN_WAIT_TIME, MAX_WAIT_TIME);
+        SimulationConfig.Builder bankLayout = SimulationConfig.builder()
+                .customers(TOTAL_CUSTOMERS)
+                .tellers(3)
+                .timeAcceleration(timeAccelerationFactor)
+                .arrivals(randomTimes)
+                .services(randomTimes)
+                .seed(seed);
+        String tracePrefix = args.length > 1 && !args[1].equals("off") ? args[1] : null;
+        String metricsTarget = args.length > 2 ? args[2] : "off";
         double[] resultSingleQueue = new double[2];
         double[] resultMultiQueue = new double[2];
-        for (int i = 0; i < TOTAL_CUSTOMERS; i++) {
-            randomEnqueueTime[i] = ThreadLocalRandom.current().nextInt(MIN_WAIT_TIME, MAX_WAIT_TIME + 1);
-        }
-        for (int i = 0; i < TOTAL_CUSTOMERS; i++) {
-            randomDequeueTime[i] = ThreadLocalRandom.current().nextInt(MIN_WAIT_TIME, MAX_WAIT_TIME + 1);
-        }
 
         /* start the bank simulation for a single queue bank operation */
-        BankSimulation<Customer> bankSimulationSingleQueue = new BankSimulation<Customer>(TOTAL_CUSTOMERS, timeAccelerationFactor, randomEnqueueTime, randomDequeueTime);
+        BankSimulation<Customer> bankSimulationSingleQueue = new BankSimulation<Customer>(bankLayout.queues(1).build());
+        bankSimulationSingleQueue.setEventDriven(eventDriven);
+        bankSimulationSingleQueue.setEventLog(eventLog);
+        TraceWriter singleQueueTrace = openTrace(tracePrefix, "-single.trace", TOTAL_CUSTOMERS);
+        bankSimulationSingleQueue.setTraceWriter(singleQueueTrace);
+        MetricsSampler singleQueueMetrics = openSampler(bankSimulationSingleQueue, metricsTarget, "single");
         bankSimulationSingleQueue.start();
         try {
             bankSimulationSingleQueue.join();
-        } catch (InterruptedException e){
+            singleQueueTrace.close();
+        } catch (InterruptedException | IOException e){
             System.out.println(e);
         } finally {
-            resultSingleQueue[0] = Teller.getCustomerWaitTimeTotal();
-            resultSingleQueue[1] = Teller.getCustomerWaitTimeAverage();
-            Reception.resetClass();
-            Teller.resetClass();
-            Customer.resetClass();
-            Queue.resetClass();
+            if (singleQueueMetrics != null) {
+                singleQueueMetrics.close();
+            }
+            resultSingleQueue[0] = bankSimulationSingleQueue.getCustomerWaitTimeTotal();
+            resultSingleQueue[1] = bankSimulationSingleQueue.getCustomerWaitTimeAverage();
         }
 
         /* start the bank simulation for a multi-queue bank operation */
-        BankSimulation<Customer> bankSimulationMultiQueue = new BankSimulation<Customer>(TOTAL_CUSTOMERS, timeAccelerationFactor, randomEnqueueTime, randomDequeueTime, true);
+        BankSimulation<Customer> bankSimulationMultiQueue = new BankSimulation<Customer>(bankLayout.queues(3).build());
+        bankSimulationMultiQueue.setEventDriven(eventDriven);
+        bankSimulationMultiQueue.setEventLog(eventLog);
+        TraceWriter multiQueueTrace = openTrace(tracePrefix, "-multi.trace", TOTAL_CUSTOMERS);
+        bankSimulationMultiQueue.setTraceWriter(multiQueueTrace);
+        MetricsSampler multiQueueMetrics = openSampler(bankSimulationMultiQueue, metricsTarget, "multi");
         bankSimulationMultiQueue.start();
         try {
             bankSimulationMultiQueue.join();
-        } catch (InterruptedException e){
+            multiQueueTrace.close();
+        } catch (InterruptedException | IOException e){
             System.out.println(e);
         } finally {
-            resultMultiQueue[0] = Teller.getCustomerWaitTimeTotal();
-            resultMultiQueue[1] = Teller.getCustomerWaitTimeAverage();
-            Reception.resetClass();
-            Teller.resetClass();
-            Customer.resetClass();
-            Queue.resetClass();
+            if (multiQueueMetrics != null) {
+                multiQueueMetrics.close();
+            }
+            resultMultiQueue[0] = bankSimulationMultiQueue.getCustomerWaitTimeTotal();
+            resultMultiQueue[1] = bankSimulationMultiQueue.getCustomerWaitTimeAverage();
+        }
+
+        try {
+            eventLog.close();
+        } catch (IOException e) {
+            System.out.println(e);
         }
 
         /* display the final results of both simulations */
@@ -76,6 +121,8 @@ public class Main {
         System.out.printf("Total customers served  : %d\n", TOTAL_CUSTOMERS);
         System.out.printf("Total customer wait time: %.5f\n", resultSingleQueue[0]);
         System.out.printf("Average queue wait time : %.5f\n", resultSingleQueue[1]);
+        System.out.printf("Wait time    %s\n", bankSimulationSingleQueue.getWaitTimes().toPercentileString(EventDrivenSimulation.TICKS_PER_SECOND));
+        System.out.printf("Service time %s\n", bankSimulationSingleQueue.getServiceTimes().toPercentileString(EventDrivenSimulation.TICKS_PER_SECOND));
         System.out.println("----------------------------------------");
         System.out.println("");
         System.out.println("----------------------------------------");
@@ -84,7 +131,111 @@ public class Main {
         System.out.printf("Total customers served  : %d\n", TOTAL_CUSTOMERS);
         System.out.printf("Total customer wait time: %.5f\n", resultMultiQueue[0]);
         System.out.printf("Average queue wait time : %.5f\n", resultMultiQueue[1]);
+        System.out.printf("Wait time    %s\n", bankSimulationMultiQueue.getWaitTimes().toPercentileString(EventDrivenSimulation.TICKS_PER_SECOND));
+        System.out.printf("Service time %s\n", bankSimulationMultiQueue.getServiceTimes().toPercentileString(EventDrivenSimulation.TICKS_PER_SECOND));
         System.out.println("----------------------------------------");
         System.out.println("");
+
+        /* in discrete-event mode, repeat the comparison over many independent data sets */
+        if (eventDriven) {
+            final int REPLICATIONS = 1000;
+            ReplicationRunner replicationRunner = new ReplicationRunner(REPLICATIONS, TOTAL_CUSTOMERS, 3, MIN_WAIT_TIME, MAX_WAIT_TIME, seed, 0);
+            replicationRunner.run();
+            ReplicationRunner.ReplicationTotals totals = replicationRunner.getResults();
+            System.out.println("----------------------------------------");
+            System.out.printf("Results over %d replications (95%% CI):\n", REPLICATIONS);
+            System.out.println("----------------------------------------");
+            System.out.printf("Single-queue average wait: %.5f +/- %.5f\n", totals.getSingleQueueWait().getMean(), totals.getSingleQueueWait().getConfidenceHalfWidth());
+            System.out.printf("Multi-queue average wait : %.5f +/- %.5f\n", totals.getMultiQueueWait().getMean(), totals.getMultiQueueWait().getConfidenceHalfWidth());
+            System.out.printf("Multi minus single       : %.5f +/- %.5f\n", totals.getWaitDifference().getMean(), totals.getWaitDifference().getConfidenceHalfWidth());
+            System.out.printf("Replications per second  : %.1f\n", replicationRunner.getReplicationsPerSecond());
+            System.out.println("----------------------------------------");
+            System.out.println("");
+
+            /* cross-check against the long-run waits of queueing theory */
+            QueueingModel singleQueueModel = QueueingModel.estimate(bankLayout.queues(1).build());
+            QueueingModel multiQueueModel = QueueingModel.estimate(bankLayout.queues(3).routing(RoutingPolicy.RANDOM).build());
+            System.out.println("----------------------------------------");
+            System.out.println("Analytic long-run estimates:");
+            System.out.println("----------------------------------------");
+            System.out.printf("Single-queue average wait: %.5f (%s)\n", singleQueueModel.getWaitMicros() / QueueingModel.MICROS_PER_SECOND, singleQueueModel.getModel());
+            System.out.printf("Multi-queue average wait : %.5f (%s, random lines)\n", multiQueueModel.getWaitMicros() / QueueingModel.MICROS_PER_SECOND, multiQueueModel.getModel());
+            System.out.printf("Teller utilization       : %.5f\n", singleQueueModel.getUtilization());
+            System.out.println("----------------------------------------");
+            System.out.println("");
+
+            /* compare how each scheduling policy shares a busy single line between VIP and regular customers */
+            final int CLASS_CUSTOMERS = 100000;
+            SimulationConfig.Builder classLayout = SimulationConfig.builder()
+                    .customers(CLASS_CUSTOMERS)
+                    .tellers(3)
+                    .queues(1)
+                    .arrivals(Distribution.exponential(1.1))
+                    .services(Distribution.exponential(3))
+                    .customerClasses(new CustomerClass("vip", 0.2, 4, 2), new CustomerClass("regular", 0.8, 1, 20))
+                    .seed(seed);
+            System.out.println("----------------------------------------");
+            System.out.println("Customer classes on a line 91% busy:");
+            System.out.println("----------------------------------------");
+            String[] schedulings = { SimulationConfig.SCHEDULE_FIFO, SimulationConfig.SCHEDULE_PRIORITY, SimulationConfig.SCHEDULE_WEIGHTED_FAIR, SimulationConfig.SCHEDULE_EDF };
+            for (String scheduling : schedulings) {
+                SimulationConfig classConfig = classLayout.scheduling(scheduling).build();
+                EventDrivenSimulation classSimulation = new EventDrivenSimulation(classConfig);
+                classSimulation.run();
+                for (int c = 0; c < classConfig.getTotalClasses(); c++) {
+                    LatencyHistogram classWaits = classSimulation.getClassWaitTimes(c);
+                    System.out.printf("%-13s %-7s: average %7.3f  p99 %7.3f  missed %5.1f%%\n", scheduling, classConfig.getCustomerClasses().get(c).getName(),
+                            classWaits.getMean() / EventDrivenSimulation.TICKS_PER_SECOND,
+                            (double) classWaits.getValueAtPercentile(99) / EventDrivenSimulation.TICKS_PER_SECOND,
+                            100.0 * classSimulation.getClassTargetMisses(c) / Math.max(classWaits.getTotalCount(), 1));
+                }
+            }
+            System.out.println("----------------------------------------");
+            System.out.println("");
+        }
+    }
+
+    /**
+     * Starts sampling a bank's live metrics, if metrics were asked for.
+     * @param bank the bank, already switched to the model it will run
+     * @param target "off", "stdout" or a path prefix for a CSV file
+     * @param name the bank's name in the CSV file name and the JMX MBean name
+     * @return the running sampler, or null if none was asked for or it cannot be started
+     */
+    private static MetricsSampler openSampler(BankSimulation<Customer> bank, String target, String name) {
+        if (target.equals("off")) {
+            return null;
+        }
+        MetricsSampler sampler = new MetricsSampler(bank.getMetrics(), MetricsSampler.DEFAULT_PERIOD_MILLIS);
+        try {
+            if (target.equals("stdout")) {
+                sampler.writeText(System.out, false);
+            } else {
+                sampler.writeCsv(Path.of(target + "-" + name + ".csv"));
+            }
+            sampler.exportToJmx(name);
+        } catch (IOException | JMException e) {
+            System.out.println(e);
+        }
+        return sampler.start();
+    }
+
+    /**
+     * Opens a trace to record a run in, if traces were asked for.
+     * @param prefix the path prefix of the traces, or null for none
+     * @param suffix the end of this run's file name
+     * @param customers the number of customers of the run
+     * @return the trace, or TraceWriter.disabled() if none was asked for or it cannot be created
+     */
+    private static TraceWriter openTrace(String prefix, String suffix, int customers) {
+        if (prefix == null) {
+            return TraceWriter.disabled();
+        }
+        try {
+            return new TraceWriter(Path.of(prefix + suffix), customers);
+        } catch (IOException e) {
+            System.out.println(e);
+            return TraceWriter.disabled();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,129 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+/**
+ * The live metrics of one simulation: counters, gauges and histograms registered by
+ * name while the bank is built and read by a MetricsSampler while it runs. Counters
+ * that several threads update are LongAdders, which spread contended increments over
+ * striped cells; counts a single-threaded simulation keeps in plain fields are
+ * registered as suppliers instead, so recording them costs nothing. Gauges and
+ * histograms are read only when a snapshot is taken, so they add no work to the
+ * simulation. Snapshots of a running simulation are approximate.
+ */
+public class MetricsRegistry {
+
+    public static final int DETAIL_LIMIT = 32;  /* banks with more queues or tellers only register totals */
+
+    private final List<Metric> metrics = new CopyOnWriteArrayList<Metric>();   /* every metric, in registration order */
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>(); /* counters by name */
+
+    /**
+     * Retrieves a counter, registering it on first use. Look counters up once and
+     * keep them; incrementing the returned LongAdder is all that recording costs.
+     * @param name the counter's name
+     * @return the counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, newName -> {
+            LongAdder counter = new LongAdder();
+            metrics.add(new Metric(newName, counter::sum, null, null, 0));
+            return counter;
+        });
+    }
+
+    /**
+     * Registers a count kept elsewhere, such as a field of a single-threaded simulation.
+     * Samplers treat it like a counter and report its rate.
+     * @param name the counter's name
+     * @param count reads the current count
+     */
+    public void counter(String name, LongSupplier count) {
+        metrics.add(new Metric(name, count, null, null, 0));
+    }
+
+    /**
+     * Registers a gauge, a value read when a snapshot is taken, such as a queue's depth.
+     * @param name the gauge's name
+     * @param value reads the current value
+     */
+    public void gauge(String name, DoubleSupplier value) {
+        metrics.add(new Metric(name, null, value, null, 0));
+    }
+
+    /**
+     * Registers a histogram. Snapshots report its count, p50, p99 and max.
+     * @param name the histogram's name
+     * @param histogram reads the current histogram, which may be merged on every call
+     * @param unitsPerSecond the histogram's values per second, to report them in seconds
+     */
+    public void histogram(String name, Supplier<LatencyHistogram> histogram, double unitsPerSecond) {
+        metrics.add(new Metric(name, null, null, histogram, unitsPerSecond));
+    }
+
+    /**
+     * Reads every metric. Histograms are reported as name.count, name.p50, name.p99 and name.max.
+     * @return the values by name, in registration order
+     */
+    public Map<String, Double> snapshot() {
+        Map<String, Double> values = new LinkedHashMap<String, Double>();
+        for (Metric metric : metrics) {
+            if (metric.count != null) {
+                values.put(metric.name, (double) metric.count.getAsLong());
+            } else if (metric.value != null) {
+                values.put(metric.name, metric.value.getAsDouble());
+            } else {
+                LatencyHistogram histogram = metric.histogram.get();
+                values.put(metric.name + ".count", (double) histogram.getTotalCount());
+                values.put(metric.name + ".p50", histogram.getValueAtPercentile(50) / metric.unitsPerSecond);
+                values.put(metric.name + ".p99", histogram.getValueAtPercentile(99) / metric.unitsPerSecond);
+                values.put(metric.name + ".max", histogram.getMaxValue() / metric.unitsPerSecond);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Checks whether a snapshot value is a counter, whose rate is worth reporting.
+     * @param name the name of a snapshot value
+     * @return true if the value is a counter
+     */
+    public boolean isCounter(String name) {
+        for (Metric metric : metrics) {
+            if (metric.count != null && metric.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One registered metric: exactly one of count, value and histogram is set.
+     */
+    private static class Metric {
+
+        final String name;                              /* the metric's name */
+        final LongSupplier count;                       /* reads a counter */
+        final DoubleSupplier value;                     /* reads a gauge */
+        final Supplier<LatencyHistogram> histogram;     /* reads a histogram */
+        final double unitsPerSecond;                    /* the histogram's values per second */
+
+        Metric(String name, LongSupplier count, DoubleSupplier value, Supplier<LatencyHistogram> histogram, double unitsPerSecond) {
+            this.name = name;
+            this.count = count;
+            this.value = value;
+            this.histogram = histogram;
+            this.unitsPerSecond = unitsPerSecond;
+        }
+    }
+}
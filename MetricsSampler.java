@@ -0,0 +1,270 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+/**
+ * Takes a snapshot of a MetricsRegistry at a fixed period on a background thread while a
+ * simulation runs, and computes the per-second rate of every counter between snapshots.
+ * Each sample can be written as a line of text (for example to standard output), as a row
+ * of a CSV file, and published as the attributes of a JMX MBean that tools such as
+ * JConsole can watch. Closing the sampler takes a last sample so the totals are complete.
+ */
+public class MetricsSampler implements AutoCloseable {
+
+    public static final long DEFAULT_PERIOD_MILLIS = 1000L;    /* time between samples */
+
+    private final MetricsRegistry registry;     /* the metrics sampled */
+    private final long periodMillis;            /* time between samples */
+    private final long startNanos = System.nanoTime();  /* when sampling started */
+    private ScheduledThreadPoolExecutor samplerThread;  /* takes the samples, null until started */
+    private PrintWriter textOutput;             /* where samples are written as text, or null */
+    private boolean closeTextOutput;            /* whether closing the sampler closes the text output */
+    private PrintWriter csvOutput;              /* where samples are written as CSV rows, or null */
+    private List<String> csvColumns;            /* the CSV columns, fixed by the first sample */
+    private ObjectName mbeanName;               /* the name of the published MBean, or null */
+    private volatile Map<String, Double> latestSample = new LinkedHashMap<String, Double>(); /* the values and rates of the last sample */
+    private Map<String, Double> previousCounts = new LinkedHashMap<String, Double>();   /* the counters of the last sample */
+    private long previousNanos = startNanos;    /* when the last sample was taken */
+
+    /**
+     * Constructs a sampler. Choose the outputs, then start it.
+     * @param registry the metrics to sample
+     * @param periodMillis the time between samples in milliseconds
+     */
+    public MetricsSampler(MetricsRegistry registry, long periodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("The sampling period must be positive.");
+        }
+        this.registry = registry;
+        this.periodMillis = periodMillis;
+    }
+
+    /**
+     * Writes every sample as a line of text.
+     * @param output the stream, such as System.out
+     * @param closeOutput whether closing the sampler closes the stream
+     * @return this sampler
+     */
+    public MetricsSampler writeText(OutputStream output, boolean closeOutput) {
+        this.textOutput = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), true);
+        this.closeTextOutput = closeOutput;
+        return this;
+    }
+
+    /**
+     * Writes every sample as a row of a CSV file with a header of metric names.
+     * Counters get a second column with their rate per second.
+     * @param file the CSV file, replaced if it exists
+     * @return this sampler
+     * @throws IOException if the file cannot be created
+     */
+    public MetricsSampler writeCsv(Path file) throws IOException {
+        this.csvOutput = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+        return this;
+    }
+
+    /**
+     * Publishes every sample as the attributes of an MBean of the platform MBean server,
+     * named BankSimulation:type=Metrics,name=the given name.
+     * @param name the name telling this simulation's metrics apart
+     * @return this sampler
+     * @throws JMException if the MBean cannot be registered
+     */
+    public MetricsSampler exportToJmx(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        mbeanName = new ObjectName("BankSimulation:type=Metrics,name=" + ObjectName.quote(name));
+        server.registerMBean(new SampleMBean(), mbeanName);
+        return this;
+    }
+
+    /**
+     * Starts taking samples on a background daemon thread.
+     * @return this sampler
+     */
+    public synchronized MetricsSampler start() {
+        if (samplerThread == null) {
+            samplerThread = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "metrics-sampler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            samplerThread.scheduleAtFixedRate(this::sample, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Takes a sample and writes it to every output.
+     */
+    public synchronized void sample() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - previousNanos) / 1e9;
+        Map<String, Double> sample = new LinkedHashMap<String, Double>();
+        Map<String, Double> counts = new LinkedHashMap<String, Double>();
+        for (Map.Entry<String, Double> entry : registry.snapshot().entrySet()) {
+            String name = entry.getKey();
+            double value = entry.getValue();
+            sample.put(name, value);
+            if (registry.isCounter(name)) {
+                counts.put(name, value);
+                double previous = previousCounts.getOrDefault(name, 0.0);
+                sample.put(name + ".rate", elapsedSeconds > 0 ? (value - previous) / elapsedSeconds : 0);
+            }
+        }
+        previousCounts = counts;
+        previousNanos = now;
+        latestSample = sample;
+        double time = (now - startNanos) / 1e9;
+        if (textOutput != null) {
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "metrics t=%.1fs", time));
+            for (Map.Entry<String, Double> entry : sample.entrySet()) {
+                line.append(' ').append(entry.getKey()).append('=').append(format(entry.getValue()));
+            }
+            textOutput.println(line);
+        }
+        if (csvOutput != null) {
+            if (csvColumns == null) {
+                csvColumns = new ArrayList<String>(sample.keySet());
+                csvOutput.println("time," + String.join(",", csvColumns));
+            }
+            StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "%.3f", time));
+            for (String column : csvColumns) {
+                row.append(',').append(format(sample.getOrDefault(column, Double.NaN)));
+            }
+            csvOutput.println(row);
+            csvOutput.flush();
+        }
+    }
+
+    /**
+     * Formats a value, without decimals if it is whole.
+     * @param value the value
+     * @return the formatted value
+     */
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    /**
+     * Retrieves the values and counter rates of the last sample.
+     * @return the sample by name, empty before the first sample
+     */
+    public Map<String, Double> getLatestSample() {
+        return latestSample;
+    }
+
+    /**
+     * Stops sampling after a last sample, unregisters the MBean and closes the outputs.
+     */
+    @Override
+    public synchronized void close() {
+        if (samplerThread != null) {
+            samplerThread.shutdownNow();
+            samplerThread = null;
+        }
+        sample();
+        if (mbeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+            } catch (JMException e) {
+                System.out.println(e);
+            }
+            mbeanName = null;
+        }
+        if (textOutput != null) {
+            textOutput.flush();
+            if (closeTextOutput) {
+                textOutput.close();
+            }
+            textOutput = null;
+        }
+        if (csvOutput != null) {
+            csvOutput.close();
+            csvOutput = null;
+        }
+    }
+
+    /**
+     * The last sample as read-only MBean attributes, one per metric and counter rate.
+     */
+    private class SampleMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Double value = latestSample.get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException("No such metric: " + attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            Map<String, Double> sample = latestSample;
+            for (String attribute : attributes) {
+                if (sample.containsKey(attribute)) {
+                    list.add(new Attribute(attribute, sample.get(attribute)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("Metrics have no operations.");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            Map<String, Double> sample = latestSample;
+            if (sample.isEmpty()) {
+                sample = registry.snapshot();
+            }
+            List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+            for (String name : sample.keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "java.lang.Double", name, true, false, false));
+            }
+            return new MBeanInfo(MetricsSampler.class.getName(), "Live metrics of a bank simulation",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
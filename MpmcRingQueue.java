@@ -0,0 +1,90 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+@SuppressWarnings("unchecked")  /* suppress safe type cast checks */
+/**
+ * A lock-free ring buffer queue for any number of producer and consumer threads,
+ * such as a single line shared by several tellers. Producers and consumers claim
+ * positions by compare-and-set on the back and front counters, and every slot
+ * carries a sequence number telling whether it is ready to be written or read.
+ */
+public class MpmcRingQueue<E> extends AbstractRingQueue<E> {
+
+    private final AtomicLongArray slotSequences;    /* the position each slot is ready for */
+    private final PaddedSequence queueBackPosition = new PaddedSequence(0);     /* next position to claim for writing */
+    private final PaddedSequence queueFrontPosition = new PaddedSequence(0);    /* next position to claim for reading */
+
+    /**
+     * Constructs a multi-producer multi-consumer queue.
+     * @param maxCapacity the minimum number of elements the queue can hold
+     * @param queueID the ID identifying this queue
+     */
+    public MpmcRingQueue(int maxCapacity, int queueID) {
+        super(maxCapacity, queueID);
+        slotSequences = new AtomicLongArray(ringBuffer.length);
+        for (int i = 0; i < ringBuffer.length; i++) {
+            slotSequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(E newElement) {
+        if (newElement == null) {
+            throw new NullPointerException("Queues cannot hold null elements.");
+        }
+        long back = queueBackPosition.get();
+        int index;
+        while (true) {
+            index = (int) back & ringMask;
+            long difference = slotSequences.get(index) - back;
+            if (difference == 0) {
+                if (queueBackPosition.compareAndSet(back, back + 1)) {
+                    break;
+                }
+                back = queueBackPosition.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                back = queueBackPosition.get();
+            }
+        }
+        ringBuffer[index] = newElement;
+        slotSequences.lazySet(index, back + 1);
+        signalElementAdded();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long front = queueFrontPosition.get();
+        int index;
+        while (true) {
+            index = (int) front & ringMask;
+            long difference = slotSequences.get(index) - (front + 1);
+            if (difference == 0) {
+                if (queueFrontPosition.compareAndSet(front, front + 1)) {
+                    break;
+                }
+                front = queueFrontPosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                front = queueFrontPosition.get();
+            }
+        }
+        E dequeuedElement = (E) ringBuffer[index];
+        ringBuffer[index] = null;
+        slotSequences.lazySet(index, front + ringBuffer.length);
+        return dequeuedElement;
+    }
+
+    @Override
+    public int size() {
+        long front = queueFrontPosition.get();
+        long back = queueBackPosition.get();
+        return (int) Math.max(0, Math.min(back - front, ringBuffer.length));
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+/**
+ * A long counter padded on both sides so that it sits alone on its cache line.
+ * Used for the head and tail positions of the ring buffer queues, which are
+ * written by different threads and would otherwise slow each other down.
+ */
+public final class PaddedSequence extends PaddedSequenceValue {
+
+    long p9, p10, p11, p12, p13, p14, p15; /* padding after the value */
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(PaddedSequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Constructs a sequence starting at an initial value.
+     * @param initialValue the starting value
+     */
+    public PaddedSequence(long initialValue) {
+        VALUE.setRelease(this, initialValue);
+    }
+
+    /**
+     * Reads the sequence with volatile semantics.
+     * @return the current value
+     */
+    public long get() {
+        return (long) VALUE.getVolatile(this);
+    }
+
+    /**
+     * Reads the sequence without any ordering guarantees, for use by its only writer.
+     * @return the current value
+     */
+    public long getPlain() {
+        return (long) VALUE.get(this);
+    }
+
+    /**
+     * Publishes a new value without a full fence. Previous writes become visible first.
+     * @param newValue the value to publish
+     */
+    public void setRelease(long newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    /**
+     * Atomically sets the sequence if it still holds the expected value.
+     * @param expectedValue the value the sequence must hold
+     * @param newValue the value to set
+     * @return true if the sequence was updated
+     */
+    public boolean compareAndSet(long expectedValue, long newValue) {
+        return VALUE.compareAndSet(this, expectedValue, newValue);
+    }
+}
+
+/**
+ * Padding placed before the value of a PaddedSequence.
+ */
+abstract class PaddedSequenceLeftPad {
+    long p1, p2, p3, p4, p5, p6, p7; /* padding before the value */
+}
+
+/**
+ * The value of a PaddedSequence.
+ */
+abstract class PaddedSequenceValue extends PaddedSequenceLeftPad {
+    volatile long value;    /* the sequence value */
+}
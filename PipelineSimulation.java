@@ -0,0 +1,613 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+/**
+ * A discrete-event simulation of a visit that passes through several stages in turn,
+ * such as reception, then a teller, then sometimes an advisor desk. Every stage has
+ * its own queues, tellers, routing policy and service times, and a probability that
+ * a customer visits it at all; customers who skip a stage go straight on to the next.
+ *
+ * Each stage runs its own event loop on a thread of its own. A stage finishes
+ * customers in time order, so it hands them to the next stage as a stream of arrivals
+ * that stage can simulate as they come. Arrivals come in time order, so no event
+ * before the last arrival read can be preceded by the next one: a stage only reads its
+ * next arrival, and waits for the previous stage if it has not sent it yet, once no
+ * pending event is due by the time of the last. Customers are handed over in batches of BATCH_SIZE
+ * through an SpscRingQueue, one queue operation per batch rather than per customer.
+ * Every stage draws from its own random stream split from the seed, so the results
+ * do not depend on how the threads are scheduled.
+ *
+ * Each stage records its customers' waits, service times and time at the stage, and
+ * its tellers' utilization; the last stage records the end-to-end time of every
+ * customer, from arriving at the first stage to leaving the last. The stage whose
+ * tellers are busiest is the bottleneck.
+ */
+public class PipelineSimulation {
+
+    public static final int BATCH_SIZE = 256;           /* customers handed to the next stage at a time */
+    public static final int HANDOFF_BATCHES = 64;       /* batches in flight between two stages */
+
+    private final int totalCustomers;           /* the number of customers arriving at the first stage */
+    private final Distribution arrivals;        /* the delays between arrivals at the first stage */
+    private final long seed;                    /* the seed every stage's random stream is split from */
+    private final List<Stage> stages;           /* the stages, in the order customers visit them */
+
+    private StageRunner[] runners;              /* the stages of the last run */
+    private LatencyHistogram endToEndTimes = new LatencyHistogram();    /* time in the pipeline, in ticks */
+    private long customersCompleted;            /* customers who left the last stage */
+
+    /**
+     * Constructs a pipeline.
+     * @param maxCustomers the number of customers arriving at the first stage
+     * @param arrivals the distribution of the delays between arrivals at the first stage
+     * @param seed the seed of every random choice and time
+     * @param stages the stages, in the order customers visit them
+     */
+    public PipelineSimulation(int maxCustomers, Distribution arrivals, long seed, List<Stage> stages) {
+        if (maxCustomers < 0) {
+            throw new IllegalArgumentException("The number of customers cannot be negative.");
+        }
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("A pipeline needs at least one stage.");
+        }
+        this.totalCustomers = maxCustomers;
+        this.arrivals = arrivals;
+        this.seed = seed;
+        this.stages = List.copyOf(stages);
+    }
+
+    /**
+     * Runs every stage until every customer has left the pipeline.
+     * @throws InterruptedException if the calling thread is interrupted while the stages run
+     * @throws IllegalStateException if a stage fails
+     */
+    public void run() throws InterruptedException {
+        SplittableRandom root = new SplittableRandom(seed);
+        TimeStream arrivalStream = TimeStream.of(arrivals, root.split());
+        runners = new StageRunner[stages.size()];
+        List<SpscRingQueue<Batch>> handoffs = new ArrayList<SpscRingQueue<Batch>>();
+        for (int s = 0; s < runners.length; s++) {
+            SpscRingQueue<Batch> input = s == 0 ? null : handoffs.get(s - 1);
+            SpscRingQueue<Batch> output = null;
+            if (s < runners.length - 1) {
+                output = new SpscRingQueue<Batch>(HANDOFF_BATCHES, s + 1);
+                handoffs.add(output);
+            }
+            runners[s] = new StageRunner(stages.get(s), root.split(), s == 0 ? arrivalStream : null, input, output);
+        }
+        endToEndTimes = runners[runners.length - 1].endToEndTimes;
+        Thread[] threads = new Thread[runners.length];
+        for (int s = 0; s < runners.length; s++) {
+            threads[s] = new Thread(runners[s], "pipeline-stage-" + (s + 1));
+            runners[s].threads = threads;
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+        for (StageRunner runner : runners) {
+            if (runner.failure != null && !(runner.failure instanceof InterruptedException)) {
+                throw new IllegalStateException("Stage " + runner.stage.getName() + " failed.", runner.failure);
+            }
+        }
+        for (StageRunner runner : runners) {
+            if (runner.failure != null) {
+                throw new InterruptedException("Stage " + runner.stage.getName() + " was interrupted.");
+            }
+        }
+        customersCompleted = runners[runners.length - 1].customersLeft;
+    }
+
+    /**
+     * Retrieves the number of stages.
+     * @return the stage count
+     */
+    public int getTotalStages() {
+        return stages.size();
+    }
+
+    /**
+     * Retrieves a stage's settings.
+     * @param stage the stage index, from 0
+     * @return the stage
+     */
+    public Stage getStage(int stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * Retrieves the number of customers who left the last stage during the last run.
+     * @return the completed customer count
+     */
+    public long getCustomersCompleted() {
+        return customersCompleted;
+    }
+
+    /**
+     * Retrieves how long customers spent in the pipeline, from arriving at the first
+     * stage to leaving the last, during the last run.
+     * @return the histogram in ticks of EventDrivenSimulation
+     */
+    public LatencyHistogram getEndToEndTimes() {
+        return endToEndTimes;
+    }
+
+    /**
+     * Retrieves the number of customers a stage served during the last run, not counting those who skipped it.
+     * @param stage the stage index, from 0
+     * @return the served customer count
+     */
+    public long getStageCustomersServed(int stage) {
+        return runner(stage).customersServed;
+    }
+
+    /**
+     * Retrieves how long the customers of a stage waited in its queues during the last run.
+     * @param stage the stage index, from 0
+     * @return the histogram in ticks of EventDrivenSimulation
+     */
+    public LatencyHistogram getStageWaitTimes(int stage) {
+        return runner(stage).waitTimes;
+    }
+
+    /**
+     * Retrieves the service times of a stage during the last run.
+     * @param stage the stage index, from 0
+     * @return the histogram in ticks of EventDrivenSimulation
+     */
+    public LatencyHistogram getStageServiceTimes(int stage) {
+        return runner(stage).serviceTimes;
+    }
+
+    /**
+     * Retrieves how long customers spent at a stage, waiting and being served, during the last run.
+     * @param stage the stage index, from 0
+     * @return the histogram in ticks of EventDrivenSimulation
+     */
+    public LatencyHistogram getStageResponseTimes(int stage) {
+        return runner(stage).responseTimes;
+    }
+
+    /**
+     * Retrieves the fraction of the last run a stage's tellers spent serving customers.
+     * @param stage the stage index, from 0
+     * @return the utilization, from 0 to 1
+     */
+    public double getStageUtilization(int stage) {
+        StageRunner runner = runner(stage);
+        return (double) runner.busyTicks / runner.stage.getTellers() / Math.max(runner.clock, 1);
+    }
+
+    /**
+     * Finds the bottleneck of the last run: the stage whose tellers were busiest.
+     * @return the stage index, from 0
+     */
+    public int getBottleneckStage() {
+        int bottleneck = 0;
+        for (int s = 1; s < stages.size(); s++) {
+            if (getStageUtilization(s) > getStageUtilization(bottleneck)) {
+                bottleneck = s;
+            }
+        }
+        return bottleneck;
+    }
+
+    /**
+     * Finds the runner of a stage of the last run.
+     * @param stage the stage index
+     * @return the runner
+     * @throws IllegalStateException if the pipeline has not run
+     */
+    private StageRunner runner(int stage) {
+        if (runners == null) {
+            throw new IllegalStateException("The pipeline has not run yet.");
+        }
+        return runners[stage];
+    }
+
+    /**
+     * The settings of one stage. Teller t serves queue t % queues.
+     */
+    public static class Stage {
+
+        private final String name;              /* the stage's name in reports */
+        private final int tellers;              /* the number of tellers */
+        private final int queues;               /* the number of queues */
+        private final String routing;           /* the routing policy between the queues */
+        private final Distribution services;    /* the distribution of service times */
+        private final double visitProbability;  /* the chance that a customer visits the stage */
+
+        /**
+         * Constructs a stage.
+         * @param name the stage's name in reports
+         * @param tellers the number of tellers
+         * @param queues the number of queues, at most the number of tellers
+         * @param routing the routing policy name, see RoutingPolicy
+         * @param services the distribution of service times
+         * @param visitProbability the chance that a customer visits the stage, from 0 to 1
+         */
+        public Stage(String name, int tellers, int queues, String routing, Distribution services, double visitProbability) {
+            if (tellers <= 0 || queues <= 0 || queues > tellers) {
+                throw new IllegalArgumentException("Stage " + name + " needs at least one teller per queue.");
+            }
+            if (!(visitProbability >= 0 && visitProbability <= 1)) {
+                throw new IllegalArgumentException("The visit probability of stage " + name + " must be between 0 and 1.");
+            }
+            this.name = name;
+            this.tellers = tellers;
+            this.queues = queues;
+            this.routing = RoutingPolicy.checkName(routing);
+            this.services = services;
+            this.visitProbability = visitProbability;
+        }
+
+        /**
+         * Retrieves the stage's name.
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Retrieves the number of tellers.
+         * @return the teller count
+         */
+        public int getTellers() {
+            return tellers;
+        }
+
+        /**
+         * Retrieves the number of queues.
+         * @return the queue count
+         */
+        public int getQueues() {
+            return queues;
+        }
+
+        /**
+         * Retrieves the routing policy between the queues.
+         * @return the routing policy name
+         */
+        public String getRouting() {
+            return routing;
+        }
+
+        /**
+         * Retrieves the distribution of service times.
+         * @return the distribution
+         */
+        public Distribution getServices() {
+            return services;
+        }
+
+        /**
+         * Retrieves the chance that a customer visits the stage.
+         * @return the visit probability
+         */
+        public double getVisitProbability() {
+            return visitProbability;
+        }
+    }
+
+    /**
+     * Customers handed from one stage to the next, in the order they left.
+     */
+    private static class Batch {
+
+        final int[] customerIDs = new int[BATCH_SIZE];      /* the customers */
+        final long[] entryTimes = new long[BATCH_SIZE];     /* when each customer arrived at the first stage */
+        final long[] leaveTimes = new long[BATCH_SIZE];     /* when each customer left the stage */
+        int size;           /* the number of customers in the batch */
+        boolean last;       /* whether the stage sends nothing after this batch */
+    }
+
+    /**
+     * The event loop of one stage.
+     */
+    private class StageRunner implements Runnable {
+
+        final Stage stage;                  /* the stage's settings */
+        final TimeStream arrivalStream;     /* the delays between arrivals, first stage only */
+        final SpscRingQueue<Batch> input;   /* customers from the previous stage, null for the first */
+        final SpscRingQueue<Batch> output;  /* customers for the next stage, null for the last */
+        final TimeStream services;          /* the service times, drawn as customers arrive */
+        final RoutingPolicy routingPolicy;  /* chooses the queue each customer joins */
+        final SplittableRandom visitRandom; /* decides which customers visit the stage */
+        final EventQueue eventQueue;        /* pending events ordered by virtual time */
+        final CustomerStore customers = new CustomerStore(64);  /* customers at the stage, referred to by slot */
+        long[] slotEntryTimes = new long[64];   /* when the customer in each slot arrived at the first stage */
+        final IntQueue[] waitingLines;      /* slots of the customers waiting in each queue */
+        final QueueLengthIndex queueLengths;    /* customers waiting in or served from each queue */
+        final long[] queuedWork;            /* service ticks needed by the customers waiting in each queue */
+        final int[][] queueTellers;         /* the tellers serving each queue */
+        final boolean[] tellerBusy;         /* whether each teller is serving */
+        final int[] tellerServingQueue;     /* the queue the customer of each busy teller came from */
+        final LatencyHistogram waitTimes = new LatencyHistogram();      /* waits at this stage */
+        final LatencyHistogram serviceTimes = new LatencyHistogram();   /* service times at this stage */
+        final LatencyHistogram responseTimes = new LatencyHistogram();  /* waits plus service times at this stage */
+        final LatencyHistogram endToEndTimes = new LatencyHistogram();  /* time in the pipeline, last stage only */
+        Batch inputBatch;                   /* the batch arrivals are read from */
+        int inputPosition;                  /* the next arrival in inputBatch */
+        Batch outputBatch = new Batch();    /* the batch departures are collected in */
+        int pendingCustomer;                /* the ID of the customer whose arrival is scheduled */
+        long pendingEntryTime;              /* when that customer arrived at the first stage */
+        long pendingArrivalTime;            /* when that customer arrives at this stage */
+        boolean arrivalScheduled;           /* whether the pending arrival is on the event queue */
+        boolean arrivalsEnded;              /* whether every customer has arrived at the stage */
+        int arrivalsGenerated;              /* customers generated so far, first stage only */
+        long arrivalClock;                  /* arrival time of the last generated customer, first stage only */
+        long customersServed;               /* customers served by the stage's tellers */
+        long customersLeft;                 /* customers who left the stage, served or not */
+        long busyTicks;                     /* time the tellers spent serving */
+        long clock;                         /* the stage's virtual time */
+        Thread[] threads;                   /* every stage's thread, interrupted if this stage fails */
+        volatile Throwable failure;         /* why the stage stopped, or null */
+
+        StageRunner(Stage stage, SplittableRandom random, TimeStream arrivalStream, SpscRingQueue<Batch> input, SpscRingQueue<Batch> output) {
+            this.stage = stage;
+            this.arrivalStream = arrivalStream;
+            this.input = input;
+            this.output = output;
+            this.services = TimeStream.of(stage.getServices(), random.split());
+            this.routingPolicy = RoutingPolicy.create(stage.getRouting(), random.nextLong());
+            this.visitRandom = random.split();
+            this.eventQueue = new EventQueue(stage.getTellers() * 2 + 2);
+            this.waitingLines = new IntQueue[stage.getQueues()];
+            for (int q = 0; q < waitingLines.length; q++) {
+                waitingLines[q] = new IntQueue(16);
+            }
+            this.queueLengths = new QueueLengthIndex(stage.getQueues());
+            this.queuedWork = new long[stage.getQueues()];
+            this.queueTellers = new int[stage.getQueues()][];
+            for (int q = 0; q < queueTellers.length; q++) {
+                queueTellers[q] = new int[(stage.getTellers() - q + stage.getQueues() - 1) / stage.getQueues()];
+                for (int i = 0; i < queueTellers[q].length; i++) {
+                    queueTellers[q][i] = q + i * stage.getQueues();
+                }
+            }
+            this.tellerBusy = new boolean[stage.getTellers()];
+            this.tellerServingQueue = new int[stage.getTellers()];
+        }
+
+        @Override
+        public void run() {
+            try {
+                scheduleArrivalIfDue();
+                while (eventQueue.poll()) {
+                    clock = eventQueue.getCurrentTime();
+                    int customer = eventQueue.getCurrentCustomer();
+                    int teller = eventQueue.getCurrentTeller();
+                    switch (eventQueue.getCurrentType()) {
+                        case EventQueue.ARRIVAL:
+                            customerArrives();
+                            break;
+                        case EventQueue.SERVICE_START:
+                            serviceStarts(customer, teller);
+                            break;
+                        default:
+                            serviceEnds(customer, teller);
+                            break;
+                    }
+                    scheduleArrivalIfDue();
+                }
+                if (output != null) {
+                    outputBatch.last = true;
+                    output.put(outputBatch);
+                }
+            } catch (InterruptedException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                for (Thread thread : threads) {
+                    if (thread != Thread.currentThread()) {
+                        thread.interrupt();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Schedules the next arrival once the stage cannot go on without it: when no
+         * pending event is due by the time of the last arrival, the next arrival may
+         * come first. Only then is it read, possibly waiting for the previous stage.
+         * @throws InterruptedException if the stage is interrupted while waiting
+         */
+        void scheduleArrivalIfDue() throws InterruptedException {
+            if (arrivalScheduled || arrivalsEnded || eventQueue.getNextTime() <= pendingArrivalTime) {
+                return;
+            }
+            if (nextArrival()) {
+                eventQueue.schedule(pendingArrivalTime, EventQueue.ARRIVAL, pendingCustomer, -1);
+                arrivalScheduled = true;
+            } else {
+                arrivalsEnded = true;
+            }
+        }
+
+        /**
+         * Reads the next customer to arrive at the stage into the pending fields,
+         * waiting for the previous stage if its next batch is not ready.
+         * @return false if no customer is left to arrive
+         * @throws InterruptedException if the stage is interrupted while waiting
+         */
+        boolean nextArrival() throws InterruptedException {
+            if (input == null) {
+                if (arrivalsGenerated == totalCustomers) {
+                    return false;
+                }
+                arrivalClock += arrivalStream.nextTicks(arrivalClock);
+                pendingCustomer = arrivalsGenerated;
+                pendingEntryTime = arrivalClock;
+                pendingArrivalTime = arrivalClock;
+                arrivalsGenerated += 1;
+                return true;
+            }
+            while (inputBatch == null || inputPosition == inputBatch.size) {
+                if (inputBatch != null && inputBatch.last) {
+                    return false;
+                }
+                inputBatch = input.take();
+                inputPosition = 0;
+            }
+            pendingCustomer = inputBatch.customerIDs[inputPosition];
+            pendingEntryTime = inputBatch.entryTimes[inputPosition];
+            pendingArrivalTime = inputBatch.leaveTimes[inputPosition];
+            inputPosition += 1;
+            return true;
+        }
+
+        /**
+         * Sends a customer to a queue, to an idle teller, or past the stage if they do not
+         * visit it.
+         * @throws InterruptedException if the stage is interrupted while handing customers on
+         */
+        void customerArrives() throws InterruptedException {
+            arrivalScheduled = false;
+            if (visitRandom.nextDouble() < stage.getVisitProbability()) {
+                int slot = customers.admit(pendingCustomer, clock, services.nextTicks(clock));
+                if (slot >= slotEntryTimes.length) {
+                    slotEntryTimes = Arrays.copyOf(slotEntryTimes, Math.max(slot + 1, slotEntryTimes.length * 2));
+                }
+                slotEntryTimes[slot] = pendingEntryTime;
+                int queue = waitingLines.length > 1 ? routingPolicy.selectQueue(queueState) : 0;
+                queueLengths.increment(queue);
+                int idleTeller = idleTellerOf(queue);
+                if (idleTeller >= 0 && waitingLines[queue].isEmpty()) {
+                    startServing(idleTeller, queue);
+                    eventQueue.schedule(clock, EventQueue.SERVICE_START, slot, idleTeller);
+                } else {
+                    waitingLines[queue].enqueue(slot);
+                    queuedWork[queue] += customers.getServiceTime(slot);
+                }
+            } else {
+                customerLeaves(pendingCustomer, pendingEntryTime);
+            }
+        }
+
+        /**
+         * Records a customer's wait and schedules the end of their service.
+         * @param slot the customer's slot
+         * @param teller the teller serving them
+         */
+        void serviceStarts(int slot, int teller) {
+            customers.leaveQueue(slot, clock);
+            long waitTicks = customers.getWaitTime(slot);
+            long serviceTicks = customers.getServiceTime(slot);
+            waitTimes.record(waitTicks);
+            serviceTimes.record(serviceTicks);
+            responseTimes.record(waitTicks + serviceTicks);
+            eventQueue.schedule(clock + serviceTicks, EventQueue.SERVICE_END, slot, teller);
+        }
+
+        /**
+         * Passes a served customer on, frees their teller and hands the teller the next waiting customer.
+         * @param slot the customer's slot
+         * @param teller the teller who served them
+         * @throws InterruptedException if the stage is interrupted while handing customers on
+         */
+        void serviceEnds(int slot, int teller) throws InterruptedException {
+            busyTicks += customers.getServiceTime(slot);
+            customersServed += 1;
+            customerLeaves(customers.getCustomerID(slot), slotEntryTimes[slot]);
+            customers.release(slot);
+            int queue = tellerServingQueue[teller];
+            queueLengths.decrement(queue);
+            tellerBusy[teller] = false;
+            if (!waitingLines[queue].isEmpty()) {
+                int nextSlot = waitingLines[queue].dequeue();
+                queuedWork[queue] -= customers.getServiceTime(nextSlot);
+                startServing(teller, queue);
+                eventQueue.schedule(clock, EventQueue.SERVICE_START, nextSlot, teller);
+            }
+        }
+
+        /**
+         * Hands a customer leaving the stage to the next one, a batch at a time, or
+         * records their end-to-end time at the last stage.
+         * @param customer the customer's ID
+         * @param entryTime when the customer arrived at the first stage
+         * @throws InterruptedException if the stage is interrupted while the next stage is behind
+         */
+        void customerLeaves(int customer, long entryTime) throws InterruptedException {
+            customersLeft += 1;
+            if (output == null) {
+                endToEndTimes.record(clock - entryTime);
+                return;
+            }
+            Batch batch = outputBatch;
+            batch.customerIDs[batch.size] = customer;
+            batch.entryTimes[batch.size] = entryTime;
+            batch.leaveTimes[batch.size] = clock;
+            batch.size += 1;
+            if (batch.size == BATCH_SIZE) {
+                output.put(batch);
+                outputBatch = new Batch();
+            }
+        }
+
+        /**
+         * Marks a teller busy with a customer from a queue.
+         * @param teller the teller index
+         * @param queue the queue the customer came from
+         */
+        void startServing(int teller, int queue) {
+            tellerBusy[teller] = true;
+            tellerServingQueue[teller] = queue;
+        }
+
+        /**
+         * Finds an idle teller serving a queue.
+         * @param queue the queue index
+         * @return the index of an idle teller, or -1 if all of the queue's tellers are busy
+         */
+        int idleTellerOf(int queue) {
+            for (int teller : queueTellers[queue]) {
+                if (!tellerBusy[teller]) {
+                    return teller;
+                }
+            }
+            return -1;
+        }
+
+        /* the stage's queues as seen by its routing policy */
+        final QueueState queueState = new QueueState() {
+
+            @Override
+            public int getTotalQueues() {
+                return waitingLines.length;
+            }
+
+            @Override
+            public int getQueueLength(int queue) {
+                return queueLengths.length(queue);
+            }
+
+            @Override
+            public double getQueuedWork(int queue) {
+                return (double) queuedWork[queue] / EventDrivenSimulation.TICKS_PER_SECOND;
+            }
+
+            @Override
+            public int getShortestQueue() {
+                return queueLengths.shortest();
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+/**
+ * Samples a few queues at random and sends the customer to the shortest of them
+ * ("power of d choices"). Its cost does not depend on the number of queues, and
+ * with only two choices it already balances queues almost as well as comparing all of them.
+ */
+public class PowerOfChoicesPolicy implements RoutingPolicy {
+
+    private final int choices;              /* the number of queues sampled per customer */
+    private final SplitMixRandom random;    /* source of the sampled queues */
+
+    /**
+     * Constructs a power of d choices policy.
+     * @param choices the number of queues sampled per customer
+     * @param seed the seed of the random samples
+     */
+    public PowerOfChoicesPolicy(int choices, long seed) {
+        if (choices < 1) {
+            throw new IllegalArgumentException("At least one queue must be sampled.");
+        }
+        this.choices = choices;
+        this.random = new SplitMixRandom(seed);
+    }
+
+    @Override
+    public int selectQueue(QueueState state) {
+        int totalQueues = state.getTotalQueues();
+        if (choices >= totalQueues) {
+            return state.getShortestQueue();
+        }
+        int best = random.nextInt(totalQueues);
+        int bestLength = state.getQueueLength(best);
+        for (int i = 1; i < choices; i++) {
+            int candidate = random.nextInt(totalQueues);
+            int length = state.getQueueLength(candidate);
+            if (length < bestLength) {
+                best = candidate;
+                bestLength = length;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        random.writeTo(out);
+    }
+
+    @Override
+    public void readFrom(DataInput in) throws IOException {
+        random.readFrom(in);
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.IntToLongFunction;
+/**
+ * A queue of customer slots of several classes for the discrete-event model, the
+ * counterpart of PriorityRingQueue. It keeps one IntQueue per customer class and a
+ * bit set of the classes with customers waiting, so enqueueing is constant time
+ * whatever the number of classes, and a ClassScheduler decides which class the next
+ * customer dequeued comes from. A customer's class and arrival time are read from
+ * the CustomerStore holding them. With a single class it behaves like an IntQueue.
+ */
+public class PriorityIntQueue {
+
+    private final CustomerStore customers;  /* where the class and arrival time of each slot are kept */
+    private final IntQueue[] classLines;    /* the slots waiting in each class, in arrival order */
+    private final ClassScheduler scheduler; /* decides which class is served next */
+    private final IntToLongFunction frontArrivalTimes;  /* the arrival time of the first slot of a class */
+    private long waitingClasses;            /* bit c is set while class c has customers waiting */
+    private int queueCurrentSize;           /* slots waiting over all classes */
+
+    /**
+     * Constructs an empty queue.
+     * @param customers the store holding the customers whose slots are queued
+     * @param scheduler decides which class is served next, used by this queue only
+     * @param totalClasses the number of customer classes, at most ClassScheduler.MAX_CLASSES
+     */
+    public PriorityIntQueue(CustomerStore customers, ClassScheduler scheduler, int totalClasses) {
+        if (totalClasses < 1 || totalClasses > ClassScheduler.MAX_CLASSES) {
+            throw new IllegalArgumentException("A bank has between 1 and " + ClassScheduler.MAX_CLASSES + " customer classes.");
+        }
+        this.customers = customers;
+        this.scheduler = scheduler;
+        this.classLines = new IntQueue[totalClasses];
+        for (int c = 0; c < totalClasses; c++) {
+            classLines[c] = new IntQueue(16);
+        }
+        this.frontArrivalTimes = c -> customers.getQueueStartTime(classLines[c].front());
+    }
+
+    /**
+     * Adds a customer to the back of their class's line.
+     * @param slot the customer's slot in the store
+     */
+    public void enqueue(int slot) {
+        int customerClass = classLines.length == 1 ? 0 : customers.getCustomerClass(slot);
+        classLines[customerClass].enqueue(slot);
+        waitingClasses |= 1L << customerClass;
+        queueCurrentSize += 1;
+    }
+
+    /**
+     * Removes the first customer of the class the scheduler chooses.
+     * @return the customer's slot
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int dequeue() {
+        if (waitingClasses == 0) {
+            throw new IllegalStateException("Cannot dequeue from an empty queue.");
+        }
+        int customerClass = classLines.length == 1 ? 0 : scheduler.select(waitingClasses, frontArrivalTimes);
+        IntQueue classLine = classLines[customerClass];
+        int slot = classLine.dequeue();
+        if (classLine.isEmpty()) {
+            waitingClasses &= ~(1L << customerClass);
+            scheduler.classEmptied(customerClass);
+        }
+        queueCurrentSize -= 1;
+        return slot;
+    }
+
+    /**
+     * Returns the number of customers waiting in one class.
+     * @param customerClass the class index
+     * @return the class's waiting customers
+     */
+    public int size(int customerClass) {
+        return classLines[customerClass].size();
+    }
+
+    /**
+     * Returns the number of customers waiting over all classes.
+     * @return the current number of slots inside the queue
+     */
+    public int size() {
+        return queueCurrentSize;
+    }
+
+    /**
+     * Checks if the queue is empty or not
+     * @return true if no customer of any class is waiting
+     */
+    public boolean isEmpty() {
+        return queueCurrentSize == 0;
+    }
+
+    /**
+     * Writes the slots waiting in every class and the scheduler's state.
+     * @param out where the queue goes
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(classLines.length);
+        for (IntQueue classLine : classLines) {
+            classLine.writeTo(out);
+        }
+        scheduler.writeTo(out);
+    }
+
+    /**
+     * Replaces the waiting slots and the scheduler's state with the ones written by
+     * writeTo of a queue of as many classes.
+     * @param in where the queue is read from
+     * @throws IOException if reading fails or the number of classes differs
+     */
+    public void readFrom(DataInput in) throws IOException {
+        int totalClasses = in.readInt();
+        if (totalClasses != classLines.length) {
+            throw new IOException("Expected " + classLines.length + " customer classes but got " + totalClasses);
+        }
+        waitingClasses = 0;
+        queueCurrentSize = 0;
+        for (int c = 0; c < classLines.length; c++) {
+            classLines[c].readFrom(in);
+            if (!classLines[c].isEmpty()) {
+                waitingClasses |= 1L << c;
+                queueCurrentSize += classLines[c].size();
+            }
+        }
+        scheduler.readFrom(in);
+    }
+
+    /**
+     * Removes every slot from the queue and forgets the scheduler's state.
+     */
+    public void clear() {
+        for (IntQueue classLine : classLines) {
+            classLine.clear();
+        }
+        waitingClasses = 0;
+        queueCurrentSize = 0;
+        scheduler.clear();
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.function.IntToLongFunction;
+/**
+ * A queue of customers of several classes for the threaded model. It keeps one
+ * growable circular array per customer class and a bit set of the classes with
+ * customers waiting, so adding a customer is constant time whatever the number of
+ * classes, and a ClassScheduler decides which class the next customer taken comes
+ * from. Choosing between the classes reads the fronts of several lines, so the
+ * lines are guarded by one lock held only for the few operations of an offer or a
+ * poll; waiting consumers are woken by the signals of AbstractRingQueue.
+ */
+public class PriorityRingQueue extends AbstractRingQueue<Customer> {
+
+    private final Queue<Customer>[] classLines;    /* the customers waiting in each class, in arrival order */
+    private final ClassScheduler scheduler;         /* decides which class is served next */
+    private final int queueCapacity;                /* the most customers waiting over all classes */
+    private final IntToLongFunction frontArrivalTimes;  /* the arrival time of the first customer of a class */
+    private long waitingClasses;                    /* bit c is set while class c has customers waiting */
+    private volatile int queueCurrentSize;          /* customers waiting over all classes */
+
+    /**
+     * Constructs a priority queue.
+     * @param queueCapacity the most customers waiting over all classes, or 0 for no limit
+     * @param queueID the ID identifying this queue
+     * @param scheduler decides which class is served next, used by this queue only
+     * @param totalClasses the number of customer classes, at most ClassScheduler.MAX_CLASSES
+     */
+    @SuppressWarnings("unchecked")
+    public PriorityRingQueue(int queueCapacity, int queueID, ClassScheduler scheduler, int totalClasses) {
+        super(1, queueID);
+        if (totalClasses < 1 || totalClasses > ClassScheduler.MAX_CLASSES) {
+            throw new IllegalArgumentException("A bank has between 1 and " + ClassScheduler.MAX_CLASSES + " customer classes.");
+        }
+        this.classLines = (Queue<Customer>[]) new Queue<?>[totalClasses];
+        for (int c = 0; c < totalClasses; c++) {
+            classLines[c] = new Queue<Customer>(16, queueID, true);
+        }
+        this.frontArrivalTimes = c -> classLines[c].front().getArrivalTime();
+        this.scheduler = scheduler;
+        this.queueCapacity = queueCapacity > 0 ? queueCapacity : GrowableRingQueue.MAX_CAPACITY;
+    }
+
+    /**
+     * Adds a customer to the back of their class's line if the queue has room.
+     * @param newElement the customer, whose class must be below the number of classes
+     * @return true if the customer was added, false if the queue is full
+     */
+    @Override
+    public boolean offer(Customer newElement) {
+        int customerClass = newElement.getCustomerClass();
+        synchronized (classLines) {
+            if (queueCurrentSize >= queueCapacity) {
+                return false;
+            }
+            classLines[customerClass].enqueue(newElement);
+            waitingClasses |= 1L << customerClass;
+            queueCurrentSize += 1;
+        }
+        signalElementAdded();
+        return true;
+    }
+
+    /**
+     * Removes the first customer of the class the scheduler chooses.
+     * @return the customer, or null if the queue is empty
+     */
+    @Override
+    public Customer poll() {
+        if (queueCurrentSize == 0) {
+            return null;
+        }
+        synchronized (classLines) {
+            if (waitingClasses == 0) {
+                return null;
+            }
+            int customerClass = scheduler.select(waitingClasses, frontArrivalTimes);
+            Queue<Customer> classLine = classLines[customerClass];
+            Customer dequeuedElement = classLine.dequeue();
+            if (classLine.isEmpty()) {
+                waitingClasses &= ~(1L << customerClass);
+                scheduler.classEmptied(customerClass);
+            }
+            queueCurrentSize -= 1;
+            return dequeuedElement;
+        }
+    }
+
+    /**
+     * Returns the number of customers waiting in one class.
+     * @param customerClass the class index
+     * @return the class's waiting customers
+     */
+    public int size(int customerClass) {
+        synchronized (classLines) {
+            return classLines[customerClass].size();
+        }
+    }
+
+    @Override
+    public int size() {
+        return queueCurrentSize;
+    }
+
+    @Override
+    public int capacity() {
+        return queueCapacity;
+    }
+}
@@ -8,42 +8,86 @@
  * A Queue represents an ADT (renamed from CircularArrayQueue),
  * more specifically, a Queue data structure which is implemented
  * using a circular array. Can accept varying data types.
+ * The array length is a power of two, so positions wrap with a bit mask instead
+ * of the modulo operator. A bounded queue refuses elements once it holds its
+ * maximum capacity; a growable queue doubles its array instead, so its memory
+ * follows the longest the queue has been.
  */
 public class Queue<E> {
 
     private E[] queueCircularArray; /* array used for the queue */
     private int queueFrontPosition; /* the tracked front element position */
     private int queueBackPosition;  /* the tracked back element position */
-    private int queueMaxCapacity;   /* total number of elements that can be queued */
+    private int queueMask;          /* array length - 1 */
+    private int queueMaxCapacity;   /* total number of elements that can be queued, Integer.MAX_VALUE if growable */
     private int queueCurrentSize;   /* current number of elements in the queue */
     private int queueID;            /* queueID to identify multiple queues */
-    private static int nextQueueID = 1; /* Class-level id-tracker */
 
     /**
-     * Constructs a queue object using a circular array
+     * Constructs an unnumbered queue object using a circular array
      * @param maxCapacity the total amount of elements the queue can hold
      */
     public Queue(int maxCapacity) {
+        this(maxCapacity, 0);
+    }
+
+    /**
+     * Constructs a queue object using a circular array
+     * @param maxCapacity the total amount of elements the queue can hold
+     * @param queueID the ID identifying this queue
+     */
+    public Queue(int maxCapacity, int queueID) {
+        this(maxCapacity, queueID, false);
+    }
+
+    /**
+     * Constructs a bounded or growable queue object using a circular array
+     * @param capacity the total amount of elements a bounded queue can hold, or the initial capacity of a growable one
+     * @param queueID the ID identifying this queue
+     * @param growable true to grow the queue when it is full instead of refusing elements
+     */
+    public Queue(int capacity, int queueID, boolean growable) {
+        int arrayLength = AbstractRingQueue.roundToPowerOfTwo(Math.max(capacity, growable ? 2 : 1));
         this.queueCurrentSize = 0;
         this.queueFrontPosition = 0;
         this.queueBackPosition = 0;
-        this.queueMaxCapacity = maxCapacity;   
-        this.queueCircularArray = (E[]) new Object[queueMaxCapacity];
-        this.queueID = nextQueueID;
-        nextQueueID++;
+        this.queueMaxCapacity = growable ? Integer.MAX_VALUE : capacity;
+        this.queueCircularArray = (E[]) new Object[arrayLength];
+        this.queueMask = arrayLength - 1;
+        this.queueID = queueID;
     }
 
     /**
-     * Adds an element to the back of the queue.
+     * Adds an element to the back of the queue, growing a growable queue if its array is full.
      * @param newElement the newElement to be added to the queue.
+     * @return true if the element was added, false if a bounded queue is full
      */
-    public void enqueue(E newElement) {
+    public boolean enqueue(E newElement) {
         if (isFull()) {
-        } else {
-            queueCircularArray[queueBackPosition] = newElement;
-            queueBackPosition = (queueBackPosition + 1) % queueCircularArray.length; 
-            queueCurrentSize += 1;
+            return false;
         }
+        if (queueCurrentSize == queueCircularArray.length) {
+            grow();
+        }
+        queueCircularArray[queueBackPosition] = newElement;
+        queueBackPosition = (queueBackPosition + 1) & queueMask;
+        queueCurrentSize += 1;
+        return true;
+    }
+
+    /**
+     * Doubles the array, moving the elements to its start in queue order.
+     */
+    private void grow() {
+        int oldCapacity = queueCircularArray.length;
+        E[] grownArray = (E[]) new Object[oldCapacity << 1];
+        int leadingElements = oldCapacity - queueFrontPosition;
+        System.arraycopy(queueCircularArray, queueFrontPosition, grownArray, 0, leadingElements);
+        System.arraycopy(queueCircularArray, 0, grownArray, leadingElements, queueFrontPosition);
+        queueCircularArray = grownArray;
+        queueMask = grownArray.length - 1;
+        queueFrontPosition = 0;
+        queueBackPosition = oldCapacity;
     }
 
     /**
@@ -56,7 +100,7 @@ public class Queue<E> {
         } else {
             E dequeuedElement = queueCircularArray[queueFrontPosition];
             queueCircularArray[queueFrontPosition] = null;
-            queueFrontPosition = (queueFrontPosition + 1) % queueCircularArray.length;
+            queueFrontPosition = (queueFrontPosition + 1) & queueMask;
             queueCurrentSize -= 1;
             return dequeuedElement;
         }
@@ -107,17 +151,18 @@ public class Queue<E> {
     }
 
     /**
-     * Get's the current queue's instance queueID
-     * @return the current instance's queueID
+     * Returns the number of elements the queue can hold.
+     * @return the maximum capacity of a bounded queue, Integer.MAX_VALUE for a growable one
      */
-    public int getQueueID() {
-        return this.queueID;
+    public int capacity() {
+        return queueMaxCapacity;
     }
 
     /**
-     * Resets the Class-level id-tracker for re-use in another simulation
+     * Get's the current queue's instance queueID
+     * @return the current instance's queueID
      */
-    public static void resetClass() {
-        nextQueueID = 1;
+    public int getQueueID() {
+        return this.queueID;
     }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+/**
+ * Keeps the queues of a bank ordered by length in an indexed binary min-heap,
+ * so the shortest queue can be read in constant time and a queue's length can be
+ * changed in place in logarithmic time, without sorting all queues per customer.
+ * Queues of equal length are ordered by their index, so the shortest queue is
+ * the same one a front-to-back scan would find. Not thread-safe.
+ */
+public class QueueLengthIndex {
+
+    private final int[] heap;           /* queue indexes in heap order */
+    private final int[] heapPosition;   /* position of each queue in the heap */
+    private final int[] queueLength;    /* current length of each queue */
+
+    /**
+     * Constructs an index of empty queues.
+     * @param totalQueues the number of queues
+     */
+    public QueueLengthIndex(int totalQueues) {
+        heap = new int[totalQueues];
+        heapPosition = new int[totalQueues];
+        queueLength = new int[totalQueues];
+        clear();
+    }
+
+    /**
+     * Retrieves the shortest queue.
+     * @return the index of the shortest queue, the lowest index among equals
+     */
+    public int shortest() {
+        return heap[0];
+    }
+
+    /**
+     * Retrieves the length of a queue.
+     * @param queue the queue index
+     * @return the queue's length
+     */
+    public int length(int queue) {
+        return queueLength[queue];
+    }
+
+    /**
+     * Records a customer joining a queue.
+     * @param queue the queue index
+     */
+    public void increment(int queue) {
+        queueLength[queue] += 1;
+        siftDown(heapPosition[queue]);
+    }
+
+    /**
+     * Records a customer leaving a queue.
+     * @param queue the queue index
+     */
+    public void decrement(int queue) {
+        queueLength[queue] -= 1;
+        siftUp(heapPosition[queue]);
+    }
+
+    /**
+     * Resets every queue to empty.
+     */
+    public void clear() {
+        for (int q = 0; q < heap.length; q++) {
+            heap[q] = q;
+            heapPosition[q] = q;
+            queueLength[q] = 0;
+        }
+    }
+
+    /**
+     * Writes the length of every queue and the heap order.
+     * @param out where the index goes
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(heap.length);
+        for (int position = 0; position < heap.length; position++) {
+            out.writeInt(heap[position]);
+        }
+        for (int q = 0; q < heap.length; q++) {
+            out.writeInt(queueLength[q]);
+        }
+    }
+
+    /**
+     * Replaces the lengths and heap order with the ones written by writeTo of an index of as many queues.
+     * @param in where the index is read from
+     * @throws IOException if reading fails or the index does not fit
+     */
+    public void readFrom(DataInput in) throws IOException {
+        int totalQueues = in.readInt();
+        if (totalQueues != heap.length) {
+            throw new IOException("Expected " + heap.length + " queues but got " + totalQueues);
+        }
+        for (int position = 0; position < heap.length; position++) {
+            int queue = in.readInt();
+            if (queue < 0 || queue >= heap.length) {
+                throw new IOException("Invalid queue in the length index: " + queue);
+            }
+            place(queue, position);
+        }
+        for (int q = 0; q < heap.length; q++) {
+            queueLength[q] = in.readInt();
+        }
+    }
+
+    /**
+     * Checks whether one queue ranks before another.
+     */
+    private boolean isShorter(int queue, int otherQueue) {
+        int length = queueLength[queue];
+        int otherLength = queueLength[otherQueue];
+        return length < otherLength || (length == otherLength && queue < otherQueue);
+    }
+
+    /**
+     * Moves the queue at a heap position towards the root while it ranks before its parent.
+     */
+    private void siftUp(int position) {
+        int queue = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isShorter(queue, heap[parent])) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(queue, position);
+    }
+
+    /**
+     * Moves the queue at a heap position towards the leaves while a child ranks before it.
+     */
+    private void siftDown(int position) {
+        int queue = heap[position];
+        int half = heap.length >>> 1;
+        while (position < half) {
+            int child = (position << 1) + 1;
+            int right = child + 1;
+            if (right < heap.length && isShorter(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!isShorter(heap[child], queue)) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(queue, position);
+    }
+
+    /**
+     * Stores a queue at a heap position.
+     */
+    private void place(int queue, int position) {
+        heap[position] = queue;
+        heapPosition[queue] = position;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+/**
+ * A read-only view of a bank's queues that routing policies base their choice on.
+ * Queues are numbered from 0.
+ */
+public interface QueueState {
+
+    /**
+     * Returns the number of queues.
+     * @return the queue count
+     */
+    int getTotalQueues();
+
+    /**
+     * Returns the number of customers in a queue.
+     * @param queue the queue index
+     * @return the queue's length
+     */
+    int getQueueLength(int queue);
+
+    /**
+     * Returns the total service time the customers waiting in a queue will need.
+     * @param queue the queue index
+     * @return the queued work in seconds
+     */
+    double getQueuedWork(int queue);
+
+    /**
+     * Returns the shortest queue. Implementations with an index of queue lengths
+     * answer in constant time; the default scans every queue.
+     * @return the index of the shortest queue, the lowest index among equals
+     */
+    default int getShortestQueue() {
+        int shortest = 0;
+        int shortestLength = getQueueLength(0);
+        for (int q = 1; q < getTotalQueues(); q++) {
+            int length = getQueueLength(q);
+            if (length < shortestLength) {
+                shortest = q;
+                shortestLength = length;
+            }
+        }
+        return shortest;
+    }
+}
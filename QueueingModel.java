@@ -0,0 +1,322 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+/**
+ * Closed-form steady-state estimates of a bank from queueing theory, computed in
+ * microseconds instead of simulating thousands of customers. A single queue served
+ * by c tellers is an M/M/c queue solved exactly with the Erlang C formula when
+ * arrivals and service times are exponential, and otherwise a G/G/c queue estimated
+ * with the Allen-Cunneen approximation, which scales the M/M/c wait by the average
+ * squared coefficient of variation of arrivals and service times. In a multi-line
+ * bank every group of queues sharing tellers is estimated on its own with its share
+ * of the arrivals, so the usual layout of one teller per queue becomes one M/M/1 (or
+ * G/G/1) queue per teller.
+ *
+ * The estimates take the same arrival and service parameters as the simulator:
+ * distributions give their mean and variance, while random data sets and traces are
+ * scanned once for them. They describe the long run of a bank whose queues have no
+ * limit, and assume arrivals are split between lines without looking at them.
+ * Shortest-queue routing and work stealing shorten the waits of a multi-line bank,
+ * so a simulation remains the way to measure those, and the two cross-check each other.
+ */
+public class QueueingModel {
+
+    public static final double MICROS_PER_SECOND = 1e6;    /* microseconds in a second */
+
+    private final String model;                 /* Kendall notation of the model used, such as M/M/3 */
+    private final boolean exact;                /* whether the formulas are exact for the model */
+    private final double waitMicros;            /* expected time a customer waits in line */
+    private final double serviceMicros;         /* expected service time */
+    private final double utilization;           /* expected fraction of time tellers are busy */
+    private final double queueLength;           /* expected number of customers waiting in line */
+    private final double probabilityOfWaiting;  /* probability that an arriving customer has to wait */
+
+    /**
+     * Constructs an estimate.
+     * @param model the Kendall notation of the model used
+     * @param exact whether the formulas are exact for the model
+     * @param waitMicros the expected wait in microseconds
+     * @param serviceMicros the expected service time in microseconds
+     * @param utilization the expected fraction of time tellers are busy
+     * @param queueLength the expected number of customers waiting
+     * @param probabilityOfWaiting the probability that an arriving customer waits
+     */
+    private QueueingModel(String model, boolean exact, double waitMicros, double serviceMicros, double utilization,
+            double queueLength, double probabilityOfWaiting) {
+        this.model = model;
+        this.exact = exact;
+        this.waitMicros = waitMicros;
+        this.serviceMicros = serviceMicros;
+        this.utilization = utilization;
+        this.queueLength = queueLength;
+        this.probabilityOfWaiting = probabilityOfWaiting;
+    }
+
+    /**
+     * Estimates a bank from its configuration.
+     * @param config the layout of the bank and its arrival and service times
+     * @return the estimate
+     * @throws IllegalArgumentException if the times come from a data set or trace of no customers
+     */
+    public static QueueingModel estimate(SimulationConfig config) {
+        double[] arrivals = moments(config.getArrivals(), config.newArrivalStream(config.getSeed()), config.getMaxCustomers());
+        double[] services = moments(config.getServices(), config.newServiceStream(config.getSeed()), config.getMaxCustomers());
+        int totalQueues = config.getTotalQueues();
+
+        /* group the queues that share tellers; each group is one station */
+        int[] group = new int[totalQueues];
+        for (int q = 0; q < totalQueues; q++) {
+            group[q] = q;
+        }
+        for (int t = 0; t < config.getTotalTellers(); t++) {
+            int[] queues = config.getQueuesOfTeller(t);
+            for (int i = 1; i < queues.length; i++) {
+                group[findGroup(group, queues[i])] = findGroup(group, queues[0]);
+            }
+        }
+        int[] groupQueues = new int[totalQueues];
+        int[] groupTellers = new int[totalQueues];
+        for (int q = 0; q < totalQueues; q++) {
+            groupQueues[findGroup(group, q)] += 1;
+        }
+        for (int t = 0; t < config.getTotalTellers(); t++) {
+            groupTellers[findGroup(group, config.getQueuesOfTeller(t)[0])] += 1;
+        }
+
+        /* estimate every station with its share of the arrivals and combine them */
+        double arrivalScv = squaredCoefficientOfVariation(arrivals);
+        String model = null;
+        boolean sameModel = true;
+        int stations = 0;
+        boolean exact = true;
+        double waitMicros = 0;
+        double queueLength = 0;
+        double probabilityOfWaiting = 0;
+        for (int g = 0; g < totalQueues; g++) {
+            if (groupQueues[g] == 0) {
+                continue;
+            }
+            double share = (double) groupQueues[g] / totalQueues;
+            double stationScv;
+            if (share == 1) {
+                stationScv = arrivalScv;
+            } else if (RoutingPolicy.ROUND_ROBIN.equals(config.getRouting())) {
+                stationScv = share * arrivalScv;
+            } else {
+                stationScv = share * arrivalScv + 1 - share;
+            }
+            double stationMean = arrivals[0] / share;
+            QueueingModel station = estimate(stationMean, stationScv * stationMean * stationMean, services[0], services[1], groupTellers[g]);
+            sameModel &= model == null || model.equals(station.model);
+            model = model == null ? station.model : model;
+            stations += 1;
+            exact &= station.exact;
+            waitMicros += share * station.waitMicros;
+            queueLength += station.queueLength;
+            probabilityOfWaiting += share * station.probabilityOfWaiting;
+        }
+        if (stations > 1) {
+            model = (sameModel ? stations + " x " + model : "mixed " + stations + " stations");
+        }
+        double utilization = services[0] / arrivals[0] / config.getTotalTellers();
+        return new QueueingModel(model, exact, waitMicros, services[0] * MICROS_PER_SECOND, utilization, queueLength, probabilityOfWaiting);
+    }
+
+    /**
+     * Estimates a single queue served by identical servers.
+     * @param arrivalMean the mean delay between arrivals in seconds
+     * @param arrivalVariance the variance of the delays between arrivals in seconds squared
+     * @param serviceMean the mean service time in seconds
+     * @param serviceVariance the variance of service times in seconds squared
+     * @param servers the number of servers
+     * @return the estimate, with infinite wait and queue length if the queue cannot keep up
+     */
+    public static QueueingModel estimate(double arrivalMean, double arrivalVariance, double serviceMean, double serviceVariance, int servers) {
+        if (arrivalMean <= 0 || serviceMean < 0 || arrivalVariance < 0 || serviceVariance < 0) {
+            throw new IllegalArgumentException("Arrival delays need a positive mean; means and variances cannot be negative.");
+        }
+        if (servers < 1) {
+            throw new IllegalArgumentException("A queue needs at least one server.");
+        }
+        double arrivalScv = arrivalVariance / (arrivalMean * arrivalMean);
+        double serviceScv = serviceMean > 0 ? serviceVariance / (serviceMean * serviceMean) : 0;
+        String model = kendallLetter(arrivalScv, false) + "/" + kendallLetter(serviceScv, true) + "/" + servers;
+        boolean exact = arrivalScv == 1 && (serviceScv == 1 || servers == 1);
+        double offeredLoad = serviceMean / arrivalMean;
+        double utilization = offeredLoad / servers;
+        if (utilization >= 1) {
+            return new QueueingModel(model, exact, Double.POSITIVE_INFINITY, serviceMean * MICROS_PER_SECOND, utilization,
+                    Double.POSITIVE_INFINITY, 1);
+        }
+        double probabilityOfWaiting = erlangC(servers, offeredLoad);
+        double wait = probabilityOfWaiting * serviceMean / (servers - offeredLoad) * (arrivalScv + serviceScv) / 2;
+        return new QueueingModel(model, exact, wait * MICROS_PER_SECOND, serviceMean * MICROS_PER_SECOND, utilization,
+                wait / arrivalMean, probabilityOfWaiting);
+    }
+
+    /**
+     * Computes the Erlang C formula: the probability that a customer arriving at an
+     * M/M/c queue finds every server busy. It is derived from the Erlang B recursion,
+     * which stays accurate for any number of servers.
+     * @param servers the number of servers
+     * @param offeredLoad the arrival rate times the mean service time
+     * @return the probability of waiting, 1 if the servers cannot keep up
+     */
+    public static double erlangC(int servers, double offeredLoad) {
+        if (servers < 1 || offeredLoad < 0) {
+            throw new IllegalArgumentException("Erlang C needs at least one server and a non-negative load.");
+        }
+        if (offeredLoad >= servers) {
+            return 1;
+        }
+        double blocking = 1;
+        for (int k = 1; k <= servers; k++) {
+            blocking = offeredLoad * blocking / (k + offeredLoad * blocking);
+        }
+        double utilization = offeredLoad / servers;
+        return blocking / (1 - utilization * (1 - blocking));
+    }
+
+    /**
+     * Finds the group a queue belongs to, shortening the path on the way.
+     * @param group the parent of every queue, queues at the top being their own parent
+     * @param queue the queue
+     * @return the queue at the top of its group
+     */
+    private static int findGroup(int[] group, int queue) {
+        while (group[queue] != queue) {
+            group[queue] = group[group[queue]];
+            queue = group[queue];
+        }
+        return queue;
+    }
+
+    /**
+     * Finds the mean and variance of a series of times, from its distribution if there
+     * is one and otherwise by reading the times a simulation would use.
+     * @param distribution the distribution of the times, or null
+     * @param stream the stream of the times, read when there is no distribution
+     * @param count the number of times in the stream
+     * @return the mean and variance in seconds
+     */
+    private static double[] moments(Distribution distribution, TimeStream stream, int count) {
+        if (distribution != null) {
+            return new double[] { distribution.getMean(), distribution.getVariance() };
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("Times replayed from a data set or trace need at least one customer.");
+        }
+        SummaryStatistics times = new SummaryStatistics();
+        long clock = 0;
+        for (int i = 0; i < count; i++) {
+            long ticks = stream.nextTicks(clock);
+            clock += ticks;
+            times.add((double) ticks / EventDrivenSimulation.TICKS_PER_SECOND);
+        }
+        return new double[] { times.getMean(), times.getVariance() };
+    }
+
+    /**
+     * Computes the squared coefficient of variation, the variance over the squared mean.
+     * @param moments the mean and variance
+     * @return the squared coefficient of variation, 0 for a mean of 0
+     */
+    private static double squaredCoefficientOfVariation(double[] moments) {
+        return moments[0] > 0 ? moments[1] / (moments[0] * moments[0]) : 0;
+    }
+
+    /**
+     * Names a distribution in Kendall notation from its squared coefficient of variation.
+     * @param scv the squared coefficient of variation
+     * @param service whether the distribution is of service times, which can be deterministic
+     * @return M for exponential, D for deterministic service or G for general
+     */
+    private static String kendallLetter(double scv, boolean service) {
+        if (scv == 1) {
+            return "M";
+        }
+        return service && scv == 0 ? "D" : "G";
+    }
+
+    /**
+     * Retrieves the model the estimate comes from.
+     * @return the Kendall notation, such as M/M/3 or 3 x G/G/1 for three separate lines
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * Checks whether the estimate is exact rather than an approximation: Erlang C for
+     * M/M/c and Pollaczek-Khinchine (which Allen-Cunneen reduces to) for M/G/1.
+     * @return true if every station's formulas are exact
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Checks whether the tellers can keep up with the arrivals in the long run.
+     * @return false if some line grows without limit
+     */
+    public boolean isStable() {
+        return !Double.isInfinite(waitMicros);
+    }
+
+    /**
+     * Retrieves the expected time a customer waits in line before service.
+     * @return the wait in microseconds, infinite if the bank is not stable
+     */
+    public double getWaitMicros() {
+        return waitMicros;
+    }
+
+    /**
+     * Retrieves the expected service time.
+     * @return the service time in microseconds
+     */
+    public double getServiceMicros() {
+        return serviceMicros;
+    }
+
+    /**
+     * Retrieves the expected time a customer spends in the bank, waiting and being served.
+     * @return the response time in microseconds, infinite if the bank is not stable
+     */
+    public double getResponseMicros() {
+        return waitMicros + serviceMicros;
+    }
+
+    /**
+     * Retrieves the expected fraction of time tellers are busy, over every teller: the
+     * arrival rate times the mean service time, per teller.
+     * @return the utilization, 1 or more if the tellers cannot keep up at all
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * Retrieves the expected number of customers waiting in line, over every line.
+     * @return the queue length, infinite if the bank is not stable
+     */
+    public double getQueueLength() {
+        return queueLength;
+    }
+
+    /**
+     * Retrieves the probability that an arriving customer has to wait.
+     * @return the probability of waiting
+     */
+    public double getProbabilityOfWaiting() {
+        return probabilityOfWaiting;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s%s: wait %.3f us, utilization %.4f, queue length %.4f, P(wait) %.4f",
+                model, exact ? "" : " (approx.)", waitMicros, utilization, queueLength, probabilityOfWaiting);
+    }
+}
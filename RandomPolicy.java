@@ -0,0 +1,38 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+/**
+ * Sends each customer to a queue chosen uniformly at random.
+ */
+public class RandomPolicy implements RoutingPolicy {
+
+    private final SplitMixRandom random;    /* source of the chosen queues */
+
+    /**
+     * Constructs a random routing policy.
+     * @param seed the seed of the random choices
+     */
+    public RandomPolicy(long seed) {
+        this.random = new SplitMixRandom(seed);
+    }
+
+    @Override
+    public int selectQueue(QueueState state) {
+        return random.nextInt(state.getTotalQueues());
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        random.writeTo(out);
+    }
+
+    @Override
+    public void readFrom(DataInput in) throws IOException {
+        random.readFrom(in);
+    }
+}
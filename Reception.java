@@ -3,139 +3,229 @@
  * Single VS Multi-Line Queues by Pao Yu
  */
 
-import java.util.Comparator;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
 /**
  * Represents a bank receptionist which can receive customers and place them in multiple queues.
- * Extends the thread class so it is able to operate and run its tasks independently from other objects.
+ * A reception is a SimulationActor, so it can run on a thread of its own or share
+ * carrier threads with tellers through an ActorScheduler. With limited queues, a
+ * customer routed to a full queue is rejected, held at the door or balks.
  */
-public class Reception extends Thread {
-    
-    private static int timeAcceleration = 1;    /* accelerates the time using an integer factor */
-    private Queue<Customer> queue1;             /* the 1st queue the receptionist is in charge of */
-    private Queue<Customer> queue2;             /* the 2nd queue the receptionist is in charge of */
-    private Queue<Customer> queue3;             /* the 3rd queue the receptionist is in charge of */
-    ArrayList<Queue<Customer>> queueList;       /* the 1st, 2nd and 3rd queues as an array list */
-    private static int totalCustomersRemaining = 0; /* the remaining customers the receptionist must serve */
-    private static int totalCustomersArrived = 0;   /* the total customers placed in the queue */
-    private int[] randomEnqueueTime;            /* a data set containing random integers */
+public class Reception implements SimulationActor {
+
+    private static final long BLOCKED_RETRY_NANOS = 100000L;   /* how often a blocked reception checks for room */
+
+    private SimulationContext context;          /* state shared with the rest of the simulation */
+    private ConcurrentQueue<Customer> queue1;   /* the 1st queue the receptionist is in charge of */
+    ArrayList<ConcurrentQueue<Customer>> queueList; /* all the queues the receptionist is in charge of */
+    private TimeStream arrivals;                /* the simulated delays between customers */
+    private TimeStream services;                /* the simulated service times customers will need */
+    private long arrivalClock;                  /* the simulated time of the last arrival in ticks */
     private boolean multiQueueEnabled;          /* enables/disables multi-queue capability */
-    private boolean debugMode = true;           /* enables/disables console output display */
+    private RoutingPolicy routingPolicy;        /* decides which queue each customer joins */
+    private QueueState queueState = new ReceptionQueueState(); /* the queues as seen by the routing policy */
+    private int queueCapacity;                  /* the most customers waiting in one queue, 0 for no limit */
+    private String overflow = SimulationConfig.OVERFLOW_GROW; /* what happens to a customer routed to a full queue */
+    private Customer blockedCustomer;           /* the customer held at the door, or null */
+    private ConcurrentQueue<Customer> blockedQueue; /* the full queue the held customer waits to join */
+    private long blockedSince;                  /* when the held customer started waiting at the door */
+    private SimulationConfig classConfig;       /* the bank whose customer classes arriving customers are drawn from, or null */
+    private RandomGenerator classRandom;        /* draws the class of each arriving customer */
+    private final LongAdder arrivedCounter;     /* metric of the customers received */
+    private final LongAdder balkedCounter;      /* metric of the customers who left because their queue was full */
 
     /**
      * Constructs a reception object in charge of 1 queue.
+     * @param context the state shared by the simulation the reception works in
      * @param queue the queue that the reception will funnel customers to
-     * @param totalMaxCustomers the target customer number reception will serve
-     * @param timeAccelerationFactor the speed of time the reception will operate
      * @param randomEnqueueTime a random data set of integers to control enqueue times
+     * @param randomDequeueTime a random data set of integers giving the customers' service times
      */
-    public Reception (Queue<Customer> queue1, int totalMaxCustomers, int timeAccelerationFactor, int[] randomEnqueueTime) { 
-        this.queue1 = queue1;
-        this.randomEnqueueTime = randomEnqueueTime;
-        totalCustomersRemaining = totalMaxCustomers;
-        if (timeAccelerationFactor <= 0) {
-            timeAcceleration = 1;
-        } else {
-            timeAcceleration = timeAccelerationFactor;
-        }
+    public Reception (SimulationContext context, ConcurrentQueue<Customer> queue1, int[] randomEnqueueTime, int[] randomDequeueTime) { 
+        this(context, List.of(queue1), TimeStream.of(randomEnqueueTime), TimeStream.of(randomDequeueTime), new JoinShortestQueuePolicy());
     }
 
     /**
-     * Constructs a reception object in charge of 3 queues.
-     * @param queue1 a queue that the reception will funnel customers to
-     * @param queue2 a queue that the reception will funnel customers to
-     * @param queue3 a queue that the reception will funnel customers to
-     * @param totalMaxCustomers the target customer number reception will serve
-     * @param timeAccelerationFactor the speed of time the reception will operate
-     * @param randomEnqueueTime a random data set of integers to control enqueue times
-     * @param enableMultiQueue switches the operation of the reception to handle multiple queues
+     * Constructs a reception object in charge of any number of queues.
+     * @param context the state shared by the simulation the reception works in
+     * @param queues the queues that the reception will funnel customers to
+     * @param arrivals the simulated delays between customers
+     * @param services the simulated service times, drawn as each customer arrives
+     * @param routingPolicy decides which queue each customer joins when there are several
      */
-    public Reception (Queue<Customer> queue1, Queue<Customer> queue2, Queue<Customer> queue3, int totalMaxCustomers, int timeAccelerationFactor, int[] randomEnqueueTime, boolean enableMultiQueue) { 
-        this.multiQueueEnabled = enableMultiQueue;
-        this.queue1 = queue1;
-        this.queue2 = queue2;
-        this.queue3 = queue3;
-        this.randomEnqueueTime = randomEnqueueTime;
-        totalCustomersRemaining = totalMaxCustomers;
-        if (timeAccelerationFactor <= 0) {
-            timeAcceleration = 1;
-        } else {
-            timeAcceleration = timeAccelerationFactor;
+    public Reception (SimulationContext context, List<ConcurrentQueue<Customer>> queues, TimeStream arrivals, TimeStream services, RoutingPolicy routingPolicy) { 
+        this.context = context;
+        this.multiQueueEnabled = queues.size() > 1;
+        this.queue1 = queues.get(0);
+        this.arrivals = arrivals;
+        this.services = services;
+        this.routingPolicy = routingPolicy;
+        queueList = new ArrayList<ConcurrentQueue<Customer>>(queues);
+        arrivedCounter = context.getMetrics().counter("customers.arrived");
+        balkedCounter = context.getMetrics().counter("customers.balked");
+    }
+
+    /**
+     * Limits how many customers can wait in each queue.
+     * @param queueCapacity the most customers waiting in one queue, at least 1
+     * @param overflow SimulationConfig.OVERFLOW_REJECT, OVERFLOW_BLOCK or OVERFLOW_BALK
+     */
+    public void limitQueues(int queueCapacity, String overflow) {
+        this.queueCapacity = queueCapacity;
+        this.overflow = overflow;
+    }
+
+    /**
+     * Assigns each arriving customer a class of a bank, drawn in proportion to the classes' shares.
+     * Without this every customer is of class 0.
+     * @param config the bank whose customer classes are drawn from
+     * @param classRandom the stream created by config.newClassRandom
+     */
+    public void classifyCustomers(SimulationConfig config, RandomGenerator classRandom) {
+        this.classConfig = config;
+        this.classRandom = classRandom;
+    }
+
+    /**
+     * Generate a time delay from the arrival stream, scaled by the time acceleration.
+     * While a customer is held at the door, no one else arrives and the reception
+     * checks back shortly instead.
+     * @return the delay in nanoseconds before the next customer arrives
+     */
+    @Override
+    public long nextDelayNanos() {
+        if (blockedCustomer != null) {
+            return BLOCKED_RETRY_NANOS;
         }
-        queueList = new ArrayList<Queue<Customer>>();
-        queueList.add(queue1);
-        queueList.add(queue2);
-        queueList.add(queue3);
+        long simulatedDelay = arrivals.nextTicks(arrivalClock);
+        arrivalClock += simulatedDelay;
+        return simulatedDelay / context.getTimeAcceleration();
     }
 
     /**
-     * The main Thread task that the reception object will run upon starting.
-     * Will run until the target customer level is reached. A time delay will
-     * activate depending on the current customer count. Will add the customer
-     * the shortest queue if multiQueue is enabled.
+     * One step of the reception's work: receives a customer and adds them to
+     * the queue chosen by the routing policy if multiQueue is enabled, or lets
+     * the customer held at the door join their queue once it has room.
+     * Once the target customer level is reached, closes every queue so that
+     * tellers stop as soon as they have served the customers left in them.
+     * @return true until the target customer level is reached
      */
-    public void run() {
-        do {
-            controlledRandomTimePasses(totalCustomersArrived);
-            System.out.flush();
+    @Override
+    public boolean step() {
+        if (blockedCustomer != null) {
+            if (!hasRoom(blockedQueue)) {
+                return true;
+            }
+            arrivalClock += (System.nanoTime() - blockedSince) * context.getTimeAcceleration();
+            placeCustomer(blockedCustomer, blockedQueue);
+            blockedCustomer = null;
+        } else {
+            context.customerArrived();
+            arrivedCounter.increment();
             if (multiQueueEnabled) {
-                addCustomerToShortestQueue();
+                addCustomerToRoutedQueue();
             } else {
                 addCustomerToQueue();
             }
-            totalCustomersArrived += 1;
-        } while (totalCustomersRemaining > 0);
+        }
+        if (blockedCustomer != null || context.getTotalCustomersRemaining() > 0) {
+            return true;
+        }
+        for (ConcurrentQueue<Customer> queue : queueList) {
+            queue.close();
+        }
+        return false;
     }
 
     /**
      * Adds a customer to the receptionist's queue if there are only 1.
      */
     public void addCustomerToQueue() {
-        if (!queue1.isFull()) {
-            Customer anonymousCustomer = new Customer();
-            queue1.enqueue(anonymousCustomer);
-            if (debugMode)
-                System.out.println("Customer " + (anonymousCustomer.getCustomerID() + 1) + " added to Queue " + queue1.getQueueID() + ".");
-            totalCustomersRemaining -= 1;
-        }
+        addCustomerTo(queue1);
     }
 
     /**
-     * Adds a customer to the shortest queue by sorting the queues in the array list according to size, and placing the customer in the queue with the smallest size
+     * Adds a customer to the queue chosen by the routing policy. The queues' sizes are
+     * read without locking, so under heavy concurrency the choice may be based on
+     * slightly stale sizes.
      */
-    public void addCustomerToShortestQueue() {
-        synchronized (queueList) {
-        queueList.sort(new QueueSizeComparator());
-            if (!queueList.get(0).isFull()) {
-                Customer anonymousCustomer = new Customer();
-                queueList.get(0).enqueue(anonymousCustomer);
-                if (debugMode)
-                    System.out.println("Customer " + (anonymousCustomer.getCustomerID() + 1) + " added to Queue " + queueList.get(0).getQueueID() + ".");
-                totalCustomersRemaining -= 1;
+    public void addCustomerToRoutedQueue() {
+        addCustomerTo(queueList.get(routingPolicy.selectQueue(queueState)));
+    }
+
+    /**
+     * Adds a new customer to a queue, drawing the service time they will need.
+     * If the queue is full, the overflow policy decides what happens to the customer.
+     * @param queue the queue the customer joins
+     * @throws IllegalStateException if the queue is full and the policy is to reject
+     */
+    private void addCustomerTo(ConcurrentQueue<Customer> queue) {
+        int customerClass = classConfig != null ? classConfig.drawCustomerClass(classRandom) : 0;
+        Customer anonymousCustomer = new Customer(context.nextCustomerID(), arrivalClock, services.nextTicks(arrivalClock), customerClass);
+        if (hasRoom(queue)) {
+            placeCustomer(anonymousCustomer, queue);
+        } else if (SimulationConfig.OVERFLOW_BLOCK.equals(overflow)) {
+            blockedCustomer = anonymousCustomer;
+            blockedQueue = queue;
+            blockedSince = System.nanoTime();
+        } else if (SimulationConfig.OVERFLOW_BALK.equals(overflow)) {
+            context.customerBalked();
+            balkedCounter.increment();
+            TraceWriter traceWriter = context.getTraceWriter();
+            if (traceWriter.isEnabled()) {
+                traceWriter.customerBalked(anonymousCustomer.getCustomerID(), anonymousCustomer.getArrivalTime(),
+                        anonymousCustomer.getServiceTime(), queue.getQueueID() - 1);
+            }
+        } else {
+            for (ConcurrentQueue<Customer> closingQueue : queueList) {
+                closingQueue.close();
             }
+            throw new IllegalStateException("Queue " + queue.getQueueID() + " is full: customer " + anonymousCustomer.getCustomerID() + " was rejected.");
         }
     }
 
     /**
-     * Generate a time delay based on a random integer data set provided.
-     * @param randomDataIndex the current item in the data set to be used for the time delay.
+     * Checks whether a customer can join a queue. The reception is the only one
+     * adding customers, so a queue with room still has it when the customer joins.
+     * @param queue the queue
+     * @return true if fewer customers than the queue capacity are waiting in it
      */
-    public void controlledRandomTimePasses(int randomDataIndex) {
-        try {
-            int randomCustomerArrivalDelay = randomEnqueueTime[randomDataIndex];
-            sleep((1000 / timeAcceleration) * randomCustomerArrivalDelay);
-        } catch (Exception e) {
-            System.out.println("Error: Unable to delay time!");
-        }
+    private boolean hasRoom(ConcurrentQueue<Customer> queue) {
+        return (queueCapacity == 0 || queue.size() < queueCapacity) && !queue.isFull();
+    }
+
+    /**
+     * Places a customer in a queue.
+     * @param customer the customer
+     * @param queue the queue the customer joins
+     */
+    private void placeCustomer(Customer customer, ConcurrentQueue<Customer> queue) {
+        context.addQueuedWork(queue.getQueueID(), customer.getServiceTime());
+        context.getEventLog().customerQueued(customer.getCustomerID(), queue.getQueueID());
+        queue.offer(customer);
+        context.customerQueued();
     }
 
     /**
-     * A comparator object that enables comparison between queues and their sizes
+     * The reception's queues as seen by its routing policy.
      */
-    public class QueueSizeComparator implements Comparator<Queue<Customer>> {
+    private class ReceptionQueueState implements QueueState {
+
         @Override
-        public int compare(Queue<Customer> q1, Queue<Customer> q2) {
-        return Integer.compare(q1.size(), q2.size());
+        public int getTotalQueues() {
+            return queueList.size();
+        }
+
+        @Override
+        public int getQueueLength(int queue) {
+            return queueList.get(queue).size();
+        }
+
+        @Override
+        public double getQueuedWork(int queue) {
+            return (double) context.getQueuedWork(queueList.get(queue).getQueueID()) / EventDrivenSimulation.TICKS_PER_SECOND;
         }
     }
 
@@ -144,19 +234,10 @@ public class Reception extends Thread {
      * @return the IDs of all the queue objects in a multiqueue simulation
      */
     public String[] getQueueIDs() {
-        String[] queueIDs = new String[3];
-        queueIDs[0] = queue1.toString();
-        queueIDs[1] = queue2.toString();
-        queueIDs[2] = queue3.toString();
+        String[] queueIDs = new String[queueList.size()];
+        for (int i = 0; i < queueList.size(); i++) {
+            queueIDs[i] = String.valueOf(queueList.get(i).getQueueID());
+        }
         return queueIDs;
     }
-
-    /**
-     * Resets the class for use in another simulation.
-     */
-    public static void resetClass() {
-        timeAcceleration = 1;
-        totalCustomersRemaining = 0;
-        totalCustomersArrived = 0;
-    }
 }
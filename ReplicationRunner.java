@@ -0,0 +1,203 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+/**
+ * Runs many independent replications of the single-queue and multi-queue banks
+ * in parallel on a ForkJoinPool and summarises their average wait times.
+ * Every replication draws its arrival and service times from its own random
+ * stream split from one seed, so the results do not depend on how the work is
+ * scheduled. Both banks of a replication see the same customers, which makes
+ * their paired difference much less noisy than either wait time alone.
+ */
+public class ReplicationRunner {
+
+    private int totalReplications;  /* the number of independent replications */
+    private int maxCustomers;       /* the number of customers served per replication */
+    private int totalTellers;       /* the number of tellers in each bank */
+    private int minTime;            /* the smallest arrival delay or service time */
+    private int maxTime;            /* the largest arrival delay or service time */
+    private long seed;              /* the seed every random stream is split from */
+    private int parallelism;        /* the number of worker threads */
+
+    private ReplicationTotals results;  /* the combined statistics of the last run */
+    private double elapsedSeconds;      /* the wall-clock duration of the last run */
+
+    /**
+     * Constructs a replication runner.
+     * @param replications the number of independent replications
+     * @param maxCustomers the number of customers served per replication
+     * @param tellers the number of tellers in each bank
+     * @param minTime the smallest arrival delay or service time in seconds
+     * @param maxTime the largest arrival delay or service time in seconds
+     * @param seed the seed every replication's random stream is split from
+     * @param parallelism the number of worker threads, or 0 for one per processor
+     */
+    public ReplicationRunner(int replications, int maxCustomers, int tellers, int minTime, int maxTime, long seed, int parallelism) {
+        if (replications <= 0) {
+            throw new IllegalArgumentException("At least one replication is required.");
+        }
+        if (minTime <= 0 || maxTime < minTime) {
+            throw new IllegalArgumentException("Invalid time range: " + minTime + " to " + maxTime);
+        }
+        this.totalReplications = replications;
+        this.maxCustomers = maxCustomers;
+        this.totalTellers = tellers;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.seed = seed;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Runs every replication and combines their results.
+     */
+    public void run() {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[totalReplications];
+        for (int r = 0; r < totalReplications; r++) {
+            streams[r] = root.split();
+        }
+        int leafSize = Math.max(1, totalReplications / (parallelism * 8));
+        long startTime = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            results = pool.invoke(new ReplicationTask(streams, 0, totalReplications, leafSize));
+        } finally {
+            pool.shutdown();
+        }
+        elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+    }
+
+    /**
+     * Runs the replications in a range, splitting the range in half while it is large.
+     */
+    private class ReplicationTask extends RecursiveTask<ReplicationTotals> {
+
+        private static final long serialVersionUID = 1L;    /* tasks are never serialized */
+        private final SplittableRandom[] streams;   /* the random stream of every replication */
+        private final int from;         /* first replication of the range */
+        private final int to;           /* one past the last replication of the range */
+        private final int leafSize;     /* largest range run without splitting */
+
+        ReplicationTask(SplittableRandom[] streams, int from, int to, int leafSize) {
+            this.streams = streams;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected ReplicationTotals compute() {
+            if (to - from <= leafSize) {
+                return runRange();
+            }
+            int middle = (from + to) >>> 1;
+            ReplicationTask lower = new ReplicationTask(streams, from, middle, leafSize);
+            ReplicationTask upper = new ReplicationTask(streams, middle, to, leafSize);
+            lower.fork();
+            ReplicationTotals totals = upper.compute();
+            totals.merge(lower.join());
+            return totals;
+        }
+
+        /**
+         * Runs the replications of this range one after another, reusing the two simulations.
+         * Times are drawn lazily, so memory does not grow with the number of customers.
+         */
+        private ReplicationTotals runRange() {
+            ReplicationTotals totals = new ReplicationTotals();
+            Distribution times = Distribution.uniformInt(minTime, maxTime);
+            SimulationConfig.Builder builder = SimulationConfig.builder()
+                    .customers(maxCustomers)
+                    .tellers(totalTellers)
+                    .arrivals(times)
+                    .services(times);
+            EventDrivenSimulation singleQueue = new EventDrivenSimulation(builder.queues(1).build());
+            EventDrivenSimulation multiQueue = new EventDrivenSimulation(builder.queues(totalTellers).build());
+            for (int r = from; r < to; r++) {
+                long replicationSeed = streams[r].nextLong();
+                singleQueue.run(replicationSeed);
+                multiQueue.run(replicationSeed);
+                double singleWait = singleQueue.getCustomerWaitTimeAverage();
+                double multiWait = multiQueue.getCustomerWaitTimeAverage();
+                totals.singleQueueWait.add(singleWait);
+                totals.multiQueueWait.add(multiWait);
+                totals.waitDifference.add(multiWait - singleWait);
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * The statistics of a group of replications.
+     */
+    public static class ReplicationTotals {
+
+        private final SummaryStatistics singleQueueWait = new SummaryStatistics();  /* average wait per replication, single queue */
+        private final SummaryStatistics multiQueueWait = new SummaryStatistics();   /* average wait per replication, multi-queue */
+        private final SummaryStatistics waitDifference = new SummaryStatistics();   /* multi-queue minus single queue wait */
+
+        /**
+         * Adds the statistics of another group of replications.
+         * @param other the group to merge in
+         */
+        void merge(ReplicationTotals other) {
+            singleQueueWait.merge(other.singleQueueWait);
+            multiQueueWait.merge(other.multiQueueWait);
+            waitDifference.merge(other.waitDifference);
+        }
+
+        /**
+         * Retrieves the average wait times of the single-queue bank.
+         * @return one observation per replication
+         */
+        public SummaryStatistics getSingleQueueWait() {
+            return singleQueueWait;
+        }
+
+        /**
+         * Retrieves the average wait times of the multi-queue bank.
+         * @return one observation per replication
+         */
+        public SummaryStatistics getMultiQueueWait() {
+            return multiQueueWait;
+        }
+
+        /**
+         * Retrieves how much longer customers waited in the multi-queue bank.
+         * @return one paired observation per replication
+         */
+        public SummaryStatistics getWaitDifference() {
+            return waitDifference;
+        }
+    }
+
+    /**
+     * Retrieves the combined statistics of the last run.
+     * @return the replication totals, or null before the first run
+     */
+    public ReplicationTotals getResults() {
+        return results;
+    }
+
+    /**
+     * Retrieves the wall-clock duration of the last run.
+     * @return the duration in seconds
+     */
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * Retrieves the number of replications completed per wall-clock second in the last run.
+     * @return the replication throughput
+     */
+    public double getReplicationsPerSecond() {
+        return elapsedSeconds > 0 ? totalReplications / elapsedSeconds : 0;
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+/**
+ * Sends customers to each queue in turn, whatever their lengths.
+ */
+public class RoundRobinPolicy implements RoutingPolicy {
+
+    private int nextQueue;  /* the queue the next customer joins */
+
+    @Override
+    public int selectQueue(QueueState state) {
+        int queue = nextQueue;
+        if (queue >= state.getTotalQueues()) {
+            queue = 0;
+        }
+        nextQueue = queue + 1;
+        return queue;
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(nextQueue);
+    }
+
+    @Override
+    public void readFrom(DataInput in) throws IOException {
+        nextQueue = in.readInt();
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+/**
+ * Decides which queue an arriving customer joins. A policy instance belongs to one
+ * reception of one simulation and is not thread-safe. Policies are named so that a
+ * SimulationConfig can carry them as plain text:
+ * "join-shortest-queue", "power-of-D" (for example "power-of-2"), "round-robin",
+ * "random" and "least-work".
+ */
+public interface RoutingPolicy {
+
+    String JOIN_SHORTEST_QUEUE = "join-shortest-queue";
+    String POWER_OF_TWO_CHOICES = "power-of-2";
+    String ROUND_ROBIN = "round-robin";
+    String RANDOM = "random";
+    String LEAST_WORK = "least-work";
+
+    /**
+     * Chooses the queue a customer joins.
+     * @param state the current state of the bank's queues
+     * @return the index of the chosen queue
+     */
+    int selectQueue(QueueState state);
+
+    /**
+     * Writes the policy's state, such as the position of its random choices, so a
+     * checkpointed simulation routes the same way after it is restored.
+     * Policies that only look at the queues have no state and write nothing.
+     * @param out where the state goes
+     * @throws IOException if writing fails
+     */
+    default void writeTo(DataOutput out) throws IOException {
+    }
+
+    /**
+     * Restores a state written by writeTo of a policy of the same name.
+     * @param in where the state is read from
+     * @throws IOException if reading fails
+     */
+    default void readFrom(DataInput in) throws IOException {
+    }
+
+    /**
+     * Creates a policy from its name.
+     * @param name the policy name
+     * @param seed the seed of the policy's random choices, if it makes any
+     * @return a new policy
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static RoutingPolicy create(String name, long seed) {
+        switch (name) {
+            case JOIN_SHORTEST_QUEUE:
+                return new JoinShortestQueuePolicy();
+            case ROUND_ROBIN:
+                return new RoundRobinPolicy();
+            case RANDOM:
+                return new RandomPolicy(seed);
+            case LEAST_WORK:
+                return new LeastWorkPolicy();
+            default:
+                return new PowerOfChoicesPolicy(choicesOf(name), seed);
+        }
+    }
+
+    /**
+     * Checks that a name is one create accepts, without creating a policy.
+     * @param name the policy name
+     * @return the name
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static String checkName(String name) {
+        switch (name) {
+            case JOIN_SHORTEST_QUEUE:
+            case ROUND_ROBIN:
+            case RANDOM:
+            case LEAST_WORK:
+                return name;
+            default:
+                choicesOf(name);
+                return name;
+        }
+    }
+
+    /**
+     * Reads the number of queues a "power-of-D" policy samples from its name.
+     * @param name the policy name
+     * @return D, at least 1
+     * @throws IllegalArgumentException if the name is not a valid "power-of-D" name
+     */
+    private static int choicesOf(String name) {
+        if (!name.startsWith("power-of-")) {
+            throw new IllegalArgumentException("Unknown routing policy: " + name);
+        }
+        int choices;
+        try {
+            choices = Integer.parseInt(name.substring("power-of-".length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number of choices in routing policy: " + name);
+        }
+        if (choices < 1) {
+            throw new IllegalArgumentException("At least one queue must be sampled.");
+        }
+        return choices;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+/**
+ * Compares the cost of choosing the shortest queue per arriving customer:
+ * sorting the queue list (the original reception), scanning every queue once,
+ * sampling two random queues, and reading a QueueLengthIndex. Each operation
+ * also removes a customer from a random queue so queue lengths keep changing.
+ * Run with: java ShortestQueueBenchmark
+ */
+public class ShortestQueueBenchmark {
+
+    private static final int[] QUEUE_COUNTS = { 3, 20, 200 };  /* bank sizes to measure */
+    private static final int WARMUP_OPERATIONS = 2000000;      /* operations run before measuring */
+    private static final int MEASURED_OPERATIONS = 2000000;    /* operations timed per method */
+    private static final String[] METHODS = { "sort", "scan", "two-choices", "indexed-heap" };
+
+    private static volatile int sink;   /* keeps results alive so the work is not optimised away */
+
+    public static void main(String[] args) {
+        System.out.printf("%-8s %-14s %12s\n", "queues", "method", "ns/customer");
+        for (int totalQueues : QUEUE_COUNTS) {
+            for (String method : METHODS) {
+                run(method, totalQueues, WARMUP_OPERATIONS);
+                double nanos = run(method, totalQueues, MEASURED_OPERATIONS);
+                System.out.printf("%-8d %-14s %12.1f\n", totalQueues, method, nanos);
+            }
+        }
+    }
+
+    /**
+     * Runs one selection method for a number of arriving customers.
+     * @param method the selection method name
+     * @param totalQueues the number of queues
+     * @param operations the number of customers to route
+     * @return the average time per customer in nanoseconds
+     */
+    static double run(String method, int totalQueues, int operations) {
+        ArrayList<ConcurrentQueue<Integer>> queues = new ArrayList<ConcurrentQueue<Integer>>();
+        QueueLengthIndex index = new QueueLengthIndex(totalQueues);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int q = 0; q < totalQueues; q++) {
+            queues.add(new MpmcRingQueue<Integer>(1024, q + 1));
+        }
+        for (int i = 0; i < totalQueues * 4; i++) {
+            int q = random.nextInt(totalQueues);
+            queues.get(q).offer(i);
+            index.increment(q);
+        }
+        Integer customer = 1;
+        Comparator<ConcurrentQueue<Integer>> bySize = (q1, q2) -> Integer.compare(q1.size(), q2.size());
+        long startTime = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            ConcurrentQueue<Integer> chosen;
+            int chosenIndex = -1;
+            switch (method) {
+                case "sort":
+                    queues.sort(bySize);
+                    chosen = queues.get(0);
+                    break;
+                case "scan":
+                    chosen = queues.get(0);
+                    for (int q = 1; q < totalQueues; q++) {
+                        if (queues.get(q).size() < chosen.size()) {
+                            chosen = queues.get(q);
+                        }
+                    }
+                    break;
+                case "two-choices":
+                    ConcurrentQueue<Integer> first = queues.get(random.nextInt(totalQueues));
+                    ConcurrentQueue<Integer> second = queues.get(random.nextInt(totalQueues));
+                    chosen = second.size() < first.size() ? second : first;
+                    break;
+                default:
+                    chosenIndex = index.shortest();
+                    chosen = queues.get(chosenIndex);
+                    break;
+            }
+            if (chosen.offer(customer) && chosenIndex >= 0) {
+                index.increment(chosenIndex);
+            }
+            int leaving = random.nextInt(totalQueues);
+            if (queues.get(leaving).poll() != null && method.equals("indexed-heap")) {
+                index.decrement(leaving);
+            }
+        }
+        long elapsed = System.nanoTime() - startTime;
+        sink = queues.get(0).size();
+        return (double) elapsed / operations;
+    }
+}
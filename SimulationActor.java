@@ -0,0 +1,71 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+/**
+ * A participant of the threaded bank, such as a teller or the reception, written
+ * as a series of short steps separated by delays. Run on its own thread, the actor
+ * sleeps through each delay. Run by an ActorScheduler, it holds no thread while
+ * waiting, so many thousands of actors can share a few carrier threads.
+ * Instead of a delay, an actor can wait until its IdleSignal fires.
+ */
+public interface SimulationActor extends Runnable {
+
+    long AWAIT_SIGNAL = -1L;    /* a delay meaning: wait until the actor's idle signal fires */
+
+    /**
+     * Decides how long to wait before the next step. Called once before every step.
+     * @return the delay in nanoseconds, or AWAIT_SIGNAL after arming the actor's idle signal
+     */
+    long nextDelayNanos();
+
+    /**
+     * Performs one step of the actor's work. Must not block.
+     * @return true if the actor has more steps to take, false once it is done
+     */
+    boolean step();
+
+    /**
+     * Retrieves the signal the actor arms before returning AWAIT_SIGNAL.
+     * Whoever runs the actor sets its wake action.
+     * @return the actor's idle signal, or null if the actor never waits for one
+     */
+    default IdleSignal getIdleSignal() {
+        return null;
+    }
+
+    /**
+     * Runs the actor on the calling thread, sleeping through each delay
+     * and parking while it waits for its idle signal. Interrupting the
+     * thread stops the actor, with the thread's interrupt status set.
+     */
+    @Override
+    default void run() {
+        IdleSignal idleSignal = getIdleSignal();
+        if (idleSignal != null) {
+            Thread actorThread = Thread.currentThread();
+            idleSignal.setWakeAction(() -> LockSupport.unpark(actorThread));
+        }
+        do {
+            long delay = nextDelayNanos();
+            if (delay == AWAIT_SIGNAL) {
+                while (idleSignal.isArmed()) {
+                    LockSupport.park(this);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        } while (step());
+    }
+}
@@ -0,0 +1,756 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+import java.util.stream.Collectors;
+/**
+ * Describes the layout of a simulated bank: how many customers it serves, how many
+ * tellers and queues it has, which queues each teller serves, and the distributions
+ * random data sets or recorded trace controlling arrival and service times, and the classes of
+ * customers with the way tellers choose between them. Built with SimulationConfig.builder().
+ * A configuration is immutable once built and can be shared between simulations.
+ */
+public class SimulationConfig {
+
+    public static final String STEAL_FROM_LONGEST = "longest";  /* idle tellers take customers from the longest other queue */
+    public static final String STEAL_FROM_RANDOM = "random";    /* idle tellers take customers from a random other queue */
+    public static final String OVERFLOW_GROW = "grow";          /* queues grow to hold every customer who joins them */
+    public static final String OVERFLOW_REJECT = "reject";      /* a customer routed to a full queue is an error */
+    public static final String OVERFLOW_BLOCK = "block";        /* the reception holds a customer at the door until the queue has room */
+    public static final String OVERFLOW_BALK = "balk";          /* a customer routed to a full queue leaves and is counted */
+    public static final String SCHEDULE_FIFO = "fifo";          /* tellers serve customers in arrival order whatever their class */
+    public static final String SCHEDULE_PRIORITY = "priority";  /* tellers serve the first class with customers waiting */
+    public static final String SCHEDULE_WEIGHTED_FAIR = "weighted-fair"; /* tellers share their services between classes by weight */
+    public static final String SCHEDULE_EDF = "edf";            /* tellers serve the customer whose target wait runs out first */
+
+    private static final int ARRIVAL_STREAM = 0;                /* the random stream of arrival delays */
+    private static final int SERVICE_STREAM = 1;                /* the random stream of service times */
+    private static final int CLASS_STREAM = 2;                  /* the random stream of customer classes */
+    private static final int STEAL_STREAM = 3;                  /* the random stream of steal victims */
+    private static final int ROUTING_STREAM = 4;                /* the random stream of routing choices */
+
+    private final int maxCustomers;             /* the total number of customers the bank will serve */
+    private final int totalTellers;             /* the number of tellers */
+    private final int totalQueues;              /* the number of queues */
+    private final int timeAccelerationFactor;   /* the speed of time of the threaded model */
+    private final int[] randomEnqueueTime;      /* a random data set of arrival delays */
+    private final int[] randomDequeueTime;      /* a random data set of service times */
+    private final Distribution arrivals;        /* the distribution of arrival delays, null when replaying a data set */
+    private final Distribution services;        /* the distribution of service times, null when replaying a data set */
+    private final TraceReader trace;            /* the trace whose arrival and service times are replayed, or null */
+    private final int[][] tellerQueues;         /* the queues each teller serves, in preference order */
+    private final int[][] queueTellers;         /* the tellers serving each queue */
+    private final String routing;               /* the name of the routing policy */
+    private final long seed;                    /* the seed of the simulation's random choices */
+    private final String stealFrom;             /* how idle tellers choose a queue to steal from, null for no stealing */
+    private final int jockeyThreshold;          /* the fewest waiting customers a queue must have to be stolen from */
+    private final int queueCapacity;            /* the most customers waiting in one queue, 0 for no limit */
+    private final String overflow;              /* what happens to a customer routed to a full queue */
+    private final List<CustomerClass> customerClasses; /* the classes of customers, highest priority first */
+    private final double[] classThresholds;     /* the cumulative arrival share of each class, the last one 1 */
+    private final String scheduling;            /* how tellers choose between customer classes */
+
+    /**
+     * Constructs a configuration from a builder.
+     * @param builder the builder holding the settings
+     */
+    private SimulationConfig(Builder builder) {
+        this.maxCustomers = builder.maxCustomers;
+        this.totalTellers = builder.totalTellers;
+        this.totalQueues = builder.totalQueues;
+        this.timeAccelerationFactor = builder.timeAccelerationFactor;
+        this.randomEnqueueTime = builder.randomEnqueueTime;
+        this.randomDequeueTime = builder.randomDequeueTime;
+        this.arrivals = builder.arrivals;
+        this.services = builder.services;
+        this.trace = builder.trace;
+        this.tellerQueues = new int[totalTellers][];
+        for (int t = 0; t < totalTellers; t++) {
+            if (builder.tellerQueues[t] != null) {
+                tellerQueues[t] = builder.tellerQueues[t];
+            } else {
+                tellerQueues[t] = new int[] { t % totalQueues };
+            }
+        }
+        this.queueTellers = invert(tellerQueues, totalQueues);
+        this.routing = builder.routing;
+        this.seed = builder.seed;
+        this.stealFrom = builder.stealFrom;
+        this.jockeyThreshold = builder.jockeyThreshold;
+        this.queueCapacity = builder.queueCapacity;
+        this.overflow = builder.overflow;
+        this.customerClasses = builder.customerClasses;
+        this.classThresholds = new double[customerClasses.size()];
+        double totalShare = customerClasses.stream().mapToDouble(CustomerClass::getShare).sum();
+        double cumulativeShare = 0;
+        for (int c = 0; c < classThresholds.length; c++) {
+            cumulativeShare += customerClasses.get(c).getShare();
+            classThresholds[c] = cumulativeShare / totalShare;
+        }
+        classThresholds[classThresholds.length - 1] = 1;
+        this.scheduling = builder.scheduling;
+    }
+
+    /**
+     * Derives one of the independent random streams of a run from its seed: arrivals,
+     * services, classes, steal victims and routing choices each draw from their own split.
+     * @param seed the seed of the run
+     * @param stream the index of the stream, one of the *_STREAM constants
+     * @return the stream, the same for the same seed and index
+     */
+    private static SplitMixRandom splitStream(long seed, int stream) {
+        SplitMixRandom root = new SplitMixRandom(seed);
+        for (int s = 0; s < stream; s++) {
+            root.split();
+        }
+        return root.split();
+    }
+
+    /**
+     * Builds the list of tellers of every queue from the list of queues of every teller.
+     * @param tellerQueues the queues each teller serves
+     * @param totalQueues the number of queues
+     * @return the tellers each queue is served by
+     */
+    private static int[][] invert(int[][] tellerQueues, int totalQueues) {
+        int[] tellerCounts = new int[totalQueues];
+        for (int[] queues : tellerQueues) {
+            for (int q : queues) {
+                tellerCounts[q] += 1;
+            }
+        }
+        int[][] queueTellers = new int[totalQueues][];
+        for (int q = 0; q < totalQueues; q++) {
+            if (tellerCounts[q] == 0) {
+                throw new IllegalArgumentException("Queue " + (q + 1) + " is not served by any teller.");
+            }
+            queueTellers[q] = new int[tellerCounts[q]];
+            tellerCounts[q] = 0;
+        }
+        for (int t = 0; t < tellerQueues.length; t++) {
+            for (int q : tellerQueues[t]) {
+                queueTellers[q][tellerCounts[q]] = t;
+                tellerCounts[q] += 1;
+            }
+        }
+        return queueTellers;
+    }
+
+    /**
+     * Starts building a configuration.
+     * @return a builder with one teller, one queue and no customers
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Retrieves the number of customers the bank will serve.
+     * @return the total customer count
+     */
+    public int getMaxCustomers() {
+        return maxCustomers;
+    }
+
+    /**
+     * Retrieves the number of tellers.
+     * @return the teller count
+     */
+    public int getTotalTellers() {
+        return totalTellers;
+    }
+
+    /**
+     * Retrieves the number of queues.
+     * @return the queue count
+     */
+    public int getTotalQueues() {
+        return totalQueues;
+    }
+
+    /**
+     * Checks whether customers choose between several queues.
+     * @return true if the bank has more than one queue
+     */
+    public boolean isMultiQueue() {
+        return totalQueues > 1;
+    }
+
+    /**
+     * Retrieves the speed of time of the threaded model.
+     * @return the time acceleration factor
+     */
+    public int getTimeAccelerationFactor() {
+        return timeAccelerationFactor;
+    }
+
+    /**
+     * Retrieves the random data set of arrival delays.
+     * @return one delay in seconds per customer, or null if arrivals follow a distribution
+     */
+    public int[] getRandomEnqueueTime() {
+        return randomEnqueueTime;
+    }
+
+    /**
+     * Retrieves the random data set of service times.
+     * @return one service time in seconds per customer, or null if service times follow a distribution
+     */
+    public int[] getRandomDequeueTime() {
+        return randomDequeueTime;
+    }
+
+    /**
+     * Retrieves the distribution of the delays between arrivals.
+     * @return the distribution, or null if arrivals replay a data set
+     */
+    public Distribution getArrivals() {
+        return arrivals;
+    }
+
+    /**
+     * Retrieves the distribution of service times.
+     * @return the distribution, or null if service times replay a data set
+     */
+    public Distribution getServices() {
+        return services;
+    }
+
+    /**
+     * Retrieves the trace whose arrival and service times are replayed.
+     * @return the trace, or null if times follow distributions or data sets
+     */
+    public TraceReader getTrace() {
+        return trace;
+    }
+
+    /**
+     * Creates the stream of arrival delays for one simulation run.
+     * @param seed the seed of the run, usually getSeed()
+     * @return a stream giving the same delays for the same seed
+     */
+    public TimeStream newArrivalStream(long seed) {
+        if (trace != null) {
+            return TimeStream.arrivalsOf(trace);
+        }
+        if (arrivals == null) {
+            return TimeStream.of(randomEnqueueTime);
+        }
+        return TimeStream.of(arrivals, splitStream(seed, ARRIVAL_STREAM));
+    }
+
+    /**
+     * Creates the stream of service times for one simulation run, independent of the arrival stream.
+     * @param seed the seed of the run, usually getSeed()
+     * @return a stream giving the same service times for the same seed
+     */
+    public TimeStream newServiceStream(long seed) {
+        if (trace != null) {
+            return TimeStream.servicesOf(trace);
+        }
+        if (services == null) {
+            return TimeStream.of(randomDequeueTime);
+        }
+        return TimeStream.of(services, splitStream(seed, SERVICE_STREAM));
+    }
+
+    /**
+     * Retrieves the name of the policy deciding which queue customers join.
+     * @return the routing policy name
+     */
+    public String getRouting() {
+        return routing;
+    }
+
+    /**
+     * Creates a new instance of the routing policy for one simulation run.
+     * @return the routing policy
+     */
+    public RoutingPolicy createRoutingPolicy() {
+        return createRoutingPolicy(seed);
+    }
+
+    /**
+     * Creates a new instance of the routing policy for one simulation run. Its random
+     * choices, if it makes any, come from their own stream, independent of the others.
+     * @param seed the seed of the run
+     * @return the routing policy
+     */
+    public RoutingPolicy createRoutingPolicy(long seed) {
+        return RoutingPolicy.create(routing, splitStream(seed, ROUTING_STREAM).nextLong());
+    }
+
+    /**
+     * Retrieves the seed of the simulation's random choices.
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Checks whether idle tellers take customers from queues they do not serve.
+     * @return true if work stealing is enabled
+     */
+    public boolean isWorkStealing() {
+        return stealFrom != null;
+    }
+
+    /**
+     * Retrieves how idle tellers choose a queue to steal from.
+     * @return STEAL_FROM_LONGEST or STEAL_FROM_RANDOM, or null if work stealing is disabled
+     */
+    public String getStealFrom() {
+        return stealFrom;
+    }
+
+    /**
+     * Retrieves the fewest customers that must be waiting in a queue for an idle
+     * teller of another queue to take one of them.
+     * @return the jockeying threshold
+     */
+    public int getJockeyThreshold() {
+        return jockeyThreshold;
+    }
+
+    /**
+     * Retrieves the most customers that can wait in one queue, not counting those being served.
+     * @return the queue capacity, or 0 if queues grow without limit
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Retrieves what happens to a customer routed to a full queue.
+     * @return OVERFLOW_GROW, OVERFLOW_REJECT, OVERFLOW_BLOCK or OVERFLOW_BALK
+     */
+    public String getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * Retrieves the classes of customers.
+     * @return the classes, highest priority first, a single default class if none were set
+     */
+    public List<CustomerClass> getCustomerClasses() {
+        return customerClasses;
+    }
+
+    /**
+     * Retrieves the number of customer classes.
+     * @return the class count, at least 1
+     */
+    public int getTotalClasses() {
+        return customerClasses.size();
+    }
+
+    /**
+     * Retrieves how tellers choose between customer classes.
+     * @return SCHEDULE_FIFO, SCHEDULE_PRIORITY, SCHEDULE_WEIGHTED_FAIR or SCHEDULE_EDF
+     */
+    public String getScheduling() {
+        return scheduling;
+    }
+
+    /**
+     * Checks whether tellers serve customers in another order than their arrival.
+     * @return true if there are several classes and the scheduling is not FIFO
+     */
+    public boolean isClassScheduled() {
+        return customerClasses.size() > 1 && !SCHEDULE_FIFO.equals(scheduling);
+    }
+
+    /**
+     * Creates a new scheduler choosing between the customer classes of one queue.
+     * @return the scheduler
+     */
+    public ClassScheduler newClassScheduler() {
+        return new ClassScheduler(scheduling, customerClasses);
+    }
+
+    /**
+     * Creates the random stream drawing the customers' classes for one simulation run,
+     * independent of the arrival and service streams.
+     * @param seed the seed of the run, usually getSeed()
+     * @return a stream giving the same classes for the same seed
+     */
+    public SplitMixRandom newClassRandom(long seed) {
+        return splitStream(seed, CLASS_STREAM);
+    }
+
+    /**
+     * Creates the random stream choosing the queues idle tellers steal from for one
+     * simulation run, independent of the routing choices and the other streams.
+     * The threaded model splits it again to give each teller its own.
+     * @param seed the seed of the run, usually getSeed()
+     * @return a stream choosing the same victims for the same seed
+     */
+    public SplitMixRandom newStealRandom(long seed) {
+        return splitStream(seed, STEAL_STREAM);
+    }
+
+    /**
+     * Draws the class of an arriving customer in proportion to the classes' shares.
+     * A bank with a single class draws nothing, so its random streams are unchanged.
+     * @param random the stream created by newClassRandom
+     * @return the class index
+     */
+    public int drawCustomerClass(RandomGenerator random) {
+        if (classThresholds.length == 1) {
+            return 0;
+        }
+        double draw = random.nextDouble();
+        int customerClass = 0;
+        while (draw >= classThresholds[customerClass]) {
+            customerClass += 1;
+        }
+        return customerClass;
+    }
+
+    /**
+     * Retrieves the queues a teller serves. The array must not be modified.
+     * @param teller the teller index, starting from 0
+     * @return the queue indexes in the order the teller checks them
+     */
+    public int[] getQueuesOfTeller(int teller) {
+        return tellerQueues[teller];
+    }
+
+    /**
+     * Retrieves the tellers serving a queue. The array must not be modified.
+     * @param queue the queue index, starting from 0
+     * @return the teller indexes
+     */
+    public int[] getTellersOfQueue(int queue) {
+        return queueTellers[queue];
+    }
+
+    /**
+     * Describes the configuration in one line, so that results and checkpoints can be
+     * matched to it. Data sets are identified by their length and a hash of their values,
+     * traces by their number of records.
+     * @return the settings, such as customers=100,tellers=3,queues=1,...
+     */
+    @Override
+    public String toString() {
+        return "customers=" + maxCustomers
+                + ",tellers=" + totalTellers
+                + ",queues=" + totalQueues
+                + ",tellerQueues=" + Arrays.deepToString(tellerQueues).replace(" ", "")
+                + ",timeAcceleration=" + timeAccelerationFactor
+                + ",arrivals=" + describeTimes(arrivals, randomEnqueueTime)
+                + ",services=" + describeTimes(services, randomDequeueTime)
+                + ",routing=" + routing
+                + ",stealFrom=" + stealFrom
+                + ",jockeyThreshold=" + jockeyThreshold
+                + ",queueCapacity=" + queueCapacity
+                + ",overflow=" + overflow
+                + ",classes=" + customerClasses.stream().map(CustomerClass::toString).collect(Collectors.joining(";"))
+                + ",scheduling=" + scheduling
+                + ",seed=" + seed;
+    }
+
+    /**
+     * Describes where arrival or service times come from.
+     * @param distribution the distribution, or null
+     * @param dataSet the data set, or null
+     * @return the distribution's specification, or a description of the data set or trace
+     */
+    private String describeTimes(Distribution distribution, int[] dataSet) {
+        if (trace != null) {
+            return "trace:" + trace.getRecordCount();
+        }
+        if (distribution != null) {
+            return distribution.toString();
+        }
+        return "data-set:" + dataSet.length + ":" + Integer.toHexString(Arrays.hashCode(dataSet));
+    }
+
+    /**
+     * Collects the settings of a SimulationConfig.
+     * Tellers without an explicit list of queues serve queue (teller mod queues),
+     * so equal teller and queue counts give every teller its own queue and a
+     * single queue is shared by all tellers.
+     */
+    public static class Builder {
+
+        private int maxCustomers;
+        private int totalTellers = 1;
+        private int totalQueues = 1;
+        private int timeAccelerationFactor = 1;
+        private int[] randomEnqueueTime;
+        private int[] randomDequeueTime;
+        private Distribution arrivals;
+        private Distribution services;
+        private TraceReader trace;
+        private Map<Integer, int[]> explicitTellerQueues = new HashMap<Integer, int[]>(); /* queues set by tellerServes */
+        private int[][] tellerQueues;   /* every teller's queues, null for the default */
+        private String routing = RoutingPolicy.JOIN_SHORTEST_QUEUE;
+        private long seed;
+        private String stealFrom;
+        private int jockeyThreshold = 1;
+        private int queueCapacity;
+        private String overflow = OVERFLOW_GROW;
+        private List<CustomerClass> customerClasses = List.of(CustomerClass.DEFAULT);
+        private String scheduling = SCHEDULE_FIFO;
+
+        /**
+         * Sets the number of customers the bank will serve.
+         * @param maxCustomers the total customer count
+         * @return this builder
+         */
+        public Builder customers(int maxCustomers) {
+            this.maxCustomers = maxCustomers;
+            return this;
+        }
+
+        /**
+         * Sets the number of tellers.
+         * @param tellers the teller count
+         * @return this builder
+         */
+        public Builder tellers(int tellers) {
+            this.totalTellers = tellers;
+            return this;
+        }
+
+        /**
+         * Sets the number of queues.
+         * @param queues the queue count
+         * @return this builder
+         */
+        public Builder queues(int queues) {
+            this.totalQueues = queues;
+            return this;
+        }
+
+        /**
+         * Sets the speed of time of the threaded model.
+         * @param timeAccelerationFactor the time acceleration factor
+         * @return this builder
+         */
+        public Builder timeAcceleration(int timeAccelerationFactor) {
+            this.timeAccelerationFactor = timeAccelerationFactor;
+            return this;
+        }
+
+        /**
+         * Sets the random data sets of arrival delays and service times.
+         * @param randomEnqueueTime one arrival delay in seconds per customer
+         * @param randomDequeueTime one service time in seconds per customer
+         * @return this builder
+         */
+        public Builder randomTimes(int[] randomEnqueueTime, int[] randomDequeueTime) {
+            this.randomEnqueueTime = randomEnqueueTime;
+            this.randomDequeueTime = randomDequeueTime;
+            this.arrivals = null;
+            this.services = null;
+            this.trace = null;
+            return this;
+        }
+
+        /**
+         * Sets the distribution of the delays between arrivals, replacing a random data set.
+         * Delays are drawn lazily from a random stream derived from the seed.
+         * @param arrivals the distribution of arrival delays
+         * @return this builder
+         */
+        public Builder arrivals(Distribution arrivals) {
+            this.arrivals = arrivals;
+            this.randomEnqueueTime = null;
+            this.trace = null;
+            return this;
+        }
+
+        /**
+         * Sets the distribution of service times, replacing a random data set.
+         * Service times are drawn lazily from a random stream derived from the seed.
+         * @param services the distribution of service times
+         * @return this builder
+         */
+        public Builder services(Distribution services) {
+            this.services = services;
+            this.randomDequeueTime = null;
+            this.trace = null;
+            return this;
+        }
+
+        /**
+         * Replays the arrival and service times of a recorded trace, replacing
+         * distributions and random data sets. Every run of the configuration
+         * replays the trace from its first record.
+         * @param trace the trace, which must hold a record for every customer
+         * @return this builder
+         */
+        public Builder replay(TraceReader trace) {
+            this.trace = trace;
+            this.randomEnqueueTime = null;
+            this.randomDequeueTime = null;
+            this.arrivals = null;
+            this.services = null;
+            return this;
+        }
+
+        /**
+         * Sets the policy deciding which queue customers join when there are several.
+         * @param routing a routing policy name, see RoutingPolicy
+         * @return this builder
+         */
+        public Builder routing(String routing) {
+            this.routing = routing;
+            return this;
+        }
+
+        /**
+         * Sets the seed of the simulation's random choices.
+         * @param seed the seed
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Lets a teller whose queues are all empty take the customer at the front of
+         * another queue, if at least jockeyThreshold customers are waiting in it.
+         * @param stealFrom STEAL_FROM_LONGEST or STEAL_FROM_RANDOM
+         * @param jockeyThreshold the fewest waiting customers a queue must have to be stolen from, at least 1
+         * @return this builder
+         */
+        public Builder workStealing(String stealFrom, int jockeyThreshold) {
+            this.stealFrom = stealFrom;
+            this.jockeyThreshold = jockeyThreshold;
+            return this;
+        }
+
+        /**
+         * Limits how many customers can wait in each queue, and says what happens to a
+         * customer routed to a full one. Queues grow without limit unless this is set.
+         * @param queueCapacity the most customers waiting in one queue, at least 1
+         * @param overflow OVERFLOW_REJECT, OVERFLOW_BLOCK or OVERFLOW_BALK
+         * @return this builder
+         */
+        public Builder queueCapacity(int queueCapacity, String overflow) {
+            this.queueCapacity = queueCapacity;
+            this.overflow = overflow;
+            return this;
+        }
+
+        /**
+         * Divides the customers into classes, replacing the single default class.
+         * Arriving customers are assigned a class at random in proportion to the shares.
+         * @param customerClasses the classes, highest priority first, at most ClassScheduler.MAX_CLASSES
+         * @return this builder
+         */
+        public Builder customerClasses(CustomerClass... customerClasses) {
+            this.customerClasses = List.of(customerClasses);
+            return this;
+        }
+
+        /**
+         * Sets how tellers choose between customer classes. Within a class, customers
+         * are always served in arrival order.
+         * @param scheduling SCHEDULE_FIFO (default), SCHEDULE_PRIORITY, SCHEDULE_WEIGHTED_FAIR or SCHEDULE_EDF
+         * @return this builder
+         */
+        public Builder scheduling(String scheduling) {
+            this.scheduling = scheduling;
+            return this;
+        }
+
+        /**
+         * Sets the queues a teller serves, replacing the default of one queue.
+         * A teller serving several queues checks them in the given order.
+         * @param teller the teller index, starting from 0
+         * @param queues the queue indexes, starting from 0
+         * @return this builder
+         */
+        public Builder tellerServes(int teller, int... queues) {
+            if (queues.length == 0) {
+                throw new IllegalArgumentException("Teller " + (teller + 1) + " must serve at least one queue.");
+            }
+            explicitTellerQueues.put(teller, queues.clone());
+            return this;
+        }
+
+        /**
+         * Checks the settings and builds the configuration.
+         * @return the configuration
+         * @throws IllegalArgumentException if the settings do not describe a working bank
+         */
+        public SimulationConfig build() {
+            if (totalTellers <= 0 || totalQueues <= 0) {
+                throw new IllegalArgumentException("A bank needs at least one teller and one queue.");
+            }
+            if (maxCustomers < 0) {
+                throw new IllegalArgumentException("The number of customers cannot be negative.");
+            }
+            if (trace != null && trace.getRecordCount() < maxCustomers) {
+                throw new IllegalArgumentException("The trace must hold a record for every customer.");
+            }
+            if (trace == null && ((randomEnqueueTime == null && arrivals == null) || (randomDequeueTime == null && services == null))) {
+                throw new IllegalArgumentException("Arrival and service times are required.");
+            }
+            if ((randomEnqueueTime != null && randomEnqueueTime.length < maxCustomers)
+                    || (randomDequeueTime != null && randomDequeueTime.length < maxCustomers)) {
+                throw new IllegalArgumentException("The random data sets must cover every customer.");
+            }
+            RoutingPolicy.checkName(routing);
+            if (stealFrom != null && !stealFrom.equals(STEAL_FROM_LONGEST) && !stealFrom.equals(STEAL_FROM_RANDOM)) {
+                throw new IllegalArgumentException("Unknown work stealing victim selection: " + stealFrom);
+            }
+            if (jockeyThreshold < 1) {
+                throw new IllegalArgumentException("The jockeying threshold must be at least 1.");
+            }
+            if (!OVERFLOW_GROW.equals(overflow) && !OVERFLOW_REJECT.equals(overflow) && !OVERFLOW_BLOCK.equals(overflow) && !OVERFLOW_BALK.equals(overflow)) {
+                throw new IllegalArgumentException("Unknown queue overflow policy: " + overflow);
+            }
+            if (overflow.equals(OVERFLOW_GROW) != (queueCapacity == 0) || queueCapacity < 0) {
+                throw new IllegalArgumentException("Bounded queues need a capacity of at least 1 and a reject, block or balk policy.");
+            }
+            if (customerClasses.isEmpty() || customerClasses.size() > ClassScheduler.MAX_CLASSES) {
+                throw new IllegalArgumentException("A bank has between 1 and " + ClassScheduler.MAX_CLASSES + " customer classes.");
+            }
+            Set<String> classNames = new HashSet<String>();
+            for (CustomerClass customerClass : customerClasses) {
+                if (!classNames.add(customerClass.getName())) {
+                    throw new IllegalArgumentException("Customer class " + customerClass.getName() + " is listed twice.");
+                }
+            }
+            if (!SCHEDULE_FIFO.equals(scheduling) && !SCHEDULE_PRIORITY.equals(scheduling) && !SCHEDULE_WEIGHTED_FAIR.equals(scheduling) && !SCHEDULE_EDF.equals(scheduling)) {
+                throw new IllegalArgumentException("Unknown class scheduling: " + scheduling);
+            }
+            if (SCHEDULE_EDF.equals(scheduling) && customerClasses.size() > 1 && !customerClasses.stream().allMatch(CustomerClass::hasTargetWait)) {
+                throw new IllegalArgumentException("Earliest deadline first scheduling needs a target wait for every customer class.");
+            }
+            tellerQueues = new int[totalTellers][];
+            for (Map.Entry<Integer, int[]> entry : explicitTellerQueues.entrySet()) {
+                int teller = entry.getKey();
+                int[] queues = entry.getValue();
+                if (teller < 0 || teller >= totalTellers) {
+                    throw new IllegalArgumentException("No such teller: " + (teller + 1));
+                }
+                for (int q : queues) {
+                    if (q < 0 || q >= totalQueues) {
+                        throw new IllegalArgumentException("No such queue: " + (q + 1));
+                    }
+                }
+                if (Arrays.stream(queues).distinct().count() != queues.length) {
+                    throw new IllegalArgumentException("Teller " + (teller + 1) + " lists a queue twice.");
+                }
+                tellerQueues[teller] = queues;
+            }
+            return new SimulationConfig(this);
+        }
+    }
+}
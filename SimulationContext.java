@@ -0,0 +1,390 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+/**
+ * Holds the state that the reception, tellers and customers of one simulation share:
+ * ID counters, progress counters, wait time totals and whether the bank is open.
+ * Each BankSimulation owns its own context, so several simulations can run at the
+ * same time in one program. Every counter is safe to update from several threads.
+ */
+public class SimulationContext {
+
+    private final int timeAcceleration;         /* accelerates time based on a factor */
+    private final int totalCustomersTarget;     /* the target customers to be processed */
+    private final AtomicInteger nextCustomerID = new AtomicInteger();  /* next customer ID to hand out */
+    private final AtomicInteger nextTellerID = new AtomicInteger(1);   /* next teller ID to hand out */
+    private final AtomicInteger nextQueueID = new AtomicInteger(1);    /* next queue ID to hand out */
+    private final AtomicInteger totalCustomersRemaining;                /* customers the reception has yet to place in a queue */
+    private final AtomicInteger totalCustomersArrived = new AtomicInteger();   /* customers the reception has received */
+    private final AtomicInteger totalCustomersProcessed = new AtomicInteger(); /* customers processed by all tellers */
+    private final AtomicInteger lastID = new AtomicInteger(-1);        /* highest ID of the customers served */
+    private final AtomicInteger totalCustomersStolen = new AtomicInteger(); /* customers served by a teller of another queue */
+    private final AtomicInteger totalCustomersBalked = new AtomicInteger(); /* customers who left because their queue was full */
+    private final DoubleAdder customerWaitTimeTotal = new DoubleAdder(); /* aggregated customer wait time */
+    private final AtomicLongArray queuedWork;           /* service ticks needed by the customers waiting in each queue */
+    private final LatencyHistogram[] queueWaitTimes;    /* wait times in nanoseconds of the customers served from each queue */
+    private final LatencyHistogram[] classWaitTimes;    /* wait times in nanoseconds of the customers served of each class */
+    private final long[] classTargetTicks;              /* the target wait of each class in simulated ticks, 0 for none */
+    private final AtomicLongArray classTargetMisses;    /* customers of each class who waited longer than its target */
+    private volatile int totalCustomersProcessedFinal;  /* customers processed when the bank closed */
+    private volatile boolean bankIsOpen = true;         /* false once every teller has stopped */
+    private final AtomicReference<Throwable> actorFailure = new AtomicReference<Throwable>(); /* the first exception of the reception or a teller */
+    private volatile EventLog eventLog = EventLog.disabled(); /* where the reception and tellers log customers */
+    private volatile TraceWriter traceWriter = TraceWriter.disabled(); /* where tellers record the customers they serve */
+    private final MetricsRegistry metrics = new MetricsRegistry(); /* live metrics of the reception, tellers and queues */
+
+    /**
+     * Constructs the shared state of one simulation.
+     * @param totalMaxCustomers the total number of customers the bank will serve
+     * @param timeAccelerationFactor the speed of time the simulation runs at, values below 1 mean 1
+     * @param totalQueues the number of queues in the bank
+     */
+    public SimulationContext(int totalMaxCustomers, int timeAccelerationFactor, int totalQueues) {
+        this(totalMaxCustomers, timeAccelerationFactor, totalQueues, List.of(CustomerClass.DEFAULT));
+    }
+
+    /**
+     * Constructs the shared state of one simulation whose customers are divided into classes.
+     * @param totalMaxCustomers the total number of customers the bank will serve
+     * @param timeAccelerationFactor the speed of time the simulation runs at, values below 1 mean 1
+     * @param totalQueues the number of queues in the bank
+     * @param customerClasses the classes of customers, highest priority first
+     */
+    public SimulationContext(int totalMaxCustomers, int timeAccelerationFactor, int totalQueues, List<CustomerClass> customerClasses) {
+        this.totalCustomersTarget = totalMaxCustomers;
+        this.queuedWork = new AtomicLongArray(totalQueues);
+        this.queueWaitTimes = new LatencyHistogram[totalQueues];
+        for (int q = 0; q < totalQueues; q++) {
+            queueWaitTimes[q] = new LatencyHistogram();
+        }
+        this.classWaitTimes = new LatencyHistogram[customerClasses.size()];
+        this.classTargetTicks = new long[customerClasses.size()];
+        for (int c = 0; c < customerClasses.size(); c++) {
+            classWaitTimes[c] = new LatencyHistogram();
+            classTargetTicks[c] = customerClasses.get(c).getTargetWaitTicks();
+        }
+        this.classTargetMisses = new AtomicLongArray(customerClasses.size());
+        this.totalCustomersRemaining = new AtomicInteger(totalMaxCustomers);
+        if (timeAccelerationFactor <= 0) {
+            this.timeAcceleration = 1;
+        } else {
+            this.timeAcceleration = timeAccelerationFactor;
+        }
+    }
+
+    /**
+     * Retrieves the speed of time of the simulation.
+     * @return the time acceleration factor
+     */
+    public int getTimeAcceleration() {
+        return timeAcceleration;
+    }
+
+    /**
+     * Retrieves the number of customers the bank will serve.
+     * @return the target customer count
+     */
+    public int getTotalCustomersTarget() {
+        return totalCustomersTarget;
+    }
+
+    /**
+     * Hands out the next customer ID, starting from 0.
+     * @return a customer ID unique within this simulation
+     */
+    public int nextCustomerID() {
+        return nextCustomerID.getAndIncrement();
+    }
+
+    /**
+     * Hands out the next teller ID, starting from 1.
+     * @return a teller ID unique within this simulation
+     */
+    public int nextTellerID() {
+        return nextTellerID.getAndIncrement();
+    }
+
+    /**
+     * Hands out the next queue ID, starting from 1.
+     * @return a queue ID unique within this simulation
+     */
+    public int nextQueueID() {
+        return nextQueueID.getAndIncrement();
+    }
+
+    /**
+     * Adds to or removes from the service time needed by the customers waiting in a queue.
+     * @param queueID the queue's ID as handed out by nextQueueID
+     * @param ticks the service time in ticks of EventDrivenSimulation, negative to remove
+     */
+    public void addQueuedWork(int queueID, long ticks) {
+        queuedWork.addAndGet(queueID - 1, ticks);
+    }
+
+    /**
+     * Retrieves the service time needed by the customers waiting in a queue.
+     * @param queueID the queue's ID as handed out by nextQueueID
+     * @return the queued work in ticks
+     */
+    public long getQueuedWork(int queueID) {
+        return queuedWork.get(queueID - 1);
+    }
+
+    /**
+     * Records the wait time of a customer served from a queue. Several tellers may
+     * serve the same queue, so the queue's histogram is updated without locking.
+     * @param queueID the queue's ID as handed out by nextQueueID
+     * @param waitNanos the time the customer waited in nanoseconds
+     */
+    public void recordQueueWaitTime(int queueID, long waitNanos) {
+        queueWaitTimes[queueID - 1].recordConcurrent(waitNanos);
+    }
+
+    /**
+     * Retrieves the wait times of the customers served from a queue.
+     * @param queueID the queue's ID as handed out by nextQueueID
+     * @return the queue's wait time histogram in nanoseconds
+     */
+    public LatencyHistogram getQueueWaitTimes(int queueID) {
+        return queueWaitTimes[queueID - 1];
+    }
+
+    /**
+     * Records the wait time of a customer of a class, and whether it was longer than
+     * the class's target. The wait is in real nanoseconds, the target in simulated
+     * time, so the wait is scaled by the time acceleration to compare them.
+     * @param customerClass the customer's class index
+     * @param waitNanos the time the customer waited in nanoseconds
+     */
+    public void recordClassWaitTime(int customerClass, long waitNanos) {
+        classWaitTimes[customerClass].recordConcurrent(waitNanos);
+        long targetTicks = classTargetTicks[customerClass];
+        if (targetTicks > 0 && waitNanos * timeAcceleration > targetTicks) {
+            classTargetMisses.incrementAndGet(customerClass);
+        }
+    }
+
+    /**
+     * Retrieves the wait times of the customers of a class.
+     * @param customerClass the class index
+     * @return the class's wait time histogram in nanoseconds
+     */
+    public LatencyHistogram getClassWaitTimes(int customerClass) {
+        return classWaitTimes[customerClass];
+    }
+
+    /**
+     * Retrieves the number of customers of a class who waited longer than its target.
+     * @param customerClass the class index
+     * @return the missed target count, 0 for a class without a target
+     */
+    public long getClassTargetMisses(int customerClass) {
+        return classTargetMisses.get(customerClass);
+    }
+
+    /**
+     * Sets where the reception and tellers log what happens to customers.
+     * @param eventLog the log, or EventLog.disabled() for none
+     */
+    public void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * Retrieves where the reception and tellers log what happens to customers.
+     * @return the event log, disabled unless one was set
+     */
+    public EventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Retrieves the live metrics of this simulation's reception, tellers and queues.
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets where tellers record the customers they serve.
+     * @param traceWriter the trace, or TraceWriter.disabled() for none
+     */
+    public void setTraceWriter(TraceWriter traceWriter) {
+        this.traceWriter = traceWriter;
+    }
+
+    /**
+     * Retrieves where tellers record the customers they serve.
+     * @return the trace, disabled unless one was set
+     */
+    public TraceWriter getTraceWriter() {
+        return traceWriter;
+    }
+
+    /**
+     * Records that the reception received a customer.
+     */
+    public void customerArrived() {
+        totalCustomersArrived.incrementAndGet();
+    }
+
+    /**
+     * Records that the reception placed a customer in a queue.
+     */
+    public void customerQueued() {
+        totalCustomersRemaining.decrementAndGet();
+    }
+
+    /**
+     * Records that a customer routed to a full queue left without joining it.
+     */
+    public void customerBalked() {
+        totalCustomersBalked.incrementAndGet();
+        totalCustomersRemaining.decrementAndGet();
+    }
+
+    /**
+     * Retrieves the number of customers who left because their queue was full.
+     * @return the balked customer count
+     */
+    public int getTotalCustomersBalked() {
+        return totalCustomersBalked.get();
+    }
+
+    /**
+     * Retrieves the number of customers the reception has received.
+     * @return the arrived customer count
+     */
+    public int getTotalCustomersArrived() {
+        return totalCustomersArrived.get();
+    }
+
+    /**
+     * Retrieves the number of customers the reception has yet to place in a queue.
+     * @return the remaining customer count
+     */
+    public int getTotalCustomersRemaining() {
+        return totalCustomersRemaining.get();
+    }
+
+    /**
+     * Records a customer served by a teller.
+     * @param customerID the ID of the customer served
+     * @param waitTime the time the customer waited in the queue
+     * @return the number of customers served so far, including this one
+     */
+    public int customerServed(int customerID, double waitTime) {
+        lastID.accumulateAndGet(customerID, Math::max);
+        customerWaitTimeTotal.add(waitTime);
+        return totalCustomersProcessed.incrementAndGet();
+    }
+
+    /**
+     * Records that a teller took a customer from a queue the teller does not serve.
+     */
+    public void customerStolen() {
+        totalCustomersStolen.incrementAndGet();
+    }
+
+    /**
+     * Retrieves the number of customers taken from a queue by a teller of another queue.
+     * @return the stolen customer count
+     */
+    public int getTotalCustomersStolen() {
+        return totalCustomersStolen.get();
+    }
+
+    /**
+     * Retrieves the number of customers served so far.
+     * @return the processed customer count
+     */
+    public int getTotalCustomersProcessed() {
+        return totalCustomersProcessed.get();
+    }
+
+    /**
+     * Retrieves the highest ID among the customers served.
+     * @return the last customer ID, or -1 if none has been served
+     */
+    public int getLastID() {
+        return lastID.get();
+    }
+
+    /**
+     * Checks whether the bank is still open. Tellers themselves stop once their
+     * queues are closed and empty, so this is only a summary for observers.
+     * @return true until the bank has been closed
+     */
+    public boolean isBankOpen() {
+        return bankIsOpen;
+    }
+
+    /**
+     * Records that the reception or a teller stopped with an exception. Only the first
+     * failure is kept; the ones that follow are usually consequences of it.
+     * @param failure what the reception or teller threw
+     */
+    public void actorFailed(Throwable failure) {
+        actorFailure.compareAndSet(null, failure);
+    }
+
+    /**
+     * Rethrows the first failure of the reception or a teller, if there was one,
+     * so that a run that went wrong does not pass for one that completed.
+     * @throws RuntimeException the first exception of the reception or a teller
+     * @throws Error the first error of the reception or a teller
+     */
+    public void rethrowActorFailure() {
+        Throwable failure = actorFailure.get();
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    /**
+     * Closes the bank once every teller has stopped, recording how many customers were served.
+     */
+    public void closeBank() {
+        totalCustomersProcessedFinal = totalCustomersProcessed.get();
+        bankIsOpen = false;
+    }
+
+    /**
+     * Retrieves the total wait time from all tellers.
+     * @return the total time customers waited to get off the queue
+     */
+    public double getCustomerWaitTimeTotal() {
+        return customerWaitTimeTotal.sum();
+    }
+
+    /**
+     * Retrieves the average wait time from all tellers.
+     * @return the average wait time for each customer tellers served
+     */
+    public double getCustomerWaitTimeAverage() {
+        int processedCount = totalCustomersProcessed.get();
+        if (processedCount == 0) {
+            return 0;
+        }
+        return customerWaitTimeTotal.sum() / processedCount;
+    }
+
+    /**
+     * Retrieves the total number of customers tellers had served when the bank closed.
+     * @return the final processed customer count
+     */
+    public int getTotalCustomersServed() {
+        return totalCustomersProcessedFinal;
+    }
+}
@@ -0,0 +1,486 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+/**
+ * Spreads a study of many bank branches over worker processes. Each branch is a
+ * SweepRunner.Cell simulated by a BankSimulation with its own reception and tellers,
+ * and every replication of every branch is one task. Workers are SimulationWorker
+ * processes, launched on this machine with launchWorkers or started by hand on other
+ * machines, that connect to the coordinator's socket and take tasks one at a time,
+ * so faster workers take more. A worker sends back the wait and service histograms of
+ * each replication; the coordinator merges them per branch and over the whole network
+ * and hands every branch to a listener as soon as its last replication arrives. The
+ * task of a worker that disconnects is given to another one.
+ *
+ * The protocol is binary over one TCP connection per worker. The worker opens with
+ * MAGIC and VERSION as ints. The coordinator then sends TASK messages (branch index,
+ * cell settings, customers, time acceleration and seed) or SHUTDOWN, and the worker
+ * answers each task with RESULT (branch index, customers served, total wait in
+ * seconds, then the wait and service histograms as written by LatencyHistogram.writeTo)
+ * or FAILED (branch index and a message). Replication seeds are split from the study's
+ * seed per branch and replication, so results do not depend on which worker ran what.
+ */
+public class SimulationCoordinator implements AutoCloseable {
+
+    public static final int MAGIC = 0x42515744;     /* "BQWD" read as a big-endian int */
+    public static final int VERSION = 1;            /* the version of the protocol */
+    public static final byte TASK = 1;              /* coordinator to worker: run a replication */
+    public static final byte SHUTDOWN = 2;          /* coordinator to worker: exit */
+    public static final byte RESULT = 3;            /* worker to coordinator: a replication's results */
+    public static final byte FAILED = 4;            /* worker to coordinator: a replication could not run */
+    public static final long DEFAULT_CONNECT_MILLIS = 60000;    /* how long a study waits by default while no worker is connected */
+
+    private static final long POLL_MILLIS = 100;    /* how often idle connections check for shutdown */
+    private static final long HANDSHAKE_MILLIS = 5000;  /* how long a new connection has to introduce itself */
+
+    private final ServerSocket serverSocket;        /* where workers connect */
+    private final LinkedBlockingDeque<Task> tasks = new LinkedBlockingDeque<Task>();   /* tasks no worker has taken */
+    private final List<Process> workerProcesses = new CopyOnWriteArrayList<Process>();  /* workers this coordinator launched */
+    private final AtomicInteger liveWorkers = new AtomicInteger();  /* connected workers */
+    private final Thread acceptThread;              /* accepts worker connections */
+    private volatile boolean closed;                /* set once the coordinator shuts down */
+    private volatile long connectTimeoutMillis = DEFAULT_CONNECT_MILLIS;   /* how long a study waits while no worker is connected */
+    private LatencyHistogram totalWaitTimes = new LatencyHistogram();       /* every wait of the last study */
+    private LatencyHistogram totalServiceTimes = new LatencyHistogram();    /* every service time of the last study */
+
+    /**
+     * Constructs a coordinator listening on a free port of the loopback interface,
+     * for workers on this machine.
+     * @throws IOException if the socket cannot be opened
+     */
+    public SimulationCoordinator() throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    /**
+     * Constructs a coordinator listening on an address, for example a public interface
+     * so workers on other machines can connect.
+     * @param address the address and port, port 0 for any free port
+     * @throws IOException if the socket cannot be opened
+     */
+    public SimulationCoordinator(InetSocketAddress address) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        acceptThread = new Thread(this::acceptLoop, "coordinator-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Retrieves the port workers connect to.
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Launches worker processes on this machine, running SimulationWorker in new JVMs
+     * with this JVM's class path. Their standard output is discarded; errors are shown.
+     * @param count the number of workers
+     * @throws IOException if a process cannot be started
+     */
+    public void launchWorkers(int count) throws IOException {
+        InetAddress address = serverSocket.getInetAddress();
+        String host = (address.isAnyLocalAddress() ? InetAddress.getLoopbackAddress() : address).getHostAddress();
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (int w = 0; w < count; w++) {
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    "SimulationWorker", host, String.valueOf(getPort()));
+            builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            workerProcesses.add(builder.start());
+        }
+    }
+
+    /**
+     * Sets how long a study waits while no worker is connected, whether none has
+     * connected yet or every one has left, before it fails.
+     * @param millis the timeout in milliseconds
+     */
+    public void setConnectTimeout(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("The connect timeout must be positive.");
+        }
+        this.connectTimeoutMillis = millis;
+    }
+
+    /**
+     * Retrieves the number of workers connected right now.
+     * @return the connected worker count
+     */
+    public int getLiveWorkers() {
+        return liveWorkers.get();
+    }
+
+    /**
+     * Runs a study: every replication of every branch, on whichever workers are connected.
+     * Blocks until every branch is complete.
+     * @param branches the branches
+     * @param maxCustomers the number of customers each branch serves per replication
+     * @param replications the number of replications of every branch
+     * @param seed the seed every replication's seed is split from
+     * @param timeAccelerationFactor 0 to run branches in the discrete-event model, otherwise the speed of time of the threaded model
+     * @param listener receives each branch as soon as it is complete, on a coordinator thread, or null
+     * @return the results of every branch, in the order of the branches
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws IllegalStateException if a replication fails, every launched worker has exited,
+     *         or no worker was connected for the connect timeout
+     */
+    public synchronized List<BranchResult> run(List<SweepRunner.Cell> branches, int maxCustomers, int replications, long seed,
+            int timeAccelerationFactor, Consumer<BranchResult> listener) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("The coordinator is closed.");
+        }
+        if (replications <= 0) {
+            throw new IllegalArgumentException("At least one replication is required.");
+        }
+        Study study = new Study(branches, maxCustomers, replications, timeAccelerationFactor, listener);
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int b = 0; b < branches.size(); b++) {
+            SplittableRandom branchRandom = root.split();
+            for (int r = 0; r < replications; r++) {
+                tasks.add(new Task(study, b, branchRandom.split().nextLong()));
+            }
+        }
+        long unconnectedSince = System.nanoTime();
+        while (!study.remaining.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (liveWorkers.get() > 0) {
+                unconnectedSince = System.nanoTime();
+            } else if (!workerProcesses.isEmpty() && workerProcesses.stream().noneMatch(Process::isAlive)) {
+                study.fail("Every worker has exited.");
+            } else if (System.nanoTime() - unconnectedSince > TimeUnit.MILLISECONDS.toNanos(connectTimeoutMillis)) {
+                study.fail("No worker was connected for " + connectTimeoutMillis + " ms.");
+            }
+        }
+        tasks.removeIf(task -> task.study == study);
+        if (study.failure != null) {
+            throw new IllegalStateException(study.failure);
+        }
+        totalWaitTimes = study.totalWaitTimes;
+        totalServiceTimes = study.totalServiceTimes;
+        return Arrays.asList(study.results);
+    }
+
+    /**
+     * Retrieves every wait of the last study, merged over all branches.
+     * @return the histogram in ticks of EventDrivenSimulation when the study ran in the
+     *         discrete-event model, in real nanoseconds when it ran in the threaded model
+     */
+    public LatencyHistogram getTotalWaitTimes() {
+        return totalWaitTimes;
+    }
+
+    /**
+     * Retrieves every service time of the last study, merged over all branches.
+     * @return the histogram in ticks of EventDrivenSimulation when the study ran in the
+     *         discrete-event model, in real nanoseconds when it ran in the threaded model
+     */
+    public LatencyHistogram getTotalServiceTimes() {
+        return totalServiceTimes;
+    }
+
+    /**
+     * Accepts worker connections and gives each a thread of its own until the coordinator closes.
+     */
+    private void acceptLoop() {
+        int workerNumber = 0;
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                workerNumber += 1;
+                Thread connection = new Thread(() -> serveWorker(socket), "coordinator-worker-" + workerNumber);
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Feeds tasks to one worker until it disconnects or the coordinator closes. The task
+     * of a worker that disconnects goes back to the front of the queue.
+     * @param socket the worker's connection
+     */
+    private void serveWorker(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout((int) HANDSHAKE_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Rejected a connection that is not a worker of this version: " + socket.getRemoteSocketAddress());
+                return;
+            }
+            socket.setSoTimeout(0);
+            liveWorkers.incrementAndGet();
+            try {
+                while (!closed) {
+                    Task task = tasks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (task == null) {
+                        continue;
+                    }
+                    try {
+                        exchange(task, in, out);
+                    } catch (IOException e) {
+                        tasks.addFirst(task);
+                        throw e;
+                    }
+                }
+                out.writeByte(SHUTDOWN);
+                out.flush();
+            } finally {
+                liveWorkers.decrementAndGet();
+            }
+        } catch (SocketException e) {
+            return;
+        } catch (IOException | InterruptedException e) {
+            System.err.println(e);
+        }
+    }
+
+    /**
+     * Sends a task to a worker and records its answer.
+     * @param task the task
+     * @param in the worker's messages
+     * @param out the messages to the worker
+     * @throws IOException if the connection fails
+     */
+    private void exchange(Task task, DataInputStream in, DataOutputStream out) throws IOException {
+        Study study = task.study;
+        out.writeByte(TASK);
+        out.writeInt(task.branch);
+        out.writeUTF(study.results[task.branch].getBranch().getKey());
+        out.writeInt(study.maxCustomers);
+        out.writeInt(study.timeAccelerationFactor);
+        out.writeLong(task.seed);
+        out.flush();
+        byte reply = in.readByte();
+        int branch = in.readInt();
+        if (branch != task.branch) {
+            throw new IOException("A worker answered for the wrong task.");
+        }
+        if (reply == FAILED) {
+            study.fail("Branch " + (branch + 1) + " failed on a worker: " + in.readUTF());
+        } else if (reply == RESULT) {
+            int customersServed = in.readInt();
+            double waitTimeTotal = in.readDouble();
+            LatencyHistogram waitTimes = LatencyHistogram.readFrom(in);
+            LatencyHistogram serviceTimes = LatencyHistogram.readFrom(in);
+            study.replicationDone(branch, customersServed, waitTimeTotal, waitTimes, serviceTimes);
+        } else {
+            throw new IOException("Unknown message from a worker: " + reply);
+        }
+    }
+
+    /**
+     * Stops the coordinator: connected workers are told to exit, and launched workers
+     * that do not exit within a few seconds are killed.
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Process process : workerProcesses) {
+            try {
+                if (!process.waitFor(HANDSHAKE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The state of one study while it runs.
+     */
+    private static class Study {
+
+        final int maxCustomers;             /* the number of customers per replication */
+        final int timeAccelerationFactor;   /* 0 for the discrete-event model, else the threaded model's speed */
+        final int replications;             /* the number of replications of every branch */
+        final Consumer<BranchResult> listener;  /* receives every completed branch, or null */
+        final BranchResult[] results;       /* the results of every branch */
+        final CountDownLatch remaining;     /* the replications not yet done */
+        final LatencyHistogram totalWaitTimes = new LatencyHistogram();     /* every wait so far */
+        final LatencyHistogram totalServiceTimes = new LatencyHistogram();  /* every service time so far */
+        volatile String failure;            /* why the study failed, or null */
+
+        Study(List<SweepRunner.Cell> branches, int maxCustomers, int replications, int timeAccelerationFactor,
+                Consumer<BranchResult> listener) {
+            this.maxCustomers = maxCustomers;
+            this.timeAccelerationFactor = timeAccelerationFactor;
+            this.replications = replications;
+            this.listener = listener;
+            this.results = new BranchResult[branches.size()];
+            for (int b = 0; b < results.length; b++) {
+                results[b] = new BranchResult(b, branches.get(b));
+            }
+            this.remaining = new CountDownLatch(branches.size() * replications);
+        }
+
+        /**
+         * Merges the results of a replication into its branch and the network totals.
+         */
+        void replicationDone(int branch, int customersServed, double waitTimeTotal, LatencyHistogram waitTimes,
+                LatencyHistogram serviceTimes) {
+            BranchResult result = results[branch];
+            boolean complete;
+            synchronized (this) {
+                result.merge(customersServed, waitTimeTotal, waitTimes, serviceTimes);
+                totalWaitTimes.merge(waitTimes);
+                totalServiceTimes.merge(serviceTimes);
+                complete = result.replications == replications;
+            }
+            if (complete && listener != null && failure == null) {
+                listener.accept(result);
+            }
+            remaining.countDown();
+        }
+
+        /**
+         * Ends the study with an error.
+         * @param reason the error message
+         */
+        void fail(String reason) {
+            if (failure == null) {
+                failure = reason;
+            }
+            while (remaining.getCount() > 0) {
+                remaining.countDown();
+            }
+        }
+    }
+
+    /**
+     * One replication of one branch, waiting for a worker.
+     */
+    private static class Task {
+
+        final Study study;      /* the study the task belongs to */
+        final int branch;       /* the branch's index */
+        final long seed;        /* the replication's seed */
+
+        Task(Study study, int branch, long seed) {
+            this.study = study;
+            this.branch = branch;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * The merged results of every replication of one branch.
+     */
+    public static class BranchResult {
+
+        private final int index;                /* the branch's index in the study */
+        private final SweepRunner.Cell branch;  /* the branch's settings */
+        private int replications;               /* the replications merged so far */
+        private long customersServed;           /* customers served over every replication */
+        private double waitTimeTotal;           /* total wait over every replication, in seconds */
+        private final LatencyHistogram waitTimes = new LatencyHistogram();      /* every wait */
+        private final LatencyHistogram serviceTimes = new LatencyHistogram();   /* every service time */
+
+        BranchResult(int index, SweepRunner.Cell branch) {
+            this.index = index;
+            this.branch = branch;
+        }
+
+        /**
+         * Adds the results of one replication.
+         */
+        void merge(int customers, double waitTime, LatencyHistogram waits, LatencyHistogram services) {
+            replications += 1;
+            customersServed += customers;
+            waitTimeTotal += waitTime;
+            waitTimes.merge(waits);
+            serviceTimes.merge(services);
+        }
+
+        /**
+         * Retrieves the branch's position in the study.
+         * @return the index, from 0
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Retrieves the branch's settings.
+         * @return the cell describing the branch
+         */
+        public SweepRunner.Cell getBranch() {
+            return branch;
+        }
+
+        /**
+         * Retrieves the number of replications merged.
+         * @return the replication count
+         */
+        public int getReplications() {
+            return replications;
+        }
+
+        /**
+         * Retrieves the number of customers served over every replication.
+         * @return the customer count
+         */
+        public long getCustomersServed() {
+            return customersServed;
+        }
+
+        /**
+         * Retrieves the average wait over every customer of every replication.
+         * @return the average wait in seconds
+         */
+        public double getCustomerWaitTimeAverage() {
+            return customersServed == 0 ? 0 : waitTimeTotal / customersServed;
+        }
+
+        /**
+         * Retrieves the waits of every replication, merged.
+         * @return the histogram in ticks of EventDrivenSimulation when the study ran in the
+         *         discrete-event model, in real nanoseconds when it ran in the threaded model
+         */
+        public LatencyHistogram getWaitTimes() {
+            return waitTimes;
+        }
+
+        /**
+         * Retrieves the service times of every replication, merged.
+         * @return the histogram in ticks of EventDrivenSimulation when the study ran in the
+         *         discrete-event model, in real nanoseconds when it ran in the threaded model
+         */
+        public LatencyHistogram getServiceTimes() {
+            return serviceTimes;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+/**
+ * A worker process of a distributed study. It connects to a SimulationCoordinator,
+ * runs the replications it is sent one at a time, each as a BankSimulation of one
+ * branch, and sends back their results until it is told to shut down or the
+ * coordinator goes away. Start one per processor on every machine taking part:
+ * java SimulationWorker host port
+ */
+public class SimulationWorker implements Runnable {
+
+    private final String host;  /* the coordinator's host */
+    private final int port;     /* the coordinator's port */
+
+    /**
+     * Constructs a worker.
+     * @param host the coordinator's host
+     * @param port the coordinator's port
+     */
+    public SimulationWorker(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: java SimulationWorker host port");
+            System.exit(2);
+        }
+        new SimulationWorker(args[0], Integer.parseInt(args[1])).run();
+    }
+
+    /**
+     * Serves the coordinator until it says to shut down or disconnects.
+     */
+    @Override
+    public void run() {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(SimulationCoordinator.MAGIC);
+            out.writeInt(SimulationCoordinator.VERSION);
+            out.flush();
+            while (true) {
+                byte message = in.readByte();
+                if (message == SimulationCoordinator.SHUTDOWN) {
+                    return;
+                }
+                if (message != SimulationCoordinator.TASK) {
+                    throw new IOException("Unknown message from the coordinator: " + message);
+                }
+                runTask(in, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
+
+    /**
+     * Reads a task, runs its replication and writes the result.
+     * @param in the rest of the TASK message
+     * @param out where the answer goes
+     * @throws IOException if the connection fails
+     */
+    private void runTask(DataInputStream in, DataOutputStream out) throws IOException {
+        int branch = in.readInt();
+        String settings = in.readUTF();
+        int maxCustomers = in.readInt();
+        int timeAccelerationFactor = in.readInt();
+        long seed = in.readLong();
+        BankSimulation<Customer> bank;
+        try {
+            SimulationConfig config = SweepRunner.Cell.parse(settings).toBuilder(maxCustomers, seed)
+                    .timeAcceleration(Math.max(timeAccelerationFactor, 1))
+                    .build();
+            bank = new BankSimulation<Customer>(config);
+            bank.setEventDriven(timeAccelerationFactor == 0);
+            bank.run();
+        } catch (RuntimeException e) {
+            out.writeByte(SimulationCoordinator.FAILED);
+            out.writeInt(branch);
+            out.writeUTF(String.valueOf(e));
+            return;
+        }
+        out.writeByte(SimulationCoordinator.RESULT);
+        out.writeInt(branch);
+        out.writeInt(bank.getTotalCustomersServed());
+        out.writeDouble(bank.getCustomerWaitTimeTotal());
+        bank.getWaitTimes().writeTo(out);
+        bank.getServiceTimes().writeTo(out);
+    }
+}
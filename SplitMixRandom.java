@@ -0,0 +1,122 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.random.RandomGenerator;
+/**
+ * The SplitMix64 generator of java.util.SplittableRandom, whose state can be saved
+ * and restored. It gives exactly the numbers SplittableRandom gives for the same seed,
+ * splits the same way, and draws doubles, bounded ints and Gaussians through the same
+ * RandomGenerator defaults, so switching a simulation to it changes no result. The
+ * whole state is two longs, so a checkpoint can record a stream's position exactly
+ * whatever the distributions drew from it. Not thread-safe.
+ */
+public class SplitMixRandom implements RandomGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;  /* the increment of an unsplit generator */
+
+    private long seed;          /* the state, advanced by gamma for every 64 random bits */
+    private long gamma;         /* the odd increment of this generator */
+
+    /**
+     * Constructs a generator that gives the numbers of new SplittableRandom(seed).
+     * @param seed the seed
+     */
+    public SplitMixRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Constructs a generator from its state.
+     * @param seed the state
+     * @param gamma the increment, odd
+     */
+    private SplitMixRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Splits off a new generator, as SplittableRandom.split does.
+     * @return a generator giving an independent stream of numbers
+     */
+    public SplitMixRandom split() {
+        return new SplitMixRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    @Override
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    /**
+     * Advances the state.
+     * @return the new state
+     */
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    /**
+     * Writes the generator's state.
+     * @param out where the state goes
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(seed);
+        out.writeLong(gamma);
+    }
+
+    /**
+     * Restores a state written by writeTo, so the generator continues where the
+     * written one was.
+     * @param in where the state is read from
+     * @throws IOException if reading fails or the state is invalid
+     */
+    public void readFrom(DataInput in) throws IOException {
+        long restoredSeed = in.readLong();
+        long restoredGamma = in.readLong();
+        if ((restoredGamma & 1) == 0) {
+            throw new IOException("Invalid random generator state.");
+        }
+        seed = restoredSeed;
+        gamma = restoredGamma;
+    }
+
+    /**
+     * Stafford's variant 13 of the MurmurHash3 finalizer.
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Stafford's variant 4 of the MurmurHash3 finalizer, keeping the high 32 bits.
+     */
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    /**
+     * Turns a state into an odd gamma with enough bit transitions.
+     */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int transitions = Long.bitCount(z ^ (z >>> 1));
+        return (transitions < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+@SuppressWarnings("unchecked")  /* suppress safe type cast checks */
+/**
+ * A lock-free ring buffer queue for exactly one producer thread and one consumer
+ * thread, such as a receptionist feeding a queue that a single teller serves.
+ * Each side caches the other side's position so that it only reads the shared
+ * counter when the cached value says the queue looks full or empty.
+ */
+public class SpscRingQueue<E> extends AbstractRingQueue<E> {
+
+    private final PaddedSequence queueBackPosition = new PaddedSequence(0);     /* next position to write, owned by the producer */
+    private final PaddedSequence queueFrontPosition = new PaddedSequence(0);    /* next position to read, owned by the consumer */
+    private long cachedFrontPosition;   /* producer's last seen front position */
+    private long cachedBackPosition;    /* consumer's last seen back position */
+
+    /**
+     * Constructs a single-producer single-consumer queue.
+     * @param maxCapacity the minimum number of elements the queue can hold
+     * @param queueID the ID identifying this queue
+     */
+    public SpscRingQueue(int maxCapacity, int queueID) {
+        super(maxCapacity, queueID);
+    }
+
+    @Override
+    public boolean offer(E newElement) {
+        if (newElement == null) {
+            throw new NullPointerException("Queues cannot hold null elements.");
+        }
+        long back = queueBackPosition.getPlain();
+        if (back - cachedFrontPosition >= ringBuffer.length) {
+            cachedFrontPosition = queueFrontPosition.get();
+            if (back - cachedFrontPosition >= ringBuffer.length) {
+                return false;
+            }
+        }
+        ringBuffer[(int) back & ringMask] = newElement;
+        queueBackPosition.setRelease(back + 1);
+        signalElementAdded();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long front = queueFrontPosition.getPlain();
+        if (front >= cachedBackPosition) {
+            cachedBackPosition = queueBackPosition.get();
+            if (front >= cachedBackPosition) {
+                return null;
+            }
+        }
+        int index = (int) front & ringMask;
+        E dequeuedElement = (E) ringBuffer[index];
+        ringBuffer[index] = null;
+        queueFrontPosition.setRelease(front + 1);
+        return dequeuedElement;
+    }
+
+    @Override
+    public int size() {
+        long front = queueFrontPosition.get();
+        long back = queueBackPosition.get();
+        return (int) Math.max(0, Math.min(back - front, ringBuffer.length));
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+/**
+ * Accumulates the count, mean and variance of a series of observations using
+ * Welford's method, which stays accurate over long series. Two accumulators can
+ * be merged, so observations gathered on different threads can be combined.
+ */
+public class SummaryStatistics {
+
+    /* two-sided 95% Student t critical values for 1 to 30 degrees of freedom */
+    private static final double[] T_CRITICAL_95 = {
+        12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+        2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+        2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+    private static final double Z_CRITICAL_95 = 1.960; /* normal critical value for large samples */
+
+    private long count;     /* number of observations */
+    private double mean;    /* running mean of the observations */
+    private double sumOfSquaredDeviations; /* running sum of squared differences from the mean */
+    private double minimum = Double.POSITIVE_INFINITY;  /* smallest observation */
+    private double maximum = Double.NEGATIVE_INFINITY;  /* largest observation */
+
+    /**
+     * Adds an observation.
+     * @param value the observed value
+     */
+    public void add(double value) {
+        count += 1;
+        double delta = value - mean;
+        mean += delta / count;
+        sumOfSquaredDeviations += delta * (value - mean);
+        minimum = Math.min(minimum, value);
+        maximum = Math.max(maximum, value);
+    }
+
+    /**
+     * Adds all observations of another accumulator to this one.
+     * @param other the accumulator to merge in
+     */
+    public void merge(SummaryStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            sumOfSquaredDeviations = other.sumOfSquaredDeviations;
+            minimum = other.minimum;
+            maximum = other.maximum;
+            return;
+        }
+        long combinedCount = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / combinedCount;
+        sumOfSquaredDeviations += other.sumOfSquaredDeviations + delta * delta * ((double) count * other.count / combinedCount);
+        count = combinedCount;
+        minimum = Math.min(minimum, other.minimum);
+        maximum = Math.max(maximum, other.maximum);
+    }
+
+    /**
+     * Retrieves the number of observations.
+     * @return the observation count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Retrieves the mean of the observations.
+     * @return the sample mean, or 0 if there are none
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Retrieves the sample variance of the observations.
+     * @return the unbiased sample variance, or 0 with fewer than two observations
+     */
+    public double getVariance() {
+        if (count < 2) {
+            return 0;
+        }
+        return sumOfSquaredDeviations / (count - 1);
+    }
+
+    /**
+     * Retrieves the sample standard deviation of the observations.
+     * @return the sample standard deviation
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Retrieves the half-width of the 95% confidence interval of the mean.
+     * @return the distance from the mean to either end of the interval
+     */
+    public double getConfidenceHalfWidth() {
+        if (count < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        long degreesOfFreedom = count - 1;
+        double critical = degreesOfFreedom <= T_CRITICAL_95.length ? T_CRITICAL_95[(int) degreesOfFreedom - 1] : Z_CRITICAL_95;
+        return critical * getStandardDeviation() / Math.sqrt(count);
+    }
+
+    /**
+     * Retrieves the smallest observation.
+     * @return the minimum, or positive infinity if there are none
+     */
+    public double getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Retrieves the largest observation.
+     * @return the maximum, or negative infinity if there are none
+     */
+    public double getMaximum() {
+        return maximum;
+    }
+}
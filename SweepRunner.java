@@ -0,0 +1,624 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Runs a parameter study: every cell of a grid over teller count, queue layout,
+ * arrival and service distributions and routing policy is simulated with the
+ * event-driven model for a number of replications, spread over a ForkJoinPool.
+ *
+ * Completed cells are cached by a key naming everything that affects their result:
+ * the cell's settings, the number of customers and replications, the seed and
+ * CACHE_VERSION. Results are kept in a bounded in-memory LRU map and, if a cache
+ * directory is given, in one small file per cell, so a later run in the same or
+ * another process only simulates the cells whose settings changed. Cells whose key
+ * is the same, such as single-queue cells differing only in routing, are run once.
+ */
+public class SweepRunner {
+
+    public static final int CACHE_VERSION = 1;          /* raise when the model changes what a cell's result is */
+    public static final int DEFAULT_MEMORY_CELLS = 65536;   /* results held in memory by default */
+
+    private final int maxCustomers;         /* the number of customers served per replication */
+    private final int replications;         /* the number of replications of every cell */
+    private final long seed;                /* the seed every cell's replications are split from */
+    private final int parallelism;          /* the number of worker threads */
+    private final Path cacheDirectory;      /* where cell results are stored, or null for memory only */
+    private final Map<String, CellResult> memoryCache;  /* the most recently used results by key */
+
+    private final LongAdder cellsSimulated = new LongAdder();   /* cells simulated by this runner */
+    private final LongAdder cellsFromMemory = new LongAdder();  /* cells found in the memory cache */
+    private final LongAdder cellsFromDisk = new LongAdder();    /* cells found in the cache directory */
+
+    /**
+     * Constructs a sweep runner.
+     * @param maxCustomers the number of customers served per replication
+     * @param replications the number of replications of every cell
+     * @param seed the seed every cell's replications are split from, the same for every cell
+     * @param parallelism the number of worker threads, or 0 for one per processor
+     * @param cacheDirectory where cell results are stored between runs, or null to keep them in memory only
+     * @param memoryCells the most cell results kept in memory
+     */
+    public SweepRunner(int maxCustomers, int replications, long seed, int parallelism, Path cacheDirectory, int memoryCells) {
+        if (maxCustomers <= 0 || replications <= 0) {
+            throw new IllegalArgumentException("A sweep needs at least one customer and one replication.");
+        }
+        if (memoryCells < 0) {
+            throw new IllegalArgumentException("The memory cache size cannot be negative.");
+        }
+        this.maxCustomers = maxCustomers;
+        this.replications = replications;
+        this.seed = seed;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.cacheDirectory = cacheDirectory;
+        this.memoryCache = Collections.synchronizedMap(new LinkedHashMap<String, CellResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CellResult> eldest) {
+                return size() > memoryCells;
+            }
+        });
+    }
+
+    /**
+     * Builds every combination of the given settings, the last setting varying fastest.
+     * @param tellers the teller counts
+     * @param multiQueue the queue layouts: false for one shared queue, true for one queue per teller
+     * @param arrivals the distributions of arrival delays, as Distribution.parse specifications
+     * @param services the distributions of service times, as Distribution.parse specifications
+     * @param routings the routing policy names, used by multi-queue cells
+     * @return the cells of the grid
+     * @throws IllegalArgumentException if a setting is not valid
+     */
+    public static List<Cell> grid(int[] tellers, boolean[] multiQueue, String[] arrivals, String[] services, String[] routings) {
+        List<Cell> cells = new ArrayList<Cell>();
+        for (int t : tellers) {
+            for (boolean multi : multiQueue) {
+                for (String arrival : arrivals) {
+                    for (String service : services) {
+                        for (String routing : routings) {
+                            cells.add(new Cell(t, multi, arrival, service, routing));
+                        }
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Runs a sweep, simulating only the cells that are not cached.
+     * @param cells the cells to run
+     * @return the result of every cell, in the order of the cells
+     * @throws UncheckedIOException if the cache directory cannot be read or written
+     */
+    public List<CellResult> run(List<Cell> cells) {
+        Map<String, CellResult> results = new HashMap<String, CellResult>();
+        Map<String, Cell> pending = new LinkedHashMap<String, Cell>();
+        for (Cell cell : cells) {
+            String key = getKey(cell);
+            if (results.containsKey(key) || pending.containsKey(key)) {
+                continue;
+            }
+            CellResult cached = lookUp(key);
+            if (cached != null) {
+                results.put(key, cached);
+            } else {
+                pending.put(key, cell);
+            }
+        }
+        List<Cell> missing = new ArrayList<Cell>(pending.values());
+        if (!missing.isEmpty()) {
+            CellResult[] simulated = new CellResult[missing.size()];
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new CellTask(missing, simulated, 0, missing.size()));
+            } finally {
+                pool.shutdown();
+            }
+            for (CellResult result : simulated) {
+                results.put(result.key, result);
+            }
+        }
+        List<CellResult> ordered = new ArrayList<CellResult>(cells.size());
+        for (Cell cell : cells) {
+            ordered.add(results.get(getKey(cell)));
+        }
+        return ordered;
+    }
+
+    /**
+     * Simulates the cells of a range, splitting the range in half while it holds several.
+     */
+    private class CellTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;    /* tasks are never serialized */
+        private final List<Cell> cells;         /* the cells to simulate */
+        private final CellResult[] results;     /* where the result of every cell goes */
+        private final int from;                 /* first cell of the range */
+        private final int to;                   /* one past the last cell of the range */
+
+        CellTask(List<Cell> cells, CellResult[] results, int from, int to) {
+            this.cells = cells;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = simulate(cells.get(from));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CellTask(cells, results, from, middle), new CellTask(cells, results, middle, to));
+        }
+    }
+
+    /**
+     * Simulates every replication of a cell and stores the result in the caches.
+     * @param cell the cell
+     * @return the cell's result
+     */
+    private CellResult simulate(Cell cell) {
+        long startTime = System.nanoTime();
+        SimulationConfig config = cell.toConfig(maxCustomers, seed);
+        EventDrivenSimulation simulation = new EventDrivenSimulation(config);
+        SummaryStatistics waits = new SummaryStatistics();
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int r = 0; r < replications; r++) {
+            simulation.run(root.split().nextLong());
+            waits.add(simulation.getCustomerWaitTimeAverage());
+        }
+        QueueingModel model = QueueingModel.estimate(config);
+        CellResult result = new CellResult(getKey(cell), cell, replications, waits.getMean(), waits.getConfidenceHalfWidth(),
+                waits.getMinimum(), waits.getMaximum(), model.getWaitMicros() / QueueingModel.MICROS_PER_SECOND,
+                model.getUtilization(), (System.nanoTime() - startTime) / 1e9, false);
+        cellsSimulated.increment();
+        memoryCache.put(result.key, result);
+        store(result);
+        return result;
+    }
+
+    /**
+     * Builds the cache key of a cell: every setting that affects its result.
+     * @param cell the cell
+     * @return the key
+     */
+    private String getKey(Cell cell) {
+        return "v" + CACHE_VERSION + ",customers=" + maxCustomers + ",replications=" + replications + ",seed=" + seed
+                + "," + cell.getKey();
+    }
+
+    /**
+     * Looks a result up in memory, then in the cache directory.
+     * @param key the cell's key
+     * @return the cached result, or null if the cell must be simulated
+     */
+    private CellResult lookUp(String key) {
+        CellResult result = memoryCache.get(key);
+        if (result != null) {
+            cellsFromMemory.increment();
+            return result.asCached();
+        }
+        if (cacheDirectory == null) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(getCacheFile(key), StandardCharsets.UTF_8);
+            if (lines.size() < 2 || !lines.get(0).equals(key)) {
+                return null;
+            }
+            result = CellResult.parse(key, lines.get(1));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (result != null) {
+            cellsFromDisk.increment();
+            memoryCache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Writes a result to the cache directory. The file is written under a temporary
+     * name and then renamed, so a reader never sees half a result.
+     * @param result the result
+     */
+    private void store(CellResult result) {
+        if (cacheDirectory == null) {
+            return;
+        }
+        try {
+            Path file = getCacheFile(result.key);
+            Files.createDirectories(file.getParent());
+            Path temporary = Files.createTempFile(file.getParent(), "cell", ".tmp");
+            Files.write(temporary, List.of(result.key, result.format()), StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finds the file caching a cell: named by the SHA-256 hash of its key, in one of
+     * 256 subdirectories so no directory grows too large.
+     * @param key the cell's key
+     * @return the cache file
+     */
+    private Path getCacheFile(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return cacheDirectory.resolve(name.substring(0, 2)).resolve(name + ".cell");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Retrieves the number of cells this runner has simulated.
+     * @return the simulated cell count
+     */
+    public long getCellsSimulated() {
+        return cellsSimulated.sum();
+    }
+
+    /**
+     * Retrieves the number of cells found in the memory cache.
+     * @return the memory hit count
+     */
+    public long getCellsFromMemory() {
+        return cellsFromMemory.sum();
+    }
+
+    /**
+     * Retrieves the number of cells found in the cache directory.
+     * @return the disk hit count
+     */
+    public long getCellsFromDisk() {
+        return cellsFromDisk.sum();
+    }
+
+    /**
+     * Writes results as CSV, with a header line.
+     * @param results the results
+     * @param file the CSV file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCsv(List<CellResult> results, Path file) throws IOException {
+        List<String> lines = new ArrayList<String>(results.size() + 1);
+        lines.add("tellers,queues,arrivals,services,routing,replications,wait_mean,wait_ci95,wait_min,wait_max,"
+                + "analytic_wait,analytic_utilization,compute_seconds,cached");
+        for (CellResult result : results) {
+            Cell cell = result.cell;
+            lines.add(cell.tellers + "," + (cell.multiQueue ? cell.tellers : 1) + "," + cell.arrivals + "," + cell.services
+                    + "," + cell.routing + "," + result.format() + "," + result.cached);
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One cell of a sweep: the settings of one bank.
+     */
+    public static class Cell {
+
+        private final int tellers;          /* the number of tellers */
+        private final boolean multiQueue;   /* one queue per teller, or one shared queue */
+        private final String arrivals;      /* the specification of the arrival delays */
+        private final String services;      /* the specification of the service times */
+        private final String routing;       /* the routing policy name, "-" for a single queue */
+
+        /**
+         * Constructs a cell. The distributions are parsed once here to check them.
+         * @param tellers the number of tellers
+         * @param multiQueue whether every teller has its own queue
+         * @param arrivals the distribution of arrival delays, as a Distribution.parse specification
+         * @param services the distribution of service times, as a Distribution.parse specification
+         * @param routing the routing policy name, ignored with a single queue
+         * @throws IllegalArgumentException if a setting is not valid
+         */
+        public Cell(int tellers, boolean multiQueue, String arrivals, String services, String routing) {
+            if (tellers <= 0) {
+                throw new IllegalArgumentException("A cell needs at least one teller.");
+            }
+            this.tellers = tellers;
+            this.multiQueue = multiQueue && tellers > 1;
+            this.arrivals = Distribution.parse(arrivals).toString();
+            this.services = Distribution.parse(services).toString();
+            this.routing = this.multiQueue ? routing : "-";
+            if (this.multiQueue) {
+                RoutingPolicy.create(routing, 0);
+            }
+        }
+
+        /**
+         * Builds the configuration of the cell's bank.
+         * @param maxCustomers the number of customers
+         * @param seed the seed of the configuration
+         * @return the configuration
+         */
+        SimulationConfig toConfig(int maxCustomers, long seed) {
+            return toBuilder(maxCustomers, seed).build();
+        }
+
+        /**
+         * Starts building the configuration of the cell's bank, to add settings the cell does not cover.
+         * @param maxCustomers the number of customers
+         * @param seed the seed of the configuration
+         * @return a builder holding the cell's settings
+         */
+        SimulationConfig.Builder toBuilder(int maxCustomers, long seed) {
+            SimulationConfig.Builder builder = SimulationConfig.builder()
+                    .customers(maxCustomers)
+                    .tellers(tellers)
+                    .queues(multiQueue ? tellers : 1)
+                    .arrivals(Distribution.parse(arrivals))
+                    .services(Distribution.parse(services))
+                    .seed(seed);
+            if (multiQueue) {
+                builder.routing(routing);
+            }
+            return builder;
+        }
+
+        /**
+         * Builds the part of the cache key naming the cell's settings.
+         * @return the settings as text
+         */
+        String getKey() {
+            return "tellers=" + tellers + ",queues=" + (multiQueue ? tellers : 1) + ",arrivals=" + arrivals
+                    + ",services=" + services + ",routing=" + routing;
+        }
+
+        /**
+         * Reads a cell from the settings written by getKey.
+         * @param key the settings as text
+         * @return the cell
+         * @throws IllegalArgumentException if the text does not describe a valid cell
+         */
+        static Cell parse(String key) {
+            String[] settings = key.split(",");
+            String[] names = { "tellers=", "queues=", "arrivals=", "services=", "routing=" };
+            if (settings.length != names.length) {
+                throw new IllegalArgumentException("Invalid cell: " + key);
+            }
+            for (int i = 0; i < names.length; i++) {
+                if (!settings[i].startsWith(names[i])) {
+                    throw new IllegalArgumentException("Invalid cell: " + key);
+                }
+                settings[i] = settings[i].substring(names[i].length());
+            }
+            try {
+                return new Cell(Integer.parseInt(settings[0]), Integer.parseInt(settings[1]) > 1, settings[2], settings[3], settings[4]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cell: " + key);
+            }
+        }
+
+        /**
+         * Retrieves the number of tellers.
+         * @return the number of tellers
+         */
+        public int getTellers() {
+            return tellers;
+        }
+
+        /**
+         * Checks whether every teller has its own queue.
+         * @return true if every teller has its own queue
+         */
+        public boolean isMultiQueue() {
+            return multiQueue;
+        }
+
+        /**
+         * Retrieves the distribution of arrival delays.
+         * @return the Distribution.parse specification
+         */
+        public String getArrivals() {
+            return arrivals;
+        }
+
+        /**
+         * Retrieves the distribution of service times.
+         * @return the Distribution.parse specification
+         */
+        public String getServices() {
+            return services;
+        }
+
+        /**
+         * Retrieves the routing policy.
+         * @return the routing policy name, "-" for a single queue
+         */
+        public String getRouting() {
+            return routing;
+        }
+
+        @Override
+        public String toString() {
+            return getKey();
+        }
+    }
+
+    /**
+     * The result of one cell: the average wait of its replications, with the
+     * analytic estimate of QueueingModel next to it for comparison.
+     */
+    public static class CellResult {
+
+        private final String key;               /* the cell's cache key */
+        private final Cell cell;                /* the cell */
+        private final int replications;         /* the number of replications */
+        private final double waitMean;          /* the mean of the replications' average waits, in seconds */
+        private final double waitHalfWidth;     /* the 95% confidence half-width of waitMean */
+        private final double waitMinimum;       /* the lowest average wait of a replication */
+        private final double waitMaximum;       /* the highest average wait of a replication */
+        private final double analyticWait;      /* the long-run wait of QueueingModel, in seconds */
+        private final double analyticUtilization;   /* the teller utilization of QueueingModel */
+        private final double computeSeconds;    /* how long the cell took to simulate */
+        private final boolean cached;           /* whether the result came from a cache */
+
+        CellResult(String key, Cell cell, int replications, double waitMean, double waitHalfWidth, double waitMinimum,
+                double waitMaximum, double analyticWait, double analyticUtilization, double computeSeconds, boolean cached) {
+            this.key = key;
+            this.cell = cell;
+            this.replications = replications;
+            this.waitMean = waitMean;
+            this.waitHalfWidth = waitHalfWidth;
+            this.waitMinimum = waitMinimum;
+            this.waitMaximum = waitMaximum;
+            this.analyticWait = analyticWait;
+            this.analyticUtilization = analyticUtilization;
+            this.computeSeconds = computeSeconds;
+            this.cached = cached;
+        }
+
+        /**
+         * Formats the values of the result as comma-separated text, as stored in the cache.
+         * @return the values
+         */
+        String format() {
+            return String.format(Locale.ROOT, "%d,%.9g,%.9g,%.9g,%.9g,%.9g,%.9g,%.6f", replications, waitMean, waitHalfWidth,
+                    waitMinimum, waitMaximum, analyticWait, analyticUtilization, computeSeconds);
+        }
+
+        /**
+         * Copies the result, marked as coming from a cache.
+         * @return the copy
+         */
+        CellResult asCached() {
+            return new CellResult(key, cell, replications, waitMean, waitHalfWidth, waitMinimum, waitMaximum, analyticWait,
+                    analyticUtilization, computeSeconds, true);
+        }
+
+        /**
+         * Reads a result stored by format.
+         * @param key the cell's cache key, which names its settings
+         * @param values the stored values
+         * @return the result, or null if the values cannot be read
+         */
+        static CellResult parse(String key, String values) {
+            String[] settings = key.split(",", 5);
+            String[] fields = values.split(",");
+            if (settings.length != 5 || fields.length != 8) {
+                return null;
+            }
+            try {
+                Cell cell = Cell.parse(settings[4]);
+                return new CellResult(key, cell, Integer.parseInt(fields[0]), Double.parseDouble(fields[1]),
+                        Double.parseDouble(fields[2]), Double.parseDouble(fields[3]), Double.parseDouble(fields[4]),
+                        Double.parseDouble(fields[5]), Double.parseDouble(fields[6]), Double.parseDouble(fields[7]), true);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Retrieves the cell the result belongs to.
+         * @return the cell
+         */
+        public Cell getCell() {
+            return cell;
+        }
+
+        /**
+         * Retrieves the number of replications simulated.
+         * @return the replication count
+         */
+        public int getReplications() {
+            return replications;
+        }
+
+        /**
+         * Retrieves the mean of the replications' average waits.
+         * @return the mean in seconds
+         */
+        public double getWaitMean() {
+            return waitMean;
+        }
+
+        /**
+         * Retrieves the 95% confidence half-width of the mean wait.
+         * @return the half-width in seconds
+         */
+        public double getWaitHalfWidth() {
+            return waitHalfWidth;
+        }
+
+        /**
+         * Retrieves the lowest average wait of a replication.
+         * @return the lowest average in seconds
+         */
+        public double getWaitMinimum() {
+            return waitMinimum;
+        }
+
+        /**
+         * Retrieves the highest average wait of a replication.
+         * @return the highest average in seconds
+         */
+        public double getWaitMaximum() {
+            return waitMaximum;
+        }
+
+        /**
+         * Retrieves the long-run wait estimated by QueueingModel.
+         * @return the wait in seconds, infinite if the tellers cannot keep up
+         */
+        public double getAnalyticWait() {
+            return analyticWait;
+        }
+
+        /**
+         * Retrieves the teller utilization estimated by QueueingModel.
+         * @return the utilization
+         */
+        public double getAnalyticUtilization() {
+            return analyticUtilization;
+        }
+
+        /**
+         * Retrieves how long the cell took to simulate.
+         * @return the wall-clock seconds of the simulation
+         */
+        public double getComputeSeconds() {
+            return computeSeconds;
+        }
+
+        /**
+         * Checks whether the result came from the memory or disk cache.
+         * @return true if the cell was not simulated by this run
+         */
+        public boolean isCached() {
+            return cached;
+        }
+    }
+}
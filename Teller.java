@@ -3,137 +3,271 @@
  * Single VS Multi-Line Queues by Pao Yu
  */
 
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 /**
  * A Teller represents a bank teller that can receive and dequeue customers from a queue.
- * Extends Thread to be able to operate independently from the main thread and other objects.
+ * A teller is a SimulationActor, so it can run on a thread of its own or share
+ * carrier threads with other actors through an ActorScheduler.
  */
-public class Teller extends Thread {
-
-    private static int timeAcceleration = 1;    /* accelerates time based on a factor */
-    private static int totalCustomersProcessed = 0; /* tracks customers processed by all tellers */
-    private static int totalCustomersProcessedFinal = 0;    /* tracks final customers processed */
-    private static int totalCustomersTarget = 0;    /* the target customers to be processed */
-    private static int nextTellerID = 1;    /* class-level id tracker */
-    private static int lastID = -1; /* ID of the last customer served */
-    private static double customerWaitTimeTotal = 0;    /* aggregated customer wait time */
-    private static double customerWaitTimeAverage = 0;  /* aggregated customer avg wait time */
-    private static boolean bankIsOpen = true;   /* tracks whether Tellers should stop operations */
-
-    private boolean debugMode = true;   /* enables consolue output display */
+public class Teller implements SimulationActor {
+
+    private SimulationContext context;  /* state shared with the rest of the simulation */
     private int tellerID;   /* ID of the current teller object instance */
-    private int[] randomDequeueTime;    /* a dataset of random integers */
-    private Queue<Customer> queue;  /* the queue in which a teller is in charge of */
+    private List<ConcurrentQueue<Customer>> queues;  /* the queues a teller is in charge of, in preference order */
+    private volatile LatencyHistogram waitTimes;    /* wait times in nanoseconds of the customers served, created on first use */
+    private volatile LatencyHistogram serviceTimes; /* service times in nanoseconds of the customers served, created on first use */
+    private boolean sharedHistograms;   /* whether the histograms are shared with other tellers */
+    private List<ConcurrentQueue<Customer>> victimQueues = List.of(); /* the other queues the teller may steal from */
+    private String stealFrom;           /* how the teller chooses a queue to steal from, null for no stealing */
+    private int jockeyThreshold;        /* the fewest waiting customers a queue must have to be stolen from */
+    private SplitMixRandom stealRandom; /* chooses random queues to steal from */
+    private IdleSignal idleSignal = new IdleSignal();   /* wakes the teller when one of its queues gets a customer */
+    private Customer servingCustomer;   /* the customer being served, or null while idle */
+    private long servingWaitNanos;      /* how long the customer being served waited */
+    private long serviceStart;          /* when the service of the current customer began */
+    private final LongAdder servedCounter;      /* metric of the customers served by all tellers */
+    private final LongAdder busyNanosCounter;   /* metric of the time all tellers spent serving */
+    private volatile long customersServed;      /* customers this teller served, written by the teller only */
+    private volatile long busyNanos;            /* time this teller spent serving, written by the teller only */
 
     /**
      * Constructs a teller which can serve customers from a queue.
+     * @param context the state shared by the simulation the teller works in
      * @param queue the queue in which the teller operates
-     * @param totalMaxCustomers the total number of customers all tellers will serve collectively
-     * @param timeAccelerationFactor the speed of time tellers will operate
-     * @param randomDequeueTime a dataset of random integers for controlled dequeueing
      */
-    public Teller (Queue<Customer> queue, int totalMaxCustomers, int timeAccelerationFactor, int[] randomDequeueTime) { 
-        this.randomDequeueTime = randomDequeueTime;
-        this.queue = queue;
-        bankIsOpen = true;
-        totalCustomersTarget = totalMaxCustomers;
-        customerWaitTimeTotal = 0;
-        if (timeAccelerationFactor <= 0) {
-            timeAcceleration = 1;
-        } else {
-            timeAcceleration = timeAccelerationFactor;
+    public Teller (SimulationContext context, ConcurrentQueue<Customer> queue) { 
+        this(context, List.of(queue));
+    }
+
+    /**
+     * Constructs a teller which can serve customers from several queues.
+     * @param context the state shared by the simulation the teller works in
+     * @param queues the queues in which the teller operates, checked in order
+     */
+    public Teller (SimulationContext context, List<ConcurrentQueue<Customer>> queues) { 
+        this.context = context;
+        this.queues = queues;
+        this.tellerID = context.nextTellerID();
+        servedCounter = context.getMetrics().counter("customers.served");
+        busyNanosCounter = context.getMetrics().counter("tellers.busy.nanos");
+    }
+
+    /**
+     * Takes the next customer and scales their service time by the time acceleration. If every queue is empty, arms the teller's idle
+     * signal with its queues instead, so the teller sleeps until a customer arrives.
+     * @return the service time in nanoseconds, 0 if every queue is closed and empty, or AWAIT_SIGNAL
+     */
+    @Override
+    public long nextDelayNanos() {
+        if (servingCustomer == null && !processCustomer() && !stealCustomer()) {
+            if (isFinished()) {
+                return 0;
+            }
+            idleSignal.arm();
+            for (ConcurrentQueue<Customer> queue : queues) {
+                queue.awaitElement(idleSignal);
+            }
+            for (ConcurrentQueue<Customer> queue : victimQueues) {
+                queue.awaitBacklog(idleSignal, jockeyThreshold);
+            }
+            return AWAIT_SIGNAL;
+        }
+        serviceStart = System.nanoTime();
+        return servingCustomer.getServiceTime() / context.getTimeAcceleration();
+    }
+
+    /**
+     * One step of a teller's work: finishes serving the current customer, if any.
+     * Once every queue of the teller is closed and empty, such as when closing them
+     * woke the teller, it makes one last attempt to steal before finishing.
+     * @return false once every queue of the teller is closed and empty and there is nothing to steal, true otherwise
+     */
+    @Override
+    public boolean step() {
+        if (servingCustomer != null) {
+            long serviceNanos = System.nanoTime() - serviceStart;
+            recordTimes(servingWaitNanos, serviceNanos);
+            servedCounter.increment();
+            busyNanosCounter.add(serviceNanos);
+            customersServed += 1;
+            busyNanos += serviceNanos;
+            servingCustomer = null;
+            return true;
         }
-        this.tellerID = nextTellerID;
-        nextTellerID++;
+        return !isFinished() || stealCustomer();
     }
 
     /**
-     * The main task a teller runs when it operates. Serves and dequeues customers
-     * based on a controlled time delay from a provided data set.
+     * Checks whether the teller has no customers left to serve.
+     * A closed queue receives no more customers, so this is exact.
+     * @return true if every queue of the teller is closed and empty
      */
-    public void run() {
-        do {
-            controlledRandomTimePasses(totalCustomersProcessed);
-            System.out.flush();
-            if (totalCustomersProcessed >= totalCustomersTarget || (lastID + 1) >= totalCustomersTarget) {
-                totalCustomersProcessedFinal = totalCustomersProcessed;
-                bankIsOpen = false;
-                break;
+    private boolean isFinished() {
+        for (ConcurrentQueue<Customer> queue : queues) {
+            if (!queue.isClosed() || !queue.isEmpty()) {
+                return false;
             }
-            processCustomer();
-        } while (bankIsOpen);
+        }
+        return true;
+    }
+
+    @Override
+    public IdleSignal getIdleSignal() {
+        return idleSignal;
     }
 
     /**
-     * Dequeues a customer and reveals their wait times.
+     * Dequeues a customer from the first of the teller's queues that has one and reveals their wait times.
      * Notifies all Tellers of the numbers and aggregates them.
-     * Synchronized to prevent multiple tellers accessing the same queue at once.
+     * The queues are safe to share, so tellers working the same queue never lock each other out.
+     * @return true if the teller took a customer, false if every queue was empty
      */
-    public void processCustomer() {
-        synchronized (queue) {
-            if (queue.front() != null) {
-                Customer processedCustomer = queue.dequeue();
-                if (processedCustomer != null) {
-                    Teller.totalCustomersProcessed += 1;
-                    lastID = processedCustomer.getCustomerID();
-                    double waitTime = processedCustomer.getWaitTime();
-                    customerWaitTimeTotal += waitTime;
-                    customerWaitTimeAverage = customerWaitTimeTotal / totalCustomersProcessed;
-                    if (debugMode)
-                        System.out.printf("Teller %d processed Customer %d from Queue %d, waited %.3f seconds. (%.3f total)\n", this.tellerID, (processedCustomer.getCustomerID() + 1), queue.getQueueID(), waitTime, Teller.customerWaitTimeTotal);
+    public boolean processCustomer() {
+        for (ConcurrentQueue<Customer> queue : queues) {
+            Customer processedCustomer = queue.poll();
+            if (processedCustomer != null) {
+                processCustomer(processedCustomer, queue);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lets the teller take customers from other queues when its own are empty.
+     * The teller then also wakes up when one of those queues reaches the threshold.
+     * @param victimQueues the queues the teller does not serve but may steal from
+     * @param stealFrom SimulationConfig.STEAL_FROM_LONGEST or SimulationConfig.STEAL_FROM_RANDOM
+     * @param jockeyThreshold the fewest waiting customers a queue must have to be stolen from
+     * @param stealRandom chooses random queues to steal from, split from the simulation's seed
+     */
+    public void enableStealing(List<ConcurrentQueue<Customer>> victimQueues, String stealFrom, int jockeyThreshold, SplitMixRandom stealRandom) {
+        this.victimQueues = victimQueues;
+        this.stealFrom = stealFrom;
+        this.jockeyThreshold = jockeyThreshold;
+        this.stealRandom = stealRandom;
+    }
+
+    /**
+     * Takes the customer at the front of another queue, the one who has waited the
+     * longest there, if that queue has at least jockeyThreshold customers waiting.
+     * Uses the same lock-free poll as the queue's own tellers.
+     * @return true if the teller took a customer
+     */
+    private boolean stealCustomer() {
+        if (victimQueues.isEmpty()) {
+            return false;
+        }
+        ConcurrentQueue<Customer> victim;
+        if (SimulationConfig.STEAL_FROM_RANDOM.equals(stealFrom)) {
+            victim = victimQueues.get(stealRandom.nextInt(victimQueues.size()));
+        } else {
+            victim = victimQueues.get(0);
+            for (ConcurrentQueue<Customer> queue : victimQueues) {
+                if (queue.size() > victim.size()) {
+                    victim = queue;
                 }
             }
         }
+        if (victim.size() < jockeyThreshold) {
+            return false;
+        }
+        Customer stolenCustomer = victim.poll();
+        if (stolenCustomer == null) {
+            return false;
+        }
+        context.customerStolen();
+        processCustomer(stolenCustomer, victim);
+        return true;
+    }
+
+    /**
+     * Records a dequeued customer's wait time and starts serving them.
+     * @param processedCustomer the customer the teller serves
+     * @param queue the queue the customer came from
+     */
+    private void processCustomer(Customer processedCustomer, ConcurrentQueue<Customer> queue) {
+        context.addQueuedWork(queue.getQueueID(), -processedCustomer.getServiceTime());
+        double waitTime = processedCustomer.getWaitTime();
+        long waitNanos = (long) (waitTime * EventDrivenSimulation.TICKS_PER_SECOND);
+        servingCustomer = processedCustomer;
+        servingWaitNanos = waitNanos;
+        context.recordQueueWaitTime(queue.getQueueID(), waitNanos);
+        context.recordClassWaitTime(processedCustomer.getCustomerClass(), waitNanos);
+        int processedCount = context.customerServed(processedCustomer.getCustomerID(), waitTime);
+        context.getEventLog().customerServed(tellerID, processedCustomer.getCustomerID(), queue.getQueueID(), waitNanos, processedCount);
+        TraceWriter traceWriter = context.getTraceWriter();
+        if (traceWriter.isEnabled()) {
+            traceWriter.customerServed(processedCustomer.getCustomerID(), processedCustomer.getArrivalTime(), processedCustomer.getServiceTime(),
+                    waitNanos * context.getTimeAcceleration(), queue.getQueueID() - 1, tellerID - 1);
+        }
     }
 
     /**
-     * Generates a time delay based on a provided dataset of random integers.
-     * @param randomDataIndex the data position of the random integer to be used
+     * Records a served customer's wait and service times, creating the teller's
+     * own histograms the first time unless they are shared.
+     * @param waitNanos the customer's wait in nanoseconds
+     * @param serviceNanos the customer's service in nanoseconds
      */
-    public void controlledRandomTimePasses(int randomDataIndex) {
-        try {
-            int randomCustomerArrivalDelay = randomDequeueTime[randomDataIndex];
-            sleep((1000 / timeAcceleration) * randomCustomerArrivalDelay);
-        } catch (Exception e) {
-            System.out.println("Reached end of test data.");
+    private void recordTimes(long waitNanos, long serviceNanos) {
+        if (sharedHistograms) {
+            waitTimes.recordConcurrent(waitNanos);
+            serviceTimes.recordConcurrent(serviceNanos);
+            return;
         }
+        if (waitTimes == null) {
+            waitTimes = new LatencyHistogram();
+            serviceTimes = new LatencyHistogram();
+        }
+        waitTimes.record(waitNanos);
+        serviceTimes.record(serviceNanos);
+    }
+
+    /**
+     * Makes the teller record into histograms shared with other tellers instead of
+     * its own. Used when there are too many tellers to give each their own histograms.
+     * @param waitTimes the shared wait time histogram
+     * @param serviceTimes the shared service time histogram
+     */
+    public void shareHistograms(LatencyHistogram waitTimes, LatencyHistogram serviceTimes) {
+        this.waitTimes = waitTimes;
+        this.serviceTimes = serviceTimes;
+        this.sharedHistograms = true;
     }
 
     /**
-     * Retrieves the total wait time from all tellers.
-     * @return the total time customers waited to get off the queue
+     * Retrieves the number of customers this teller has served. Safe to read while the teller works.
+     * @return the served customer count
      */
-    public static double getCustomerWaitTimeTotal() {
-        return customerWaitTimeTotal;
+    public long getCustomersServed() {
+        return customersServed;
     }
 
     /**
-     * Retrieves the average wait time from all tellers.
-     * @return the average wait time for each customer tellers served
+     * Retrieves the time this teller has spent serving customers. Safe to read while the teller works.
+     * @return the busy time in nanoseconds
      */
-    public static double getCustomerWaitTimeAverage() {
-        return customerWaitTimeAverage;
+    public long getBusyNanos() {
+        return busyNanos;
     }
 
     /**
-     * Retrieves the total number of customers tellers have served collectively.
-     * @return
+     * Retrieves the wait times of the customers this teller served. Safe to read while
+     * the teller works, as a MetricsSampler does: the histogram is then a live,
+     * approximate snapshot, and exact once the teller has finished.
+     * @return the wait time histogram in nanoseconds, or null if the teller served nobody
      */
-    public static int getTotalCustomersServed() {
-        return totalCustomersProcessedFinal;
+    public LatencyHistogram getWaitTimes() {
+        return waitTimes;
     }
 
     /**
-     * Resets the Teller class for re-use in another simulation.
+     * Retrieves the service times of the customers this teller served. Safe to read
+     * while the teller works, giving a live, approximate snapshot like getWaitTimes.
+     * @return the service time histogram in nanoseconds, or null if the teller served nobody
      */
-    public static void resetClass() {
-        timeAcceleration = 1;
-        totalCustomersProcessed = 0;
-        totalCustomersProcessedFinal = 0;
-        totalCustomersTarget = 0;
-        customerWaitTimeTotal = 0;
-        customerWaitTimeAverage = 0;
-        bankIsOpen = true;
-        lastID = -1;
-        nextTellerID = 1;
+    public LatencyHistogram getServiceTimes() {
+        return serviceTimes;
     }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.random.RandomGenerator;
+/**
+ * The sequence of arrival delays or service times one simulation run consumes,
+ * one value per customer in customer order. A stream either draws lazily from a
+ * Distribution with its own seeded random stream, replays a fixed data set of
+ * whole seconds, or replays the arrivals or service times of a recorded trace.
+ * Two streams created with the same seed give identical sequences, so single and
+ * multi-queue runs see the same customers. A stream's position can be saved and
+ * restored when its random numbers come from a SplitMixRandom.
+ */
+public class TimeStream {
+
+    private final Distribution distribution;    /* the distribution values are drawn from, or null */
+    private final RandomGenerator random;       /* the random stream of the distribution */
+    private final int[] values;                 /* the replayed data set in seconds, or null */
+    private final TraceReader trace;            /* the replayed trace, or null */
+    private final boolean traceArrivals;        /* whether the trace's arrival gaps are replayed rather than its service times */
+    private long nextIndex;                     /* the position of the next replayed value */
+    private long lastArrival;                   /* the arrival time of the previous replayed trace record */
+
+    /**
+     * Constructs a stream.
+     */
+    private TimeStream(Distribution distribution, RandomGenerator random, int[] values, TraceReader trace, boolean traceArrivals) {
+        this.distribution = distribution;
+        this.random = random;
+        this.values = values;
+        this.trace = trace;
+        this.traceArrivals = traceArrivals;
+    }
+
+    /**
+     * Creates a stream drawing from a distribution.
+     * @param distribution the distribution
+     * @param random the stream's own random numbers
+     * @return the stream
+     */
+    public static TimeStream of(Distribution distribution, RandomGenerator random) {
+        return new TimeStream(distribution, random, null, null, false);
+    }
+
+    /**
+     * Creates a stream replaying a data set of whole seconds, from the start again once it runs out.
+     * @param seconds the data set
+     * @return the stream
+     */
+    public static TimeStream of(int[] seconds) {
+        if (seconds.length == 0) {
+            throw new IllegalArgumentException("A replayed data set needs at least one value.");
+        }
+        return new TimeStream(null, null, seconds, null, false);
+    }
+
+    /**
+     * Creates a stream replaying the delays between the arrivals of a trace, in record order.
+     * @param trace the trace
+     * @return the stream
+     */
+    public static TimeStream arrivalsOf(TraceReader trace) {
+        return new TimeStream(null, null, null, trace, true);
+    }
+
+    /**
+     * Creates a stream replaying the service times of a trace, in record order.
+     * @param trace the trace
+     * @return the stream
+     */
+    public static TimeStream servicesOf(TraceReader trace) {
+        return new TimeStream(null, null, null, trace, false);
+    }
+
+    /**
+     * Retrieves the next value. A trace cannot be replayed past its last record.
+     * @param clock the current simulated time in ticks, used by time-varying distributions
+     * @return the value in ticks of EventDrivenSimulation
+     */
+    public long nextTicks(long clock) {
+        if (trace != null) {
+            long record = nextIndex++;
+            if (!traceArrivals) {
+                return trace.getServiceTime(record);
+            }
+            long arrival = trace.getArrivalTime(record);
+            long delay = Math.max(arrival - lastArrival, 0);
+            lastArrival = arrival;
+            return delay;
+        }
+        if (values != null) {
+            int seconds = values[(int) nextIndex];
+            nextIndex = nextIndex + 1 == values.length ? 0 : nextIndex + 1;
+            return EventDrivenSimulation.secondsToTicks(seconds);
+        }
+        double seconds = distribution.sample(random, (double) clock / EventDrivenSimulation.TICKS_PER_SECOND);
+        return Math.round(seconds * EventDrivenSimulation.TICKS_PER_SECOND);
+    }
+
+    /**
+     * Writes the stream's position: the next replayed value, or the state of its random numbers.
+     * @param out where the position goes
+     * @throws IOException if writing fails
+     * @throws IllegalStateException if the stream draws from a generator whose state cannot be saved
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(nextIndex);
+        out.writeLong(lastArrival);
+        if (distribution != null) {
+            if (!(random instanceof SplitMixRandom)) {
+                throw new IllegalStateException("Only streams drawing from a SplitMixRandom can be saved.");
+            }
+            ((SplitMixRandom) random).writeTo(out);
+        }
+    }
+
+    /**
+     * Moves the stream to a position written by writeTo of a stream created the same way.
+     * @param in where the position is read from
+     * @throws IOException if reading fails or the position does not fit the stream
+     */
+    public void readFrom(DataInput in) throws IOException {
+        long restoredIndex = in.readLong();
+        long restoredLastArrival = in.readLong();
+        if (restoredIndex < 0 || (values != null && restoredIndex >= values.length)
+                || (trace != null && restoredIndex > trace.getRecordCount())) {
+            throw new IOException("Invalid time stream position: " + restoredIndex);
+        }
+        if (distribution != null) {
+            if (!(random instanceof SplitMixRandom)) {
+                throw new IllegalStateException("Only streams drawing from a SplitMixRandom can be restored.");
+            }
+            ((SplitMixRandom) random).readFrom(in);
+        }
+        nextIndex = restoredIndex;
+        lastArrival = restoredLastArrival;
+    }
+}
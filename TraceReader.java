@@ -0,0 +1,164 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+/**
+ * Reads a binary trace written by TraceWriter, or converted from a branch's own logs
+ * into the same format. The file is mapped read-only in regions and records are read
+ * in place, so a trace of any size is streamed from the page cache without parsing or
+ * copying, and several streams and threads can read one trace at once.
+ */
+public class TraceReader implements AutoCloseable {
+
+    private final FileChannel channel;      /* the trace file */
+    private final ByteBuffer[] regions;     /* the mapped records, TraceWriter.REGION_RECORDS per region */
+    private final long recordCount;         /* the number of records in the trace */
+
+    /**
+     * Opens a trace file and maps its records.
+     * @param path the trace file
+     * @throws IOException if the file cannot be read or is not a trace
+     */
+    public TraceReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < TraceWriter.HEADER_BYTES) {
+                throw new IOException(path + " is too short to be a trace.");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, TraceWriter.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != TraceWriter.MAGIC) {
+                throw new IOException(path + " is not a trace.");
+            }
+            if (header.getInt(4) != TraceWriter.VERSION || header.getInt(8) != TraceWriter.RECORD_BYTES) {
+                throw new IOException(path + " has an unsupported trace version.");
+            }
+            recordCount = header.getLong(16);
+            if (recordCount < 0 || channel.size() < TraceWriter.HEADER_BYTES + recordCount * TraceWriter.RECORD_BYTES) {
+                throw new IOException(path + " is shorter than its header says.");
+            }
+            regions = new ByteBuffer[(int) ((recordCount + TraceWriter.REGION_RECORDS - 1) / TraceWriter.REGION_RECORDS)];
+            for (int r = 0; r < regions.length; r++) {
+                long first = (long) r * TraceWriter.REGION_RECORDS;
+                long records = Math.min(TraceWriter.REGION_RECORDS, recordCount - first);
+                regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, TraceWriter.HEADER_BYTES + first * TraceWriter.RECORD_BYTES,
+                        records * TraceWriter.RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the number of records in the trace.
+     * @return the record count
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Retrieves the arrival time of a customer.
+     * @param record the record's position, from 0
+     * @return the simulated time the customer arrived, in ticks
+     */
+    public long getArrivalTime(long record) {
+        return readLong(record, TraceWriter.ARRIVAL_OFFSET);
+    }
+
+    /**
+     * Retrieves the service time of a customer.
+     * @param record the record's position, from 0
+     * @return the customer's service time, in ticks
+     */
+    public long getServiceTime(long record) {
+        return readLong(record, TraceWriter.SERVICE_OFFSET);
+    }
+
+    /**
+     * Retrieves the wait time of a customer.
+     * @param record the record's position, from 0
+     * @return how long the customer waited in the queue, in ticks, or TraceWriter.NOT_SERVED if the customer balked
+     */
+    public long getWaitTime(long record) {
+        return readLong(record, TraceWriter.WAIT_OFFSET);
+    }
+
+    /**
+     * Retrieves the ID of a customer.
+     * @param record the record's position, from 0
+     * @return the customer's ID
+     */
+    public int getCustomerID(long record) {
+        return readInt(record, TraceWriter.CUSTOMER_OFFSET);
+    }
+
+    /**
+     * Retrieves the queue a customer waited in.
+     * @param record the record's position, from 0
+     * @return the queue index from 0, or -1 if unknown
+     */
+    public int getQueue(long record) {
+        return readInt(record, TraceWriter.QUEUE_OFFSET);
+    }
+
+    /**
+     * Retrieves the teller who served a customer.
+     * @param record the record's position, from 0
+     * @return the teller index from 0, or -1 if unknown
+     */
+    public int getTeller(long record) {
+        return readInt(record, TraceWriter.TELLER_OFFSET);
+    }
+
+    /**
+     * Reads a long field of a record.
+     * @param record the record's position
+     * @param field the field's offset within the record
+     * @return the value
+     */
+    private long readLong(long record, int field) {
+        checkRecord(record);
+        return regions[(int) (record / TraceWriter.REGION_RECORDS)]
+                .getLong((int) (record % TraceWriter.REGION_RECORDS) * TraceWriter.RECORD_BYTES + field);
+    }
+
+    /**
+     * Reads an int field of a record.
+     * @param record the record's position
+     * @param field the field's offset within the record
+     * @return the value
+     */
+    private int readInt(long record, int field) {
+        checkRecord(record);
+        return regions[(int) (record / TraceWriter.REGION_RECORDS)]
+                .getInt((int) (record % TraceWriter.REGION_RECORDS) * TraceWriter.RECORD_BYTES + field);
+    }
+
+    /**
+     * Checks that a record exists.
+     * @param record the record's position
+     * @throws IndexOutOfBoundsException if it does not
+     */
+    private void checkRecord(long record) {
+        if (record < 0 || record >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + record + " is beyond the " + recordCount + " records of the trace.");
+        }
+    }
+
+    /**
+     * Closes the trace file. The mapped records stay readable until they are garbage collected.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
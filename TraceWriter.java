@@ -0,0 +1,176 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAccumulator;
+/**
+ * Records a simulation run as a binary trace of one fixed-width record per customer,
+ * in customer order whoever served them, including customers who balked, so a replay
+ * sees every arrival. The file is mapped into memory in regions,
+ * so recording a customer is a handful of stores into the page cache: no system call,
+ * no lock and no allocation, and the operating system writes the pages out in the
+ * background. Tellers record the customers they serve concurrently, each into the
+ * record of its own customer. A disabled writer ignores every record.
+ *
+ * The file starts with a header of HEADER_BYTES (magic number, version, record size
+ * and record count), followed by records of RECORD_BYTES, all little-endian:
+ * arrival time, service time and wait time as longs in ticks of EventDrivenSimulation,
+ * then the customer ID, queue index and teller index as ints (indexes from 0, -1 if
+ * unknown) and an int of padding. A customer who balked has the wait time NOT_SERVED
+ * and teller -1. TraceReader reads the same format.
+ */
+public class TraceWriter implements AutoCloseable {
+
+    public static final int MAGIC = 0x52545142;     /* "BQTR" read as a little-endian int */
+    public static final int VERSION = 1;            /* the version of the record layout */
+    public static final int HEADER_BYTES = 32;      /* bytes before the first record */
+    public static final int RECORD_BYTES = 40;      /* bytes of every record */
+    public static final int ARRIVAL_OFFSET = 0;     /* arrival time within a record */
+    public static final int SERVICE_OFFSET = 8;     /* service time within a record */
+    public static final int WAIT_OFFSET = 16;       /* wait time within a record */
+    public static final int CUSTOMER_OFFSET = 24;   /* customer ID within a record */
+    public static final int QUEUE_OFFSET = 28;      /* queue index within a record */
+    public static final int TELLER_OFFSET = 32;     /* teller index within a record */
+    public static final int REGION_RECORDS = 1 << 24;   /* records mapped together, 640 MiB */
+    public static final long NOT_SERVED = -1;       /* the wait time of a customer who balked */
+
+    private static final TraceWriter DISABLED = new TraceWriter();
+
+    private final FileChannel channel;          /* the trace file, null for the disabled writer */
+    private final ByteBuffer header;            /* the mapped header */
+    private final ByteBuffer[] regions;         /* the mapped records, REGION_RECORDS per region */
+    private final long capacity;                /* the number of records the file has room for */
+    private final LongAccumulator recordCount = new LongAccumulator(Math::max, 0); /* 1 + the highest customer ID recorded */
+    private boolean closed;                     /* set once the file has been finished */
+
+    /**
+     * Constructs the disabled writer.
+     */
+    private TraceWriter() {
+        channel = null;
+        header = null;
+        regions = null;
+        capacity = 0;
+        closed = true;
+    }
+
+    /**
+     * Creates a trace file with room for a number of customers and maps it.
+     * An existing file is replaced.
+     * @param path the trace file
+     * @param capacity the number of customers the run will have
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public TraceWriter(Path path, long capacity) throws IOException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The trace capacity cannot be negative.");
+        }
+        this.capacity = capacity;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        regions = new ByteBuffer[(int) ((capacity + REGION_RECORDS - 1) / REGION_RECORDS)];
+        for (int r = 0; r < regions.length; r++) {
+            long first = (long) r * REGION_RECORDS;
+            long records = Math.min(REGION_RECORDS, capacity - first);
+            regions[r] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + first * RECORD_BYTES, records * RECORD_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, RECORD_BYTES);
+        header.putLong(16, 0);
+    }
+
+    /**
+     * Retrieves the writer that ignores every record.
+     * @return the disabled writer
+     */
+    public static TraceWriter disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Checks whether records are written at all, so callers can skip preparing them.
+     * @return false for the disabled writer
+     */
+    public boolean isEnabled() {
+        return channel != null;
+    }
+
+    /**
+     * Records a served customer. Safe to call from several threads for different customers.
+     * @param customerID the customer's ID, from 0, which is also the record's position
+     * @param arrivalTime the simulated time the customer arrived, in ticks
+     * @param serviceTime the customer's service time, in ticks
+     * @param waitTime how long the customer waited in the queue, in ticks
+     * @param queue the index of the queue the customer waited in, from 0
+     * @param teller the index of the teller who served the customer, from 0
+     * @throws IndexOutOfBoundsException if the customer ID is beyond the capacity
+     */
+    public void customerServed(int customerID, long arrivalTime, long serviceTime, long waitTime, int queue, int teller) {
+        if (channel == null) {
+            return;
+        }
+        if (customerID < 0 || customerID >= capacity) {
+            throw new IndexOutOfBoundsException("Customer " + customerID + " is beyond the trace capacity of " + capacity + ".");
+        }
+        ByteBuffer region = regions[customerID / REGION_RECORDS];
+        int offset = (customerID % REGION_RECORDS) * RECORD_BYTES;
+        region.putLong(offset + ARRIVAL_OFFSET, arrivalTime);
+        region.putLong(offset + SERVICE_OFFSET, serviceTime);
+        region.putLong(offset + WAIT_OFFSET, waitTime);
+        region.putInt(offset + CUSTOMER_OFFSET, customerID);
+        region.putInt(offset + QUEUE_OFFSET, queue);
+        region.putInt(offset + TELLER_OFFSET, teller);
+        recordCount.accumulate(customerID + 1L);
+    }
+
+    /**
+     * Records a customer who left because their queue was full, with the arrival and
+     * service times they came with, so that replaying the trace offers the same load.
+     * Safe to call from several threads for different customers.
+     * @param customerID the customer's ID, from 0, which is also the record's position
+     * @param arrivalTime the simulated time the customer arrived, in ticks
+     * @param serviceTime the service time the customer would have needed, in ticks
+     * @param queue the index of the full queue the customer was routed to, from 0
+     * @throws IndexOutOfBoundsException if the customer ID is beyond the capacity
+     */
+    public void customerBalked(int customerID, long arrivalTime, long serviceTime, int queue) {
+        customerServed(customerID, arrivalTime, serviceTime, NOT_SERVED, queue, -1);
+    }
+
+    /**
+     * Retrieves the number of records the trace holds so far.
+     * @return 1 + the highest customer ID recorded
+     */
+    public long getRecordCount() {
+        return recordCount.get();
+    }
+
+    /**
+     * Writes the record count into the header, cuts the file after the last record
+     * and closes it. Call once every teller has finished. The pages are left for the
+     * operating system to write out; the file is complete for any reader right away.
+     * @throws IOException if the file cannot be truncated or closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long records = recordCount.get();
+        header.putLong(16, records);
+        channel.truncate(HEADER_BYTES + records * RECORD_BYTES);
+        channel.close();
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import benchmarks.Workload;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * The operations measured by the JMH benchmarks of the benchmarks package, written in
+ * the default package so they can use the simulation's classes. Each factory method
+ * builds a workload once per trial; its run method is one benchmark invocation.
+ */
+public final class BenchmarkWorkloads {
+
+    /**
+     * Not instantiated.
+     */
+    private BenchmarkWorkloads() {
+    }
+
+    /**
+     * One enqueue and one dequeue on a Queue, on one thread.
+     * @return the workload
+     */
+    public static Workload queuePair() {
+        Queue<Integer> queue = new Queue<Integer>(1024);
+        Integer element = 1;
+        return blackhole -> {
+            queue.enqueue(element);
+            blackhole.consume(queue.dequeue());
+        };
+    }
+
+    /**
+     * Moves elements from one producer to several consumer threads through a fresh ring.
+     * The producer closes the ring after its last element and each consumer stops when
+     * take finds it closed and empty.
+     * @param ring "spsc", "mpmc" or "growable"; a growable ring starts with 2 slots
+     * @param consumers the number of consumer threads, 1 for "spsc"
+     * @param elements the number of elements moved per run
+     * @return the workload
+     */
+    public static Workload handOff(String ring, int consumers, int elements) {
+        if (ring.equals("spsc") && consumers != 1) {
+            throw new IllegalArgumentException("An SpscRingQueue has a single consumer.");
+        }
+        Integer element = 1;
+        return blackhole -> {
+            ConcurrentQueue<Integer> queue;
+            switch (ring) {
+                case "spsc":
+                    queue = new SpscRingQueue<Integer>(1024, 1);
+                    break;
+                case "mpmc":
+                    queue = new MpmcRingQueue<Integer>(1024, 1);
+                    break;
+                case "growable":
+                    queue = new GrowableRingQueue<Integer>(2, 1);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown ring: " + ring);
+            }
+            LongAdder received = new LongAdder();
+            Thread[] consumerThreads = new Thread[consumers];
+            for (int c = 0; c < consumers; c++) {
+                consumerThreads[c] = new Thread(() -> {
+                    try {
+                        while (queue.take() != null) {
+                            received.increment();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                consumerThreads[c].start();
+            }
+            for (int i = 0; i < elements; i++) {
+                queue.put(element);
+            }
+            queue.close();
+            for (Thread consumer : consumerThreads) {
+                consumer.join();
+            }
+            if (received.sum() != elements) {
+                throw new IllegalStateException("Expected " + elements + " elements but received " + received.sum());
+            }
+            blackhole.consume(received.sum());
+        };
+    }
+
+    /**
+     * Sends an element to an echo thread through one SpscRingQueue and waits for it to
+     * come back through another, so a run takes two hand-offs.
+     * @return the workload, whose close stops the echo thread
+     */
+    public static Workload roundTrip() {
+        SpscRingQueue<Long> requests = new SpscRingQueue<Long>(1024, 1);
+        SpscRingQueue<Long> replies = new SpscRingQueue<Long>(1024, 2);
+        Thread echo = new Thread(() -> {
+            try {
+                Long message;
+                while ((message = requests.take()) != null) {
+                    replies.put(message);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        echo.start();
+        Long message = 1L;
+        return new Workload() {
+            @Override
+            public void run(Blackhole blackhole) throws Exception {
+                requests.put(message);
+                blackhole.consume(replies.take());
+            }
+
+            @Override
+            public void close() throws Exception {
+                requests.close();
+                echo.join();
+            }
+        };
+    }
+
+    /**
+     * Routes one customer with a policy over queues whose lengths keep changing: the
+     * chosen queue grows and a random queue loses a customer.
+     * @param policyName the routing policy name
+     * @param totalQueues the number of queues
+     * @return the workload
+     */
+    public static Workload routing(String policyName, int totalQueues) {
+        RoutingPolicy policy = RoutingPolicy.create(policyName, 42);
+        QueueLengthIndex lengths = new QueueLengthIndex(totalQueues);
+        long[] work = new long[totalQueues];
+        QueueState state = new QueueState() {
+            public int getTotalQueues() {
+                return totalQueues;
+            }
+            public int getQueueLength(int queue) {
+                return lengths.length(queue);
+            }
+            public double getQueuedWork(int queue) {
+                return work[queue];
+            }
+            public int getShortestQueue() {
+                return lengths.shortest();
+            }
+        };
+        SplittableRandom random = new SplittableRandom(7);
+        return blackhole -> {
+            int queue = policy.selectQueue(state);
+            lengths.increment(queue);
+            work[queue] += 3;
+            int leaving = random.nextInt(totalQueues);
+            if (lengths.length(leaving) > 0) {
+                lengths.decrement(leaving);
+                work[leaving] -= 3;
+            }
+            blackhole.consume(queue);
+        };
+    }
+
+    /**
+     * Chooses the shortest queue for a number of customers with one of the methods of
+     * ShortestQueueBenchmark, including the original sort.
+     * @param method the selection method name
+     * @param totalQueues the number of queues
+     * @param operations the customers routed per run
+     * @return the workload
+     */
+    public static Workload shortestQueue(String method, int totalQueues, int operations) {
+        return blackhole -> blackhole.consume(ShortestQueueBenchmark.run(method, totalQueues, operations));
+    }
+
+    /**
+     * Runs the event-driven bank with three tellers on uniform 1 to 5 second times.
+     * The data sets are drawn once, so every run serves the same customers.
+     * @param multiQueue true for one queue per teller
+     * @param customers the customers served per run
+     * @return the workload
+     */
+    public static Workload eventDriven(boolean multiQueue, int customers) {
+        SplittableRandom random = new SplittableRandom(11);
+        int[] randomEnqueueTime = new int[customers];
+        int[] randomDequeueTime = new int[customers];
+        for (int i = 0; i < customers; i++) {
+            randomEnqueueTime[i] = random.nextInt(1, 6);
+            randomDequeueTime[i] = random.nextInt(1, 6);
+        }
+        EventDrivenSimulation simulation = new EventDrivenSimulation(customers, 3, randomEnqueueTime, randomDequeueTime, multiQueue);
+        return blackhole -> {
+            simulation.run();
+            blackhole.consume(simulation.getCustomerWaitTimeTotal());
+        };
+    }
+
+    /**
+     * Runs the threaded bank end to end: a reception and three tellers sharing one queue,
+     * on uniform 1 to 5 second times accelerated to microseconds, so a run measures the
+     * hand-offs, parking and wake-ups of the threaded model rather than its sleeps.
+     * @param carriers the number of actor carrier threads, or 0 for a thread per actor
+     * @param customers the customers served per run
+     * @return the workload
+     */
+    public static Workload threaded(int carriers, int customers) {
+        SimulationConfig config = SimulationConfig.builder()
+                .customers(customers)
+                .tellers(3)
+                .timeAcceleration(1000000)
+                .arrivals(Distribution.uniformInt(1, 5))
+                .services(Distribution.uniformInt(1, 5))
+                .seed(11)
+                .build();
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+        return blackhole -> {
+            BankSimulation<Customer> bank = new BankSimulation<Customer>(config);
+            bank.setEventLog(EventLog.disabled());
+            bank.setActorCarriers(carriers);
+            /* the bank announces its completion on standard output; keep it out of the JMH log */
+            PrintStream out = System.out;
+            System.setOut(quiet);
+            try {
+                bank.run();
+            } finally {
+                System.setOut(out);
+            }
+            if (bank.getTotalCustomersServed() != customers) {
+                throw new IllegalStateException("Expected " + customers + " customers served but got " + bank.getTotalCustomersServed());
+            }
+            blackhole.consume(bank.getCustomerWaitTimeTotal());
+        };
+    }
+}
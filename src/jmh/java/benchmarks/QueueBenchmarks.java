@@ -0,0 +1,101 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Throughput of the queues customers wait in: Queue on one thread, the ring buffers
+ * handing elements from one producer to one or more consumers, and the round trip
+ * of an element through two SpscRingQueues.
+ */
+public class QueueBenchmarks {
+
+    public static final int HAND_OFF_ELEMENTS = 100000; /* elements moved through a ring per invocation */
+
+    /**
+     * A Queue used by one thread.
+     */
+    @State(Scope.Thread)
+    public static class QueuePair {
+
+        Workload workload;  /* one enqueue and one dequeue */
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            workload = Workload.create("queuePair");
+        }
+    }
+
+    /**
+     * A ring and its number of consumers, written as ring-consumers.
+     */
+    @State(Scope.Thread)
+    public static class HandOff {
+
+        @Param({ "spsc-1", "mpmc-1", "mpmc-3", "growable-1", "growable-3" })
+        public String ring;
+
+        Workload workload;  /* moves HAND_OFF_ELEMENTS elements through a fresh ring */
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            String[] parts = ring.split("-");
+            workload = Workload.create("handOff", parts[0], Integer.parseInt(parts[1]), HAND_OFF_ELEMENTS);
+        }
+    }
+
+    /**
+     * Two SpscRingQueues and the thread echoing elements between them.
+     */
+    @State(Scope.Thread)
+    public static class RoundTrip {
+
+        Workload workload;  /* one element there and back */
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            workload = Workload.create("roundTrip");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            workload.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void queue(QueuePair state, Blackhole blackhole) throws Exception {
+        state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(HAND_OFF_ELEMENTS)
+    public void handOff(HandOff state, Blackhole blackhole) throws Exception {
+        state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void roundTrip(RoundTrip state, Blackhole blackhole) throws Exception {
+        state.workload.run(blackhole);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * The cost of choosing a queue for an arriving customer: each RoutingPolicy, and the
+ * shortest queue methods of ShortestQueueBenchmark including the original sort, over
+ * a small and a large bank.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RoutingBenchmarks {
+
+    public static final int SHORTEST_QUEUE_CUSTOMERS = 10000;   /* customers routed per shortest queue invocation */
+
+    /**
+     * A routing policy over queues whose lengths keep changing.
+     */
+    @State(Scope.Thread)
+    public static class Policy {
+
+        @Param({ "join-shortest-queue", "power-of-2", "round-robin", "random", "least-work" })
+        public String policy;
+
+        @Param({ "3", "200" })
+        public int queues;
+
+        Workload workload;  /* one routing decision */
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            workload = Workload.create("routing", policy, queues);
+        }
+    }
+
+    /**
+     * A way of finding the shortest queue.
+     */
+    @State(Scope.Thread)
+    public static class ShortestQueue {
+
+        @Param({ "sort", "scan", "two-choices", "indexed-heap" })
+        public String method;
+
+        @Param({ "3", "200" })
+        public int queues;
+
+        Workload workload;  /* SHORTEST_QUEUE_CUSTOMERS routing decisions */
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            workload = Workload.create("shortestQueue", method, queues, SHORTEST_QUEUE_CUSTOMERS);
+        }
+    }
+
+    @Benchmark
+    public void route(Policy state, Blackhole blackhole) throws Exception {
+        state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SHORTEST_QUEUE_CUSTOMERS)
+    public void shortestQueue(ShortestQueue state, Blackhole blackhole) throws Exception {
+        state.workload.run(blackhole);
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Customers served per second by whole banks of three tellers: the event-driven model
+ * with one shared queue or a queue per teller, and the threaded BankSimulation with a
+ * thread per actor or actors on carrier threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SimulationBenchmarks {
+
+    public static final int EVENT_DRIVEN_CUSTOMERS = 1000000;   /* customers per event-driven invocation */
+    public static final int THREADED_CUSTOMERS = 2000;          /* customers per threaded invocation */
+
+    /**
+     * An event-driven bank.
+     */
+    @State(Scope.Thread)
+    public static class EventDriven {
+
+        @Param({ "single", "multi" })
+        public String layout;
+
+        Workload workload;  /* serves EVENT_DRIVEN_CUSTOMERS customers */
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            workload = Workload.create("eventDriven", layout.equals("multi"), EVENT_DRIVEN_CUSTOMERS);
+        }
+    }
+
+    /**
+     * A threaded bank.
+     */
+    @State(Scope.Thread)
+    public static class Threaded {
+
+        @Param({ "0", "2" })
+        public int carriers;
+
+        Workload workload;  /* serves THREADED_CUSTOMERS customers with a new bank */
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            workload = Workload.create("threaded", carriers, THREADED_CUSTOMERS);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENT_DRIVEN_CUSTOMERS)
+    public void eventDriven(EventDriven state, Blackhole blackhole) throws Exception {
+        state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(THREADED_CUSTOMERS)
+    public void threaded(Threaded state, Blackhole blackhole) throws Exception {
+        state.workload.run(blackhole);
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * One operation measured by a JMH benchmark. JMH only generates code for benchmarks in
+ * a named package, and a named package cannot refer to the simulation's classes in the
+ * default package, so the operations are written next to them in BenchmarkWorkloads and
+ * reached through this interface. The benchmark methods stay a single interface call
+ * on a workload created once per trial.
+ */
+public interface Workload {
+
+    /**
+     * Runs the operation once, handing its results to the blackhole so they are not
+     * optimised away.
+     * @param blackhole consumes the results
+     * @throws Exception if the operation fails
+     */
+    void run(Blackhole blackhole) throws Exception;
+
+    /**
+     * Releases what the workload holds, such as its threads.
+     * @throws Exception if the threads cannot be stopped
+     */
+    default void close() throws Exception {
+    }
+
+    /**
+     * Creates a workload with one of the factory methods of BenchmarkWorkloads.
+     * @param name the factory method's name
+     * @param arguments the factory method's arguments
+     * @return the workload
+     * @throws Exception if there is no such factory method or it fails
+     */
+    static Workload create(String name, Object... arguments) throws Exception {
+        for (Method method : Class.forName("BenchmarkWorkloads").getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == arguments.length) {
+                try {
+                    return (Workload) method.invoke(null, arguments);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        }
+        throw new NoSuchMethodException("BenchmarkWorkloads." + name + " with " + arguments.length + " arguments");
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+/**
+ * Checks that ActorScheduler runs every actor to the end, and that the first
+ * exception of an actor stops the run and reaches the caller of runAll.
+ */
+public class ActorSchedulerTest {
+
+    /**
+     * An actor that takes a number of steps and then finishes, or throws instead of
+     * taking its last step.
+     */
+    private static class Counter implements SimulationActor {
+
+        final int steps;                        /* the steps to take */
+        final RuntimeException failure;         /* thrown instead of the last step, or null */
+        final AtomicInteger taken = new AtomicInteger();   /* steps taken so far */
+
+        Counter(int steps, RuntimeException failure) {
+            this.steps = steps;
+            this.failure = failure;
+        }
+
+        @Override
+        public long nextDelayNanos() {
+            return 1000;
+        }
+
+        @Override
+        public boolean step() {
+            if (failure != null && taken.get() == steps - 1) {
+                throw failure;
+            }
+            return taken.incrementAndGet() < steps;
+        }
+    }
+
+    /**
+     * An actor that waits for a signal nothing ever fires.
+     */
+    private static class Sleeper implements SimulationActor {
+
+        final IdleSignal idleSignal = new IdleSignal();     /* never fired */
+
+        @Override
+        public long nextDelayNanos() {
+            idleSignal.arm();
+            return AWAIT_SIGNAL;
+        }
+
+        @Override
+        public boolean step() {
+            return true;
+        }
+
+        @Override
+        public IdleSignal getIdleSignal() {
+            return idleSignal;
+        }
+    }
+
+    /**
+     * Checks that more actors than carriers all take every one of their steps.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void runsEveryActorToTheEnd() throws InterruptedException {
+        List<Counter> actors = List.of(new Counter(50, null), new Counter(20, null), new Counter(1, null));
+        new ActorScheduler(2).runAll(actors);
+        for (Counter actor : actors) {
+            assertEquals(actor.steps, actor.taken.get());
+        }
+    }
+
+    /**
+     * Checks that an actor's exception is rethrown by runAll, even though another
+     * actor is parked for good and would otherwise keep the run waiting.
+     */
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void failureIsRethrown() {
+        IllegalStateException failure = new IllegalStateException("Queue 1 is full.");
+        List<SimulationActor> actors = List.of(new Sleeper(), new Counter(5, failure), new Counter(10, null));
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> new ActorScheduler(2).runAll(actors)));
+    }
+}
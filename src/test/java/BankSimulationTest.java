@@ -0,0 +1,74 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+/**
+ * Checks that the threaded model of BankSimulation reports a failure of its
+ * reception or tellers instead of completing with partial results, whether they
+ * run on threads of their own or on carriers.
+ */
+public class BankSimulationTest {
+
+    /**
+     * Creates a bank whose single short queue fills up at once: customers arrive
+     * every millisecond of real time and take a tenth of a second each.
+     * @param overflow what happens to a customer routed to the full queue
+     * @return the bank
+     */
+    private static BankSimulation<Customer> crowdedBank(String overflow) {
+        SimulationConfig config = SimulationConfig.builder()
+                .customers(50)
+                .tellers(1)
+                .timeAcceleration(1000)
+                .arrivals(Distribution.constant(1))
+                .services(Distribution.constant(100))
+                .queueCapacity(2, overflow)
+                .build();
+        return new BankSimulation<Customer>(config);
+    }
+
+    /**
+     * Checks that a customer rejected by a full queue fails the run on threads.
+     */
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    public void rejectionFailsThreadedRun() {
+        BankSimulation<Customer> bank = crowdedBank(SimulationConfig.OVERFLOW_REJECT);
+        IllegalStateException failure = assertThrows(IllegalStateException.class, bank::run);
+        assertTrue(failure.getMessage().contains("is full"), failure.getMessage());
+    }
+
+    /**
+     * Checks that a customer rejected by a full queue fails the run on carriers.
+     */
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    public void rejectionFailsRunOnCarriers() {
+        BankSimulation<Customer> bank = crowdedBank(SimulationConfig.OVERFLOW_REJECT);
+        bank.setActorCarriers(2);
+        IllegalStateException failure = assertThrows(IllegalStateException.class, bank::run);
+        assertTrue(failure.getMessage().contains("is full"), failure.getMessage());
+    }
+
+    /**
+     * Checks that customers who balk at the full queue do not fail the run, and that
+     * every customer is either served or counted as balked.
+     */
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    public void balkingCompletesRun() {
+        BankSimulation<Customer> bank = crowdedBank(SimulationConfig.OVERFLOW_BALK);
+        bank.setActorCarriers(2);
+        bank.run();
+        assertTrue(bank.getTotalCustomersBalked() > 0, "no customer balked");
+        assertEquals(50, bank.getTotalCustomersServed() + bank.getTotalCustomersBalked());
+    }
+}
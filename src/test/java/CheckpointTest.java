@@ -0,0 +1,140 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+/**
+ * Checks the checkpoints of EventDrivenSimulation: a run saved part way and restored
+ * into another simulation finishes exactly like the run that was never interrupted,
+ * and a checkpoint is refused by a simulation of another configuration.
+ */
+public class CheckpointTest {
+
+    private static final long SEED = 20240611L;     /* seed of every run */
+
+    @TempDir
+    Path directory;                                 /* where the checkpoints are saved */
+
+    /**
+     * Creates a configuration that uses every part of the state a checkpoint saves:
+     * random routing, random work stealing, bounded queues and customer classes.
+     * @param services the service times
+     * @return the configuration
+     */
+    private static SimulationConfig config(Distribution services) {
+        return SimulationConfig.builder()
+                .customers(3000)
+                .tellers(4)
+                .queues(2)
+                .arrivals(Distribution.exponential(1))
+                .services(services)
+                .routing("power-of-2")
+                .workStealing(SimulationConfig.STEAL_FROM_RANDOM, 1)
+                .queueCapacity(8, SimulationConfig.OVERFLOW_BALK)
+                .customerClasses(new CustomerClass("gold", 0.3, 2, 5), new CustomerClass("standard", 0.7, 1, 30))
+                .scheduling(SimulationConfig.SCHEDULE_WEIGHTED_FAIR)
+                .seed(SEED)
+                .build();
+    }
+
+    /**
+     * Checks that two simulations finished with the same results.
+     * @param expected the simulation that was not interrupted
+     * @param actual the simulation restored from a checkpoint
+     */
+    private static void assertSameResults(EventDrivenSimulation expected, EventDrivenSimulation actual) {
+        assertEquals(expected.getTotalCustomersServed(), actual.getTotalCustomersServed());
+        assertEquals(expected.getTotalCustomersStolen(), actual.getTotalCustomersStolen());
+        assertEquals(expected.getTotalCustomersBalked(), actual.getTotalCustomersBalked());
+        assertEquals(expected.getCustomerWaitTimeTotal(), actual.getCustomerWaitTimeTotal());
+        assertEquals(expected.getSimulatedTime(), actual.getSimulatedTime());
+        assertEquals(expected.getRunSeed(), actual.getRunSeed());
+        for (double percentile : new double[] { 50, 90, 99, 100 }) {
+            assertEquals(expected.getWaitTimes().getValueAtPercentile(percentile),
+                    actual.getWaitTimes().getValueAtPercentile(percentile));
+        }
+        assertEquals(expected.getWaitTimes().getTotalCount(), actual.getWaitTimes().getTotalCount());
+    }
+
+    /**
+     * Runs a simulation part way, saves it, restores the checkpoint into a new
+     * simulation, and checks that both finish exactly like a run never interrupted.
+     * @throws IOException if the checkpoint cannot be saved or restored
+     */
+    @Test
+    public void restoredRunFinishesLikeUninterruptedRun() throws IOException {
+        SimulationConfig config = config(Distribution.exponential(3));
+        EventDrivenSimulation uninterrupted = new EventDrivenSimulation(config);
+        uninterrupted.run(SEED);
+        assertTrue(uninterrupted.getTotalCustomersBalked() > 0, "no customer balked");
+        assertTrue(uninterrupted.getTotalCustomersStolen() > 0, "no customer was stolen");
+
+        EventDrivenSimulation saved = new EventDrivenSimulation(config);
+        saved.start(SEED);
+        assertTrue(saved.advance(EventDrivenSimulation.secondsToTicks(1500)));
+        Path file = directory.resolve("run.checkpoint");
+        saved.saveCheckpoint(file);
+
+        EventDrivenSimulation restored = new EventDrivenSimulation(config);
+        restored.restoreCheckpoint(file);
+        assertEquals(saved.getTotalCustomersServed(), restored.getTotalCustomersServed());
+        assertFalse(restored.advance(Long.MAX_VALUE));
+        assertFalse(saved.advance(Long.MAX_VALUE));
+        assertSameResults(uninterrupted, saved);
+        assertSameResults(uninterrupted, restored);
+    }
+
+    /**
+     * Checks that a checkpoint saved before the first event restores a run that
+     * finishes like the uninterrupted one, and that saving replaces an older checkpoint.
+     * @throws IOException if the checkpoint cannot be saved or restored
+     */
+    @Test
+    public void checkpointBeforeFirstEventRestores() throws IOException {
+        SimulationConfig config = config(Distribution.exponential(3));
+        EventDrivenSimulation uninterrupted = new EventDrivenSimulation(config);
+        uninterrupted.run(SEED);
+
+        Path file = directory.resolve("run.checkpoint");
+        EventDrivenSimulation other = new EventDrivenSimulation(config);
+        other.run(SEED + 1);
+        other.saveCheckpoint(file);
+        EventDrivenSimulation saved = new EventDrivenSimulation(config);
+        saved.start(SEED);
+        saved.saveCheckpoint(file);
+
+        EventDrivenSimulation restored = new EventDrivenSimulation(config);
+        restored.restoreCheckpoint(file);
+        restored.advance(Long.MAX_VALUE);
+        assertSameResults(uninterrupted, restored);
+    }
+
+    /**
+     * Checks that a checkpoint is refused by a simulation of another configuration,
+     * including one whose empirical service times differ only in their values.
+     * @throws IOException if the checkpoint cannot be saved
+     */
+    @Test
+    public void checkpointOfAnotherConfigurationIsRefused() throws IOException {
+        EventDrivenSimulation saved = new EventDrivenSimulation(config(Distribution.empirical(new double[] { 1, 2, 3, 6 })));
+        saved.start(SEED);
+        saved.advance(EventDrivenSimulation.secondsToTicks(100));
+        Path file = directory.resolve("run.checkpoint");
+        saved.saveCheckpoint(file);
+
+        EventDrivenSimulation sameLength = new EventDrivenSimulation(config(Distribution.empirical(new double[] { 1, 2, 3, 7 })));
+        assertThrows(IOException.class, () -> sameLength.restoreCheckpoint(file));
+        EventDrivenSimulation exponential = new EventDrivenSimulation(config(Distribution.exponential(3)));
+        assertThrows(IOException.class, () -> exponential.restoreCheckpoint(file));
+        new EventDrivenSimulation(config(Distribution.empirical(new double[] { 1, 2, 3, 6 }))).restoreCheckpoint(file);
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+/**
+ * Checks the ring of EventLog: records are written in order, a full ring drops and
+ * counts records instead of blocking, and every record logged while the log closes
+ * is either written or counted as dropped.
+ */
+public class EventLogTest {
+
+    /**
+     * Checks that records come out formatted and in the order they were logged.
+     * @throws IOException if the log fails
+     */
+    @Test
+    public void writesRecordsInOrder() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventLog log = new EventLog(bytes, true, 16);
+        log.customerQueued(0, 2);
+        log.customerServed(1, 0, 2, 1500000000L, 1);
+        log.close();
+        assertEquals(List.of("Customer 1 added to Queue 2.",
+                "Teller 1 processed Customer 1 from Queue 2, waited 1.500 seconds. (1 served)"),
+                bytes.toString(StandardCharsets.UTF_8).lines().toList());
+        assertEquals(0, log.getDroppedRecords());
+    }
+
+    /**
+     * Checks that records logged while the writer is stuck fill the ring and the rest
+     * are dropped and counted, without blocking the caller.
+     * @throws Exception if the log fails or the test is interrupted
+     */
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void fullRingDropsAndCountsRecords() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream stuck = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                bytes.write(b, off, len);
+            }
+        };
+        EventLog log = new EventLog(stuck, true, 4);
+        log.customerQueued(0, 1);
+        writing.await();
+        for (int i = 1; i <= 10; i++) {
+            log.customerQueued(i, 1);
+        }
+        assertEquals(6, log.getDroppedRecords());
+        release.countDown();
+        log.close();
+        assertEquals(5, bytes.toString(StandardCharsets.UTF_8).lines().count());
+    }
+
+    /**
+     * Checks that the disabled log keeps nothing and that a closed log drops records.
+     * @throws IOException if the log fails
+     */
+    @Test
+    public void disabledAndClosedLogsKeepNothing() throws IOException {
+        EventLog disabled = EventLog.disabled();
+        assertFalse(disabled.isEnabled());
+        disabled.customerQueued(0, 1);
+        disabled.close();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventLog log = new EventLog(bytes, true, 16);
+        log.close();
+        log.customerQueued(0, 1);
+        assertEquals(1, log.getDroppedRecords());
+        assertEquals(0, bytes.size());
+    }
+
+    /**
+     * Has several threads log records while the log is closed under them, many times,
+     * and checks that every record was either written or counted as dropped.
+     * @throws Exception if the log fails or the test is interrupted
+     */
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    public void closeLosesNoRecordUncounted() throws Exception {
+        for (int round = 0; round < 100; round++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            EventLog log = new EventLog(bytes, true, 64);
+            LongAdder logged = new LongAdder();
+            Thread[] producers = new Thread[4];
+            for (int p = 0; p < producers.length; p++) {
+                producers[p] = new Thread(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        log.customerQueued(i, 1);
+                        logged.increment();
+                    }
+                });
+                producers[p].start();
+            }
+            Thread.sleep(round % 3);
+            log.close();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            long written = bytes.toString(StandardCharsets.UTF_8).lines().count();
+            assertEquals(logged.sum(), written + log.getDroppedRecords(), "round " + round);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+/**
+ * Checks GrowableRingQueue: it grows instead of refusing elements, keeps their order
+ * across the rings it grows through, and hands every element to exactly one of
+ * several consumers while it grows under them.
+ */
+public class GrowableRingQueueTest {
+
+    /**
+     * Checks that a queue starting with two slots takes far more elements, keeping them
+     * all, and reports the largest ring it can grow to as its capacity.
+     */
+    @Test
+    public void offerGrowsInsteadOfRefusing() {
+        GrowableRingQueue<Integer> queue = new GrowableRingQueue<Integer>(2, 1);
+        assertEquals(GrowableRingQueue.MAX_CAPACITY, queue.capacity());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.isFull());
+        assertEquals(100, queue.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    /**
+     * Checks the order of elements when the queue grows while consumers are part way
+     * through the old ring.
+     */
+    @Test
+    public void growingKeepsOrderOfPartlyReadRing() {
+        GrowableRingQueue<Integer> queue = new GrowableRingQueue<Integer>(4, 1);
+        int added = 0;
+        int taken = 0;
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 5; i++) {
+                queue.offer(added);
+                added += 1;
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(taken, queue.poll());
+                taken += 1;
+            }
+        }
+        while (taken < added) {
+            assertEquals(taken, queue.poll());
+            taken += 1;
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Checks that a closed queue still gives up its elements before take returns null.
+     * @throws InterruptedException never
+     */
+    @Test
+    public void takeDrainsClosedQueueThenReturnsNull() throws InterruptedException {
+        GrowableRingQueue<Integer> queue = new GrowableRingQueue<Integer>(2, 1);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        queue.close();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, queue.take());
+        }
+        assertNull(queue.take());
+    }
+
+    /**
+     * Moves elements from the queue's single producer to four consumers, starting from
+     * a ring of two slots so it grows while the consumers read.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    public void growableStress() throws InterruptedException {
+        RingQueueTest.stress(capacity -> new GrowableRingQueue<Integer>(2, 1), 1, 4);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+/**
+ * Checks the wake protocol between IdleSignal and the rings: a signal wakes its
+ * consumer once per arming, an element wakes at most one waiting consumer, a queue
+ * that already has an element or is closed fires at once, and thieves waiting for a
+ * backlog are woken only once it is reached and after the queue's own consumers.
+ */
+public class IdleSignalTest {
+
+    /**
+     * Checks that only an armed signal runs its wake action, and only once.
+     */
+    @Test
+    public void fireWakesOncePerArming() {
+        AtomicInteger wakes = new AtomicInteger();
+        IdleSignal signal = new IdleSignal(wakes::incrementAndGet);
+        assertFalse(signal.fire());
+        signal.arm();
+        assertTrue(signal.isArmed());
+        assertTrue(signal.fire());
+        assertFalse(signal.isArmed());
+        assertFalse(signal.fire());
+        assertEquals(1, wakes.get());
+    }
+
+    /**
+     * Checks that each added element wakes one of the consumers waiting on an empty queue.
+     */
+    @Test
+    public void elementWakesOneWaitingConsumer() {
+        MpmcRingQueue<Integer> queue = new MpmcRingQueue<Integer>(8, 1);
+        AtomicInteger wakes = new AtomicInteger();
+        IdleSignal first = new IdleSignal(wakes::incrementAndGet);
+        IdleSignal second = new IdleSignal(wakes::incrementAndGet);
+        first.arm();
+        second.arm();
+        queue.awaitElement(first);
+        queue.awaitElement(second);
+        assertEquals(0, wakes.get());
+        queue.offer(1);
+        assertEquals(1, wakes.get());
+        assertFalse(first.isArmed());
+        assertTrue(second.isArmed());
+        queue.offer(2);
+        assertEquals(2, wakes.get());
+        assertFalse(second.isArmed());
+    }
+
+    /**
+     * Checks that registering with a queue that already has an element fires at once,
+     * so a consumer that found the queue empty just before cannot miss the element.
+     */
+    @Test
+    public void awaitElementOnNonEmptyQueueFiresAtOnce() {
+        SpscRingQueue<Integer> queue = new SpscRingQueue<Integer>(8, 1);
+        queue.offer(1);
+        IdleSignal signal = new IdleSignal(() -> { });
+        signal.arm();
+        queue.awaitElement(signal);
+        assertFalse(signal.isArmed());
+    }
+
+    /**
+     * Checks that close wakes every waiting consumer and that registering with a closed
+     * queue fires at once.
+     */
+    @Test
+    public void closeWakesEveryConsumer() {
+        MpmcRingQueue<Integer> queue = new MpmcRingQueue<Integer>(8, 1);
+        AtomicInteger wakes = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            IdleSignal signal = new IdleSignal(wakes::incrementAndGet);
+            signal.arm();
+            queue.awaitElement(signal);
+        }
+        queue.close();
+        assertEquals(3, wakes.get());
+        IdleSignal late = new IdleSignal(wakes::incrementAndGet);
+        late.arm();
+        queue.awaitElement(late);
+        assertEquals(4, wakes.get());
+    }
+
+    /**
+     * Checks that a consumer waiting on two queues is woken once by the first of them,
+     * and that its registration left in the other queue does nothing.
+     */
+    @Test
+    public void registrationLeftInAnotherQueueIsHarmless() {
+        MpmcRingQueue<Integer> firstQueue = new MpmcRingQueue<Integer>(8, 1);
+        MpmcRingQueue<Integer> secondQueue = new MpmcRingQueue<Integer>(8, 2);
+        AtomicInteger wakes = new AtomicInteger();
+        IdleSignal signal = new IdleSignal(wakes::incrementAndGet);
+        signal.arm();
+        firstQueue.awaitElement(signal);
+        secondQueue.awaitElement(signal);
+        firstQueue.offer(1);
+        secondQueue.offer(2);
+        assertEquals(1, wakes.get());
+    }
+
+    /**
+     * Checks that a thief is woken only once the backlog is reached, and that the
+     * queue's own waiting consumer is woken first.
+     */
+    @Test
+    public void backlogWakesThiefAfterOwnConsumers() {
+        MpmcRingQueue<Integer> queue = new MpmcRingQueue<Integer>(8, 1);
+        IdleSignal consumer = new IdleSignal(() -> { });
+        IdleSignal thief = new IdleSignal(() -> { });
+        consumer.arm();
+        thief.arm();
+        queue.awaitElement(consumer);
+        queue.awaitBacklog(thief, 3);
+        queue.offer(1);
+        assertFalse(consumer.isArmed());
+        assertTrue(thief.isArmed());
+        queue.offer(2);
+        assertTrue(thief.isArmed());
+        queue.offer(3);
+        assertFalse(thief.isArmed());
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+/**
+ * Checks LatencyHistogram: percentiles within the precision of its buckets, merging,
+ * concurrent recording, and that a histogram read back from writeTo is the same.
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Writes a histogram and reads it back.
+     * @param histogram the histogram
+     * @return the histogram read from what was written
+     * @throws IOException if the round trip fails
+     */
+    private static LatencyHistogram roundTrip(LatencyHistogram histogram) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.writeTo(new DataOutputStream(bytes));
+        return LatencyHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    /**
+     * Checks that small values are exact and large ones within the bucket precision,
+     * and that the maximum is exact.
+     */
+    @Test
+    public void percentilesAreWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1000000, histogram.getTotalCount());
+        assertEquals(1000000, histogram.getMaxValue());
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        double tolerance = 1.0 / (1 << LatencyHistogram.DEFAULT_PRECISION_BITS);
+        for (double percentile : new double[] { 50, 90, 99, 99.9 }) {
+            double expected = percentile / 100 * 1000000;
+            double actual = histogram.getValueAtPercentile(percentile);
+            assertTrue(actual >= expected && actual <= expected * (1 + tolerance), percentile + "th percentile was " + actual);
+        }
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+        assertEquals(500000.5, histogram.getMean(), 500000.5 * tolerance);
+
+        LatencyHistogram small = new LatencyHistogram();
+        for (long value = 0; value < 64; value++) {
+            small.record(value);
+        }
+        assertEquals(31, small.getValueAtPercentile(50));
+    }
+
+    /**
+     * Checks that a histogram read back from writeTo gives the same count, maximum,
+     * percentiles and mean, and that empty histograms survive the round trip.
+     * @throws IOException if the round trip fails
+     */
+    @Test
+    public void writeToAndReadFromRoundTrip() throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 10000; i++) {
+            histogram.record((long) (-Math.log(1 - random.nextDouble()) * 1e9));
+        }
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram copy = roundTrip(histogram);
+        assertEquals(histogram.getTotalCount(), copy.getTotalCount());
+        assertEquals(histogram.getMaxValue(), copy.getMaxValue());
+        for (double percentile = 0; percentile <= 100; percentile += 0.5) {
+            assertEquals(histogram.getValueAtPercentile(percentile), copy.getValueAtPercentile(percentile));
+        }
+        assertEquals(histogram.getMean(), copy.getMean());
+
+        LatencyHistogram empty = roundTrip(new LatencyHistogram(3, 20));
+        assertEquals(0, empty.getTotalCount());
+        empty.merge(new LatencyHistogram(3, 20));
+    }
+
+    /**
+     * Checks that data that is not a histogram is refused rather than misread.
+     */
+    @Test
+    public void readFromRejectsCorruptData() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        assertThrows(IOException.class, () -> {
+            out.writeByte(0);
+            out.writeByte(70);
+            LatencyHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        });
+        assertThrows(IOException.class, () -> {
+            bytes.reset();
+            out.writeByte(6);
+            out.writeByte(50);
+            out.writeLong(1);
+            out.writeLong(1);
+            out.writeInt(1);
+            out.writeInt(Integer.MAX_VALUE);
+            out.writeLong(1);
+            LatencyHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        });
+    }
+
+    /**
+     * Checks that merging gives the same histogram as recording everything in one,
+     * and that histograms of different layouts cannot be merged.
+     */
+    @Test
+    public void mergeAddsCounts() {
+        LatencyHistogram all = new LatencyHistogram();
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (long value = 0; value < 5000; value++) {
+            all.record(value * 7919);
+            (value % 2 == 0 ? first : second).record(value * 7919);
+        }
+        first.merge(second);
+        assertEquals(all.getTotalCount(), first.getTotalCount());
+        assertEquals(all.getMaxValue(), first.getMaxValue());
+        assertEquals(all.getValueAtPercentile(99), first.getValueAtPercentile(99));
+        assertThrows(IllegalArgumentException.class, () -> first.merge(new LatencyHistogram(4, 40)));
+    }
+
+    /**
+     * Checks that recordConcurrent from several threads loses no value.
+     * @throws Exception if the test is interrupted or the round trip fails
+     */
+    @Test
+    public void recordConcurrentLosesNothing() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long offset = t;
+            threads[t] = new Thread(() -> {
+                for (long i = 0; i < 100000; i++) {
+                    histogram.recordConcurrent(i % 100 + offset);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400000, histogram.getTotalCount());
+        assertEquals(102, histogram.getMaxValue());
+        assertEquals(400000, roundTrip(histogram).getTotalCount());
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+/**
+ * Checks PipelineSimulation: every customer makes it through stages that run on
+ * threads of their own and hand customers over in batches, a stage with a visit
+ * probability below 1 serves that share of them, and the results of a seed do not
+ * depend on how the threads were scheduled.
+ */
+public class PipelineSimulationTest {
+
+    private static final int CUSTOMERS = 3 * PipelineSimulation.BATCH_SIZE * PipelineSimulation.HANDOFF_BATCHES + 17; /* fills the hand-offs, ends mid-batch */
+    private static final double ADVISOR_SHARE = 0.3;    /* the share of customers who see an advisor */
+
+    /**
+     * Creates a pipeline of a reception, tellers, and an advisor desk only some
+     * customers visit.
+     * @param seed the seed of the run
+     * @return the pipeline
+     */
+    private static PipelineSimulation pipeline(long seed) {
+        List<PipelineSimulation.Stage> stages = List.of(
+                new PipelineSimulation.Stage("reception", 1, 1, RoutingPolicy.JOIN_SHORTEST_QUEUE, Distribution.exponential(0.5), 1),
+                new PipelineSimulation.Stage("tellers", 3, 3, RoutingPolicy.POWER_OF_TWO_CHOICES, Distribution.exponential(2), 1),
+                new PipelineSimulation.Stage("advisor", 1, 1, RoutingPolicy.RANDOM, Distribution.exponential(2), ADVISOR_SHARE));
+        return new PipelineSimulation(CUSTOMERS, Distribution.exponential(1), seed, stages);
+    }
+
+    /**
+     * Checks that two histograms hold the same values.
+     * @param expected the first histogram
+     * @param actual the second histogram
+     */
+    private static void assertSameHistogram(LatencyHistogram expected, LatencyHistogram actual) {
+        assertEquals(expected.getTotalCount(), actual.getTotalCount());
+        assertEquals(expected.getMaxValue(), actual.getMaxValue());
+        assertEquals(expected.getMean(), actual.getMean());
+        for (double percentile = 0; percentile <= 100; percentile += 5) {
+            assertEquals(expected.getValueAtPercentile(percentile), actual.getValueAtPercentile(percentile));
+        }
+    }
+
+    /**
+     * Checks that every customer leaves the last stage, having passed every stage
+     * they visit, and that the advisor served about its visit probability of them.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    public void everyCustomerCompletes() throws InterruptedException {
+        PipelineSimulation pipeline = pipeline(11);
+        pipeline.run();
+        assertEquals(CUSTOMERS, pipeline.getCustomersCompleted());
+        assertEquals(CUSTOMERS, pipeline.getEndToEndTimes().getTotalCount());
+        assertEquals(CUSTOMERS, pipeline.getStageCustomersServed(0));
+        assertEquals(CUSTOMERS, pipeline.getStageCustomersServed(1));
+        long advised = pipeline.getStageCustomersServed(2);
+        assertEquals(ADVISOR_SHARE, (double) advised / CUSTOMERS, 0.02);
+        assertEquals(advised, pipeline.getStageWaitTimes(2).getTotalCount());
+        assertEquals(1, pipeline.getBottleneckStage());
+        for (int s = 0; s < pipeline.getTotalStages(); s++) {
+            double utilization = pipeline.getStageUtilization(s);
+            assertTrue(utilization > 0 && utilization <= 1, "stage " + s + " utilization was " + utilization);
+        }
+    }
+
+    /**
+     * Checks that two runs of the same seed give identical results at every stage,
+     * and that the same pipeline object can be run again.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    public void sameSeedGivesIdenticalHistograms() throws InterruptedException {
+        PipelineSimulation first = pipeline(23);
+        first.run();
+        PipelineSimulation second = pipeline(23);
+        second.run();
+        for (int round = 0; round < 2; round++) {
+            assertSameHistogram(first.getEndToEndTimes(), second.getEndToEndTimes());
+            for (int s = 0; s < first.getTotalStages(); s++) {
+                assertEquals(first.getStageCustomersServed(s), second.getStageCustomersServed(s));
+                assertSameHistogram(first.getStageWaitTimes(s), second.getStageWaitTimes(s));
+                assertSameHistogram(first.getStageServiceTimes(s), second.getStageServiceTimes(s));
+                assertSameHistogram(first.getStageResponseTimes(s), second.getStageResponseTimes(s));
+            }
+            second.run();
+        }
+    }
+}
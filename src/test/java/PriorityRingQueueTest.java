@@ -0,0 +1,140 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+/**
+ * Checks PriorityRingQueue with each scheduling policy of ClassScheduler: which
+ * class is served next, arrival order within a class, and the shared capacity.
+ */
+public class PriorityRingQueueTest {
+
+    private static final long SECOND = EventDrivenSimulation.TICKS_PER_SECOND;  /* one second in ticks */
+
+    private static final List<CustomerClass> CLASSES = List.of(
+            new CustomerClass("gold", 0.5, 2, 10),          /* twice the weight, ten second target wait */
+            new CustomerClass("standard", 0.5, 1, 1));      /* one second target wait */
+
+    /**
+     * Creates a queue of the two test classes.
+     * @param scheduling the scheduling policy
+     * @param capacity the most customers waiting, or 0 for no limit
+     * @return the queue
+     */
+    private static PriorityRingQueue queue(String scheduling, int capacity) {
+        return new PriorityRingQueue(capacity, 1, new ClassScheduler(scheduling, CLASSES), CLASSES.size());
+    }
+
+    /**
+     * Creates a customer.
+     * @param customerID the customer's ID
+     * @param arrivalSeconds when the customer arrives
+     * @param customerClass the customer's class
+     * @return the customer
+     */
+    private static Customer customer(int customerID, int arrivalSeconds, int customerClass) {
+        return new Customer(customerID, arrivalSeconds * SECOND, SECOND, customerClass);
+    }
+
+    /**
+     * Checks that strict priority serves the first class while it has customers waiting,
+     * each class in arrival order.
+     */
+    @Test
+    public void priorityServesFirstClassFirst() {
+        PriorityRingQueue queue = queue(SimulationConfig.SCHEDULE_PRIORITY, 0);
+        queue.offer(customer(1, 0, 1));
+        queue.offer(customer(2, 1, 0));
+        queue.offer(customer(3, 2, 1));
+        queue.offer(customer(4, 3, 0));
+        assertEquals(2, queue.size(0));
+        assertEquals(2, queue.size(1));
+        int[] order = { 2, 4, 1, 3 };
+        for (int customerID : order) {
+            assertEquals(customerID, queue.poll().getCustomerID());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Checks that FIFO serves customers in arrival order whatever their class.
+     */
+    @Test
+    public void fifoServesInArrivalOrder() {
+        PriorityRingQueue queue = queue(SimulationConfig.SCHEDULE_FIFO, 0);
+        queue.offer(customer(1, 0, 1));
+        queue.offer(customer(2, 1, 0));
+        queue.offer(customer(3, 2, 1));
+        queue.offer(customer(4, 3, 0));
+        for (int customerID = 1; customerID <= 4; customerID++) {
+            assertEquals(customerID, queue.poll().getCustomerID());
+        }
+    }
+
+    /**
+     * Checks that weighted fair scheduling serves two gold customers for every
+     * standard one while both classes have customers waiting.
+     */
+    @Test
+    public void weightedFairSharesByWeight() {
+        PriorityRingQueue queue = queue(SimulationConfig.SCHEDULE_WEIGHTED_FAIR, 0);
+        for (int i = 0; i < 12; i++) {
+            queue.offer(customer(i, i, i % 2));
+        }
+        int[] served = new int[2];
+        for (int i = 0; i < 9; i++) {
+            served[queue.poll().getCustomerClass()] += 1;
+        }
+        assertEquals(6, served[0]);
+        assertEquals(3, served[1]);
+    }
+
+    /**
+     * Checks that earliest deadline first serves a standard customer who arrived later
+     * but whose one second target runs out before the gold customer's ten seconds.
+     */
+    @Test
+    public void earliestDeadlineFirstServesSoonestDeadline() {
+        PriorityRingQueue queue = queue(SimulationConfig.SCHEDULE_EDF, 0);
+        queue.offer(customer(1, 0, 0));
+        queue.offer(customer(2, 2, 1));
+        queue.offer(customer(3, 20, 1));
+        assertEquals(2, queue.poll().getCustomerID());
+        assertEquals(1, queue.poll().getCustomerID());
+        assertEquals(3, queue.poll().getCustomerID());
+    }
+
+    /**
+     * Checks that the capacity counts the customers of every class.
+     */
+    @Test
+    public void capacityIsSharedByAllClasses() {
+        PriorityRingQueue queue = queue(SimulationConfig.SCHEDULE_PRIORITY, 3);
+        assertEquals(3, queue.capacity());
+        assertTrue(queue.offer(customer(1, 0, 0)));
+        assertTrue(queue.offer(customer(2, 0, 1)));
+        assertTrue(queue.offer(customer(3, 0, 1)));
+        assertTrue(queue.isFull());
+        assertFalse(queue.offer(customer(4, 0, 0)));
+        queue.poll();
+        assertTrue(queue.offer(customer(4, 0, 0)));
+    }
+
+    /**
+     * Checks that a queue refuses more classes than a scheduler can tell apart.
+     */
+    @Test
+    public void rejectsTooManyClasses() {
+        ClassScheduler scheduler = new ClassScheduler(SimulationConfig.SCHEDULE_FIFO, CLASSES);
+        assertThrows(IllegalArgumentException.class, () -> new PriorityRingQueue(0, 1, scheduler, ClassScheduler.MAX_CLASSES + 1));
+    }
+}
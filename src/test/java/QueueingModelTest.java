@@ -0,0 +1,156 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+/**
+ * Checks QueueingModel against results worked out by hand: the Erlang C formula,
+ * the exact M/M/1 and M/D/1 waits, and the Allen-Cunneen approximation for G/G/c.
+ */
+public class QueueingModelTest {
+
+    private static final double EPSILON = 1e-9;     /* tolerance of exact results */
+
+    @TempDir
+    Path directory;                                 /* where test traces are written */
+
+    /**
+     * Checks Erlang C against closed forms: rho for one server, 1/3 for two servers
+     * at load 1, and 4/9 for three servers at load 2.
+     */
+    @Test
+    public void erlangCMatchesClosedForms() {
+        assertEquals(0.5, QueueingModel.erlangC(1, 0.5), EPSILON);
+        assertEquals(1.0 / 3, QueueingModel.erlangC(2, 1), EPSILON);
+        assertEquals(4.0 / 9, QueueingModel.erlangC(3, 2), EPSILON);
+        assertEquals(0, QueueingModel.erlangC(4, 0), EPSILON);
+        assertEquals(1, QueueingModel.erlangC(3, 3), EPSILON);
+        assertThrows(IllegalArgumentException.class, () -> QueueingModel.erlangC(0, 1));
+    }
+
+    /**
+     * Checks that Erlang C stays a probability for thousands of servers, where the
+     * factorials of the textbook formula would overflow.
+     */
+    @Test
+    public void erlangCStaysFiniteForManyServers() {
+        double probability = QueueingModel.erlangC(5000, 4900);
+        assertTrue(probability > 0 && probability < 1, "P(wait) was " + probability);
+        assertTrue(QueueingModel.erlangC(5000, 4990) > probability);
+    }
+
+    /**
+     * Checks M/M/1 with one customer every 2 seconds served in 1 second on average:
+     * a wait of rho / (mu - lambda) = 1 second and half a customer in line.
+     */
+    @Test
+    public void mm1WaitIsExact() {
+        QueueingModel model = QueueingModel.estimate(2, 4, 1, 1, 1);
+        assertEquals("M/M/1", model.getModel());
+        assertTrue(model.isExact());
+        assertEquals(1e6, model.getWaitMicros(), 1e6 * EPSILON);
+        assertEquals(0.5, model.getQueueLength(), EPSILON);
+        assertEquals(0.5, model.getUtilization(), EPSILON);
+        assertEquals(0.5, model.getProbabilityOfWaiting(), EPSILON);
+        assertEquals(2e6, model.getResponseMicros(), 1e6 * EPSILON);
+    }
+
+    /**
+     * Checks M/D/1, where Allen-Cunneen reduces to the exact Pollaczek-Khinchine wait
+     * rho / (2 mu (1 - rho)) = 0.5 seconds.
+     */
+    @Test
+    public void md1WaitIsPollaczekKhinchine() {
+        QueueingModel model = QueueingModel.estimate(2, 4, 1, 0, 1);
+        assertEquals("M/D/1", model.getModel());
+        assertTrue(model.isExact());
+        assertEquals(0.5e6, model.getWaitMicros(), 1e6 * EPSILON);
+    }
+
+    /**
+     * Checks the Allen-Cunneen approximation for G/G/3: the M/M/3 wait scaled by the
+     * mean of the squared coefficients of variation of arrivals and services.
+     */
+    @Test
+    public void ggcWaitIsAllenCunneen() {
+        double arrivalMean = 1;
+        double serviceMean = 2;
+        double mm3Wait = QueueingModel.erlangC(3, 2) * serviceMean / (3 - 2);
+        QueueingModel mm3 = QueueingModel.estimate(arrivalMean, 1, serviceMean, 4, 3);
+        assertEquals("M/M/3", mm3.getModel());
+        assertEquals(mm3Wait * 1e6, mm3.getWaitMicros(), 1e6 * EPSILON);
+        QueueingModel gg3 = QueueingModel.estimate(arrivalMean, 0.25, serviceMean, 1, 3);
+        assertEquals("G/G/3", gg3.getModel());
+        assertFalse(gg3.isExact());
+        assertEquals(mm3Wait * (0.25 + 0.25) / 2 * 1e6, gg3.getWaitMicros(), 1e6 * EPSILON);
+    }
+
+    /**
+     * Checks that a queue whose tellers cannot keep up has an infinite wait.
+     */
+    @Test
+    public void overloadedQueueIsUnstable() {
+        QueueingModel model = QueueingModel.estimate(1, 1, 2, 4, 2);
+        assertFalse(model.isStable());
+        assertEquals(Double.POSITIVE_INFINITY, model.getWaitMicros());
+        assertEquals(1, model.getProbabilityOfWaiting());
+    }
+
+    /**
+     * Checks that a bank's configuration is estimated as one M/M/c station when every
+     * teller serves one shared queue.
+     */
+    @Test
+    public void singleQueueBankIsOneStation() {
+        SimulationConfig config = SimulationConfig.builder()
+                .customers(1000)
+                .tellers(3)
+                .arrivals(Distribution.exponential(1))
+                .services(Distribution.exponential(2))
+                .build();
+        QueueingModel model = QueueingModel.estimate(config);
+        assertEquals("M/M/3", model.getModel());
+        assertEquals(QueueingModel.estimate(1, 1, 2, 4, 3).getWaitMicros(), model.getWaitMicros(), 1e-3);
+    }
+
+    /**
+     * Checks an estimate from a replayed trace whose arrival gaps alternate between a
+     * quarter and three quarters of a second, served in a quarter of a second each:
+     * utilization 1/2, and the M/M/1 wait of 1/4 second scaled by Allen-Cunneen.
+     * @throws IOException if the trace cannot be written or read
+     */
+    @Test
+    public void traceWithSubSecondTimesIsEstimated() throws IOException {
+        int customers = 1000;
+        long quarter = EventDrivenSimulation.TICKS_PER_SECOND / 4;
+        Path file = directory.resolve("quarters.trace");
+        try (TraceWriter writer = new TraceWriter(file, customers)) {
+            long arrival = 0;
+            for (int c = 0; c < customers; c++) {
+                arrival += c % 2 == 0 ? quarter : 3 * quarter;
+                writer.customerServed(c, arrival, quarter, 0, 0, 0);
+            }
+        }
+        try (TraceReader trace = new TraceReader(file)) {
+            SimulationConfig config = SimulationConfig.builder()
+                    .customers(customers)
+                    .tellers(1)
+                    .replay(trace)
+                    .build();
+            QueueingModel model = QueueingModel.estimate(config);
+            assertEquals("G/D/1", model.getModel());
+            assertEquals(0.5, model.getUtilization(), EPSILON);
+            double arrivalScv = 0.0625 * customers / (customers - 1) / 0.25;
+            assertEquals(0.25 * (arrivalScv + 0) / 2 * 1e6, model.getWaitMicros(), 1e6 * EPSILON);
+        }
+    }
+}
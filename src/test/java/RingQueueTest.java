@@ -0,0 +1,246 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+/**
+ * Checks the lock-free rings SpscRingQueue and MpmcRingQueue: capacity, order, the
+ * blocking calls and closing, and under several threads that every element added is
+ * taken exactly once and that each producer's elements are taken in the order added.
+ */
+public class RingQueueTest {
+
+    private static final int STRESS_ELEMENTS = 200000;  /* elements each producer adds in a stress check */
+
+    /**
+     * Checks that both rings round their capacity up to a power of two and refuse
+     * elements once full.
+     */
+    @Test
+    public void offerRefusesElementsOnceFull() {
+        for (ConcurrentQueue<Integer> queue : List.of(new SpscRingQueue<Integer>(5, 1), new MpmcRingQueue<Integer>(5, 1))) {
+            assertEquals(8, queue.capacity());
+            for (int i = 0; i < 8; i++) {
+                assertTrue(queue.offer(i));
+            }
+            assertTrue(queue.isFull());
+            assertFalse(queue.offer(8));
+            assertEquals(8, queue.size());
+        }
+    }
+
+    /**
+     * Checks that elements come out in the order they went in, across several laps
+     * of the ring, and that an empty ring polls null.
+     */
+    @Test
+    public void pollReturnsElementsInOrder() {
+        for (ConcurrentQueue<Integer> queue : List.of(new SpscRingQueue<Integer>(4, 1), new MpmcRingQueue<Integer>(4, 1))) {
+            int next = 0;
+            for (int lap = 0; lap < 10; lap++) {
+                for (int i = 0; i < 3; i++) {
+                    assertTrue(queue.offer(lap * 3 + i));
+                }
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(next, queue.poll());
+                    next += 1;
+                }
+            }
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    /**
+     * Checks that drainTo removes at most the requested number of elements, in order.
+     */
+    @Test
+    public void drainToRemovesElementsInOrder() {
+        MpmcRingQueue<Integer> queue = new MpmcRingQueue<Integer>(8, 1);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        List<Integer> sink = new ArrayList<Integer>();
+        assertEquals(3, queue.drainTo(sink, 3));
+        assertEquals(List.of(0, 1, 2), sink);
+        assertEquals(2, queue.drainTo(sink, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4), sink);
+    }
+
+    /**
+     * Checks that the rings hold no nulls, which poll uses to mean empty.
+     */
+    @Test
+    public void offerRejectsNull() {
+        assertThrows(NullPointerException.class, () -> new SpscRingQueue<Integer>(4, 1).offer(null));
+        assertThrows(NullPointerException.class, () -> new MpmcRingQueue<Integer>(4, 1).offer(null));
+    }
+
+    /**
+     * Checks that take still returns the elements added before close, then null.
+     * @throws InterruptedException never
+     */
+    @Test
+    public void takeDrainsClosedQueueThenReturnsNull() throws InterruptedException {
+        MpmcRingQueue<Integer> queue = new MpmcRingQueue<Integer>(4, 1);
+        queue.offer(1);
+        queue.offer(2);
+        queue.close();
+        assertTrue(queue.isClosed());
+        assertEquals(1, queue.take());
+        assertEquals(2, queue.take());
+        assertNull(queue.take());
+    }
+
+    /**
+     * Checks that close wakes a consumer waiting in take on an empty queue.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void closeWakesWaitingConsumer() throws InterruptedException {
+        SpscRingQueue<Integer> queue = new SpscRingQueue<Integer>(4, 1);
+        Integer[] taken = { 0 };
+        Thread consumer = new Thread(() -> {
+            try {
+                taken[0] = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+        queue.close();
+        consumer.join();
+        assertNull(taken[0]);
+    }
+
+    /**
+     * Checks that put waits for room in a full queue rather than dropping the element.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void putWaitsForRoom() throws InterruptedException {
+        MpmcRingQueue<Integer> queue = new MpmcRingQueue<Integer>(2, 1);
+        queue.offer(0);
+        queue.offer(1);
+        Thread producer = new Thread(() -> {
+            try {
+                queue.put(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        Thread.sleep(50);
+        assertEquals(0, queue.poll());
+        producer.join();
+        assertEquals(1, queue.poll());
+        assertEquals(2, queue.poll());
+    }
+
+    /**
+     * Moves elements from one producer to one consumer through a small SpscRingQueue.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    public void spscStress() throws InterruptedException {
+        stress(capacity -> new SpscRingQueue<Integer>(capacity, 1), 1, 1);
+    }
+
+    /**
+     * Moves elements from several producers to several consumers through a small MpmcRingQueue.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    public void mpmcStress() throws InterruptedException {
+        stress(capacity -> new MpmcRingQueue<Integer>(capacity, 1), 4, 4);
+    }
+
+    /**
+     * Has producers put numbered elements into a small queue while consumers take them
+     * until the queue is closed, then checks that every element was taken exactly once
+     * and that each consumer saw each producer's elements in increasing order.
+     * Element p * STRESS_ELEMENTS + i is the i-th element of producer p.
+     * @param queues creates the queue from its capacity
+     * @param producers the number of producer threads
+     * @param consumers the number of consumer threads
+     * @throws InterruptedException if the test is interrupted
+     */
+    static void stress(IntFunction<ConcurrentQueue<Integer>> queues, int producers, int consumers) throws InterruptedException {
+        ConcurrentQueue<Integer> queue = queues.apply(64);
+        AtomicIntegerArray takenCounts = new AtomicIntegerArray(producers * STRESS_ELEMENTS);
+        boolean[] outOfOrder = new boolean[consumers];
+        Thread[] consumerThreads = new Thread[consumers];
+        for (int c = 0; c < consumers; c++) {
+            int consumer = c;
+            consumerThreads[c] = new Thread(() -> {
+                int[] lastTaken = new int[producers];
+                Arrays.fill(lastTaken, -1);
+                try {
+                    Integer element;
+                    while ((element = queue.take()) != null) {
+                        takenCounts.incrementAndGet(element);
+                        int producer = element / STRESS_ELEMENTS;
+                        int position = element % STRESS_ELEMENTS;
+                        if (position <= lastTaken[producer]) {
+                            outOfOrder[consumer] = true;
+                        }
+                        lastTaken[producer] = position;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            consumerThreads[c].start();
+        }
+        Thread[] producerThreads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            producerThreads[p] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < STRESS_ELEMENTS; i++) {
+                        queue.put(producer * STRESS_ELEMENTS + i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            producerThreads[p].start();
+        }
+        for (Thread producer : producerThreads) {
+            producer.join();
+        }
+        queue.close();
+        for (Thread consumer : consumerThreads) {
+            consumer.join();
+        }
+        int[] counts = new int[takenCounts.length()];
+        int[] expected = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = takenCounts.get(i);
+            expected[i] = 1;
+        }
+        assertArrayEquals(expected, counts, "every element is taken exactly once");
+        assertArrayEquals(new boolean[consumers], outOfOrder, "each producer's elements are taken in order");
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+/**
+ * Checks how an actor run on its own thread waits for its IdleSignal: an element
+ * added to the queue it waits on wakes it, and interrupting its thread stops it.
+ */
+public class SimulationActorTest {
+
+    /**
+     * An actor that takes the elements of a queue, waiting for its signal while the
+     * queue is empty, until the queue is closed and empty.
+     */
+    private static class Consumer implements SimulationActor {
+
+        final ConcurrentQueue<Integer> queue;   /* the queue the actor takes from */
+        final IdleSignal idleSignal = new IdleSignal();     /* fired by the queue */
+        final AtomicInteger taken = new AtomicInteger();   /* elements taken so far */
+        Integer element;                        /* the element taken for the next step */
+
+        Consumer(ConcurrentQueue<Integer> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public long nextDelayNanos() {
+            element = queue.poll();
+            if (element == null && !queue.isClosed()) {
+                idleSignal.arm();
+                queue.awaitElement(idleSignal);
+                return AWAIT_SIGNAL;
+            }
+            return 0;
+        }
+
+        @Override
+        public boolean step() {
+            if (element != null) {
+                taken.incrementAndGet();
+                return true;
+            }
+            return !queue.isClosed() || !queue.isEmpty();
+        }
+
+        @Override
+        public IdleSignal getIdleSignal() {
+            return idleSignal;
+        }
+    }
+
+    /**
+     * Checks that an actor parked on an empty queue takes elements added later and
+     * finishes once the queue is closed.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void signalWakesParkedActor() throws InterruptedException {
+        MpmcRingQueue<Integer> queue = new MpmcRingQueue<Integer>(8, 1);
+        Consumer actor = new Consumer(queue);
+        Thread thread = new Thread(actor);
+        thread.start();
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(10);
+            queue.offer(i);
+        }
+        queue.close();
+        thread.join();
+        assertEquals(5, actor.taken.get());
+    }
+
+    /**
+     * Checks that interrupting the thread of an actor parked on its signal stops the
+     * actor, even though nothing fires the signal.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void interruptStopsParkedActor() throws InterruptedException {
+        Consumer actor = new Consumer(new MpmcRingQueue<Integer>(8, 1));
+        Thread thread = new Thread(actor);
+        thread.start();
+        Thread.sleep(50);
+        thread.interrupt();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+/**
+ * Checks that SplitMixRandom gives exactly the numbers of SplittableRandom, split or
+ * not, and that a generator restored from writeTo continues where the saved one was.
+ */
+public class SplitMixRandomTest {
+
+    private static final long[] SEEDS = { 0, 1, 42, -7, Long.MIN_VALUE, 0x9e3779b97f4a7c15L };  /* seeds compared */
+
+    /**
+     * Checks every kind of number the simulation draws against SplittableRandom.
+     */
+    @Test
+    public void matchesSplittableRandom() {
+        for (long seed : SEEDS) {
+            SplittableRandom expected = new SplittableRandom(seed);
+            SplitMixRandom actual = new SplitMixRandom(seed);
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(expected.nextLong(), actual.nextLong());
+                assertEquals(expected.nextInt(), actual.nextInt());
+                assertEquals(expected.nextInt(7), actual.nextInt(7));
+                assertEquals(expected.nextInt(1, 6), actual.nextInt(1, 6));
+                assertEquals(expected.nextDouble(), actual.nextDouble());
+                assertEquals(expected.nextGaussian(), actual.nextGaussian());
+                assertEquals(expected.nextLong(1000000007L), actual.nextLong(1000000007L));
+            }
+        }
+    }
+
+    /**
+     * Checks that split streams, and streams split from split streams, match too.
+     */
+    @Test
+    public void splitsMatchSplittableRandom() {
+        for (long seed : SEEDS) {
+            SplittableRandom expectedRoot = new SplittableRandom(seed);
+            SplitMixRandom actualRoot = new SplitMixRandom(seed);
+            for (int s = 0; s < 5; s++) {
+                SplittableRandom expected = expectedRoot.split().split();
+                SplitMixRandom actual = actualRoot.split().split();
+                for (int i = 0; i < 100; i++) {
+                    assertEquals(expected.nextLong(), actual.nextLong());
+                    assertEquals(expected.nextDouble(), actual.nextDouble());
+                }
+            }
+            assertEquals(expectedRoot.nextLong(), actualRoot.nextLong());
+        }
+    }
+
+    /**
+     * Checks that a generator restored part way through a split stream gives the same
+     * numbers as the one that was saved.
+     * @throws IOException if the state cannot be written or read
+     */
+    @Test
+    public void restoredGeneratorContinuesStream() throws IOException {
+        SplitMixRandom original = new SplitMixRandom(99).split();
+        for (int i = 0; i < 37; i++) {
+            original.nextDouble();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.writeTo(new DataOutputStream(bytes));
+        SplitMixRandom restored = new SplitMixRandom(0);
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(original.nextLong(), restored.nextLong());
+        }
+        assertEquals(original.split().nextLong(), restored.split().nextLong());
+    }
+
+    /**
+     * Checks that a state with an even increment, which no generator can have, is refused.
+     */
+    @Test
+    public void readFromRejectsEvenGamma() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        assertThrows(IOException.class, () -> {
+            out.writeLong(1);
+            out.writeLong(2);
+            new SplitMixRandom(0).readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        });
+    }
+}
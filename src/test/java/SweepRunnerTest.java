@@ -0,0 +1,120 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+/**
+ * Checks the caches of SweepRunner: cells with the same key are simulated once, a
+ * later runner finds every cell in the cache directory with the same values and
+ * settings, and a runner finds the cells it has already seen in memory.
+ */
+public class SweepRunnerTest {
+
+    private static final int CUSTOMERS = 300;       /* customers of every replication */
+    private static final int REPLICATIONS = 3;      /* replications of every cell */
+    private static final long SEED = 5;             /* seed of every sweep */
+    private static final double PRECISION = 1e-8;   /* relative precision of the values in a cache file */
+
+    @TempDir
+    Path directory;                                 /* the cache directory */
+
+    /**
+     * Builds a grid of 16 cells with 8 distinct keys: single-queue cells ignore the
+     * routing, and a bank of one teller has one queue either way.
+     * @return the cells
+     */
+    private static List<SweepRunner.Cell> grid() {
+        return SweepRunner.grid(new int[] { 1, 2 }, new boolean[] { false, true }, new String[] { "exponential:1" },
+                new String[] { "exponential:0.8", "erlang:2:0.8" },
+                new String[] { RoutingPolicy.JOIN_SHORTEST_QUEUE, RoutingPolicy.POWER_OF_TWO_CHOICES });
+    }
+
+    /**
+     * Creates a runner caching into the test directory.
+     * @param seed the seed of the sweep
+     * @return the runner
+     */
+    private SweepRunner runner(long seed) {
+        return new SweepRunner(CUSTOMERS, REPLICATIONS, seed, 2, directory, SweepRunner.DEFAULT_MEMORY_CELLS);
+    }
+
+    /**
+     * Checks that two results hold the same values, to the precision of a cache file.
+     * @param expected the result that was simulated
+     * @param actual the result read from a cache
+     */
+    private static void assertSameResult(SweepRunner.CellResult expected, SweepRunner.CellResult actual) {
+        SweepRunner.Cell expectedCell = expected.getCell();
+        SweepRunner.Cell actualCell = actual.getCell();
+        assertEquals(expectedCell.getTellers(), actualCell.getTellers());
+        assertEquals(expectedCell.isMultiQueue(), actualCell.isMultiQueue());
+        assertEquals(expectedCell.getArrivals(), actualCell.getArrivals());
+        assertEquals(expectedCell.getServices(), actualCell.getServices());
+        assertEquals(expectedCell.getRouting(), actualCell.getRouting());
+        assertEquals(expected.getReplications(), actual.getReplications());
+        assertEquals(expected.getWaitMean(), actual.getWaitMean(), Math.abs(expected.getWaitMean()) * PRECISION);
+        assertEquals(expected.getWaitHalfWidth(), actual.getWaitHalfWidth(), Math.abs(expected.getWaitHalfWidth()) * PRECISION);
+        assertEquals(expected.getWaitMinimum(), actual.getWaitMinimum(), Math.abs(expected.getWaitMinimum()) * PRECISION);
+        assertEquals(expected.getWaitMaximum(), actual.getWaitMaximum(), Math.abs(expected.getWaitMaximum()) * PRECISION);
+        assertEquals(expected.getAnalyticWait(), actual.getAnalyticWait(), Math.abs(expected.getAnalyticWait()) * PRECISION);
+        assertEquals(expected.getAnalyticUtilization(), actual.getAnalyticUtilization(),
+                Math.abs(expected.getAnalyticUtilization()) * PRECISION);
+        assertTrue(actual.isCached());
+    }
+
+    /**
+     * Runs a grid, then runs it again with a new runner on the same cache directory,
+     * then again with the same runner, and checks where each cell came from.
+     */
+    @Test
+    public void secondRunReadsEveryCellFromCache() {
+        List<SweepRunner.Cell> cells = grid();
+        SweepRunner first = runner(SEED);
+        List<SweepRunner.CellResult> simulated = first.run(cells);
+        assertEquals(16, simulated.size());
+        assertEquals(8, first.getCellsSimulated());
+        assertEquals(0, first.getCellsFromDisk());
+        assertEquals(0, first.getCellsFromMemory());
+        for (SweepRunner.CellResult result : simulated) {
+            assertFalse(result.isCached());
+            assertTrue(result.getWaitMean() > 0);
+        }
+        assertEquals(simulated.get(0).getWaitMean(), simulated.get(1).getWaitMean());
+
+        SweepRunner second = runner(SEED);
+        List<SweepRunner.CellResult> fromDisk = second.run(cells);
+        assertEquals(0, second.getCellsSimulated());
+        assertEquals(8, second.getCellsFromDisk());
+        for (int c = 0; c < cells.size(); c++) {
+            assertSameResult(simulated.get(c), fromDisk.get(c));
+        }
+
+        List<SweepRunner.CellResult> fromMemory = second.run(cells);
+        assertEquals(0, second.getCellsSimulated());
+        assertEquals(8, second.getCellsFromMemory());
+        for (int c = 0; c < cells.size(); c++) {
+            assertSameResult(simulated.get(c), fromMemory.get(c));
+        }
+    }
+
+    /**
+     * Checks that a sweep of another seed does not reuse the cached cells of the first.
+     */
+    @Test
+    public void otherSeedIsSimulatedAgain() {
+        List<SweepRunner.Cell> cells = grid();
+        runner(SEED).run(cells);
+        SweepRunner other = runner(SEED + 1);
+        other.run(cells);
+        assertEquals(8, other.getCellsSimulated());
+        assertEquals(0, other.getCellsFromDisk());
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Queueing Theory - Bank Queue Simulation
+ * Single VS Multi-Line Queues by Pao Yu
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+/**
+ * Checks that a run recorded with TraceWriter and replayed through TraceReader sees
+ * the same customers, including those who balked at a full queue.
+ */
+public class TraceReplayTest {
+
+    private static final int CUSTOMERS = 2000;      /* customers of every run */
+
+    @TempDir
+    Path directory;                                 /* where the traces are written */
+
+    /**
+     * Creates a bank whose short queues make customers balk.
+     * @param builder the builder with the arrival and service times set
+     * @return the configuration
+     */
+    private static SimulationConfig config(SimulationConfig.Builder builder) {
+        return builder
+                .customers(CUSTOMERS)
+                .tellers(3)
+                .queues(3)
+                .routing(RoutingPolicy.JOIN_SHORTEST_QUEUE)
+                .queueCapacity(2, SimulationConfig.OVERFLOW_BALK)
+                .build();
+    }
+
+    /**
+     * Runs a simulation and records it.
+     * @param config the configuration
+     * @param file the trace file
+     * @return the finished simulation
+     * @throws IOException if the trace cannot be written
+     */
+    private static EventDrivenSimulation record(SimulationConfig config, Path file) throws IOException {
+        EventDrivenSimulation simulation = new EventDrivenSimulation(config);
+        try (TraceWriter writer = new TraceWriter(file, CUSTOMERS)) {
+            simulation.setTraceWriter(writer);
+            simulation.run(7);
+        }
+        return simulation;
+    }
+
+    /**
+     * Records a run in which customers balk, replays its trace, and checks that the
+     * replay arrives, balks and serves exactly like the original.
+     * @throws IOException if a trace cannot be written or read
+     */
+    @Test
+    public void replayWithBalkingMatchesRecordedRun() throws IOException {
+        SimulationConfig recordedConfig = config(SimulationConfig.builder()
+                .arrivals(Distribution.exponential(0.5))
+                .services(Distribution.exponential(1.5)));
+        Path recordedFile = directory.resolve("recorded.trace");
+        EventDrivenSimulation recorded = record(recordedConfig, recordedFile);
+        assertTrue(recorded.getTotalCustomersBalked() > 0, "no customer balked");
+
+        try (TraceReader trace = new TraceReader(recordedFile)) {
+            assertEquals(CUSTOMERS, trace.getRecordCount());
+            int balked = 0;
+            for (long r = 0; r < trace.getRecordCount(); r++) {
+                assertEquals(r, trace.getCustomerID(r));
+                assertTrue(trace.getServiceTime(r) > 0, "record " + r + " has no service time");
+                if (r > 0) {
+                    assertTrue(trace.getArrivalTime(r) >= trace.getArrivalTime(r - 1), "record " + r + " arrives too early");
+                }
+                if (trace.getWaitTime(r) == TraceWriter.NOT_SERVED) {
+                    assertEquals(-1, trace.getTeller(r));
+                    balked += 1;
+                }
+            }
+            assertEquals(recorded.getTotalCustomersBalked(), balked);
+
+            Path replayedFile = directory.resolve("replayed.trace");
+            EventDrivenSimulation replayed = record(config(SimulationConfig.builder().replay(trace)), replayedFile);
+            assertEquals(recorded.getTotalCustomersBalked(), replayed.getTotalCustomersBalked());
+            assertEquals(recorded.getTotalCustomersServed(), replayed.getTotalCustomersServed());
+            assertEquals(recorded.getCustomerWaitTimeTotal(), replayed.getCustomerWaitTimeTotal());
+            assertEquals(recorded.getSimulatedTime(), replayed.getSimulatedTime());
+            try (TraceReader replayedTrace = new TraceReader(replayedFile)) {
+                for (long r = 0; r < trace.getRecordCount(); r++) {
+                    assertEquals(trace.getArrivalTime(r), replayedTrace.getArrivalTime(r));
+                    assertEquals(trace.getServiceTime(r), replayedTrace.getServiceTime(r));
+                    assertEquals(trace.getWaitTime(r), replayedTrace.getWaitTime(r));
+                }
+            }
+        }
+    }
+}